@@ -0,0 +1,69 @@
+package org.wnn.benchmark.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * 单线程延迟记录（纳秒），按需扩容的原始数组，结束后合并排序计算分位数
+ *
+ * @author NanNan Wang
+ */
+final class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int size;
+    private long errors;
+
+    void record(long nanos) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size << 1);
+        }
+        samples[size++] = nanos;
+    }
+
+    void recordError() {
+        errors++;
+    }
+
+    void reset() {
+        size = 0;
+        errors = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long errors() {
+        return errors;
+    }
+
+    /**
+     * 合并多个线程的记录
+     */
+    static LatencyRecorder merge(Iterable<LatencyRecorder> recorders) {
+        LatencyRecorder merged = new LatencyRecorder();
+        for (LatencyRecorder recorder : recorders) {
+            if (merged.samples.length < merged.size + recorder.size) {
+                merged.samples = Arrays.copyOf(merged.samples, merged.size + recorder.size);
+            }
+            System.arraycopy(recorder.samples, 0, merged.samples, merged.size, recorder.size);
+            merged.size += recorder.size;
+            merged.errors += recorder.errors;
+        }
+        Arrays.sort(merged.samples, 0, merged.size);
+        return merged;
+    }
+
+    /**
+     * 分位数（需先经过 {@link #merge} 排序）
+     * @param percentile 0 ~ 100
+     * @return 纳秒，无样本时返回0
+     */
+    long percentile(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * size) - 1;
+        return samples[Math.min(size - 1, Math.max(0, index))];
+    }
+}
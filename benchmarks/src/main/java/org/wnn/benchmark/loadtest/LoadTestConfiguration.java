@@ -0,0 +1,22 @@
+package org.wnn.benchmark.loadtest;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * 压测环境附加配置，与 portal 的启动类一起加载
+ *
+ * @author NanNan Wang
+ */
+@Configuration
+@EnableConfigurationProperties(LoadTestProperties.class)
+public class LoadTestConfiguration {
+
+    @Bean
+    public LoadTestDatabaseInitializer loadTestDatabaseInitializer(DataSource dataSource, LoadTestProperties loadTestProperties) {
+        return new LoadTestDatabaseInitializer(dataSource, loadTestProperties);
+    }
+}
@@ -0,0 +1,102 @@
+package org.wnn.benchmark.loadtest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.util.StreamUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 压测数据库初始化
+ * <p>
+ * 在 H2（MySQL兼容模式）中执行 portal 的 db.sql 建表并写入元信息，再按配置生成 job_info_zipper / job_info 数据。
+ * db.sql 中 MySQL 特有的 {@code #} 行注释和索引注释在执行前去掉。
+ * 在容器刷新阶段执行，早于元信息缓存在启动完成后的预热。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class LoadTestDatabaseInitializer implements InitializingBean {
+
+    static final String SCHEMA_SCRIPT = "db.sql"; // portal 的建表脚本
+    static final LocalDate FIRST_EFFECTIVE_DATE = LocalDate.of(2020, 1, 1); // 生成数据的第一个版本的生效时间
+    static final int VERSION_DAYS = 30; // 生成数据相邻版本的生效时间间隔（天）
+
+    private static final Pattern HASH_COMMENT = Pattern.compile("(?m)^\\s*#(?!\\{).*$"); // MySQL 的 # 行注释（排除 #{} 占位符开头的行）
+    private static final Pattern INDEX_COMMENT = Pattern.compile("(?im)^(\\s*(?:UNIQUE\\s+)?(?:KEY|INDEX)\\s+\\w+\\s*\\([^)]*\\))\\s+COMMENT\\s+'[^']*'"); // 索引上的 COMMENT（H2不支持）
+    private static final LocalDate MAX_END_DATE = LocalDate.of(9999, 12, 31);
+    private static final int BATCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+    private final LoadTestProperties properties;
+
+    @Override
+    public void afterPropertiesSet() throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        String script = StreamUtils.copyToString(new ClassPathResource(SCHEMA_SCRIPT).getInputStream(), StandardCharsets.UTF_8);
+        script = HASH_COMMENT.matcher(script).replaceAll("");
+        script = INDEX_COMMENT.matcher(script).replaceAll("$1");
+        try (Connection connection = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(connection, new ByteArrayResource(script.getBytes(StandardCharsets.UTF_8)));
+        }
+        generate(new JdbcTemplate(dataSource));
+        log.info("压测数据初始化完成，业务键:{}，每个业务键版本数:{}，耗时:{}ms", properties.getKeys(), properties.getVersionsPerKey(),
+                System.currentTimeMillis() - start);
+    }
+
+    private void generate(JdbcTemplate jdbcTemplate) {
+        LocalDate today = LocalDate.now();
+        List<Object[]> zipperRows = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> businessRows = new ArrayList<>(BATCH_SIZE);
+        for (int k = 0; k < properties.getKeys(); k++) {
+            String jobCode = jobCodeOf(k);
+            Object[] current = null;
+            for (int v = 0; v < properties.getVersionsPerKey(); v++) {
+                LocalDate effectiveDate = FIRST_EFFECTIVE_DATE.plusDays((long) v * VERSION_DAYS);
+                LocalDate effectiveEndDate = v == properties.getVersionsPerKey() - 1 ? MAX_END_DATE : effectiveDate.plusDays(VERSION_DAYS);
+                Object[] row = {jobCode, "职位" + k + "-" + v, "单位" + (k % 20), "P" + (v % 10), 1,
+                        Date.valueOf(effectiveDate), Date.valueOf(effectiveEndDate)};
+                zipperRows.add(row);
+                if (!effectiveDate.isAfter(today) && today.isBefore(effectiveEndDate)) {
+                    current = row;
+                }
+            }
+            if (current != null) {
+                businessRows.add(new Object[]{jobCode, current[1], current[2], current[3], 1, 1});
+            }
+            if (zipperRows.size() >= BATCH_SIZE) {
+                flush(jdbcTemplate, zipperRows, businessRows);
+            }
+        }
+        flush(jdbcTemplate, zipperRows, businessRows);
+    }
+
+    private static void flush(JdbcTemplate jdbcTemplate, List<Object[]> zipperRows, List<Object[]> businessRows) {
+        jdbcTemplate.batchUpdate("INSERT INTO job_info_zipper (job_code, job_name, org_unit, job_grade, job_status, effective_date, effective_end_date) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", zipperRows);
+        jdbcTemplate.batchUpdate("INSERT INTO job_info (job_code, job_name, org_unit, job_grade, job_status, effective_status, update_date) "
+                + "VALUES (?, ?, ?, ?, ?, ?, CURRENT_DATE)", businessRows);
+        zipperRows.clear();
+        businessRows.clear();
+    }
+
+    static String jobCodeOf(int index) {
+        return String.format("LT%07d", index);
+    }
+}
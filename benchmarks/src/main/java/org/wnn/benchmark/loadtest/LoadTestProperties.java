@@ -0,0 +1,24 @@
+package org.wnn.benchmark.loadtest;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 压测配置属性类，与"loadtest"前缀的配置绑定，可通过命令行参数覆盖（如 --loadtest.threads=16）
+ *
+ * @author NanNan Wang
+ */
+@Data
+@ConfigurationProperties(prefix = "loadtest")
+public class LoadTestProperties {
+
+    private int keys = 1000; // 生成的业务键（职位）数量
+    private int versionsPerKey = 10; // 每个业务键初始的历史版本数
+    private int threads = 8; // 并发线程数，业务键按线程分片，线程之间不会修改同一个业务键
+    private int warmupSeconds = 10; // 预热时长（秒），预热期间的结果不计入报告
+    private int durationSeconds = 30; // 压测时长（秒）
+    private int insertWeight = 40; // 新增请求的占比权重
+    private int updateWeight = 40; // 更新请求的占比权重
+    private int deleteWeight = 20; // 删除请求的占比权重
+    private String resultFile = "loadtest-result.json"; // 结果文件（JSON）
+}
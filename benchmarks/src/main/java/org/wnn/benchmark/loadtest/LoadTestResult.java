@@ -0,0 +1,31 @@
+package org.wnn.benchmark.loadtest;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压测结果
+ *
+ * @author NanNan Wang
+ */
+@Data
+public class LoadTestResult {
+
+    private int keys; // 业务键数量
+    private int versionsPerKey; // 每个业务键初始的历史版本数
+    private int threads; // 并发线程数
+    private int durationSeconds; // 压测时长（秒）
+    private Map<String, OperationResult> operations = new LinkedHashMap<>(); // 各操作的结果
+
+    @Data
+    public static class OperationResult {
+        private long requests; // 成功请求数
+        private long errors; // 失败请求数（HTTP非200或响应码非成功）
+        private double throughput; // 吞吐量（成功请求数/秒）
+        private double p50Millis; // 50分位延迟（毫秒）
+        private double p99Millis; // 99分位延迟（毫秒）
+        private double maxMillis; // 最大延迟（毫秒）
+    }
+}
@@ -0,0 +1,274 @@
+package org.wnn.benchmark.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 拉链表接口压测驱动
+ * <p>
+ * 业务键按线程分片，每个线程只修改自己的业务键，避免请求之间因并发修改同一业务键而失败；
+ * 每次请求前直接查库获取该业务键当前的版本（不计入延迟），据此构造合法的新增/更新/删除请求，只统计HTTP调用的耗时。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@Slf4j
+class ZipperLoadDriver {
+
+    static final String ZIPPER_TABLE_NAME = "job_info_zipper";
+    private static final int SUCCESS_CODE = 200; // 通用响应中的成功码
+
+    enum Operation {
+        INSERT("add"),
+        UPDATE("update"),
+        DELETE("delete");
+
+        private final String path;
+
+        Operation(String path) {
+            this.path = path;
+        }
+    }
+
+    private final LoadTestProperties properties;
+    private final JdbcTemplate jdbcTemplate;
+    private final String baseUrl;
+    private final ObjectMapper objectMapper;
+
+    ZipperLoadDriver(LoadTestProperties properties, JdbcTemplate jdbcTemplate, String baseUrl, ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.jdbcTemplate = jdbcTemplate;
+        this.baseUrl = baseUrl;
+        this.objectMapper = objectMapper;
+    }
+
+    LoadTestResult run() throws Exception {
+        int threads = Math.max(1, Math.min(properties.getThreads(), properties.getKeys()));
+        long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(properties.getWarmupSeconds());
+        long end = warmupEnd + TimeUnit.SECONDS.toNanos(properties.getDurationSeconds());
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Map<Operation, LatencyRecorder>>> futures = new ArrayList<>(threads);
+        try {
+            for (int i = 0; i < threads; i++) {
+                final int shard = i;
+                futures.add(executor.submit(() -> runWorker(shard, threads, warmupEnd, end)));
+            }
+            log.info("压测开始：线程数:{}，预热:{}s，压测:{}s", threads, properties.getWarmupSeconds(), properties.getDurationSeconds());
+
+            Map<Operation, List<LatencyRecorder>> byOperation = new EnumMap<>(Operation.class);
+            for (Future<Map<Operation, LatencyRecorder>> future : futures) {
+                for (Map.Entry<Operation, LatencyRecorder> entry : future.get().entrySet()) {
+                    byOperation.computeIfAbsent(entry.getKey(), operation -> new ArrayList<>()).add(entry.getValue());
+                }
+            }
+            return toResult(threads, byOperation);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Map<Operation, LatencyRecorder> runWorker(int shard, int threads, long warmupEnd, long end) {
+        Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            recorders.put(operation, new LatencyRecorder());
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int shardKeys = (properties.getKeys() - shard + threads - 1) / threads;
+        boolean warmingUp = true;
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            if (warmingUp && now >= warmupEnd) {
+                recorders.values().forEach(LatencyRecorder::reset);
+                warmingUp = false;
+            }
+            String jobCode = LoadTestDatabaseInitializer.jobCodeOf(shard + random.nextInt(shardKeys) * threads);
+            List<Map<String, Object>> versions = jdbcTemplate.queryForList(
+                    "SELECT id, effective_date FROM job_info_zipper WHERE job_code = ? AND job_status = 1 ORDER BY effective_date", jobCode);
+            Operation operation = pickOperation(random, versions.size());
+            Map<String, Object> request = buildRequest(operation, jobCode, versions, random);
+
+            long start = System.nanoTime();
+            boolean success = post(operation, request);
+            long elapsed = System.nanoTime() - start;
+            LatencyRecorder recorder = recorders.get(operation);
+            if (success) {
+                recorder.record(elapsed);
+            } else {
+                recorder.recordError();
+            }
+        }
+        return recorders;
+    }
+
+    private Operation pickOperation(ThreadLocalRandom random, int versionCount) {
+        int total = properties.getInsertWeight() + properties.getUpdateWeight() + properties.getDeleteWeight();
+        int value = random.nextInt(Math.max(1, total));
+        Operation operation;
+        if (value < properties.getInsertWeight()) {
+            operation = Operation.INSERT;
+        } else if (value < properties.getInsertWeight() + properties.getUpdateWeight()) {
+            operation = Operation.UPDATE;
+        } else {
+            operation = Operation.DELETE;
+        }
+        // 保证业务键至少保留一个版本，没有版本可改时改为新增
+        if ((operation == Operation.DELETE && versionCount <= 1) || (operation == Operation.UPDATE && versionCount == 0)) {
+            return Operation.INSERT;
+        }
+        return operation;
+    }
+
+    private Map<String, Object> buildRequest(Operation operation, String jobCode, List<Map<String, Object>> versions,
+                                             ThreadLocalRandom random) {
+        Map<String, Object> businessValues = new LinkedHashMap<>();
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("zipperTableName", ZIPPER_TABLE_NAME);
+        request.put("businessKeyValues", businessValues);
+        switch (operation) {
+            case INSERT:
+                request.put("effectiveDate", pickFreeEffectiveDate(versions, random).toString());
+                businessValues.put("jobCode", jobCode);
+                putPayload(businessValues, random);
+                break;
+            case UPDATE: {
+                Map<String, Object> target = versions.get(random.nextInt(versions.size()));
+                request.put("effectiveDate", toLocalDate(target.get("effective_date")).toString());
+                businessValues.put("id", target.get("id"));
+                businessValues.put("jobCode", jobCode);
+                putPayload(businessValues, random);
+                break;
+            }
+            case DELETE: {
+                Map<String, Object> target = versions.get(random.nextInt(versions.size()));
+                businessValues.put("id", target.get("id"));
+                businessValues.put("jobCode", jobCode);
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("不支持的操作：" + operation);
+        }
+        return request;
+    }
+
+    private static void putPayload(Map<String, Object> businessValues, ThreadLocalRandom random) {
+        businessValues.put("jobName", "压测职位" + random.nextInt(1000));
+        businessValues.put("orgUnit", "单位" + random.nextInt(20));
+        businessValues.put("jobGrade", "P" + random.nextInt(10));
+        businessValues.put("jobStatus", 1);
+    }
+
+    /**
+     * 在已有版本的时间范围附近随机选择一个未被占用的生效时间
+     */
+    private static LocalDate pickFreeEffectiveDate(List<Map<String, Object>> versions, ThreadLocalRandom random) {
+        Set<LocalDate> used = new HashSet<>();
+        for (Map<String, Object> version : versions) {
+            used.add(toLocalDate(version.get("effective_date")));
+        }
+        LocalDate from = LoadTestDatabaseInitializer.FIRST_EFFECTIVE_DATE;
+        long span = (long) (versions.size() + 2) * LoadTestDatabaseInitializer.VERSION_DAYS;
+        LocalDate candidate;
+        do {
+            candidate = from.plusDays(random.nextLong(span));
+        } while (used.contains(candidate));
+        return candidate;
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        return value instanceof java.sql.Date ? ((java.sql.Date) value).toLocalDate() : (LocalDate) value;
+    }
+
+    /**
+     * 发送请求，HTTP 200 且通用响应码为成功时返回true
+     */
+    private boolean post(Operation operation, Map<String, Object> request) {
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(baseUrl + operation.path).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream outputStream = connection.getOutputStream()) {
+                objectMapper.writeValue(outputStream, request);
+            }
+            int status = connection.getResponseCode();
+            // 读完响应体，连接才能被 keep-alive 复用
+            byte[] body = readFully(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+            JsonNode code = status == 200 ? objectMapper.readTree(body).get("code") : null;
+            if (code == null || code.asInt() != SUCCESS_CODE) {
+                log.debug("请求失败，操作:{}，请求:{}，HTTP状态:{}，响应:{}", operation, request, status, new String(body, StandardCharsets.UTF_8));
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            log.debug("请求异常，操作:{}，请求:{}", operation, request, e);
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return false;
+        }
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        if (inputStream == null) {
+            return new byte[0];
+        }
+        try (InputStream in = inputStream) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private LoadTestResult toResult(int threads, Map<Operation, List<LatencyRecorder>> byOperation) {
+        LoadTestResult result = new LoadTestResult();
+        result.setKeys(properties.getKeys());
+        result.setVersionsPerKey(properties.getVersionsPerKey());
+        result.setThreads(threads);
+        result.setDurationSeconds(properties.getDurationSeconds());
+        for (Map.Entry<Operation, List<LatencyRecorder>> entry : byOperation.entrySet()) {
+            LatencyRecorder merged = LatencyRecorder.merge(entry.getValue());
+            LoadTestResult.OperationResult operationResult = new LoadTestResult.OperationResult();
+            operationResult.setRequests(merged.size());
+            operationResult.setErrors(merged.errors());
+            operationResult.setThroughput((double) merged.size() / Math.max(1, properties.getDurationSeconds()));
+            operationResult.setP50Millis(toMillis(merged.percentile(50)));
+            operationResult.setP99Millis(toMillis(merged.percentile(99)));
+            operationResult.setMaxMillis(toMillis(merged.percentile(100)));
+            result.getOperations().put(entry.getKey().name(), operationResult);
+        }
+        return result;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
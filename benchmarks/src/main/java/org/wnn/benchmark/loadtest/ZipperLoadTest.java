@@ -0,0 +1,91 @@
+package org.wnn.benchmark.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.fppt.jedismock.RedisServer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.wnn.portal.PortalApplication;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 拉链表接口端到端压测入口
+ * <p>
+ * 不依赖外部 MySQL、Redis、Nacos，单机离线即可运行：
+ * 启动进程内 Redis，以 loadtest 环境启动 portal（H2 MySQL兼容模式，由 db.sql 建表并生成数据），
+ * 按配置的并发和新增/更新/删除比例调用 /api/public/zipper-table/*，输出各操作的吞吐量与 p50/p99 延迟，并写入JSON结果文件。
+ * </p>
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar org.wnn.benchmark.loadtest.ZipperLoadTest --loadtest.keys=10000 --loadtest.threads=16
+ * </pre>
+ *
+ * @author NanNan Wang
+ */
+@Slf4j
+public class ZipperLoadTest {
+
+    static final String PROFILE = "loadtest";
+    static final String API_PATH = "/portal/api/public/zipper-table/";
+
+    public static void main(String[] args) throws Exception {
+        RedisServer redisServer = RedisServer.newRedisServer();
+        redisServer.start();
+        ConfigurableApplicationContext context = null;
+        int exitCode = 1;
+        try {
+            // 环境与端口由入口指定，放在命令行参数最前面，其余参数（loadtest.*）由调用方传入
+            List<String> arguments = new ArrayList<>();
+            arguments.add("--spring.profiles.active=" + PROFILE);
+            arguments.add("--spring.redis.port=" + redisServer.getBindPort());
+            arguments.addAll(Arrays.asList(args));
+            context = new SpringApplicationBuilder(PortalApplication.class, LoadTestConfiguration.class)
+                    .properties("spring.cloud.bootstrap.name=bootstrap-" + PROFILE)
+                    .run(arguments.toArray(new String[0]));
+
+            LoadTestProperties properties = context.getBean(LoadTestProperties.class);
+            // HttpURLConnection 默认每个地址只保持5个空闲连接，调整为与并发线程数一致
+            System.setProperty("http.maxConnections", String.valueOf(Math.max(5, properties.getThreads())));
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            ObjectMapper objectMapper = new ObjectMapper();
+            ZipperLoadDriver driver = new ZipperLoadDriver(properties, context.getBean(JdbcTemplate.class),
+                    "http://127.0.0.1:" + port + API_PATH, objectMapper);
+            LoadTestResult result = driver.run();
+
+            report(result);
+            objectMapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(new File(properties.getResultFile()), result);
+            log.info("压测结果已写入:{}", new File(properties.getResultFile()).getAbsolutePath());
+            exitCode = 0;
+        } catch (Exception e) {
+            log.error("压测失败", e);
+        } finally {
+            if (context != null) {
+                SpringApplication.exit(context);
+            }
+            redisServer.stop();
+        }
+        // 进程内 Redis 等组件会留下非守护线程，显式退出
+        System.exit(exitCode);
+    }
+
+    private static void report(LoadTestResult result) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%n业务键:%d 每键版本:%d 线程:%d 时长:%ds%n", result.getKeys(), result.getVersionsPerKey(),
+                result.getThreads(), result.getDurationSeconds()));
+        sb.append(String.format("%-8s %10s %8s %12s %10s %10s %10s%n", "操作", "请求数", "失败", "吞吐(次/秒)", "p50(ms)", "p99(ms)", "max(ms)"));
+        for (Map.Entry<String, LoadTestResult.OperationResult> entry : result.getOperations().entrySet()) {
+            LoadTestResult.OperationResult operation = entry.getValue();
+            sb.append(String.format("%-8s %10d %8d %12.1f %10.2f %10.2f %10.2f%n", entry.getKey(), operation.getRequests(),
+                    operation.getErrors(), operation.getThroughput(), operation.getP50Millis(), operation.getP99Millis(), operation.getMaxMillis()));
+        }
+        log.info(sb.toString());
+    }
+}
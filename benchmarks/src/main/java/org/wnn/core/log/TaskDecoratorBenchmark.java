@@ -0,0 +1,114 @@
+package org.wnn.core.log;
+
+import com.alibaba.ttl.TtlRunnable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步任务上下文透传基准测试
+ * <p>
+ * doubleWrap为改造前 AsyncConfig 的做法（复制整个MDC的TaskDecorator，外面再包一层TTL），snapshot为 {@link TraceContextTaskDecorator}。
+ * decorate系列在请求线程的上下文中包装任务（提交开销），run系列在没有上下文的线程上执行预先包装好的任务（执行和恢复开销）。
+ * 用 {@code -prof gc} 查看每次操作的分配量，如 {@code java -jar benchmarks.jar TaskDecorator -prof gc}。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskDecoratorBenchmark {
+
+    private static final TaskDecorator MDC_COPY = r -> {
+        Map<String, String> parentMdc = MDC.getCopyOfContextMap();
+        return () -> {
+            Map<String, String> backup = MDC.getCopyOfContextMap();
+            if (parentMdc != null) MDC.setContextMap(parentMdc); else MDC.clear();
+            try {
+                r.run();
+            } finally {
+                if (backup != null) MDC.setContextMap(backup); else MDC.clear();
+            }
+        };
+    };
+
+    private static final TaskDecorator SNAPSHOT = new TraceContextTaskDecorator("bizCode");
+
+    private static final Runnable TASK = () -> {
+    };
+
+    /**
+     * 模拟请求线程：处在链路中，MDC中有traceId、spanId和业务编码
+     */
+    @State(Scope.Thread)
+    public static class RequestThread {
+
+        @Setup
+        public void setUp() {
+            TraceContext.startTrace(new RandomTraceIdGenerator().generate(), null, "GET /bench");
+            MDC.put("bizCode", "200");
+        }
+
+        @TearDown
+        public void tearDown() {
+            TraceContext.clear();
+            MDC.clear();
+        }
+    }
+
+    /**
+     * 模拟线程池线程：在请求上下文中包装好任务后清空上下文，执行时没有链路信息
+     */
+    @State(Scope.Thread)
+    public static class WorkerThread {
+
+        Runnable doubleWrapped;
+        Runnable snapshot;
+
+        @Setup
+        public void setUp() {
+            RequestThread request = new RequestThread();
+            request.setUp();
+            doubleWrapped = MDC_COPY.decorate(TtlRunnable.get(TASK));
+            snapshot = SNAPSHOT.decorate(TASK);
+            request.tearDown();
+        }
+    }
+
+    @Benchmark
+    public void doubleWrapDecorate(RequestThread request, Blackhole blackhole) {
+        blackhole.consume(MDC_COPY.decorate(TtlRunnable.get(TASK)));
+    }
+
+    @Benchmark
+    public void snapshotDecorate(RequestThread request, Blackhole blackhole) {
+        blackhole.consume(SNAPSHOT.decorate(TASK));
+    }
+
+    @Benchmark
+    public void doubleWrapRun(WorkerThread worker) {
+        worker.doubleWrapped.run();
+    }
+
+    @Benchmark
+    public void snapshotRun(WorkerThread worker) {
+        worker.snapshot.run();
+    }
+}
@@ -0,0 +1,60 @@
+package org.wnn.core.log;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * traceId生成基准测试
+ * <p>
+ * {@link #uuid} 为改造前 {@link TraceIdFilter} 的做法（UUID去横杠转大写）作为对照，其余为各格式的 {@link TraceIdGenerator}。
+ * 默认单线程，多核竞争的情况用 {@code -t} 指定线程数对比，如 {@code java -jar benchmarks.jar TraceIdGenerator -t 8}；
+ * 多线程时 {@link #uuid} 在共享的 SecureRandom 上竞争，耗时随线程数增长。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceIdGeneratorBenchmark {
+
+    private final TraceIdGenerator random = new RandomTraceIdGenerator();
+    private final TraceIdGenerator w3c = new RandomTraceIdGenerator(false);
+    private final TraceIdGenerator timeBased = new TimeBasedTraceIdGenerator(1);
+
+    /**
+     * 改造前的做法
+     */
+    @Benchmark
+    public String uuid() {
+        return UUID.randomUUID().toString().replace("-", "").toUpperCase();
+    }
+
+    @Benchmark
+    public String random() {
+        return random.generate();
+    }
+
+    @Benchmark
+    public String w3c() {
+        return w3c.generate();
+    }
+
+    @Benchmark
+    public String timeBased() {
+        return timeBased.generate();
+    }
+}
@@ -0,0 +1,187 @@
+package org.wnn.core.mybatis;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 慢SQL拦截器快速路径基准测试
+ * <p>
+ * 用立即返回的 {@link StatementHandler} 代替真实数据库，只测量拦截器本身的开销：
+ * {@link #direct} 为不经过插件的调用，{@link #intercepted} 为经过插件代理且未超过阈值的调用，两者之差即为快速路径的额外开销；
+ * {@link #eagerCapture} 复现改造前在执行前规整SQL、序列化参数的做法作为对照。
+ * 参数模拟拉链表DAO的Map参数（SQL模板 + 业务键 + 历史记录列表）。
+ * </p>
+ * <p>
+ * 放在与被测类相同的包下以访问包内可见的 {@link SqlNormalizer}。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MybatisSlowSqlInterceptorBenchmark {
+
+    private static final String SQL = "<script>\n"
+            + "    SELECT id, job_code AS jobCode, job_name AS jobName, org_unit AS orgUnit,\n"
+            + "           job_grade AS jobGrade, job_status AS jobStatus,\n"
+            + "           effective_date AS effectiveDate, effective_end_date AS effectiveEndDate\n"
+            + "    FROM job_info_zipper\n"
+            + "    WHERE job_code = ?\n"
+            + "      AND job_status = 1\n"
+            + "    ORDER BY effective_date ASC\n"
+            + "</script>";
+
+    private StatementHandler handler;
+    private StatementHandler intercepted;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        handler = new NoOpStatementHandler(new BoundSql(new Configuration(), SQL, Collections.emptyList(), zipperParameter()));
+        // 默认阈值500ms，立即返回的调用不会进入慢SQL分支
+        MybatisSlowSqlInterceptor interceptor = new MybatisSlowSqlInterceptor(new MybatisSlowSqlInterceptor.SlowSqlProperties());
+        intercepted = (StatementHandler) interceptor.plugin(handler);
+    }
+
+    @Benchmark
+    public List<Object> direct() throws Exception {
+        return handler.query(null, null);
+    }
+
+    @Benchmark
+    public List<Object> intercepted() throws Exception {
+        return intercepted.query(null, null);
+    }
+
+    /**
+     * 改造前的做法：每条SQL执行前都用正则规整SQL并序列化参数
+     */
+    @Benchmark
+    public List<Object> eagerCapture(Blackhole blackhole) throws Exception {
+        BoundSql boundSql = handler.getBoundSql();
+        blackhole.consume(boundSql.getSql().replaceAll("\\s+", " ").trim());
+        blackhole.consume(String.valueOf(boundSql.getParameterObject()));
+        return handler.query(null, null);
+    }
+
+    /**
+     * 慢SQL分支中的SQL规整（手写折叠）
+     */
+    @Benchmark
+    public String collapseWhitespace() {
+        return SqlNormalizer.collapseWhitespace(SQL);
+    }
+
+    /**
+     * 慢SQL分支中的SQL规整（原正则写法，对照）
+     */
+    @Benchmark
+    public String regexReplace() {
+        return SQL.replaceAll("\\s+", " ").trim();
+    }
+
+    private static Map<String, Object> zipperParameter() {
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Map<String, Object> record = new HashMap<>();
+            record.put("id", (long) i + 1);
+            record.put("jobCode", "DEV001");
+            record.put("jobName", "开发工程师" + i);
+            record.put("orgUnit", "研发中心");
+            record.put("jobGrade", "P" + (i % 10));
+            record.put("jobStatus", 1);
+            record.put("effectiveDate", LocalDate.of(2020, 1, 1).plusDays(i * 30L));
+            record.put("effectiveEndDate", LocalDate.of(2020, 1, 1).plusDays(i * 30L + 30));
+            records.add(record);
+        }
+        Map<String, Object> businessKeys = new HashMap<>();
+        businessKeys.put("jobCode", "DEV001");
+        Map<String, Object> params = new HashMap<>();
+        params.put("businessKeys", businessKeys);
+        params.put("records", records);
+        Map<String, Object> parameter = new HashMap<>();
+        parameter.put("sqlTemplate", SQL);
+        parameter.put("params", params);
+        return parameter;
+    }
+
+    /**
+     * 立即返回的StatementHandler，不访问数据库
+     */
+    private static final class NoOpStatementHandler implements StatementHandler {
+
+        private final BoundSql boundSql;
+
+        private NoOpStatementHandler(BoundSql boundSql) {
+            this.boundSql = boundSql;
+        }
+
+        @Override
+        public Statement prepare(Connection connection, Integer transactionTimeout) {
+            return null;
+        }
+
+        @Override
+        public void parameterize(Statement statement) {
+        }
+
+        @Override
+        public void batch(Statement statement) {
+        }
+
+        @Override
+        public int update(Statement statement) {
+            return 1;
+        }
+
+        @Override
+        public <E> List<E> query(Statement statement, ResultHandler resultHandler) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public <E> Cursor<E> queryCursor(Statement statement) {
+            return null;
+        }
+
+        @Override
+        public BoundSql getBoundSql() {
+            return boundSql;
+        }
+
+        @Override
+        public ParameterHandler getParameterHandler() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.wnn.portal.pub.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.wnn.portal.pub.service.ZipperTableService.*;
+
+/**
+ * 拉链时间线算法基准测试
+ * <p>
+ * 每次写入都要把业务键的全部历史构造成时间线、定位前后节点、重算区间并收集变更，这里覆盖 1 ~ 10000 个版本的历史、
+ * 数据库返回的 {@link Date} 与已转换的 {@link LocalDate} 混合输入，以及在头部、中间、尾部的新增/更新/删除。
+ * </p>
+ * <p>
+ * 时间线会修改历史记录Map，每次调用前在 {@link Level#Invocation} 阶段复制一份历史，复制不计入测量，其开销可参考 {@link #copyHistory}。
+ * 放在与被测类相同的包下以访问包内可见的 {@link ZipperTimeline}。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZipperTimelineBenchmark {
+
+    private static final String PRIMARY_KEY = "id";
+    private static final LocalDate FIRST_EFFECTIVE_DATE = LocalDate.of(2000, 1, 1);
+    private static final int VERSION_DAYS = 7; // 相邻版本的生效时间间隔（天）
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    private int historySize;
+
+    /**
+     * 历史记录中日期字段的类型：SQL_DATE-数据库返回的java.sql.Date，LOCAL_DATE-已转换的LocalDate，MIXED-交替出现
+     */
+    @Param({"SQL_DATE", "LOCAL_DATE", "MIXED"})
+    private String dateType;
+
+    /**
+     * 变更所在位置
+     */
+    @Param({"HEAD", "MIDDLE", "TAIL"})
+    private String position;
+
+    private List<Map<String, Object>> history;
+    private List<Map<String, Object>> workingCopy;
+    private Map<String, Object> insertValues;
+    private LocalDate insertEffectiveDate;
+    private Map<String, Object> targetValues;
+    private LocalDate movedEffectiveDate;
+    private LocalDate snapshotDate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        history = new ArrayList<>(historySize);
+        for (int i = 0; i < historySize; i++) {
+            LocalDate effectiveDate = FIRST_EFFECTIVE_DATE.plusDays((long) i * VERSION_DAYS);
+            LocalDate effectiveEndDate = i == historySize - 1 ? MAX_END_DATE : effectiveDate.plusDays(VERSION_DAYS);
+            boolean useSqlDate = "SQL_DATE".equals(dateType) || ("MIXED".equals(dateType) && i % 2 == 0);
+            Map<String, Object> record = new HashMap<>();
+            record.put(PRIMARY_KEY, (long) i + 1);
+            record.put("jobCode", "DEV001");
+            record.put("jobName", "开发工程师" + i);
+            record.put("orgUnit", "研发中心");
+            record.put("jobGrade", "P" + (i % 10));
+            record.put("jobStatus", 1);
+            record.put(DEFAULT_EFFECTIVE_DATE_COLUMN, useSqlDate ? Date.valueOf(effectiveDate) : effectiveDate);
+            record.put(DEFAULT_EFFECTIVE_DATE_END_COLUMN, useSqlDate ? Date.valueOf(effectiveEndDate) : effectiveEndDate);
+            history.add(record);
+        }
+
+        int targetIndex;
+        switch (position) {
+            case "HEAD":
+                targetIndex = 0;
+                insertEffectiveDate = FIRST_EFFECTIVE_DATE.minusDays(1);
+                break;
+            case "MIDDLE":
+                targetIndex = historySize / 2;
+                insertEffectiveDate = FIRST_EFFECTIVE_DATE.plusDays((long) targetIndex * VERSION_DAYS + 1);
+                break;
+            case "TAIL":
+                targetIndex = historySize - 1;
+                insertEffectiveDate = FIRST_EFFECTIVE_DATE.plusDays((long) historySize * VERSION_DAYS);
+                break;
+            default:
+                throw new IllegalArgumentException("不支持的位置：" + position);
+        }
+        LocalDate targetEffectiveDate = FIRST_EFFECTIVE_DATE.plusDays((long) targetIndex * VERSION_DAYS);
+        snapshotDate = targetEffectiveDate.plusDays(1);
+        // 生效时间后移半个间隔，不与任何已有版本冲突
+        movedEffectiveDate = targetEffectiveDate.plusDays(VERSION_DAYS / 2);
+
+        insertValues = new HashMap<>(history.get(targetIndex));
+        insertValues.remove(PRIMARY_KEY);
+        insertValues.put("jobName", "新版本");
+
+        targetValues = new HashMap<>(history.get(targetIndex));
+        targetValues.put("jobName", "已调整");
+    }
+
+    /**
+     * 每次调用前复制历史（不计入测量）
+     */
+    @Setup(Level.Invocation)
+    public void copy() {
+        workingCopy = copyOf(history);
+    }
+
+    /**
+     * 复制历史的开销（对照）
+     */
+    @Benchmark
+    public List<Map<String, Object>> copyHistory() {
+        return copyOf(history);
+    }
+
+    /**
+     * 构造时间线：日期转换 + 按生效时间排序
+     */
+    @Benchmark
+    public ZipperTimeline build() {
+        return new ZipperTimeline(workingCopy);
+    }
+
+    @Benchmark
+    public void insert(Blackhole blackhole) {
+        ZipperTimeline timeline = new ZipperTimeline(workingCopy);
+        timeline.insert(insertValues, insertEffectiveDate);
+        consumeChanges(timeline, blackhole);
+    }
+
+    /**
+     * 更新业务字段，生效时间不变
+     */
+    @Benchmark
+    public void updateFields(Blackhole blackhole) {
+        ZipperTimeline timeline = new ZipperTimeline(workingCopy);
+        timeline.update(PRIMARY_KEY, targetValues, null, DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT);
+        consumeChanges(timeline, blackhole);
+    }
+
+    /**
+     * 调整生效时间（删除后重新插入）
+     */
+    @Benchmark
+    public void updateEffectiveDate(Blackhole blackhole) {
+        ZipperTimeline timeline = new ZipperTimeline(workingCopy);
+        timeline.update(PRIMARY_KEY, targetValues, movedEffectiveDate, DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT);
+        consumeChanges(timeline, blackhole);
+    }
+
+    @Benchmark
+    public void delete(Blackhole blackhole) {
+        ZipperTimeline timeline = new ZipperTimeline(workingCopy);
+        timeline.delete(PRIMARY_KEY, targetValues, DEFAULT_ZIPPER_BREAK_STRATEGY_RIGHT);
+        consumeChanges(timeline, blackhole);
+    }
+
+    @Benchmark
+    public Map<String, Object> businessSnapshot() {
+        return new ZipperTimeline(workingCopy).businessSnapshot(snapshotDate);
+    }
+
+    /**
+     * 单独测量日期转换
+     */
+    @Benchmark
+    public void convertDates(Blackhole blackhole) {
+        for (Map<String, Object> record : history) {
+            blackhole.consume(convertToLocalDate(record.get(DEFAULT_EFFECTIVE_DATE_COLUMN)));
+            blackhole.consume(convertToLocalDate(record.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN)));
+        }
+    }
+
+    private static void consumeChanges(ZipperTimeline timeline, Blackhole blackhole) {
+        blackhole.consume(timeline.getInserted());
+        blackhole.consume(timeline.getUpdated());
+        blackhole.consume(timeline.getDeleted());
+    }
+
+    private static List<Map<String, Object>> copyOf(List<Map<String, Object>> history) {
+        List<Map<String, Object>> copy = new ArrayList<>(history.size());
+        for (Map<String, Object> record : history) {
+            copy.add(new HashMap<>(record));
+        }
+        return copy;
+    }
+}
@@ -3,6 +3,7 @@ package org.wnn.core;
 
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,6 +12,7 @@ import org.wnn.core.feign.MdcTraceIdProvider;
 import org.wnn.core.feign.TraceIdFeignInterceptor;
 import org.wnn.core.feign.TraceIdProperties;
 import org.wnn.core.feign.TraceIdProvider;
+import org.wnn.core.feign.TracingFeignCapability;
 
 /**
  * @author NanNan Wang
@@ -34,4 +36,19 @@ public class FeignTraceAutoConfiguration {
             TraceIdProvider traceIdProvider) {
         return new TraceIdFeignInterceptor(properties, traceIdProvider);
     }
+
+    /**
+     * 存在trace-common时把Feign调用记录为span
+     */
+    @Configuration
+    @ConditionalOnClass(name = "org.wnn.core.log.TraceContext")
+    static class TracingFeignConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "logging.trace.spans", name = "enabled", havingValue = "true", matchIfMissing = true)
+        public TracingFeignCapability tracingFeignCapability() {
+            return new TracingFeignCapability();
+        }
+    }
 }
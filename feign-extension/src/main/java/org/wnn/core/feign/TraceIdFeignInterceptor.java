@@ -3,11 +3,26 @@ package org.wnn.core.feign;
 import feign.RequestInterceptor;
 import feign.RequestTemplate;
 
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
+ * 向Feign请求透传链路信息
+ * <p>
+ * 发送配置的TraceId请求头；traceId为32位十六进制时同时发送W3C traceparent请求头：
+ * {@code 00-{traceId小写}-{本次调用的spanId}-01}，本次调用的spanId新生成，
+ * 下游把它作为父span，{@link TracingFeignClient} 用同一个ID记录本次调用的span。
+ * </p>
+ *
  * @author NanNan Wang
  */
 public class TraceIdFeignInterceptor implements RequestInterceptor {
 
+    /**
+     * W3C trace-context请求头
+     */
+    public static final String TRACEPARENT_HEADER = "traceparent";
+
     private final TraceIdProperties properties;
     private final TraceIdProvider traceIdProvider;
 
@@ -26,7 +41,40 @@ public class TraceIdFeignInterceptor implements RequestInterceptor {
         String traceId = traceIdProvider.getTraceId();
         if (traceId != null && !traceId.isEmpty()) {
             template.header(properties.getHeaderName(), traceId);
+            if (properties.isTraceparentEnabled() && isTraceIdHex(traceId)) {
+                template.header(TRACEPARENT_HEADER, "00-" + traceId.toLowerCase(Locale.ROOT) + "-" + newSpanId() + "-01");
+            }
         }
     }
 
+    /**
+     * 从traceparent请求头中取出本次调用的spanId，格式不对时返回null
+     */
+    static String spanIdOf(String traceparent) {
+        return traceparent != null && traceparent.length() == 55 ? traceparent.substring(36, 52) : null;
+    }
+
+    private static boolean isTraceIdHex(String traceId) {
+        if (traceId.length() != 32) {
+            return false;
+        }
+        boolean nonZero = false;
+        for (int i = 0; i < traceId.length(); i++) {
+            char c = traceId.charAt(i);
+            if (Character.digit(c, 16) < 0) {
+                return false;
+            }
+            nonZero |= c != '0';
+        }
+        return nonZero;
+    }
+
+    private static String newSpanId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        String hex = Long.toHexString(id);
+        return hex.length() == 16 ? hex : "0000000000000000".substring(hex.length()) + hex;
+    }
 }
@@ -19,6 +19,11 @@ public class TraceIdProperties {
      */
     private String traceIdKey = "traceId";
 
+    /**
+     * 是否同时发送W3C traceparent请求头（traceId为32位十六进制时）
+     */
+    private boolean traceparentEnabled = true;
+
     /**
      * 是否启用TraceId传递
      */
@@ -48,4 +53,12 @@ public class TraceIdProperties {
     public void setTraceIdKey(String traceIdKey) {
         this.traceIdKey = traceIdKey;
     }
+
+    public boolean isTraceparentEnabled() {
+        return traceparentEnabled;
+    }
+
+    public void setTraceparentEnabled(boolean traceparentEnabled) {
+        this.traceparentEnabled = traceparentEnabled;
+    }
 }
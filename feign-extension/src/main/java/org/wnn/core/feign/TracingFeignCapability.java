@@ -0,0 +1,21 @@
+package org.wnn.core.feign;
+
+import feign.Capability;
+import feign.Client;
+
+/**
+ * Feign扩展点：创建Feign客户端时用 {@link TracingFeignClient} 包装其Client
+ * <p>
+ * 注册为Bean后由spring-cloud-openfeign在构建每个Feign客户端时应用，在负载均衡、指定url等Client选择完成之后才包装，
+ * 不影响原有的Client选择逻辑。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class TracingFeignCapability implements Capability {
+
+    @Override
+    public Client enrich(Client client) {
+        return client instanceof TracingFeignClient ? client : new TracingFeignClient(client);
+    }
+}
@@ -0,0 +1,63 @@
+package org.wnn.core.feign;
+
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import org.wnn.core.log.Span;
+import org.wnn.core.log.TraceContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collection;
+
+/**
+ * 把Feign调用记录为span（{@link Span.Kind#CLIENT}）的Client包装
+ * <p>
+ * spanId取 {@link TraceIdFeignInterceptor} 在traceparent请求头中发出的ID，与下游服务入口span的parentSpanId一致，
+ * 父span为调用线程的当前span。耗时包括建立连接和读取响应头，不包括之后读取响应体。
+ * 需要trace-common，由 {@link TracingFeignCapability} 在创建Feign客户端时包装。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class TracingFeignClient implements Client {
+
+    private final Client delegate;
+
+    public TracingFeignClient(Client delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Response execute(Request request, Request.Options options) throws IOException {
+        long startEpochMicros = TraceContext.currentEpochMicros();
+        long start = System.nanoTime();
+        boolean error = true;
+        try {
+            Response response = delegate.execute(request, options);
+            error = response.status() >= 500;
+            return response;
+        } finally {
+            TraceContext.recordSpan(spanIdOf(request), "feign " + request.httpMethod() + " " + pathOf(request.url()),
+                    Span.Kind.CLIENT, startEpochMicros, System.nanoTime() - start, error);
+        }
+    }
+
+    private static String spanIdOf(Request request) {
+        Collection<String> values = request.headers().get(TraceIdFeignInterceptor.TRACEPARENT_HEADER);
+        return values == null || values.isEmpty() ? null : TraceIdFeignInterceptor.spanIdOf(values.iterator().next());
+    }
+
+    /**
+     * 只取主机和路径，不带查询参数
+     */
+    private static String pathOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            return uri.getHost() != null ? uri.getHost() + uri.getPath() : uri.getPath();
+        } catch (IllegalArgumentException e) {
+            int query = url.indexOf('?');
+            return query >= 0 ? url.substring(0, query) : url;
+        }
+    }
+}
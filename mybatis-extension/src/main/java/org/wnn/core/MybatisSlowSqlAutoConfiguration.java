@@ -1,14 +1,21 @@
 package org.wnn.core;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.ibatis.executor.statement.StatementHandler;
-import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.wnn.core.mybatis.ChattyRequestDetector;
+import org.wnn.core.mybatis.ChattyRequestMetrics;
 import org.wnn.core.mybatis.MybatisSlowSqlInterceptor;
+import org.wnn.core.mybatis.SlowSqlExplainer;
+import org.wnn.core.mybatis.SlowSqlLogWriter;
+import org.wnn.core.mybatis.SqlFingerprintEndpoint;
+import org.wnn.core.mybatis.SqlFingerprintRegistry;
 
 /**
  * MyBatis慢SQL拦截器的自动配置类
@@ -18,6 +25,10 @@ import org.wnn.core.mybatis.MybatisSlowSqlInterceptor;
  * 主要功能包括：
  * 1. 启用对{@link MybatisSlowSqlInterceptor.SlowSqlProperties}配置属性的绑定
  * 2. 根据配置条件（slow.sql.enabled=true）创建慢SQL拦截器Bean
+ * 3. 创建慢SQL日志输出，默认在后台线程批量写日志（slow.sql.async.enabled）
+ * 4. 创建SQL指纹统计（slow.sql.fingerprint.enabled，默认开启），存在actuator时注册监控端点
+ * 5. 按需创建慢SQL执行计划采集（slow.sql.explain.enabled，默认关闭）
+ * 6. 创建请求级SQL往返检测（slow.sql.chatty.enabled，默认开启），存在micrometer时注册监控指标
  * </p>
  *
  * @author NanNan Wang
@@ -26,7 +37,6 @@ import org.wnn.core.mybatis.MybatisSlowSqlInterceptor;
  * @see MybatisSlowSqlInterceptor
  */
 @Configuration
-@EnableAutoConfiguration(exclude = DataSourceAutoConfiguration.class)
 @ConditionalOnClass(StatementHandler.class)
 @EnableConfigurationProperties(MybatisSlowSqlInterceptor.SlowSqlProperties.class)
 @ConditionalOnProperty(prefix = "slow.sql", name = "enabled", havingValue = "true")
@@ -50,8 +60,83 @@ public class MybatisSlowSqlAutoConfiguration {
      * @return 配置完成的MybatisSlowSqlInterceptor实例
      */
     @Bean
-    public MybatisSlowSqlInterceptor mybatisSlowSqlInterceptor() {
-        return new MybatisSlowSqlInterceptor(props);
+    public MybatisSlowSqlInterceptor mybatisSlowSqlInterceptor(ObjectProvider<SqlFingerprintRegistry> fingerprintRegistry,
+                                                               SlowSqlLogWriter slowSqlLogWriter,
+                                                               ObjectProvider<SlowSqlExplainer> slowSqlExplainer,
+                                                               ObjectProvider<ChattyRequestDetector> chattyRequestDetector) {
+        return new MybatisSlowSqlInterceptor(props, fingerprintRegistry.getIfAvailable(), slowSqlLogWriter,
+                slowSqlExplainer.getIfAvailable(), chattyRequestDetector.getIfAvailable());
+    }
+
+    /**
+     * 创建慢SQL日志输出，慢SQL事件放入有界队列后由后台线程序列化并写日志
+     *
+     * @return 慢SQL日志输出
+     */
+    @Bean
+    public SlowSqlLogWriter slowSqlLogWriter() {
+        return new SlowSqlLogWriter(props);
+    }
+
+    /**
+     * 创建慢SQL执行计划采集，新出现的慢SQL指纹在后台执行EXPLAIN并附加到慢SQL日志
+     *
+     * @return 慢SQL执行计划采集
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "slow.sql.explain", name = "enabled", havingValue = "true")
+    public SlowSqlExplainer slowSqlExplainer() {
+        return new SlowSqlExplainer(props);
+    }
+
+    /**
+     * 创建SQL指纹统计，按指纹聚合每条SQL的执行耗时分布并周期输出聚合日志
+     *
+     * @return SQL指纹统计
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "slow.sql.fingerprint", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public SqlFingerprintRegistry sqlFingerprintRegistry() {
+        return new SqlFingerprintRegistry(props);
+    }
+
+    /**
+     * 创建请求级SQL往返检测，按traceId统计请求内的SQL条数与重复次数，超过阈值时告警
+     *
+     * @return 请求级SQL往返检测
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "slow.sql.chatty", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public ChattyRequestDetector chattyRequestDetector() {
+        return new ChattyRequestDetector(props);
+    }
+
+    /**
+     * 存在micrometer时注册请求级SQL往返检测的监控指标
+     */
+    @Configuration
+    @ConditionalOnClass(MeterRegistry.class)
+    static class ChattyRequestMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnProperty(prefix = "slow.sql.chatty", name = "enabled", havingValue = "true", matchIfMissing = true)
+        public ChattyRequestMetrics chattyRequestMetrics(ChattyRequestDetector detector) {
+            return new ChattyRequestMetrics(detector);
+        }
+    }
+
+    /**
+     * 存在actuator时注册SQL指纹统计的监控端点
+     */
+    @Configuration
+    @ConditionalOnClass(Endpoint.class)
+    static class SqlFingerprintEndpointConfiguration {
+
+        @Bean
+        @ConditionalOnProperty(prefix = "slow.sql.fingerprint", name = "enabled", havingValue = "true", matchIfMissing = true)
+        public SqlFingerprintEndpoint sqlFingerprintEndpoint(SqlFingerprintRegistry registry) {
+            return new SqlFingerprintEndpoint(registry);
+        }
     }
 
 }
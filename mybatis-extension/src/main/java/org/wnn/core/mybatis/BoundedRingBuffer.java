@@ -0,0 +1,95 @@
+package org.wnn.core.mybatis;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界无锁环形队列（多生产者/多消费者）
+ * <p>
+ * 每个槽位带一个序号：序号等于写入位置时可写，等于写入位置+1时可读，读完后推进一整圈。
+ * 生产者、消费者各自对写入/读取位置做CAS，不加锁；满时 {@link #offer} 直接返回false，由调用方决定丢弃策略。
+ * 容量向上取整为2的幂，用位运算定位槽位。
+ * </p>
+ *
+ * @param <E> 元素类型
+ * @author NanNan Wang
+ */
+final class BoundedRingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong writePosition = new AtomicLong();
+    private final AtomicLong readPosition = new AtomicLong();
+
+    BoundedRingBuffer(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("环形队列容量不能小于2：" + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * 写入一个元素
+     *
+     * @return 队列已满时返回false
+     */
+    boolean offer(E element) {
+        long position = writePosition.get();
+        while (true) {
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (writePosition.compareAndSet(position, position + 1)) {
+                    elements.lazySet(index, element);
+                    // 先写元素再发布序号，消费者看到序号时一定能读到元素
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = writePosition.get();
+            } else if (diff < 0) {
+                // 槽位还没被消费者读走，队列已满
+                return false;
+            } else {
+                position = writePosition.get();
+            }
+        }
+    }
+
+    /**
+     * 读取一个元素
+     *
+     * @return 队列为空时返回null
+     */
+    E poll() {
+        long position = readPosition.get();
+        while (true) {
+            int index = (int) position & mask;
+            long diff = sequences.get(index) - (position + 1);
+            if (diff == 0) {
+                if (readPosition.compareAndSet(position, position + 1)) {
+                    E element = elements.get(index);
+                    elements.lazySet(index, null);
+                    sequences.lazySet(index, position + mask + 1);
+                    return element;
+                }
+                position = readPosition.get();
+            } else if (diff < 0) {
+                return null;
+            } else {
+                position = readPosition.get();
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package org.wnn.core.mybatis;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.wnn.core.log.Span;
+import org.wnn.core.log.TraceContext;
+import org.wnn.core.log.TraceListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 请求级SQL往返检测（N+1 / 多次往返的事务）
+ * <p>
+ * 按 traceId 汇总同一请求内执行的SQL条数、数据库总耗时以及每条SQL的重复次数，经过异步线程透传traceId的SQL也计入同一请求。
+ * 请求的开始和结束取自 {@link TraceContext} 的入口span（web-common的TraceIdFilter开始和结束），
+ * 入口span结束时在请求线程上判定：SQL条数或同一SQL的重复次数超过阈值时输出一条告警日志（日志名 chattySqlLog），并累加对应的计数指标。
+ * 例如拉链表修改生效日期的一次更新会依次执行历史查询、多次更新历史、删除、插入和业务表写入，这类往返频繁的接口会被自动发现。
+ * </p>
+ * <p>
+ * 重复按SQL文本（参数以占位符表示）判定，拉链表公共DAO的同一方法执行不同表的SQL时分别计数。
+ * 同时跟踪的请求数和每个请求内区分的SQL数都有上限，超过后不再跟踪新请求 / 不再区分新SQL，只累计条数和耗时。
+ * 没有入口span的SQL（定时任务、启动加载等）以及请求结束后才执行完的异步SQL不参与检测。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class ChattyRequestDetector implements TraceListener, InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger("chattySqlLog");
+
+    /**
+     * 每个请求内最多区分的SQL数量
+     */
+    private static final int MAX_STATEMENTS_PER_REQUEST = 256;
+
+    /**
+     * 告警日志中列出的重复SQL数量
+     */
+    private static final int LOG_TOP_REPEATS = 5;
+
+    private final MybatisSlowSqlInterceptor.SlowSqlProperties.Chatty properties;
+
+    /**
+     * traceId -> 请求内的SQL统计
+     */
+    private final Map<String, RequestStats> requests = new ConcurrentHashMap<>();
+
+    private final LongAdder evaluatedRequests = new LongAdder();
+    private final LongAdder statementCountExceeded = new LongAdder();
+    private final LongAdder repeatCountExceeded = new LongAdder();
+    private final LongAdder untrackedRequests = new LongAdder();
+
+    public ChattyRequestDetector(MybatisSlowSqlInterceptor.SlowSqlProperties slowSqlProperties) {
+        this.properties = slowSqlProperties.getChatty();
+    }
+
+    /**
+     * 记录当前请求执行的一条SQL，traceId不在跟踪中时忽略
+     *
+     * @param traceId 请求的traceId
+     * @param statementId MappedStatement的ID，未知时为null
+     * @param sql 原始SQL
+     * @param nanos 执行耗时（纳秒）
+     */
+    public void record(String traceId, String statementId, String sql, long nanos) {
+        RequestStats stats = requests.get(traceId);
+        if (stats != null) {
+            stats.record(statementId, sql, nanos);
+        }
+    }
+
+    @Override
+    public void onTraceStart(Span span) {
+        // 同一traceId的请求可能在本服务并发或嵌套进入（服务调用自身），共用一份统计，最后一个结束时判定
+        requests.compute(span.getTraceId(), (traceId, stats) -> {
+            if (stats == null) {
+                if (requests.size() >= properties.getMaxRequests()) {
+                    untrackedRequests.increment();
+                    return null;
+                }
+                stats = new RequestStats(traceId);
+            }
+            stats.activeRequests++;
+            return stats;
+        });
+    }
+
+    @Override
+    public void onTraceFinish(Span span) {
+        RequestStats[] finished = new RequestStats[1];
+        requests.computeIfPresent(span.getTraceId(), (traceId, stats) -> {
+            if (--stats.activeRequests > 0) {
+                return stats;
+            }
+            finished[0] = stats;
+            return null;
+        });
+        if (finished[0] != null) {
+            evaluate(finished[0]);
+        }
+    }
+
+    /**
+     * 已结束并完成判定的请求数
+     */
+    public long getEvaluatedRequests() {
+        return evaluatedRequests.sum();
+    }
+
+    /**
+     * SQL条数超过阈值的请求数
+     */
+    public long getStatementCountExceeded() {
+        return statementCountExceeded.sum();
+    }
+
+    /**
+     * 存在SQL重复次数超过阈值的请求数
+     */
+    public long getRepeatCountExceeded() {
+        return repeatCountExceeded.sum();
+    }
+
+    /**
+     * 同时跟踪的请求数达到上限而未跟踪的请求数
+     */
+    public long getUntrackedRequests() {
+        return untrackedRequests.sum();
+    }
+
+    /**
+     * 正在跟踪的请求数
+     */
+    public int getTrackedRequests() {
+        return requests.size();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        TraceContext.addTraceListener(this);
+    }
+
+    @Override
+    public void destroy() {
+        TraceContext.removeTraceListener(this);
+        requests.clear();
+    }
+
+    private void evaluate(RequestStats stats) {
+        // 关闭后异步线程上仍在执行的SQL不再计入，之后读取的统计不会再变化
+        stats.close();
+        evaluatedRequests.increment();
+        boolean tooManyStatements = stats.statements > properties.getMaxStatements();
+        List<Repeat> repeats = new ArrayList<>();
+        if (stats.repeats != null) {
+            for (Repeat repeat : stats.repeats.values()) {
+                if (repeat.count > properties.getMaxRepeats()) {
+                    repeats.add(repeat);
+                }
+            }
+        }
+        if (tooManyStatements) {
+            statementCountExceeded.increment();
+        }
+        if (!repeats.isEmpty()) {
+            repeatCountExceeded.increment();
+        }
+        if (!tooManyStatements && repeats.isEmpty()) {
+            return;
+        }
+
+        repeats.sort(Comparator.comparingInt((Repeat repeat) -> repeat.count).reversed());
+        StringBuilder repeated = new StringBuilder();
+        for (int i = 0; i < repeats.size() && i < LOG_TOP_REPEATS; i++) {
+            Repeat repeat = repeats.get(i);
+            repeated.append("\n  ").append(repeat.count).append("次 ")
+                    .append(repeat.statementId).append(": ").append(SqlNormalizer.collapseWhitespace(repeat.sql));
+        }
+        String previousTraceId = MDC.get("traceId");
+        MDC.put("traceId", stats.traceId);
+        try {
+            logger.warn("请求SQL往返过多：SQL{}条（阈值{}），数据库耗时{}ms，不同SQL{}种，重复超过{}次的SQL{}种{}",
+                    stats.statements, properties.getMaxStatements(),
+                    TimeUnit.NANOSECONDS.toMillis(stats.totalNanos), stats.repeats == null ? 0 : stats.repeats.size(),
+                    properties.getMaxRepeats(), repeats.size(), repeated);
+        } finally {
+            if (previousTraceId == null) {
+                MDC.remove("traceId");
+            } else {
+                MDC.put("traceId", previousTraceId);
+            }
+        }
+    }
+
+    /**
+     * 一个请求内的SQL统计
+     * <p>
+     * 同一请求的SQL基本都在请求线程上执行，锁几乎无竞争；计数用普通字段，SQL区分表在第一条SQL时才创建。
+     * activeRequests只在 {@link ConcurrentHashMap#compute} 中读写。
+     * </p>
+     */
+    private static final class RequestStats {
+
+        private final String traceId;
+        private int activeRequests;
+        private long statements;
+        private long totalNanos;
+        private Map<String, Repeat> repeats;
+        private boolean closed;
+
+        RequestStats(String traceId) {
+            this.traceId = traceId;
+        }
+
+        synchronized void record(String statementId, String sql, long nanos) {
+            if (closed) {
+                return;
+            }
+            statements++;
+            totalNanos += nanos;
+            if (repeats == null) {
+                repeats = new HashMap<>();
+            }
+            Repeat repeat = repeats.get(sql);
+            if (repeat == null && repeats.size() < MAX_STATEMENTS_PER_REQUEST) {
+                repeat = new Repeat(statementId, sql);
+                repeats.put(sql, repeat);
+            }
+            if (repeat != null) {
+                repeat.count++;
+            }
+        }
+
+        synchronized void close() {
+            closed = true;
+        }
+    }
+
+    /**
+     * 一条SQL在请求内的执行次数
+     */
+    private static final class Repeat {
+
+        private final String statementId;
+        private final String sql;
+        private int count;
+
+        Repeat(String statementId, String sql) {
+            this.statementId = statementId;
+            this.sql = sql;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.wnn.core.mybatis;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * 请求级SQL往返检测的监控指标
+ * <ul>
+ *   <li>sql.request.chatty：超过阈值的请求数，reason=statements 为SQL条数超限，reason=repeats 为同一SQL重复次数超限</li>
+ *   <li>sql.request.evaluated：完成判定的请求数</li>
+ *   <li>sql.request.untracked：跟踪的请求数达到上限而未跟踪的请求数</li>
+ *   <li>sql.request.tracked：正在跟踪的请求数</li>
+ * </ul>
+ *
+ * @author NanNan Wang
+ */
+public class ChattyRequestMetrics implements MeterBinder {
+
+    private final ChattyRequestDetector detector;
+
+    public ChattyRequestMetrics(ChattyRequestDetector detector) {
+        this.detector = detector;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("sql.request.chatty", detector, ChattyRequestDetector::getStatementCountExceeded)
+                .description("SQL条数超过阈值的请求数")
+                .tag("reason", "statements")
+                .register(registry);
+        FunctionCounter.builder("sql.request.chatty", detector, ChattyRequestDetector::getRepeatCountExceeded)
+                .description("同一SQL重复次数超过阈值的请求数")
+                .tag("reason", "repeats")
+                .register(registry);
+        FunctionCounter.builder("sql.request.evaluated", detector, ChattyRequestDetector::getEvaluatedRequests)
+                .description("完成SQL往返判定的请求数")
+                .register(registry);
+        FunctionCounter.builder("sql.request.untracked", detector, ChattyRequestDetector::getUntrackedRequests)
+                .description("跟踪的请求数达到上限而未跟踪的请求数")
+                .register(registry);
+        Gauge.builder("sql.request.tracked", detector, ChattyRequestDetector::getTrackedRequests)
+                .description("正在跟踪的请求数")
+                .register(registry);
+    }
+}
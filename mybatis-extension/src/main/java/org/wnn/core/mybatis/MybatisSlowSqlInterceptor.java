@@ -1,21 +1,15 @@
 package org.wnn.core.mybatis;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.plugin.*;
 import org.apache.ibatis.session.ResultHandler;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.sql.Statement;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -25,6 +19,11 @@ import java.util.concurrent.TimeUnit;
  * 计算SQL执行耗时，当耗时超过配置的阈值时，通过专用日志记录慢SQL信息。
  * 功能开关及参数可通过配置文件动态调整，无需修改代码。
  * </p>
+ * <p>
+ * 绝大多数SQL都不是慢SQL，执行前只记录开始时间，SQL规整与参数序列化（拉链表DAO的参数是较大的Map，toString开销不小）
+ * 都推迟到判定为慢SQL之后。参数在执行后才序列化，插入语句回填的自增主键等会体现在参数中。
+ * 判定为慢SQL后只在当前线程取出原始值组装成事件，JSON序列化与写日志交给 {@link SlowSqlLogWriter} 的后台线程。
+ * </p>
  *
  * @author NanNan Wang
  * @date 2025-08-11
@@ -36,8 +35,6 @@ import java.util.concurrent.TimeUnit;
 })
 public class MybatisSlowSqlInterceptor implements Interceptor {
 
-    private static final Logger logger = LoggerFactory.getLogger("slowSqlLog");
-
     /**
      * 慢SQL配置属性对象，通过{@link ConfigurationProperties}绑定配置文件参数
      */
@@ -49,10 +46,82 @@ public class MybatisSlowSqlInterceptor implements Interceptor {
      * @param slowSqlProperties 慢SQL配置属性对象，包含阈值、服务名等参数
      */
     public MybatisSlowSqlInterceptor(SlowSqlProperties slowSqlProperties) {
+        this(slowSqlProperties, null);
+    }
+
+    /**
+     * 构造函数，注入慢SQL配置属性和SQL指纹统计
+     *
+     * @param slowSqlProperties 慢SQL配置属性对象，包含阈值、服务名等参数
+     * @param fingerprintRegistry SQL指纹统计，为null时不统计
+     */
+    public MybatisSlowSqlInterceptor(SlowSqlProperties slowSqlProperties, SqlFingerprintRegistry fingerprintRegistry) {
+        this(slowSqlProperties, fingerprintRegistry, new SlowSqlLogWriter(slowSqlProperties));
+    }
+
+    /**
+     * 构造函数，注入慢SQL配置属性、SQL指纹统计和慢SQL日志输出
+     *
+     * @param slowSqlProperties 慢SQL配置属性对象，包含阈值、服务名等参数
+     * @param fingerprintRegistry SQL指纹统计，为null时不统计
+     * @param slowSqlLogWriter 慢SQL日志输出，未启动后台线程时在当前线程同步输出
+     */
+    public MybatisSlowSqlInterceptor(SlowSqlProperties slowSqlProperties, SqlFingerprintRegistry fingerprintRegistry,
+                                     SlowSqlLogWriter slowSqlLogWriter) {
+        this(slowSqlProperties, fingerprintRegistry, slowSqlLogWriter, null);
+    }
+
+    /**
+     * 构造函数，注入慢SQL配置属性、SQL指纹统计、慢SQL日志输出和执行计划采集
+     *
+     * @param slowSqlProperties 慢SQL配置属性对象，包含阈值、服务名等参数
+     * @param fingerprintRegistry SQL指纹统计，为null时不统计
+     * @param slowSqlLogWriter 慢SQL日志输出，未启动后台线程时在当前线程同步输出
+     * @param slowSqlExplainer 慢SQL执行计划采集，为null时不采集
+     */
+    public MybatisSlowSqlInterceptor(SlowSqlProperties slowSqlProperties, SqlFingerprintRegistry fingerprintRegistry,
+                                     SlowSqlLogWriter slowSqlLogWriter, SlowSqlExplainer slowSqlExplainer) {
+        this(slowSqlProperties, fingerprintRegistry, slowSqlLogWriter, slowSqlExplainer, null);
+    }
+
+    /**
+     * 构造函数，注入慢SQL配置属性、SQL指纹统计、慢SQL日志输出、执行计划采集和请求级SQL往返检测
+     *
+     * @param slowSqlProperties 慢SQL配置属性对象，包含阈值、服务名等参数
+     * @param fingerprintRegistry SQL指纹统计，为null时不统计
+     * @param slowSqlLogWriter 慢SQL日志输出，未启动后台线程时在当前线程同步输出
+     * @param slowSqlExplainer 慢SQL执行计划采集，为null时不采集
+     * @param chattyRequestDetector 请求级SQL往返检测，为null时不检测
+     */
+    public MybatisSlowSqlInterceptor(SlowSqlProperties slowSqlProperties, SqlFingerprintRegistry fingerprintRegistry,
+                                     SlowSqlLogWriter slowSqlLogWriter, SlowSqlExplainer slowSqlExplainer,
+                                     ChattyRequestDetector chattyRequestDetector) {
         this.slowSqlProperties = slowSqlProperties;
+        this.fingerprintRegistry = fingerprintRegistry;
+        this.slowSqlLogWriter = slowSqlLogWriter;
+        this.slowSqlExplainer = slowSqlExplainer;
+        this.chattyRequestDetector = chattyRequestDetector;
     }
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    /**
+     * SQL指纹统计，每条SQL执行后记录
+     */
+    private final SqlFingerprintRegistry fingerprintRegistry;
+
+    /**
+     * 慢SQL日志输出
+     */
+    private final SlowSqlLogWriter slowSqlLogWriter;
+
+    /**
+     * 慢SQL执行计划采集
+     */
+    private final SlowSqlExplainer slowSqlExplainer;
+
+    /**
+     * 请求级SQL往返检测，每条带traceId的SQL执行后记录
+     */
+    private final ChattyRequestDetector chattyRequestDetector;
 
     /**
      * 拦截SQL执行过程，计算执行耗时并判断是否为慢SQL
@@ -63,55 +132,88 @@ public class MybatisSlowSqlInterceptor implements Interceptor {
      */
     @Override
     public Object intercept(Invocation invocation) throws Throwable {
-//        // 获取 SQL 语句
-        StatementHandler statementHandler = (StatementHandler) invocation.getTarget();
-        BoundSql boundSql = statementHandler.getBoundSql();
-        String sql = boundSql.getSql().replaceAll("\\s+", " ").trim();
-
-        Object parameterObject = statementHandler.getBoundSql().getParameterObject();
-        String parameters = parameterObject != null ? parameterObject.toString() : "No parameters";
-
-        // 计算 SQL 执行时间（毫秒）
+        // 计算 SQL 执行时间（毫秒），执行前不做任何额外处理
         long start = System.nanoTime();
         // SQL执行
         Object result = invocation.proceed();
         long end = System.nanoTime();
         long durationMs = TimeUnit.NANOSECONDS.toMillis(end - start);
 
+        if (fingerprintRegistry != null) {
+            recordFingerprint(invocation, result, end - start);
+        }
+        if (chattyRequestDetector != null) {
+            recordRequest(invocation, end - start);
+        }
+        SqlSpans.record((StatementHandler) invocation.getTarget(), end - start);
+
         // 如果 SQL 执行时间超过阈值，记录慢 SQL
         if (durationMs > slowSqlProperties.getThreshold()) {
-            // 构建SQL详细信息（嵌套对象）
-            Map<String, Object> sqlInfo = new LinkedHashMap<>();
-            sqlInfo.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-            sqlInfo.put("durationMs", durationMs);
-            sqlInfo.put("sql", sql);
-            sqlInfo.put("parameters", parameters);
-            sqlInfo.put("threshold", slowSqlProperties.getThreshold());
+            logSlowSql((StatementHandler) invocation.getTarget(), durationMs);
+        }
 
-            // 构建顶级日志对象
-            Map<String, Object> logData = new LinkedHashMap<>();
-            logData.put("service_name", slowSqlProperties.getServiceName());
-            logData.put("sql_info", sqlInfo); // SQL信息作为嵌套字段
+        return result;
+    }
 
-            // 直接将traceId作为顶级字段
-            String traceId = MDC.get("traceId");
-            if (traceId != null) {
-                logData.put("traceId", traceId);
-            }
+    /**
+     * 按SQL指纹记录执行统计
+     *
+     * @param invocation 拦截器调用对象
+     * @param result 执行结果：query返回结果列表，update返回影响行数，batch无返回值
+     * @param nanos 执行耗时（纳秒）
+     */
+    private void recordFingerprint(Invocation invocation, Object result, long nanos) {
+        StatementHandler statementHandler = (StatementHandler) invocation.getTarget();
+        MappedStatement mappedStatement = StatementHandlers.mappedStatement(statementHandler);
+        long rows = -1;
+        if (result instanceof Integer) {
+            rows = (Integer) result;
+        } else if (result instanceof List) {
+            rows = ((List<?>) result).size();
+        }
+        fingerprintRegistry.record(mappedStatement == null ? null : mappedStatement.getId(),
+                statementHandler.getBoundSql().getSql(), nanos, rows);
+    }
 
-            try {
-                // 输出JSON格式日志
-                String jsonLog = objectMapper.writeValueAsString(logData);
-                logger.info(jsonLog);
-            } catch (JsonProcessingException e) {
-                // 序列化失败时回退到普通日志
-                logger.info("Slow SQL (JSON serialization failed): duration={}ms, sql={}, parameters={}",
-                        durationMs, sql, parameters);
-            }
+    /**
+     * 按traceId记录请求内执行的SQL，没有traceId时不记录
+     *
+     * @param invocation 拦截器调用对象
+     * @param nanos 执行耗时（纳秒）
+     */
+    private void recordRequest(Invocation invocation, long nanos) {
+        String traceId = MDC.get("traceId");
+        if (traceId == null) {
+            return;
         }
+        StatementHandler statementHandler = (StatementHandler) invocation.getTarget();
+        MappedStatement mappedStatement = StatementHandlers.mappedStatement(statementHandler);
+        chattyRequestDetector.record(traceId, mappedStatement == null ? null : mappedStatement.getId(),
+                statementHandler.getBoundSql().getSql(), nanos);
+    }
 
-        return result;
+    /**
+     * 发布慢SQL事件，此时才序列化参数；SQL规整与JSON序列化在日志线程完成
+     *
+     * @param statementHandler 执行SQL的StatementHandler
+     * @param durationMs 执行耗时（毫秒）
+     */
+    private void logSlowSql(StatementHandler statementHandler, long durationMs) {
+        BoundSql boundSql = statementHandler.getBoundSql();
+        Object parameterObject = boundSql.getParameterObject();
+        // 参数对象在返回后可能被调用方修改，必须在当前线程转成字符串
+        String parameters = parameterObject != null ? parameterObject.toString() : "No parameters";
+        MappedStatement mappedStatement = StatementHandlers.mappedStatement(statementHandler);
+        SlowSqlEvent event = new SlowSqlEvent(System.currentTimeMillis(), durationMs,
+                mappedStatement == null ? null : mappedStatement.getId(),
+                boundSql.getSql(), parameters, MDC.get("traceId"));
+        if (slowSqlExplainer != null && mappedStatement != null) {
+            slowSqlExplainer.explainAndPublish(mappedStatement, boundSql, event, slowSqlLogWriter::publish);
+        } else {
+            slowSqlLogWriter.publish(event);
+        }
     }
+
     /**
      * 包装目标对象，生成MyBatis插件代理对象
      * <p>
@@ -158,6 +260,26 @@ public class MybatisSlowSqlInterceptor implements Interceptor {
          */
         private boolean enabled = false;
 
+        /**
+         * SQL指纹统计配置
+         */
+        private Fingerprint fingerprint = new Fingerprint();
+
+        /**
+         * 慢SQL日志异步输出配置
+         */
+        private Async async = new Async();
+
+        /**
+         * 慢SQL执行计划采集配置
+         */
+        private Explain explain = new Explain();
+
+        /**
+         * 请求级SQL往返检测配置
+         */
+        private Chatty chatty = new Chatty();
+
         /**
          * 获取慢SQL阈值（毫秒）
          *
@@ -211,5 +333,335 @@ public class MybatisSlowSqlInterceptor implements Interceptor {
         public void setEnabled(boolean enabled) {
             this.enabled = enabled;
         }
+
+        /**
+         * 获取SQL指纹统计配置
+         *
+         * @return SQL指纹统计配置
+         */
+        public Fingerprint getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * 设置SQL指纹统计配置
+         *
+         * @param fingerprint SQL指纹统计配置
+         */
+        public void setFingerprint(Fingerprint fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        /**
+         * 获取慢SQL日志异步输出配置
+         *
+         * @return 慢SQL日志异步输出配置
+         */
+        public Async getAsync() {
+            return async;
+        }
+
+        /**
+         * 设置慢SQL日志异步输出配置
+         *
+         * @param async 慢SQL日志异步输出配置
+         */
+        public void setAsync(Async async) {
+            this.async = async;
+        }
+
+        /**
+         * 获取慢SQL执行计划采集配置
+         *
+         * @return 慢SQL执行计划采集配置
+         */
+        public Explain getExplain() {
+            return explain;
+        }
+
+        /**
+         * 设置慢SQL执行计划采集配置
+         *
+         * @param explain 慢SQL执行计划采集配置
+         */
+        public void setExplain(Explain explain) {
+            this.explain = explain;
+        }
+
+        /**
+         * 获取请求级SQL往返检测配置
+         *
+         * @return 请求级SQL往返检测配置
+         */
+        public Chatty getChatty() {
+            return chatty;
+        }
+
+        /**
+         * 设置请求级SQL往返检测配置
+         *
+         * @param chatty 请求级SQL往返检测配置
+         */
+        public void setChatty(Chatty chatty) {
+            this.chatty = chatty;
+        }
+
+        /**
+         * SQL指纹统计配置，前缀为{@code slow.sql.fingerprint}
+         */
+        public static class Fingerprint {
+
+            /**
+             * 是否按SQL指纹统计每条SQL的执行情况，默认开启（仍需 slow.sql.enabled=true）
+             */
+            private boolean enabled = true;
+
+            /**
+             * 最多统计的指纹数量，超过后新的指纹合并统计，默认1000
+             */
+            private int maxFingerprints = 1000;
+
+            /**
+             * 聚合日志的输出间隔（秒），不大于0时不输出，默认60秒
+             */
+            private long logIntervalSeconds = 60;
+
+            /**
+             * 聚合日志中输出的指纹数量（按间隔内总耗时倒序），默认20
+             */
+            private int logTop = 20;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getMaxFingerprints() {
+                return maxFingerprints;
+            }
+
+            public void setMaxFingerprints(int maxFingerprints) {
+                this.maxFingerprints = maxFingerprints;
+            }
+
+            public long getLogIntervalSeconds() {
+                return logIntervalSeconds;
+            }
+
+            public void setLogIntervalSeconds(long logIntervalSeconds) {
+                this.logIntervalSeconds = logIntervalSeconds;
+            }
+
+            public int getLogTop() {
+                return logTop;
+            }
+
+            public void setLogTop(int logTop) {
+                this.logTop = logTop;
+            }
+        }
+    
+        /**
+         * 慢SQL日志异步输出配置，前缀为{@code slow.sql.async}
+         */
+        public static class Async {
+
+            /**
+             * 是否在后台线程输出慢SQL日志，默认开启；关闭后在执行SQL的线程同步输出
+             */
+            private boolean enabled = true;
+
+            /**
+             * 队列容量，向上取整为2的幂，默认1024
+             */
+            private int bufferSize = 1024;
+
+            /**
+             * 队列满时的处理策略，默认丢弃新事件
+             */
+            private SlowSqlLogWriter.OverflowPolicy overflowPolicy = SlowSqlLogWriter.OverflowPolicy.DROP_NEWEST;
+
+            /**
+             * 后台线程每批最多输出的事件数量，默认256
+             */
+            private int batchSize = 256;
+
+            /**
+             * 队列为空时后台线程的等待时间（毫秒），默认10ms
+             */
+            private long idleMillis = 10;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getBufferSize() {
+                return bufferSize;
+            }
+
+            public void setBufferSize(int bufferSize) {
+                this.bufferSize = bufferSize;
+            }
+
+            public SlowSqlLogWriter.OverflowPolicy getOverflowPolicy() {
+                return overflowPolicy;
+            }
+
+            public void setOverflowPolicy(SlowSqlLogWriter.OverflowPolicy overflowPolicy) {
+                this.overflowPolicy = overflowPolicy;
+            }
+
+            public int getBatchSize() {
+                return batchSize;
+            }
+
+            public void setBatchSize(int batchSize) {
+                this.batchSize = batchSize;
+            }
+
+            public long getIdleMillis() {
+                return idleMillis;
+            }
+
+            public void setIdleMillis(long idleMillis) {
+                this.idleMillis = idleMillis;
+            }
+        }
+    
+        /**
+         * 慢SQL执行计划采集配置，前缀为{@code slow.sql.explain}
+         */
+        public static class Explain {
+
+            /**
+             * 是否对新出现的慢SQL指纹执行EXPLAIN，默认关闭
+             */
+            private boolean enabled = false;
+
+            /**
+             * 每个指纹采集执行计划的慢执行次数，默认1（仅第一次）
+             */
+            private int maxPerFingerprint = 1;
+
+            /**
+             * 最多缓存执行计划的指纹数量，超过后新的指纹不再采集，默认1000
+             */
+            private int maxFingerprints = 1000;
+
+            /**
+             * 等待采集的慢SQL数量上限，队列满时慢SQL日志不附带执行计划直接输出，默认64
+             */
+            private int queueSize = 64;
+
+            /**
+             * EXPLAIN的查询超时（秒），不大于0时不设置，默认5秒
+             */
+            private int timeoutSeconds = 5;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getMaxPerFingerprint() {
+                return maxPerFingerprint;
+            }
+
+            public void setMaxPerFingerprint(int maxPerFingerprint) {
+                this.maxPerFingerprint = maxPerFingerprint;
+            }
+
+            public int getMaxFingerprints() {
+                return maxFingerprints;
+            }
+
+            public void setMaxFingerprints(int maxFingerprints) {
+                this.maxFingerprints = maxFingerprints;
+            }
+
+            public int getQueueSize() {
+                return queueSize;
+            }
+
+            public void setQueueSize(int queueSize) {
+                this.queueSize = queueSize;
+            }
+
+            public int getTimeoutSeconds() {
+                return timeoutSeconds;
+            }
+
+            public void setTimeoutSeconds(int timeoutSeconds) {
+                this.timeoutSeconds = timeoutSeconds;
+            }
+        }
+    
+        /**
+         * 请求级SQL往返检测配置，前缀为{@code slow.sql.chatty}
+         */
+        public static class Chatty {
+
+            /**
+             * 是否按traceId检测请求内的SQL往返次数，默认开启（仍需 slow.sql.enabled=true）
+             */
+            private boolean enabled = true;
+
+            /**
+             * 一个请求内SQL条数的告警阈值，超过时告警，默认20
+             */
+            private int maxStatements = 20;
+
+            /**
+             * 一个请求内同一SQL重复执行次数的告警阈值，超过时告警，默认5
+             */
+            private int maxRepeats = 5;
+
+            /**
+             * 同时跟踪的请求数上限，默认10000
+             */
+            private int maxRequests = 10000;
+
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            public void setEnabled(boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            public int getMaxStatements() {
+                return maxStatements;
+            }
+
+            public void setMaxStatements(int maxStatements) {
+                this.maxStatements = maxStatements;
+            }
+
+            public int getMaxRepeats() {
+                return maxRepeats;
+            }
+
+            public void setMaxRepeats(int maxRepeats) {
+                this.maxRepeats = maxRepeats;
+            }
+
+            public int getMaxRequests() {
+                return maxRequests;
+            }
+
+            public void setMaxRequests(int maxRequests) {
+                this.maxRequests = maxRequests;
+            }
+        }
     }
 }
@@ -0,0 +1,78 @@
+package org.wnn.core.mybatis;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 慢SQL事件
+ * <p>
+ * 在执行SQL的线程上只采集原始值：SQL取 BoundSql 中的原始文本（不可变），参数在当前线程转成字符串
+ * （参数对象可能在返回后被调用方继续修改，不能交给后台线程读取）；规整SQL、格式化时间、序列化JSON都在后台线程完成。
+ * 开启EXPLAIN采集时附带该指纹的执行计划（每行为列名到值的有序映射）。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+final class SlowSqlEvent {
+
+    private final long timestampMillis;
+    private final long durationMs;
+    private final String statementId;
+    private final String sql;
+    private final String parameters;
+    private final String traceId;
+    private final List<Map<String, String>> explainPlan;
+
+    SlowSqlEvent(long timestampMillis, long durationMs, String statementId, String sql, String parameters, String traceId) {
+        this(timestampMillis, durationMs, statementId, sql, parameters, traceId, null);
+    }
+
+    private SlowSqlEvent(long timestampMillis, long durationMs, String statementId, String sql, String parameters,
+                         String traceId, List<Map<String, String>> explainPlan) {
+        this.timestampMillis = timestampMillis;
+        this.durationMs = durationMs;
+        this.statementId = statementId;
+        this.sql = sql;
+        this.parameters = parameters;
+        this.traceId = traceId;
+        this.explainPlan = explainPlan;
+    }
+
+    /**
+     * 附带执行计划的副本，执行计划为null时返回自身
+     */
+    SlowSqlEvent withExplainPlan(List<Map<String, String>> explainPlan) {
+        if (explainPlan == null) {
+            return this;
+        }
+        return new SlowSqlEvent(timestampMillis, durationMs, statementId, sql, parameters, traceId, explainPlan);
+    }
+
+    long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    long getDurationMs() {
+        return durationMs;
+    }
+
+    String getStatementId() {
+        return statementId;
+    }
+
+    String getSql() {
+        return sql;
+    }
+
+    String getParameters() {
+        return parameters;
+    }
+
+    String getTraceId() {
+        return traceId;
+    }
+
+    List<Map<String, String>> getExplainPlan() {
+        return explainPlan;
+    }
+}
@@ -0,0 +1,276 @@
+package org.wnn.core.mybatis;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * 慢SQL执行计划采集
+ * <p>
+ * 每个新出现的慢SQL指纹（MappedStatement ID + SQL指纹）的前N次慢执行，在后台线程从同一个数据源另取连接，
+ * 用当次的绑定参数执行 {@code EXPLAIN}（MySQL语法），执行计划按指纹缓存并附加到慢SQL日志中；
+ * 之后同一指纹的慢SQL日志直接附带缓存的执行计划，不再访问数据库。
+ * 拉链表的SQL模板由用户在 zipper_table_meta 中配置，容易缺少索引，不必再手工复现慢SQL查看执行计划。
+ * </p>
+ * <p>
+ * 被选中采集执行计划的慢SQL事件由采集线程在EXPLAIN完成后发布；采集队列已满或采集失败时按原样发布，日志不会丢失。
+ * 绑定参数的取值方式与 MyBatis 的 DefaultParameterHandler 一致，在执行SQL的线程上取出，采集线程只负责设置参数。
+ * 默认关闭，需配置 slow.sql.explain.enabled=true。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class SlowSqlExplainer implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SlowSqlExplainer.class);
+
+    /**
+     * MySQL支持EXPLAIN的语句，其他语句（DDL、存储过程等）不采集
+     */
+    private static final Pattern EXPLAINABLE = Pattern.compile("^\\s*(select|insert|update|delete|replace|with)\\b",
+            Pattern.CASE_INSENSITIVE);
+
+    private final MybatisSlowSqlInterceptor.SlowSqlProperties.Explain properties;
+
+    /**
+     * 指纹 -> 执行计划缓存
+     */
+    private final Map<String, PlanEntry> entriesByFingerprint = new ConcurrentHashMap<>();
+
+    /**
+     * MappedStatement ID + 原始SQL -> 执行计划缓存，避免每条慢SQL都重新计算指纹
+     */
+    private final Map<StatementSqlKey, PlanEntry> entriesBySql = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    public SlowSqlExplainer(MybatisSlowSqlInterceptor.SlowSqlProperties slowSqlProperties) {
+        this.properties = slowSqlProperties.getExplain();
+    }
+
+    /**
+     * 为慢SQL事件附加执行计划后发布
+     * <p>
+     * 指纹的前N次慢执行提交EXPLAIN任务，由采集线程在完成后发布；其余情况附带已缓存的执行计划（可能还没有）立即发布。
+     * </p>
+     *
+     * @param mappedStatement 执行的MappedStatement
+     * @param boundSql 执行的SQL及参数
+     * @param event 慢SQL事件
+     * @param publisher 事件发布
+     */
+    void explainAndPublish(MappedStatement mappedStatement, BoundSql boundSql, SlowSqlEvent event,
+                           Consumer<SlowSqlEvent> publisher) {
+        PlanEntry entry = resolve(mappedStatement.getId(), boundSql.getSql());
+        if (entry == null || executor == null || !isExplainable(mappedStatement, boundSql)
+                || !entry.tryAcquire(properties.getMaxPerFingerprint())) {
+            publisher.accept(event.withExplainPlan(entry == null ? null : entry.plan));
+            return;
+        }
+        List<BoundParameter> parameters;
+        try {
+            parameters = bindParameters(mappedStatement.getConfiguration(), boundSql);
+        } catch (RuntimeException e) {
+            log.debug("慢SQL绑定参数取值失败，不采集执行计划：{}", mappedStatement.getId(), e);
+            publisher.accept(event.withExplainPlan(entry.plan));
+            return;
+        }
+        DataSource dataSource = mappedStatement.getConfiguration().getEnvironment().getDataSource();
+        String sql = boundSql.getSql();
+        try {
+            executor.execute(() -> {
+                try {
+                    entry.plan = explain(dataSource, sql, parameters);
+                } catch (SQLException | RuntimeException e) {
+                    log.warn("慢SQL执行计划采集失败：{}，{}", mappedStatement.getId(), e.getMessage());
+                }
+                publisher.accept(event.withExplainPlan(entry.plan));
+            });
+        } catch (RejectedExecutionException e) {
+            publisher.accept(event.withExplainPlan(entry.plan));
+        }
+    }
+
+    /**
+     * 取SQL对应的缓存项，指纹数量达到上限后新指纹不再采集，返回null
+     */
+    private PlanEntry resolve(String statementId, String sql) {
+        StatementSqlKey sqlKey = new StatementSqlKey(statementId, sql);
+        PlanEntry entry = entriesBySql.get(sqlKey);
+        if (entry != null) {
+            return entry;
+        }
+        String key = statementId + ' ' + SqlNormalizer.fingerprint(sql);
+        entry = entriesByFingerprint.get(key);
+        if (entry == null) {
+            if (entriesByFingerprint.size() >= properties.getMaxFingerprints()) {
+                return null;
+            }
+            entry = entriesByFingerprint.computeIfAbsent(key, k -> new PlanEntry());
+        }
+        if (entriesBySql.size() >= properties.getMaxFingerprints() * 4) {
+            entriesBySql.clear();
+        }
+        entriesBySql.put(sqlKey, entry);
+        return entry;
+    }
+
+    private static boolean isExplainable(MappedStatement mappedStatement, BoundSql boundSql) {
+        return mappedStatement.getStatementType() != StatementType.CALLABLE
+                && EXPLAINABLE.matcher(boundSql.getSql()).find();
+    }
+
+    /**
+     * 按 DefaultParameterHandler 的规则取出每个占位符的值和类型处理器
+     */
+    private static List<BoundParameter> bindParameters(Configuration configuration, BoundSql boundSql) {
+        List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+        if (parameterMappings == null || parameterMappings.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Object parameterObject = boundSql.getParameterObject();
+        MetaObject metaObject = null;
+        List<BoundParameter> parameters = new ArrayList<>(parameterMappings.size());
+        for (ParameterMapping parameterMapping : parameterMappings) {
+            if (parameterMapping.getMode() == ParameterMode.OUT) {
+                continue;
+            }
+            String property = parameterMapping.getProperty();
+            Object value;
+            if (boundSql.hasAdditionalParameter(property)) {
+                value = boundSql.getAdditionalParameter(property);
+            } else if (parameterObject == null) {
+                value = null;
+            } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+                value = parameterObject;
+            } else {
+                if (metaObject == null) {
+                    metaObject = configuration.newMetaObject(parameterObject);
+                }
+                value = metaObject.getValue(property);
+            }
+            JdbcType jdbcType = parameterMapping.getJdbcType();
+            if (value == null && jdbcType == null) {
+                jdbcType = configuration.getJdbcTypeForNull();
+            }
+            parameters.add(new BoundParameter(parameterMapping.getTypeHandler(), value, jdbcType));
+        }
+        return parameters;
+    }
+
+    /**
+     * 在新连接上执行EXPLAIN，返回执行计划的每一行
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private List<Map<String, String>> explain(DataSource dataSource, String sql, List<BoundParameter> parameters)
+            throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            if (properties.getTimeoutSeconds() > 0) {
+                statement.setQueryTimeout(properties.getTimeoutSeconds());
+            }
+            for (int i = 0; i < parameters.size(); i++) {
+                BoundParameter parameter = parameters.get(i);
+                TypeHandler typeHandler = parameter.typeHandler;
+                typeHandler.setParameter(statement, i + 1, parameter.value, parameter.jdbcType);
+            }
+            List<Map<String, String>> plan = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                int columnCount = metaData.getColumnCount();
+                while (resultSet.next()) {
+                    Map<String, String> row = new LinkedHashMap<>();
+                    for (int column = 1; column <= columnCount; column++) {
+                        row.put(metaData.getColumnLabel(column), resultSet.getString(column));
+                    }
+                    plan.add(Collections.unmodifiableMap(row));
+                }
+            }
+            return Collections.unmodifiableList(plan);
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueSize())), runnable -> {
+            Thread thread = new Thread(runnable, "slow-sql-explain");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (executor != null) {
+            // 等待已提交的任务发布各自的慢SQL事件
+            executor.shutdown();
+            executor.awaitTermination(properties.getTimeoutSeconds() + 1L, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * 指纹的执行计划缓存项
+     */
+    private static final class PlanEntry {
+
+        private final AtomicInteger explained = new AtomicInteger();
+        private volatile List<Map<String, String>> plan;
+
+        /**
+         * 占用一次采集名额，前N次慢执行返回true
+         */
+        boolean tryAcquire(int maxPerFingerprint) {
+            if (explained.get() >= maxPerFingerprint) {
+                return false;
+            }
+            return explained.incrementAndGet() <= maxPerFingerprint;
+        }
+    }
+
+    /**
+     * 一个占位符的取值
+     */
+    private static final class BoundParameter {
+
+        private final TypeHandler<?> typeHandler;
+        private final Object value;
+        private final JdbcType jdbcType;
+
+        BoundParameter(TypeHandler<?> typeHandler, Object value, JdbcType jdbcType) {
+            this.typeHandler = typeHandler;
+            this.value = value;
+            this.jdbcType = jdbcType;
+        }
+    }
+}
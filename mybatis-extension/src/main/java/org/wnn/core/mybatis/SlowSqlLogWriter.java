@@ -0,0 +1,253 @@
+package org.wnn.core.mybatis;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 慢SQL日志输出
+ * <p>
+ * 数据库变慢时几乎每条SQL都是慢SQL，如果在执行SQL的线程上序列化JSON并同步写日志，日志开销会叠加在本已变慢的请求上。
+ * 这里执行线程只把 {@link SlowSqlEvent} 放入有界无锁环形队列，由单个后台线程按批取出，
+ * 用同一个 {@link JsonGenerator} 逐条序列化后写日志。队列满时按配置丢弃最新或最旧的事件并计数，
+ * 后台线程周期输出累计丢弃数量，执行线程不会因为日志而阻塞。
+ * </p>
+ * <p>
+ * 未作为Spring Bean初始化（或 slow.sql.async.enabled=false）时不启动后台线程，在调用线程同步输出，行为与之前一致。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class SlowSqlLogWriter implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger("slowSqlLog");
+    private static final Logger log = LoggerFactory.getLogger(SlowSqlLogWriter.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final long DROPPED_WARN_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * 队列满时的处理策略
+     */
+    public enum OverflowPolicy {
+        /**
+         * 丢弃新事件，保留队列中已有的事件
+         */
+        DROP_NEWEST,
+        /**
+         * 丢弃队列中最旧的事件，为新事件腾出位置
+         */
+        DROP_OLDEST
+    }
+
+    private final MybatisSlowSqlInterceptor.SlowSqlProperties slowSqlProperties;
+    private final MybatisSlowSqlInterceptor.SlowSqlProperties.Async properties;
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile BoundedRingBuffer<SlowSqlEvent> buffer;
+    private volatile boolean running;
+    private Thread worker;
+
+    public SlowSqlLogWriter(MybatisSlowSqlInterceptor.SlowSqlProperties slowSqlProperties) {
+        this.slowSqlProperties = slowSqlProperties;
+        this.properties = slowSqlProperties.getAsync();
+    }
+
+    /**
+     * 发布一条慢SQL事件
+     *
+     * @param event 慢SQL事件
+     */
+    void publish(SlowSqlEvent event) {
+        BoundedRingBuffer<SlowSqlEvent> buffer = this.buffer;
+        if (buffer == null || !running) {
+            writeDirectly(event);
+            return;
+        }
+        if (buffer.offer(event)) {
+            return;
+        }
+        if (properties.getOverflowPolicy() == OverflowPolicy.DROP_OLDEST) {
+            // 腾出一个位置后重试，其他线程可能同时抢到腾出的位置，重试失败时放弃新事件
+            if (buffer.poll() != null) {
+                dropped.increment();
+            }
+            if (buffer.offer(event)) {
+                return;
+            }
+        }
+        dropped.increment();
+    }
+
+    /**
+     * 因队列已满被丢弃的事件数量（累计）
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        buffer = new BoundedRingBuffer<>(properties.getBufferSize());
+        running = true;
+        worker = new Thread(this::drainLoop, "slow-sql-log");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (worker == null) {
+            return;
+        }
+        // 停止后新事件改为同步输出，后台线程写完队列中剩余的事件再退出
+        running = false;
+        LockSupport.unpark(worker);
+        worker.join(SHUTDOWN_TIMEOUT_MILLIS);
+    }
+
+    private void drainLoop() {
+        JsonWriter writer = new JsonWriter();
+        int batchSize = Math.max(1, properties.getBatchSize());
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, properties.getIdleMillis()));
+        long reportedDropped = 0;
+        long lastDroppedWarn = System.nanoTime();
+        while (true) {
+            boolean stopping = !running;
+            int drained = 0;
+            SlowSqlEvent event;
+            while (drained < batchSize && (event = buffer.poll()) != null) {
+                write(writer, event);
+                drained++;
+            }
+            if (System.nanoTime() - lastDroppedWarn >= DROPPED_WARN_INTERVAL_NANOS) {
+                long total = dropped.sum();
+                if (total > reportedDropped) {
+                    log.warn("慢SQL日志队列已满，累计丢弃{}条（最近一分钟{}条），队列容量{}",
+                            total, total - reportedDropped, buffer.capacity());
+                    reportedDropped = total;
+                }
+                lastDroppedWarn = System.nanoTime();
+            }
+            if (drained == 0) {
+                if (stopping) {
+                    return;
+                }
+                LockSupport.parkNanos(idleNanos);
+            }
+        }
+    }
+
+    private void writeDirectly(SlowSqlEvent event) {
+        write(new JsonWriter(), event);
+    }
+
+    private void write(JsonWriter writer, SlowSqlEvent event) {
+        String sql = SqlNormalizer.collapseWhitespace(event.getSql());
+        String previousTraceId = MDC.get("traceId");
+        try {
+            // 后台线程没有请求的MDC，输出时临时放入事件中的traceId，日志格式中引用traceId的部分保持可用
+            if (event.getTraceId() != null) {
+                MDC.put("traceId", event.getTraceId());
+            }
+            logger.info(writer.serialize(event, sql));
+        } catch (IOException | RuntimeException e) {
+            // 序列化失败时回退到普通日志
+            writer.reset();
+            logger.info("Slow SQL (JSON serialization failed): duration={}ms, sql={}, parameters={}",
+                    event.getDurationMs(), sql, event.getParameters());
+        } finally {
+            if (previousTraceId != null) {
+                MDC.put("traceId", previousTraceId);
+            } else {
+                MDC.remove("traceId");
+            }
+        }
+    }
+
+    /**
+     * 可复用的JSON序列化器，输出字段与之前的 Map + ObjectMapper 一致，非线程安全
+     */
+    private final class JsonWriter {
+
+        private final StringWriter buffer = new StringWriter(512);
+        private JsonGenerator generator;
+
+        JsonWriter() {
+            this.generator = createGenerator();
+        }
+
+        private JsonGenerator createGenerator() {
+            try {
+                JsonGenerator created = JSON_FACTORY.createGenerator(buffer);
+                // 每个事件都是独立的根对象，不需要分隔符
+                created.setRootValueSeparator(null);
+                return created;
+            } catch (IOException e) {
+                throw new IllegalStateException("创建JSON生成器失败", e);
+            }
+        }
+
+        String serialize(SlowSqlEvent event, String sql) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("service_name", slowSqlProperties.getServiceName());
+            generator.writeObjectFieldStart("sql_info");
+            generator.writeStringField("timestamp", LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(event.getTimestampMillis()), ZoneId.systemDefault())
+                    .format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            generator.writeNumberField("durationMs", event.getDurationMs());
+            if (event.getStatementId() != null) {
+                generator.writeStringField("statementId", event.getStatementId());
+            }
+            generator.writeStringField("sql", sql);
+            generator.writeStringField("parameters", event.getParameters());
+            generator.writeNumberField("threshold", slowSqlProperties.getThreshold());
+            if (event.getExplainPlan() != null) {
+                generator.writeArrayFieldStart("explain");
+                for (Map<String, String> row : event.getExplainPlan()) {
+                    generator.writeStartObject();
+                    for (Map.Entry<String, String> column : row.entrySet()) {
+                        generator.writeStringField(column.getKey(), column.getValue());
+                    }
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+            }
+            generator.writeEndObject();
+            if (event.getTraceId() != null) {
+                generator.writeStringField("traceId", event.getTraceId());
+            }
+            generator.writeEndObject();
+            generator.flush();
+            String json = buffer.toString();
+            buffer.getBuffer().setLength(0);
+            return json;
+        }
+
+        /**
+         * 序列化中途失败时生成器停在对象内部，丢弃已写出的内容并重建生成器
+         */
+        void reset() {
+            generator = createGenerator();
+            buffer.getBuffer().setLength(0);
+        }
+    }
+}
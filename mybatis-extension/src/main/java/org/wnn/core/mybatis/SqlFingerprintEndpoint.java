@@ -0,0 +1,42 @@
+package org.wnn.core.mybatis;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * SQL指纹统计监控端点
+ * <p>
+ * GET /actuator/sqlfingerprints?top=20 查看按总耗时倒序的累计统计，DELETE /actuator/sqlfingerprints 清空统计。
+ * 需在 management.endpoints.web.exposure.include 中加入 sqlfingerprints 才能通过HTTP访问。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@Endpoint(id = "sqlfingerprints")
+public class SqlFingerprintEndpoint {
+
+    private static final int DEFAULT_TOP = 50;
+
+    private final SqlFingerprintRegistry registry;
+
+    public SqlFingerprintEndpoint(SqlFingerprintRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * @param top 返回的条数，默认50，0表示全部
+     */
+    @ReadOperation
+    public List<SqlFingerprintSnapshot> fingerprints(@Nullable Integer top) {
+        return registry.snapshots(top == null ? DEFAULT_TOP : top);
+    }
+
+    @DeleteOperation
+    public void reset() {
+        registry.reset();
+    }
+}
@@ -0,0 +1,197 @@
+package org.wnn.core.mybatis;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQL指纹统计注册表
+ * <p>
+ * 按“MappedStatement ID + SQL指纹”聚合每条SQL的执行统计（次数、总耗时、耗时分布、影响行数），
+ * 拉链表公共DAO的同一个方法会执行不同表的SQL模板，指纹中的SQL和主表把它们区分开。
+ * 指纹计算按“MappedStatement ID + 原始SQL”缓存，静态SQL和重复出现的动态SQL只在第一次执行时计算；
+ * 指纹数量达到上限后，新的指纹都计入 {@value #OVERFLOW_STATEMENT_ID}，防止拼接字面量的SQL把内存撑满。
+ * </p>
+ * <p>
+ * 统计通过监控端点 {@link SqlFingerprintEndpoint} 查看，同时按配置的间隔输出一行聚合日志（日志名 sqlStatsLog），
+ * 内容为该间隔内总耗时最高的若干指纹，代替逐条日志观察哪类SQL占用了数据库时间。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class SqlFingerprintRegistry implements InitializingBean, DisposableBean {
+
+    /**
+     * 指纹数量超过上限后的统计项
+     */
+    public static final String OVERFLOW_STATEMENT_ID = "<other>";
+
+    private static final Logger logger = LoggerFactory.getLogger("sqlStatsLog");
+    private static final Comparator<SqlFingerprintSnapshot> BY_TOTAL_TIME =
+            Comparator.comparingDouble(SqlFingerprintSnapshot::getTotalMillis).reversed();
+
+    private final MybatisSlowSqlInterceptor.SlowSqlProperties slowSqlProperties;
+    private final MybatisSlowSqlInterceptor.SlowSqlProperties.Fingerprint properties;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * 指纹（MappedStatement ID + SQL指纹）-> 统计
+     */
+    private final Map<String, SqlFingerprintStats> statsByFingerprint = new ConcurrentHashMap<>();
+
+    /**
+     * MappedStatement ID + 原始SQL -> 统计，避免每次执行都重新计算指纹
+     */
+    private final Map<StatementSqlKey, SqlFingerprintStats> statsBySql = new ConcurrentHashMap<>();
+
+    private final SqlFingerprintStats overflow = new SqlFingerprintStats(OVERFLOW_STATEMENT_ID, null, null);
+
+    private ScheduledExecutorService scheduler;
+
+    public SqlFingerprintRegistry(MybatisSlowSqlInterceptor.SlowSqlProperties slowSqlProperties) {
+        this.slowSqlProperties = slowSqlProperties;
+        this.properties = slowSqlProperties.getFingerprint();
+    }
+
+    /**
+     * 记录一次SQL执行
+     *
+     * @param statementId MappedStatement的ID，未知时为null
+     * @param sql 原始SQL
+     * @param nanos 执行耗时（纳秒）
+     * @param rows 影响/返回的行数，未知时传负数
+     */
+    public void record(String statementId, String sql, long nanos, long rows) {
+        resolve(statementId, sql).record(nanos, rows);
+    }
+
+    /**
+     * 取SQL对应的统计项，必要时计算指纹并创建
+     */
+    SqlFingerprintStats resolve(String statementId, String sql) {
+        StatementSqlKey sqlKey = new StatementSqlKey(statementId, sql);
+        SqlFingerprintStats stats = statsBySql.get(sqlKey);
+        if (stats != null) {
+            return stats;
+        }
+        String fingerprint = SqlNormalizer.fingerprint(sql);
+        String key = statementId + ' ' + fingerprint;
+        stats = statsByFingerprint.get(key);
+        if (stats == null) {
+            if (statsByFingerprint.size() >= properties.getMaxFingerprints()) {
+                stats = overflow;
+            } else {
+                stats = statsByFingerprint.computeIfAbsent(key,
+                        k -> new SqlFingerprintStats(statementId, SqlNormalizer.mainTable(fingerprint), fingerprint));
+            }
+        }
+        // 缓存的原始SQL数量是指纹上限的若干倍（同一指纹可能对应多个IN列表长度），超过后整体清空重建
+        if (statsBySql.size() >= properties.getMaxFingerprints() * 4) {
+            statsBySql.clear();
+        }
+        statsBySql.put(sqlKey, stats);
+        return stats;
+    }
+
+    /**
+     * 累计统计，按总耗时倒序
+     *
+     * @param top 返回的条数，不大于0时返回全部
+     */
+    public List<SqlFingerprintSnapshot> snapshots(int top) {
+        List<SqlFingerprintSnapshot> snapshots = new ArrayList<>(statsByFingerprint.size() + 1);
+        for (SqlFingerprintStats stats : statsByFingerprint.values()) {
+            snapshots.add(stats.snapshot());
+        }
+        SqlFingerprintSnapshot overflowSnapshot = overflow.snapshot();
+        if (overflowSnapshot.getCount() > 0) {
+            snapshots.add(overflowSnapshot);
+        }
+        snapshots.sort(BY_TOTAL_TIME);
+        return top > 0 && snapshots.size() > top ? new ArrayList<>(snapshots.subList(0, top)) : snapshots;
+    }
+
+    /**
+     * 清空全部统计
+     */
+    public void reset() {
+        statsBySql.clear();
+        statsByFingerprint.clear();
+        overflow.reset();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        long interval = properties.getLogIntervalSeconds();
+        if (interval <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sql-fingerprint-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::logInterval, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * 输出本间隔内总耗时最高的指纹，期间没有SQL执行时不输出
+     */
+    void logInterval() {
+        try {
+            List<SqlFingerprintSnapshot> snapshots = new ArrayList<>();
+            for (SqlFingerprintStats stats : statsByFingerprint.values()) {
+                addIfPresent(snapshots, stats.snapshotSinceLastLog());
+            }
+            addIfPresent(snapshots, overflow.snapshotSinceLastLog());
+            if (snapshots.isEmpty()) {
+                return;
+            }
+            snapshots.sort(BY_TOTAL_TIME);
+            long statements = 0;
+            for (SqlFingerprintSnapshot snapshot : snapshots) {
+                statements += snapshot.getCount();
+            }
+
+            Map<String, Object> logData = new LinkedHashMap<>();
+            logData.put("service_name", slowSqlProperties.getServiceName());
+            logData.put("interval_seconds", properties.getLogIntervalSeconds());
+            logData.put("statements", statements);
+            logData.put("fingerprints", snapshots.size());
+            int top = properties.getLogTop();
+            logData.put("top", top > 0 && snapshots.size() > top ? snapshots.subList(0, top) : snapshots);
+            logger.info(objectMapper.writeValueAsString(logData));
+        } catch (JsonProcessingException e) {
+            logger.warn("SQL指纹统计日志序列化失败", e);
+        } catch (RuntimeException e) {
+            // 不能让异常终止定时任务
+            logger.warn("SQL指纹统计日志输出失败", e);
+        }
+    }
+
+    private static void addIfPresent(List<SqlFingerprintSnapshot> snapshots, SqlFingerprintSnapshot snapshot) {
+        if (snapshot != null) {
+            snapshots.add(snapshot);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.wnn.core.mybatis;
+
+/**
+ * SQL指纹统计快照，由监控端点和周期日志输出
+ *
+ * @author NanNan Wang
+ */
+public class SqlFingerprintSnapshot {
+
+    /**
+     * MappedStatement的ID（Mapper接口全名.方法名）
+     */
+    private String statementId;
+
+    /**
+     * SQL操作的主表；拉链表公共DAO的SQL来自元信息中的模板，这里即为元信息中配置的表名
+     */
+    private String table;
+
+    /**
+     * 去掉字面量后的SQL
+     */
+    private String fingerprint;
+
+    private long count;
+    private double totalMillis;
+    private double avgMillis;
+    private double p50Millis;
+    private double p95Millis;
+    private double p99Millis;
+    private double maxMillis;
+
+    /**
+     * 累计影响行数（更新语句）或返回行数（查询语句），批处理语句不计
+     */
+    private long rows;
+
+    public String getStatementId() {
+        return statementId;
+    }
+
+    public void setStatementId(String statementId) {
+        this.statementId = statementId;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public double getTotalMillis() {
+        return totalMillis;
+    }
+
+    public void setTotalMillis(double totalMillis) {
+        this.totalMillis = totalMillis;
+    }
+
+    public double getAvgMillis() {
+        return avgMillis;
+    }
+
+    public void setAvgMillis(double avgMillis) {
+        this.avgMillis = avgMillis;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public void setP50Millis(double p50Millis) {
+        this.p50Millis = p50Millis;
+    }
+
+    public double getP95Millis() {
+        return p95Millis;
+    }
+
+    public void setP95Millis(double p95Millis) {
+        this.p95Millis = p95Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public void setP99Millis(double p99Millis) {
+        this.p99Millis = p99Millis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    public void setMaxMillis(double maxMillis) {
+        this.maxMillis = maxMillis;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+}
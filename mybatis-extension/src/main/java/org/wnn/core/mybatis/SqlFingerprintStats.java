@@ -0,0 +1,131 @@
+package org.wnn.core.mybatis;
+
+import org.wnn.core.log.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个SQL指纹的执行统计
+ * <p>
+ * 计数、总耗时、影响行数用 {@link LongAdder}，最大耗时用 {@link LongAccumulator}，分布用 {@link LatencyHistogram}，
+ * 多线程并发记录时都不加锁。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+final class SqlFingerprintStats {
+
+    private final String statementId;
+    private final String table;
+    private final String fingerprint;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    /**
+     * 上次周期输出时的累计值，只由输出线程访问
+     */
+    private Totals lastLogged;
+
+    SqlFingerprintStats(String statementId, String table, String fingerprint) {
+        this.statementId = statementId;
+        this.table = table;
+        this.fingerprint = fingerprint;
+    }
+
+    String getStatementId() {
+        return statementId;
+    }
+
+    /**
+     * 记录一次执行
+     *
+     * @param nanos 执行耗时（纳秒）
+     * @param affectedRows 影响/返回的行数，未知时传负数
+     */
+    void record(long nanos, long affectedRows) {
+        count.increment();
+        totalNanos.add(nanos);
+        if (affectedRows > 0) {
+            rows.add(affectedRows);
+        }
+        maxNanos.accumulate(nanos);
+        histogram.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * 自启动（或上次重置）以来的累计统计
+     */
+    SqlFingerprintSnapshot snapshot() {
+        Totals totals = totals();
+        return toSnapshot(totals.count, totals.totalNanos, totals.rows, TimeUnit.NANOSECONDS.toMicros(maxNanos.get()), totals.histogram);
+    }
+
+    /**
+     * 自上次调用以来的增量统计，供周期输出使用；最大耗时取增量分布中最高的桶
+     *
+     * @return 增量统计，期间没有执行时返回null
+     */
+    SqlFingerprintSnapshot snapshotSinceLastLog() {
+        Totals totals = totals();
+        Totals previous = lastLogged;
+        lastLogged = totals;
+        long deltaCount = previous == null ? totals.count : totals.count - previous.count;
+        if (deltaCount <= 0) {
+            return null;
+        }
+        LatencyHistogram.Snapshot delta = totals.histogram.minus(previous == null ? null : previous.histogram);
+        return toSnapshot(deltaCount,
+                previous == null ? totals.totalNanos : totals.totalNanos - previous.totalNanos,
+                previous == null ? totals.rows : totals.rows - previous.rows,
+                delta.max(), delta);
+    }
+
+    void reset() {
+        count.reset();
+        totalNanos.reset();
+        rows.reset();
+        maxNanos.reset();
+        histogram.reset();
+        lastLogged = null;
+    }
+
+    private Totals totals() {
+        return new Totals(count.sum(), totalNanos.sum(), rows.sum(), histogram.snapshot());
+    }
+
+    private SqlFingerprintSnapshot toSnapshot(long count, long totalNanos, long rows, long maxMicros, LatencyHistogram.Snapshot histogram) {
+        SqlFingerprintSnapshot snapshot = new SqlFingerprintSnapshot();
+        snapshot.setStatementId(statementId);
+        snapshot.setTable(table);
+        snapshot.setFingerprint(fingerprint);
+        snapshot.setCount(count);
+        snapshot.setTotalMillis(totalNanos / 1_000_000d);
+        snapshot.setAvgMillis(count == 0 ? 0 : totalNanos / 1_000_000d / count);
+        snapshot.setP50Millis(histogram.percentile(50) / 1000d);
+        snapshot.setP95Millis(histogram.percentile(95) / 1000d);
+        snapshot.setP99Millis(histogram.percentile(99) / 1000d);
+        snapshot.setMaxMillis(maxMicros / 1000d);
+        snapshot.setRows(rows);
+        return snapshot;
+    }
+
+    private static final class Totals {
+        private final long count;
+        private final long totalNanos;
+        private final long rows;
+        private final LatencyHistogram.Snapshot histogram;
+
+        private Totals(long count, long totalNanos, long rows, LatencyHistogram.Snapshot histogram) {
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.rows = rows;
+            this.histogram = histogram;
+        }
+    }
+}
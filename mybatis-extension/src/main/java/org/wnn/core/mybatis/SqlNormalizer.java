@@ -0,0 +1,238 @@
+package org.wnn.core.mybatis;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SQL文本规整工具
+ * <p>
+ * 只在需要输出SQL时调用（如判定为慢SQL之后），不在每条SQL的执行路径上使用。
+ * 手写单次扫描代替 {@code replaceAll("\\s+", " ")}，不编译正则、不创建Matcher，SQL中没有多余空白时直接返回原字符串。
+ * </p>
+ * <p>
+ * {@link #fingerprint(String)} 生成SQL指纹：去掉字面量、折叠占位符列表，使只有参数不同的SQL得到相同的结果，
+ * 由 {@link SqlFingerprintRegistry} 按原始SQL缓存，同一条SQL只计算一次。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+final class SqlNormalizer {
+
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\( ?\\?(?: ?, ?\\?)+ ?\\)"); // (?, ?, ?)
+    private static final Pattern REPEATED_LIST = Pattern.compile("\\(\\?\\+\\)(?: ?, ?\\(\\?\\+\\))+"); // VALUES (?+), (?+)
+    private static final Pattern MAIN_TABLE = Pattern.compile("(?i)\\b(?:from|into|update)\\s+`?([\\w$.]+)");
+
+    private SqlNormalizer() {
+    }
+
+    /**
+     * 将连续空白（空格、换行、制表符等）折叠为一个空格，并去掉首尾空白
+     *
+     * @param sql 原始SQL，可为null
+     * @return 规整后的SQL
+     */
+    static String collapseWhitespace(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        int length = sql.length();
+        if (!needsCollapse(sql, length)) {
+            return sql;
+        }
+        StringBuilder sb = new StringBuilder(length);
+        boolean pendingSpace = false;
+        for (int i = 0; i < length; i++) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    sb.append(' ');
+                    pendingSpace = false;
+                }
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 是否存在需要处理的空白：首尾空白、非空格的空白字符或连续空格
+     */
+    private static boolean needsCollapse(String sql, int length) {
+        if (length == 0) {
+            return false;
+        }
+        if (Character.isWhitespace(sql.charAt(0)) || Character.isWhitespace(sql.charAt(length - 1))) {
+            return true;
+        }
+        boolean previousSpace = false;
+        for (int i = 1; i < length - 1; i++) {
+            char c = sql.charAt(i);
+            if (c == ' ') {
+                if (previousSpace) {
+                    return true;
+                }
+                previousSpace = true;
+            } else if (Character.isWhitespace(c)) {
+                return true;
+            } else {
+                previousSpace = false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 生成SQL指纹：去掉注释、折叠空白，字符串和数字字面量替换为 ?，占位符列表（IN列表、VALUES中的多行）折叠为 (?+)
+     * <p>
+     * 例如 {@code SELECT * FROM t WHERE a = 'x' AND b IN (?, ?, ?) LIMIT 10} 的指纹为
+     * {@code SELECT * FROM t WHERE a = ? AND b IN (?+) LIMIT ?}。标识符中的数字（如 t1）保留。
+     * 注释（{@code /* *}{@code /}、{@code -- }、{@code #}）常用来标注调用方或追踪信息，内容各不相同，去掉后才能聚合到同一个指纹。
+     * </p>
+     *
+     * @param sql 原始SQL，可为null
+     * @return SQL指纹
+     */
+    static String fingerprint(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        int length = sql.length();
+        StringBuilder sb = new StringBuilder(length);
+        boolean pendingSpace = false;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+                i++;
+                continue;
+            }
+            int commentEnd = skipComment(sql, i);
+            if (commentEnd > i) {
+                // 注释按空白处理，前后的内容仍以一个空格分隔
+                pendingSpace = sb.length() > 0;
+                i = commentEnd;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i, c);
+                sb.append('?');
+            } else if (Character.isDigit(c) && !isIdentifierPart(sb)) {
+                i = skipNumber(sql, i);
+                sb.append('?');
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        String result = PLACEHOLDER_LIST.matcher(sb).replaceAll("(?+)");
+        return REPEATED_LIST.matcher(result).replaceAll("(?+)");
+    }
+
+    /**
+     * 取SQL操作的主表：第一个 FROM / INTO / UPDATE 之后的表名，找不到时返回null
+     *
+     * @param sql SQL或SQL指纹
+     * @return 表名（去掉反引号）
+     */
+    static String mainTable(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        Matcher matcher = MAIN_TABLE.matcher(sql);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * 跳过引号括起的字面量（支持两个引号和反斜杠两种转义），返回结束引号之后的位置
+     */
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        int length = sql.length();
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                if (i + 1 < length && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                } else {
+                    return i + 1;
+                }
+            } else {
+                i++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * 跳过从start开始的注释，返回注释之后的位置；start处不是注释时返回start
+     * <p>
+     * 支持块注释 {@code /* *}{@code /}（未闭合时到SQL末尾）和MySQL的行注释：{@code --} 后跟空白或位于末尾、{@code #}。
+     * </p>
+     */
+    private static int skipComment(String sql, int start) {
+        int length = sql.length();
+        char c = sql.charAt(start);
+        char next = start + 1 < length ? sql.charAt(start + 1) : 0;
+        if (c == '/' && next == '*') {
+            int end = sql.indexOf("*/", start + 2);
+            return end < 0 ? length : end + 2;
+        }
+        boolean lineComment = c == '#'
+                || (c == '-' && next == '-' && (start + 2 >= length || Character.isWhitespace(sql.charAt(start + 2))));
+        if (!lineComment) {
+            return start;
+        }
+        int i = start;
+        while (i < length && sql.charAt(i) != '\n' && sql.charAt(i) != '\r') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * 跳过数字字面量（整数、小数、科学计数法、0x十六进制），返回数字之后的位置
+     */
+    private static int skipNumber(String sql, int start) {
+        int i = start;
+        int length = sql.length();
+        if (sql.charAt(i) == '0' && i + 1 < length && (sql.charAt(i + 1) == 'x' || sql.charAt(i + 1) == 'X')) {
+            i += 2;
+            while (i < length && Character.digit(sql.charAt(i), 16) >= 0) {
+                i++;
+            }
+            return i;
+        }
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isDigit(c) || c == '.') {
+                i++;
+            } else if ((c == 'e' || c == 'E') && i + 1 < length
+                    && (Character.isDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '-' || sql.charAt(i + 1) == '+')) {
+                i += 2;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * 已输出内容的最后一个字符是否为标识符的一部分（此时紧跟的数字属于标识符，如 t1、col_2）
+     */
+    private static boolean isIdentifierPart(StringBuilder sb) {
+        if (sb.length() == 0) {
+            return false;
+        }
+        char last = sb.charAt(sb.length() - 1);
+        return Character.isLetterOrDigit(last) || last == '_' || last == '$' || last == '`';
+    }
+}
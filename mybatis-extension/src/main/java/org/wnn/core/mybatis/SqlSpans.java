@@ -0,0 +1,36 @@
+package org.wnn.core.mybatis;
+
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.wnn.core.log.Span;
+import org.wnn.core.log.TraceContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把SQL执行记录为链路中的span（{@link Span.Kind#DB}），父span为执行线程的当前span
+ * <p>
+ * 不在链路中（没有traceId）或未启用span记录时直接返回，不构造span名称。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+final class SqlSpans {
+
+    private SqlSpans() {
+    }
+
+    /**
+     * @param statementHandler 执行SQL的StatementHandler
+     * @param nanos 执行耗时（纳秒）
+     */
+    static void record(StatementHandler statementHandler, long nanos) {
+        if (!TraceContext.isRecording()) {
+            return;
+        }
+        MappedStatement mappedStatement = StatementHandlers.mappedStatement(statementHandler);
+        String name = "sql " + (mappedStatement == null ? "<unknown>" : mappedStatement.getId());
+        long startEpochMicros = TraceContext.currentEpochMicros() - TimeUnit.NANOSECONDS.toMicros(nanos);
+        TraceContext.recordSpan(null, name, Span.Kind.DB, startEpochMicros, nanos, false);
+    }
+}
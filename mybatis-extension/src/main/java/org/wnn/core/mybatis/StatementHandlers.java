@@ -0,0 +1,76 @@
+package org.wnn.core.mybatis;
+
+import org.apache.ibatis.executor.statement.BaseStatementHandler;
+import org.apache.ibatis.executor.statement.RoutingStatementHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Plugin;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+
+/**
+ * 从拦截到的 {@link StatementHandler} 中取出 {@link MappedStatement}
+ * <p>
+ * 拦截目标可能是其他插件的代理，代理内是 {@link RoutingStatementHandler}，再往里才是持有 MappedStatement 的 {@link BaseStatementHandler}。
+ * MyBatis没有提供公开的访问方法，这里在类加载时取一次字段并缓存，每次只做字段读取，比每次创建 MetaObject 开销小。
+ * 字段不存在（MyBatis版本变化）时返回null，调用方按未知语句处理。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+final class StatementHandlers {
+
+    private static final int MAX_DEPTH = 16; // 防止异常的代理链导致死循环
+    private static final Field PLUGIN_TARGET = findField(Plugin.class, "target");
+    private static final Field ROUTING_DELEGATE = findField(RoutingStatementHandler.class, "delegate");
+    private static final Field MAPPED_STATEMENT = findField(BaseStatementHandler.class, "mappedStatement");
+
+    private StatementHandlers() {
+    }
+
+    /**
+     * 取出StatementHandler对应的MappedStatement
+     *
+     * @param statementHandler 拦截到的StatementHandler（可能是插件代理）
+     * @return MappedStatement，无法取得时返回null
+     */
+    static MappedStatement mappedStatement(Object statementHandler) {
+        Object target = statementHandler;
+        for (int depth = 0; depth < MAX_DEPTH && target != null; depth++) {
+            if (target instanceof BaseStatementHandler) {
+                return (MappedStatement) read(MAPPED_STATEMENT, target);
+            } else if (target instanceof RoutingStatementHandler) {
+                target = read(ROUTING_DELEGATE, target);
+            } else if (Proxy.isProxyClass(target.getClass())) {
+                InvocationHandler handler = Proxy.getInvocationHandler(target);
+                target = handler instanceof Plugin ? read(PLUGIN_TARGET, handler) : null;
+            } else {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static Object read(Field field, Object target) {
+        if (field == null) {
+            return null;
+        }
+        try {
+            return field.get(target);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    private static Field findField(Class<?> type, String name) {
+        try {
+            Field field = type.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.wnn.core.mybatis;
+
+import java.util.Objects;
+
+/**
+ * 原始SQL缓存的键：MappedStatement ID + 原始SQL
+ * <p>
+ * 同一段SQL文本可能出现在不同的MappedStatement中（如多个Mapper方法共用同一条静态SQL），
+ * 只按SQL缓存时两者交替执行会反复覆盖对方的缓存项、每次都重新计算指纹。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+final class StatementSqlKey {
+
+    private final String statementId;
+    private final String sql;
+    private final int hash;
+
+    StatementSqlKey(String statementId, String sql) {
+        this.statementId = statementId;
+        this.sql = sql;
+        // String的hashCode会缓存在实例中，这里只是一次组合
+        this.hash = 31 * Objects.hashCode(statementId) + Objects.hashCode(sql);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof StatementSqlKey)) {
+            return false;
+        }
+        StatementSqlKey other = (StatementSqlKey) o;
+        return hash == other.hash && Objects.equals(sql, other.sql) && Objects.equals(statementId, other.statementId);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
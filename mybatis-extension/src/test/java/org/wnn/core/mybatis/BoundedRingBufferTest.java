@@ -0,0 +1,191 @@
+package org.wnn.core.mybatis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 有界无锁环形队列：满、空、绕圈与多生产者/多消费者
+ *
+ * @author NanNan Wang
+ */
+class BoundedRingBufferTest {
+
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(2, new BoundedRingBuffer<>(2).capacity());
+        assertEquals(4, new BoundedRingBuffer<>(3).capacity());
+        assertEquals(1024, new BoundedRingBuffer<>(1000).capacity());
+        assertEquals(1024, new BoundedRingBuffer<>(1024).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new BoundedRingBuffer<>(1));
+    }
+
+    @Test
+    void pollOnEmptyBufferReturnsNull() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(4);
+
+        assertNull(buffer.poll());
+        assertTrue(buffer.offer(1));
+        assertEquals(1, buffer.poll());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    void offerOnFullBufferReturnsFalseUntilAnElementIsPolled() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(i));
+        }
+
+        assertFalse(buffer.offer(4));
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        assertFalse(buffer.offer(5));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, buffer.poll());
+        }
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    void keepsFifoOrderAcrossManyWraparounds() {
+        BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(8);
+        int next = 0;
+        int expected = 0;
+        for (int i = 0; i < 3; i++) {
+            assertTrue(buffer.offer(next++));
+        }
+        // 每轮写满再读出5个，5与容量互质，读写位置在多圈后落在每个槽位上
+        for (int round = 0; round < 1000; round++) {
+            for (int i = 0; i < 5; i++) {
+                assertTrue(buffer.offer(next++));
+            }
+            assertFalse(buffer.offer(-1));
+            for (int i = 0; i < 5; i++) {
+                assertEquals(expected++, buffer.poll());
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expected++, buffer.poll());
+        }
+        assertNull(buffer.poll());
+        assertEquals(next, expected);
+    }
+
+    @Test
+    void concurrentProducersAndConsumersLoseAndDuplicateNothing() throws Exception {
+        final int producers = 4;
+        final int consumers = 4;
+        final int perProducer = 200_000;
+        final int total = producers * perProducer;
+        final BoundedRingBuffer<Integer> buffer = new BoundedRingBuffer<>(64);
+        final AtomicIntegerArray received = new AtomicIntegerArray(total);
+        final AtomicLong consumed = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                final int base = p * perProducer;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(base + i)) {
+                            Thread.yield();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (int c = 0; c < consumers; c++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    while (consumed.get() < total) {
+                        Integer element = buffer.poll();
+                        if (element == null) {
+                            Thread.yield();
+                            continue;
+                        }
+                        received.incrementAndGet(element);
+                        consumed.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(total, consumed.get());
+        for (int i = 0; i < total; i++) {
+            assertEquals(1, received.get(i), "元素" + i + "被读取的次数");
+        }
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    void singleConsumerSeesEachProducersElementsInOrder() throws Exception {
+        final int producers = 3;
+        final int perProducer = 100_000;
+        final BoundedRingBuffer<long[]> buffer = new BoundedRingBuffer<>(16);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                final int producer = p;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        long[] element = {producer, i};
+                        while (!buffer.offer(element)) {
+                            Thread.yield();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            long[] lastSeen = {-1, -1, -1};
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            for (int received = 0; received < producers * perProducer; ) {
+                long[] element = buffer.poll();
+                if (element == null) {
+                    assertTrue(System.nanoTime() < deadline, "等待生产者超时");
+                    Thread.yield();
+                    continue;
+                }
+                int producer = (int) element[0];
+                assertEquals(lastSeen[producer] + 1, element[1], "生产者" + producer + "的元素顺序");
+                lastSeen[producer] = element[1];
+                received++;
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertNull(buffer.poll());
+    }
+}
@@ -0,0 +1,161 @@
+package org.wnn.core.mybatis;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 慢SQL日志异步输出：同步回退、队列满时的丢弃策略与并发发布
+ *
+ * @author NanNan Wang
+ */
+class SlowSqlLogWriterTest {
+
+    private static final Pattern STATEMENT_ID = Pattern.compile("\"statementId\":\"([^\"]+)\"");
+
+    private final Logger slowSqlLogger = (Logger) LoggerFactory.getLogger("slowSqlLog");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void setUp() {
+        appender.start();
+        slowSqlLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        slowSqlLogger.detachAppender(appender);
+        appender.stop();
+    }
+
+    @Test
+    void writesSynchronouslyWhenAsyncIsDisabled() {
+        MybatisSlowSqlInterceptor.SlowSqlProperties properties = new MybatisSlowSqlInterceptor.SlowSqlProperties();
+        properties.getAsync().setEnabled(false);
+        SlowSqlLogWriter writer = new SlowSqlLogWriter(properties);
+        writer.afterPropertiesSet();
+
+        writer.publish(event("mapper.select"));
+
+        assertEquals(1, appender.list.size());
+        String json = appender.list.get(0).getFormattedMessage();
+        assertTrue(json.contains("\"statementId\":\"mapper.select\""), json);
+        assertTrue(json.contains("\"sql\":\"select * from t where id = ?\""), json);
+        assertEquals(0, writer.getDroppedCount());
+    }
+
+    @Test
+    void dropNewestAccountsForEveryEventUnderConcurrentPublishing() throws Exception {
+        assertEveryEventWrittenOrDropped(SlowSqlLogWriter.OverflowPolicy.DROP_NEWEST);
+    }
+
+    @Test
+    void dropOldestAccountsForEveryEventUnderConcurrentPublishing() throws Exception {
+        assertEveryEventWrittenOrDropped(SlowSqlLogWriter.OverflowPolicy.DROP_OLDEST);
+    }
+
+    @Test
+    void dropOldestKeepsTheLatestEventOfASingleProducer() throws Exception {
+        SlowSqlLogWriter writer = asyncWriter(SlowSqlLogWriter.OverflowPolicy.DROP_OLDEST, 4);
+        for (int i = 0; i < 1000; i++) {
+            writer.publish(event("mapper." + i));
+        }
+        writer.destroy();
+
+        List<String> written = writtenStatementIds();
+        assertEquals(1000, written.size() + writer.getDroppedCount());
+        assertEquals("mapper.999", written.get(written.size() - 1));
+    }
+
+    @Test
+    void eventsPublishedAfterDestroyAreWrittenSynchronously() throws Exception {
+        SlowSqlLogWriter writer = asyncWriter(SlowSqlLogWriter.OverflowPolicy.DROP_NEWEST, 16);
+        writer.destroy();
+
+        writer.publish(event("mapper.late"));
+
+        assertEquals(1, appender.list.size());
+        assertEquals("mapper.late", writtenStatementIds().get(0));
+    }
+
+    /**
+     * 多个线程同时发布，队列很小时必然溢出：关闭后写出的与丢弃的事件数之和等于发布数，且没有重复写出
+     */
+    private void assertEveryEventWrittenOrDropped(SlowSqlLogWriter.OverflowPolicy policy) throws Exception {
+        final int threads = 4;
+        final int perThread = 5_000;
+        final SlowSqlLogWriter writer = asyncWriter(policy, 8);
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        writer.publish(event("mapper." + thread + "." + i));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        writer.destroy();
+
+        List<String> written = writtenStatementIds();
+        Set<String> distinct = new HashSet<>(written);
+        assertEquals(written.size(), distinct.size(), "存在重复写出的事件");
+        assertEquals(threads * perThread, written.size() + writer.getDroppedCount());
+    }
+
+    private static SlowSqlLogWriter asyncWriter(SlowSqlLogWriter.OverflowPolicy policy, int bufferSize) {
+        MybatisSlowSqlInterceptor.SlowSqlProperties properties = new MybatisSlowSqlInterceptor.SlowSqlProperties();
+        properties.getAsync().setOverflowPolicy(policy);
+        properties.getAsync().setBufferSize(bufferSize);
+        properties.getAsync().setIdleMillis(1);
+        SlowSqlLogWriter writer = new SlowSqlLogWriter(properties);
+        writer.afterPropertiesSet();
+        return writer;
+    }
+
+    private List<String> writtenStatementIds() {
+        List<String> statementIds = new ArrayList<>();
+        synchronized (appender.list) {
+            for (ILoggingEvent event : appender.list) {
+                Matcher matcher = STATEMENT_ID.matcher(event.getFormattedMessage());
+                assertTrue(matcher.find(), event.getFormattedMessage());
+                statementIds.add(matcher.group(1));
+            }
+        }
+        return statementIds;
+    }
+
+    private static SlowSqlEvent event(String statementId) {
+        return new SlowSqlEvent(System.currentTimeMillis(), 600, statementId, "select *\n  from t where id = ?", "[1]", null);
+    }
+}
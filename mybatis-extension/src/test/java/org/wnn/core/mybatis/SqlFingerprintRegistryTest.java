@@ -0,0 +1,76 @@
+package org.wnn.core.mybatis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * SQL指纹统计注册表：按MappedStatement和指纹聚合
+ *
+ * @author NanNan Wang
+ */
+class SqlFingerprintRegistryTest {
+
+    private static final String SQL = "SELECT * FROM job_info WHERE job_code = ?";
+
+    @Test
+    void sameSqlUnderDifferentStatementsIsCountedSeparatelyAndStaysCached() {
+        SqlFingerprintRegistry registry = registry(100);
+
+        SqlFingerprintStats first = registry.resolve("JobMapper.get", SQL);
+        SqlFingerprintStats second = registry.resolve("JobZipperMapper.get", SQL);
+        // 交替执行时各自命中缓存，返回同一个统计项
+        for (int i = 0; i < 3; i++) {
+            assertSame(first, registry.resolve("JobMapper.get", SQL));
+            assertSame(second, registry.resolve("JobZipperMapper.get", SQL));
+        }
+
+        assertNotSame(first, second);
+        assertEquals("JobMapper.get", first.getStatementId());
+        assertEquals("JobZipperMapper.get", second.getStatementId());
+    }
+
+    @Test
+    void sqlDifferingOnlyInLiteralsSharesOneFingerprint() {
+        SqlFingerprintRegistry registry = registry(100);
+
+        registry.record("JobMapper.list", "SELECT * FROM job_info WHERE id IN (1, 2)", 1_000_000, 2);
+        registry.record("JobMapper.list", "SELECT * FROM job_info WHERE id IN (3, 4, 5) /* page 2 */", 3_000_000, 3);
+        registry.record(null, "SELECT * FROM job_info WHERE id IN (6, 7)", 1_000_000, 2);
+
+        List<SqlFingerprintSnapshot> snapshots = registry.snapshots(0);
+        assertEquals(2, snapshots.size());
+        SqlFingerprintSnapshot top = snapshots.get(0);
+        assertEquals("JobMapper.list", top.getStatementId());
+        assertEquals("job_info", top.getTable());
+        assertEquals("SELECT * FROM job_info WHERE id IN (?+)", top.getFingerprint());
+        assertEquals(2, top.getCount());
+    }
+
+    @Test
+    void fingerprintsBeyondTheLimitGoToOverflow() {
+        SqlFingerprintRegistry registry = registry(2);
+
+        registry.record("A.a", "SELECT * FROM a", 1_000, 1);
+        registry.record("B.b", "SELECT * FROM b", 1_000, 1);
+        registry.record("C.c", "SELECT * FROM c", 1_000, 1);
+        registry.record("D.d", "SELECT * FROM d", 1_000, 1);
+
+        List<SqlFingerprintSnapshot> snapshots = registry.snapshots(0);
+        assertEquals(3, snapshots.size());
+        SqlFingerprintSnapshot overflow = snapshots.stream()
+                .filter(snapshot -> SqlFingerprintRegistry.OVERFLOW_STATEMENT_ID.equals(snapshot.getStatementId()))
+                .findFirst().orElseThrow(AssertionError::new);
+        assertEquals(2, overflow.getCount());
+    }
+
+    private static SqlFingerprintRegistry registry(int maxFingerprints) {
+        MybatisSlowSqlInterceptor.SlowSqlProperties properties = new MybatisSlowSqlInterceptor.SlowSqlProperties();
+        properties.getFingerprint().setMaxFingerprints(maxFingerprints);
+        return new SqlFingerprintRegistry(properties);
+    }
+}
@@ -0,0 +1,88 @@
+package org.wnn.core.mybatis;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * SQL文本规整与指纹：字面量、占位符列表与注释
+ *
+ * @author NanNan Wang
+ */
+class SqlNormalizerTest {
+
+    @Test
+    void stringAndNumberLiteralsBecomePlaceholders() {
+        assertEquals("SELECT * FROM t WHERE a = ? AND b = ? AND c > ? AND d = ? LIMIT ?, ?",
+                SqlNormalizer.fingerprint("SELECT * FROM t WHERE a = 'x' AND b = \"y\" AND c > 1.5e-3 AND d = 0x1F LIMIT 10, 20"));
+    }
+
+    @Test
+    void escapedQuotesStayInsideTheLiteral() {
+        assertEquals("SELECT * FROM t WHERE a = ? AND b = ?",
+                SqlNormalizer.fingerprint("SELECT * FROM t WHERE a = 'it''s' AND b = 'a\\'b'"));
+    }
+
+    @Test
+    void digitsInIdentifiersAreKept() {
+        assertEquals("SELECT t1.col_2, `v3` FROM t1 WHERE t1.id = ?",
+                SqlNormalizer.fingerprint("SELECT t1.col_2, `v3` FROM t1 WHERE t1.id = 7"));
+    }
+
+    @Test
+    void inListsOfAnyLengthCollapseToOneFingerprint() {
+        String one = SqlNormalizer.fingerprint("SELECT * FROM t WHERE id IN (?)");
+        String three = SqlNormalizer.fingerprint("SELECT * FROM t WHERE id IN (?, ?, ?)");
+        String literals = SqlNormalizer.fingerprint("SELECT * FROM t WHERE id IN ( 1,2 , 3 )");
+
+        assertEquals("SELECT * FROM t WHERE id IN (?)", one);
+        assertEquals("SELECT * FROM t WHERE id IN (?+)", three);
+        assertEquals(three, literals);
+    }
+
+    @Test
+    void multiRowValuesCollapseToOneFingerprint() {
+        assertEquals("INSERT INTO t (a, b) VALUES (?+)",
+                SqlNormalizer.fingerprint("INSERT INTO t (a, b) VALUES (?, ?), (?, ?), (?, ?)"));
+        assertEquals("INSERT INTO t (a, b) VALUES (?+)",
+                SqlNormalizer.fingerprint("INSERT INTO t (a, b) VALUES (1, 'x')"));
+    }
+
+    @Test
+    void commentsAreRemovedAndTreatedAsWhitespace() {
+        String expected = "SELECT * FROM t WHERE id = ?";
+
+        assertEquals(expected, SqlNormalizer.fingerprint("/* caller=JobService#list traceId=abc123 */ SELECT * FROM t WHERE id = ?"));
+        assertEquals(expected, SqlNormalizer.fingerprint("SELECT */* 42 */FROM t WHERE id = ?"));
+        assertEquals(expected, SqlNormalizer.fingerprint("SELECT * FROM t -- list jobs 2024\nWHERE id = ?"));
+        assertEquals(expected, SqlNormalizer.fingerprint("SELECT * FROM t # list jobs\r\nWHERE id = ? -- trailing"));
+        assertEquals(expected, SqlNormalizer.fingerprint("SELECT * FROM t WHERE id = ? /* unterminated"));
+    }
+
+    @Test
+    void commentMarkersInsideLiteralsOrOperatorsAreNotComments() {
+        assertEquals("SELECT * FROM t WHERE a = ? AND b = ?",
+                SqlNormalizer.fingerprint("SELECT * FROM t WHERE a = '-- x' AND b = '/* y */'"));
+        assertEquals("SELECT a--? FROM t", SqlNormalizer.fingerprint("SELECT a--1 FROM t"));
+    }
+
+    @Test
+    void whitespaceIsCollapsed() {
+        assertEquals("SELECT * FROM t WHERE id = ?",
+                SqlNormalizer.fingerprint("\n  SELECT *\n\tFROM   t\n WHERE id = ?  "));
+        String normalized = "SELECT * FROM t";
+        assertSame(normalized, SqlNormalizer.collapseWhitespace(normalized));
+        assertEquals("SELECT * FROM t", SqlNormalizer.collapseWhitespace(" SELECT  *\nFROM t "));
+        assertNull(SqlNormalizer.fingerprint(null));
+    }
+
+    @Test
+    void mainTableIsTheFirstTableAfterFromIntoOrUpdate() {
+        assertEquals("job_info", SqlNormalizer.mainTable(SqlNormalizer.fingerprint("/* from audit */ SELECT * FROM `job_info` WHERE id = 1")));
+        assertEquals("db.job_info_zipper", SqlNormalizer.mainTable("INSERT INTO db.job_info_zipper (a) VALUES (?)"));
+        assertEquals("job_info", SqlNormalizer.mainTable("update job_info set a = ?"));
+        assertNull(SqlNormalizer.mainTable("SELECT 1"));
+    }
+}
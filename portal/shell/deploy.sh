@@ -55,7 +55,7 @@ package_project() {
 # 检查打包结果
 check_package_result() {
     info "检查打包结果..."
-    JAR_FILE=$(find target -maxdepth 1 -name "*.jar" ! -name "*.original" | head -n 1)
+    JAR_FILE=$(find target -maxdepth 1 -name "*-exec.jar" | head -n 1)
     if [ -z "$JAR_FILE" ]; then
         error "未在target目录找到可执行JAR文件"
     fi
@@ -1,17 +1,15 @@
 package org.wnn.portal.config;
 
-import org.slf4j.MDC;
+import com.alibaba.ttl.threadpool.TtlExecutors;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.wnn.core.log.TraceContextTaskDecorator;
 
-import java.util.Map;
 import java.util.concurrent.Executor;
 
-import com.alibaba.ttl.threadpool.TtlExecutors;
-
 /**
  * @author NanNan Wang
  */
@@ -19,6 +17,11 @@ import com.alibaba.ttl.threadpool.TtlExecutors;
 @EnableAsync
 public class AsyncConfig implements AsyncConfigurer {
 
+    /**
+     * 除traceId、spanId以外透传到异步线程的MDC键
+     */
+    private static final String[] PROPAGATED_MDC_KEYS = {"bizCode"};
+
     @Bean("ttlTaskExecutor")
     public Executor ttlTaskExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
@@ -26,23 +29,14 @@ public class AsyncConfig implements AsyncConfigurer {
         executor.setMaxPoolSize(16);
         executor.setQueueCapacity(200);
         executor.setThreadNamePrefix("async-");
+        // 线程在请求中按需创建，不继承创建它的请求线程的traceId（TransmittableThreadLocal默认可继承）
+        executor.setThreadFactory(TtlExecutors.getDisableInheritableThreadFactory(executor));
 
-        // TaskDecorator 复制 MDC（让日志打印 traceId）
-        executor.setTaskDecorator(r -> {
-            Map<String, String> parentMdc = MDC.getCopyOfContextMap();
-            return () -> {
-                Map<String, String> backup = MDC.getCopyOfContextMap();
-                if (parentMdc != null) MDC.setContextMap(parentMdc); else MDC.clear();
-                try {
-                    r.run();
-                } finally {
-                    if (backup != null) MDC.setContextMap(backup); else MDC.clear();
-                }
-            };
-        });
+        // 提交时一次性取出traceId、当前span和少量MDC键，执行时设置到异步线程（日志打印traceId，SQL等span挂在请求span下）
+        executor.setTaskDecorator(new TraceContextTaskDecorator(PROPAGATED_MDC_KEYS));
 
         executor.initialize();
-        return TtlExecutors.getTtlExecutor(executor);
+        return executor;
     }
 
     @Override
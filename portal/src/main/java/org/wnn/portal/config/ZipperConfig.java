@@ -0,0 +1,63 @@
+package org.wnn.portal.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.wnn.portal.pub.lock.LocalStripedZipperKeyLock;
+import org.wnn.portal.pub.lock.RedisLeaseZipperKeyLock;
+import org.wnn.portal.pub.lock.ZipperKeyLock;
+import org.wnn.portal.zipper.service.ZipperTableMetaService;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 拉链表公共服务配置类
+ *
+ * @author NanNan Wang
+ */
+@Configuration
+@EnableConfigurationProperties(ZipperProperties.class)
+@EnableScheduling
+public class ZipperConfig {
+
+    /**
+     * 订阅元信息失效通知，收到后失效本地的元信息缓存
+     */
+    @Bean
+    public RedisMessageListenerContainer zipperMetaListenerContainer(RedisConnectionFactory factory,
+                                                                     ZipperTableMetaService zipperTableMetaService,
+                                                                     ZipperProperties zipperProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener(
+                (message, pattern) -> zipperTableMetaService.onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(zipperProperties.getMetaCache().getInvalidateChannel()));
+        return container;
+    }
+
+    /**
+     * 集群部署：zipper.lock.type=redis 时使用Redis租约锁
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "zipper.lock", name = "type", havingValue = "redis")
+    public ZipperKeyLock redisZipperKeyLock(StringRedisTemplate stringRedisTemplate, ZipperProperties zipperProperties) {
+        return new RedisLeaseZipperKeyLock(stringRedisTemplate, zipperProperties.getLock().getLeaseMillis());
+    }
+
+    /**
+     * 默认使用本地分段锁
+     */
+    @Bean
+    @ConditionalOnMissingBean(ZipperKeyLock.class)
+    public ZipperKeyLock localZipperKeyLock(ZipperProperties zipperProperties) {
+        return new LocalStripedZipperKeyLock(zipperProperties.getLock().getStripes());
+    }
+
+}
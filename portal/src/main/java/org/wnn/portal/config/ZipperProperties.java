@@ -0,0 +1,104 @@
+package org.wnn.portal.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 拉链表公共服务配置属性类，与配置文件中"zipper"前缀的配置绑定
+ *
+ * @author NanNan Wang
+ */
+@Data
+@ConfigurationProperties(prefix = "zipper")
+public class ZipperProperties {
+
+    /**
+     * 批量写入配置
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * 元信息本地缓存配置
+     */
+    private MetaCache metaCache = new MetaCache();
+
+    /**
+     * 业务键锁配置
+     */
+    private Lock lock = new Lock();
+
+    /**
+     * 时点查询配置
+     */
+    private AsOf asOf = new AsOf();
+
+    /**
+     * 生效状态跨日切换任务配置
+     */
+    private Rollover rollover = new Rollover();
+
+    /**
+     * 业务表重建配置
+     */
+    private Rebuild rebuild = new Rebuild();
+
+    /**
+     * 时间线完整性检查配置
+     */
+    private Integrity integrity = new Integrity();
+
+    @Data
+    public static class Batch {
+        private int chunkSize = 500; // 每个事务处理的业务键数量，同时也是批量查询历史时单条SQL携带的业务键数量
+        private int maxChanges = 100000; // 单次批量请求允许的最大变更条数
+    }
+
+    @Data
+    public static class MetaCache {
+        private long expireSeconds = 600; // 写入后的过期时间（秒），兜底防止漏收失效通知
+        private long maximumSize = 1000; // 最多缓存的拉链表数量
+        private String invalidateChannel = "zipper:meta:invalidate"; // 元信息变更通知的Redis频道，消息内容为拉链表名，"*"表示全部
+    }
+
+    @Data
+    public static class Lock {
+        private String type = "local"; // 锁实现：local-本地分段锁（单节点），redis-Redis租约锁（集群）
+        private long waitMillis = 5000; // 获取锁的最长等待时间（毫秒），超时后请求失败
+        private int stripes = 1024; // 本地分段锁的分段数量
+        private long leaseMillis = 30000; // Redis锁的租约时间（毫秒），持有期间每隔三分之一租约自动续期，续期一直失败直到到期时事务提交前回滚
+    }
+
+    @Data
+    public static class AsOf {
+        private int maxKeys = 10000; // 单次请求允许查询的最大业务键数量
+        private int chunkSize = 1000; // 单条SQL携带的业务键数量
+        private boolean cacheEnabled = false; // 是否启用本地结果缓存，本实例写入时会失效，其他实例写入只能等待过期
+        private long cacheMaximumSize = 10000; // 最多缓存的版本数量（业务键 × 查询日期）
+        private long cacheExpireSeconds = 60; // 缓存过期时间（秒）
+    }
+
+    @Data
+    public static class Rollover {
+        private boolean enabled = true; // 是否启用定时任务
+        private String cron = "0 0 0 * * ?"; // 执行时间，默认每天零点
+        private int chunkSize = 500; // 每页扫描的版本数量，也是每个事务处理的业务键上限
+        private int workers = 4; // 并行处理的线程数
+        private long checkpointTtlHours = 48; // 断点在Redis中的保留时间（小时）
+        private long runLockMinutes = 60; // 集群互斥锁的租约时间（分钟），防止多个实例同时执行同一张表
+    }
+
+    @Data
+    public static class Rebuild {
+        private int parallelism = 4; // 并行处理分区的线程数，每个线程同时占用读取业务键的游标连接和写回事务连接
+        private int rangeSize = 10000; // 每个分区（业务键区间）的业务键数量，每个分区一条业务键范围查询
+        private int batchSize = 100; // 每个事务加锁并批量写回业务表的业务键数量，持锁期间阻塞同一业务键（本地锁为同一分段）的实时写入，不宜过大
+    }
+
+    @Data
+    public static class Integrity {
+        private int parallelism = 4; // 并行流式读取的线程数（同时占用的数据库连接数），多张表共用
+        private int rangeSize = 10000; // 每个分区（业务键区间）的业务键数量，每个分区一条全量范围查询
+        private int maxReportedIssues = 1000; // 每张表报告中记录的问题明细上限，超出部分只计数
+        private int maxRepairKeys = 10000; // 每张表单次检查最多自动修复的问题业务键数，扫描期间暂存在内存中，超出部分只计数，可再次执行检查修复
+    }
+}
@@ -12,10 +12,16 @@ import org.wnn.core.global.response.annotation.ResponseAutoWrap;
 import org.wnn.core.validation.CreateGroup;
 import org.wnn.core.validation.DeleteGroup;
 import org.wnn.core.validation.UpdateGroup;
+import org.wnn.portal.pub.controller.req.ZipperTableAsOfDTO;
+import org.wnn.portal.pub.controller.req.ZipperTableBatchDTO;
 import org.wnn.portal.pub.controller.req.ZipperTableDTO;
+import org.wnn.portal.pub.service.ZipperBatchResult;
 import org.wnn.portal.pub.service.ZipperTableService;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * @author NanNan Wang
@@ -47,5 +53,16 @@ public class ZipperTableApiController {
         zipperTableService.delete(request);
     }
 
+    @PostMapping("/batch")
+    public ZipperBatchResult batch(@Validated @RequestBody ZipperTableBatchDTO request) {
+        return zipperTableService.applyBatch(request);
+    }
+
+    @PostMapping("/as-of")
+    public List<Map<String, Object>> asOf(@Validated @RequestBody ZipperTableAsOfDTO request) {
+        return zipperTableService.queryAsOf(request.getZipperTableName(), request.getBusinessKeys(), request.getAsOfDate())
+                .collect(Collectors.toList());
+    }
+
 
 }
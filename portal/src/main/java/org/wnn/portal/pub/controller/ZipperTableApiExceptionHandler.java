@@ -4,6 +4,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.wnn.core.global.response.IResultCode;
 import org.wnn.core.global.response.dto.CommonResponse;
+import org.wnn.portal.pub.lock.ZipperLockTimeoutException;
 
 /**
  * @author NanNan Wang
@@ -19,9 +20,18 @@ public class ZipperTableApiExceptionHandler {
         return new CommonResponse(ZipperResultCode.ILLEGAL_EFFECTIVE_DATE.getCode(),exception.getMessage(),null);
     }
 
+    /**
+     * 处理业务键锁等待超时
+     */
+    @ExceptionHandler(ZipperLockTimeoutException.class)
+    public CommonResponse<String> handleLockTimeout(ZipperLockTimeoutException exception) {
+        return new CommonResponse(ZipperResultCode.CONCURRENT_MODIFICATION.getCode(),exception.getMessage(),null);
+    }
+
     enum ZipperResultCode implements IResultCode {
 
-        ILLEGAL_EFFECTIVE_DATE(1101,"拉链表生效日期传入的参数不正确");
+        ILLEGAL_EFFECTIVE_DATE(1101,"拉链表生效日期传入的参数不正确"),
+        CONCURRENT_MODIFICATION(1102,"拉链表数据正在被其他请求修改，请稍后重试");
 
         private int code;
         private String message;
@@ -0,0 +1,24 @@
+package org.wnn.portal.pub.controller.req;
+
+/**
+ * 拉链表批量变更的操作类型
+ *
+ * @author NanNan Wang
+ */
+public enum ZipperOperation {
+
+    /**
+     * 新增版本，对应 /add
+     */
+    ADD,
+
+    /**
+     * 更新版本，对应 /update
+     */
+    UPDATE,
+
+    /**
+     * 删除版本，对应 /delete
+     */
+    DELETE
+}
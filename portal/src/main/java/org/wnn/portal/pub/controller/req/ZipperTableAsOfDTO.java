@@ -0,0 +1,30 @@
+package org.wnn.portal.pub.controller.req;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 拉链表时点查询请求参数
+ *
+ * @author NanNan Wang
+ */
+@Data
+public class ZipperTableAsOfDTO {
+
+    @NotEmpty(message = "拉链表名不能为空")
+    private String zipperTableName;
+
+    @NotEmpty(message = "业务键列表不能为空")
+    private List<Map<String, Object>> businessKeys; // 业务键列表（如 [{jobCode: "DEV001"}, {jobCode: "DEV002"}]）
+
+    @NotNull(message = "查询日期不能为空")
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate asOfDate; // 查询日期，返回该日期生效的版本
+
+}
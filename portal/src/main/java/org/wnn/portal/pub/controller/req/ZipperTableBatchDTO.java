@@ -0,0 +1,25 @@
+package org.wnn.portal.pub.controller.req;
+
+import lombok.Data;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+/**
+ * 拉链表批量变更请求参数
+ * 同一业务键的多条变更按列表中的先后顺序依次生效
+ *
+ * @author NanNan Wang
+ */
+@Data
+public class ZipperTableBatchDTO {
+
+    @NotEmpty(message = "拉链表名不能为空")
+    private String zipperTableName;
+
+    @Valid
+    @NotEmpty(message = "变更列表不能为空")
+    private List<ZipperTableChangeDTO> changes;
+
+}
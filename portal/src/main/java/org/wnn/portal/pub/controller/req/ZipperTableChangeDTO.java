@@ -0,0 +1,28 @@
+package org.wnn.portal.pub.controller.req;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+
+import javax.validation.constraints.NotNull;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * 拉链表批量变更中的单条变更
+ * 字段含义与{@link ZipperTableDTO}一致，生效时间是否必填取决于操作类型，由服务端按业务键逐个校验
+ *
+ * @author NanNan Wang
+ */
+@Data
+public class ZipperTableChangeDTO {
+
+    @NotNull(message = "变更类型不能为空")
+    private ZipperOperation operation;
+
+    @NotNull(message = "业务信息不能为空")
+    private Map<String, Object> businessKeyValues; // 业务键值对（如 {jobCode: "DEV001", jobName: "研发工程师"}）
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate effectiveDate; // 新记录的生效开始时间
+
+}
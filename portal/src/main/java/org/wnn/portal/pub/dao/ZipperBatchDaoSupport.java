@@ -0,0 +1,68 @@
+package org.wnn.portal.pub.dao;
+
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 拉链表批量写入的DAO支持类
+ * <p>
+ * 基于{@link ExecutorType#BATCH}的{@link SqlSessionTemplate}获取Mapper，同一事务内连续执行的相同SQL会合并为一次JDBC批处理，
+ * 调用{@link #flushStatements()}后才真正发送到数据库（此时才会回填自增主键）。
+ * 注意：这里不能把批量模板注册成 SqlSessionTemplate 类型的Bean，否则会替换掉MyBatis自动配置的默认模板；
+ * 同一个事务内也不能再混用默认模板的Mapper（MyBatis不允许在事务中切换ExecutorType）。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@Component
+public class ZipperBatchDaoSupport {
+
+    private final SqlSessionTemplate batchSqlSessionTemplate;
+    private final ZipperTableDao zipperTableDao;
+    private final ZipperBusinessTableDao zipperBusinessTableDao;
+
+    public ZipperBatchDaoSupport(SqlSessionFactory sqlSessionFactory) {
+        // 本Bean可能先于 @MapperScan 注册的Mapper Bean创建，此时Mapper尚未加入配置，这里主动注册（Mapper Bean初始化时会跳过已注册的Mapper）
+        registerMapperIfAbsent(sqlSessionFactory.getConfiguration(), ZipperTableDao.class);
+        registerMapperIfAbsent(sqlSessionFactory.getConfiguration(), ZipperBusinessTableDao.class);
+        this.batchSqlSessionTemplate = new SqlSessionTemplate(sqlSessionFactory, ExecutorType.BATCH);
+        this.zipperTableDao = batchSqlSessionTemplate.getMapper(ZipperTableDao.class);
+        this.zipperBusinessTableDao = batchSqlSessionTemplate.getMapper(ZipperBusinessTableDao.class);
+    }
+
+    private static void registerMapperIfAbsent(Configuration configuration, Class<?> mapperClass) {
+        synchronized (configuration) {
+            if (!configuration.hasMapper(mapperClass)) {
+                configuration.addMapper(mapperClass);
+            }
+        }
+    }
+
+    /**
+     * 批量模式的拉链表DAO
+     */
+    public ZipperTableDao getZipperTableDao() {
+        return zipperTableDao;
+    }
+
+    /**
+     * 批量模式的业务表DAO
+     */
+    public ZipperBusinessTableDao getZipperBusinessTableDao() {
+        return zipperBusinessTableDao;
+    }
+
+    /**
+     * 将当前事务中积累的批处理语句发送到数据库
+     * @return 每组批处理的执行结果
+     */
+    public List<BatchResult> flushStatements() {
+        return batchSqlSessionTemplate.flushStatements();
+    }
+}
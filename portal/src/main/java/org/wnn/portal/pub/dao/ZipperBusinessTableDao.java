@@ -11,12 +11,15 @@ import java.util.Map;
 public interface ZipperBusinessTableDao {
 
 
+    @Lang(ZipperTemplateLanguageDriver.class)
     @InsertProvider(type = ZipperBusinessTableSqlProvider.class, method = "buildInsertBusinessNewRecord")
     void insertBusinessNewRecord(@Param("businessTableInsertSql") String businessTableInsertSql, @Param("params") Map<String, Object> zipperTableLatestRecord);
 
+    @Lang(ZipperTemplateLanguageDriver.class)
     @UpdateProvider(type = ZipperBusinessTableSqlProvider.class, method = "buildUpdateBusinessNewRecord")
     void updateBusinessNewRecord(@Param("businessTableUpdateSql") String businessTableInsertSql,@Param("params") Map<String, Object> latestRecord);
 
+    @Lang(ZipperTemplateLanguageDriver.class)
     @DeleteProvider(type = ZipperBusinessTableSqlProvider.class, method = "deleteBusinessRecord")
     void deleteBusinessRecord(@Param("businessTableDeleteSql")String businessTableDeleteSql, @Param("params") Map<String, Object> businessKeyValues);
 
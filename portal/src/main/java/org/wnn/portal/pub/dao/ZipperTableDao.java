@@ -1,6 +1,7 @@
 package org.wnn.portal.pub.dao;
 
 import org.apache.ibatis.annotations.*;
+import org.apache.ibatis.cursor.Cursor;
 
 import java.util.List;
 import java.util.Map;
@@ -11,6 +12,36 @@ import java.util.Map;
 @Mapper
 public interface ZipperTableDao {
     
+    /**
+     * 插入记录时回填自增主键使用的键名，由调用方按元信息中的主键字段名转存
+     */
+    String GENERATED_KEY = "generatedKey";
+
+    /**
+     * 批量查询历史时业务键列表的参数名，SQL模板中以 params.businessKeys 引用
+     * （不能使用 keys、values、size 等名称，OGNL 会把它们解析为 Map 自身的属性）
+     */
+    String BUSINESS_KEYS = "businessKeys";
+
+    /**
+     * 时点查询的日期参数名，SQL模板中以 params.asOfDate 引用
+     */
+    String AS_OF_DATE = "asOfDate";
+
+    /**
+     * 跨日切换查询的参数名：切换日期、上一页最后的主键、每页条数
+     */
+    String EFFECTIVE_DATE = "effectiveDate";
+    String LAST_PRIMARY_KEY = "lastPrimaryKey";
+    String LIMIT = "limit";
+
+    /**
+     * 流式查询的业务键区间参数名：区间下界（不含）、区间上界（含），均为业务键字段名到值的Map，为null时表示不限
+     * SQL模板中以 params.fromKey.jobCode、params.toKey.jobCode 引用
+     */
+    String FROM_KEY = "fromKey";
+    String TO_KEY = "toKey";
+    
     /**
      * 查询拉链表历史记录
      * @param tableName 拉链表名
@@ -19,14 +50,94 @@ public interface ZipperTableDao {
      * @param effectiveDateColumn 生效日期字段名（如"effective_date"）
      * @return 历史记录列表
      */
+    @Lang(ZipperTemplateLanguageDriver.class)
     @SelectProvider(type = ZipperTableSqlProvider.class, method = "buildQueryHistory")
     List<Map<String,Object>> queryHistory(@Param("zipperSelectSql")String zipperSelectSql, @Param("params") Map<String, Object> params);
 
+    /**
+     * 加锁读（SELECT ... FOR UPDATE）查询拉链表历史记录，在修改历史的事务中使用
+     * <p>
+     * 加锁读总是读取最新提交的数据，不受事务中此前查询建立的一致性读视图影响（InnoDB可重复读），
+     * 读到的历史与随后基于它的修改之间不会插入其他事务的提交
+     * </p>
+     * @param zipperSelectSql 查询历史记录的SQL模板（与 {@link #queryHistory} 相同，自动追加 FOR UPDATE）
+     * @param params 业务键参数（如{job_code: "DEV001"}）
+     * @return 历史记录列表
+     */
+    @Lang(ZipperTemplateLanguageDriver.class)
+    @SelectProvider(type = ZipperTableSqlProvider.class, method = "buildQueryHistoryForUpdate")
+    List<Map<String,Object>> queryHistoryForUpdate(@Param("zipperSelectSql")String zipperSelectSql, @Param("params") Map<String, Object> params);
+
+    /**
+     * 批量查询多个业务键的拉链表历史记录
+     * @param zipperBatchSelectSql 批量查询SQL模板（通常为&lt;script&gt;动态SQL）
+     * @param params 查询参数，businessKeys 为业务键列表（如[{jobCode: "DEV001"}, {jobCode: "DEV002"}]）
+     * @return 所有业务键的历史记录列表
+     */
+    @Lang(ZipperTemplateLanguageDriver.class)
+    @SelectProvider(type = ZipperTableSqlProvider.class, method = "buildQueryHistoryBatch")
+    List<Map<String,Object>> queryHistoryBatch(@Param("zipperBatchSelectSql")String zipperBatchSelectSql, @Param("params") Map<String, Object> params);
+
+    /**
+     * 加锁读（SELECT ... FOR UPDATE）批量查询多个业务键的拉链表历史记录，在修改历史的事务中使用，见 {@link #queryHistoryForUpdate}
+     * @param zipperBatchSelectSql 批量查询SQL模板（与 {@link #queryHistoryBatch} 相同，自动追加 FOR UPDATE）
+     * @param params 查询参数，businessKeys 为业务键列表
+     * @return 所有业务键的历史记录列表
+     */
+    @Lang(ZipperTemplateLanguageDriver.class)
+    @SelectProvider(type = ZipperTableSqlProvider.class, method = "buildQueryHistoryBatchForUpdate")
+    List<Map<String,Object>> queryHistoryBatchForUpdate(@Param("zipperBatchSelectSql")String zipperBatchSelectSql, @Param("params") Map<String, Object> params);
+
+    /**
+     * 批量查询多个业务键在指定日期生效的版本
+     * @param zipperAsOfSelectSql 时点查询SQL模板
+     * @param params 查询参数，businessKeys 为业务键列表，asOfDate 为查询日期
+     * @return 指定日期生效的版本，每个业务键至多一条
+     */
+    @Lang(ZipperTemplateLanguageDriver.class)
+    @SelectProvider(type = ZipperTableSqlProvider.class, method = "buildQueryAsOf")
+    List<Map<String,Object>> queryAsOf(@Param("zipperAsOfSelectSql")String zipperAsOfSelectSql, @Param("params") Map<String, Object> params);
+
+    /**
+     * 按主键分页查询生效开始或结束于指定日期的版本
+     * @param zipperRolloverSelectSql 跨日切换查询SQL模板
+     * @param params 查询参数，effectiveDate 为切换日期，lastPrimaryKey 为上一页最后的主键，limit 为每页条数
+     * @return 版本的主键和业务键
+     */
+    @Lang(ZipperTemplateLanguageDriver.class)
+    @SelectProvider(type = ZipperTableSqlProvider.class, method = "buildQueryRollover")
+    List<Map<String,Object>> queryRollover(@Param("zipperRolloverSelectSql")String zipperRolloverSelectSql, @Param("params") Map<String, Object> params);
+
+    /**
+     * 流式查询一个业务键区间的全部版本，按业务键、生效时间排序
+     * 游标需在SqlSession关闭前消费完；MySQL需在连接串中开启 useCursorFetch=true，否则驱动仍会一次性读取全部结果
+     * @param zipperStreamSelectSql 全量流式查询SQL模板
+     * @param params 查询参数，fromKey 为区间下界（不含），toKey 为区间上界（含）
+     * @return 版本游标
+     */
+    @Lang(ZipperTemplateLanguageDriver.class)
+    @SelectProvider(type = ZipperTableSqlProvider.class, method = "buildStreamAll")
+    @Options(fetchSize = 1000)
+    Cursor<Map<String,Object>> streamAll(@Param("zipperStreamSelectSql")String zipperStreamSelectSql, @Param("params") Map<String, Object> params);
+
+    /**
+     * 流式查询一个业务键区间内的全部业务键（去重），按业务键排序
+     * 游标需在SqlSession关闭前消费完；MySQL需在连接串中开启 useCursorFetch=true
+     * @param zipperKeySelectSql 业务键流式查询SQL模板
+     * @param params 查询参数，fromKey 为区间下界（不含），toKey 为区间上界（含）
+     * @return 业务键游标
+     */
+    @Lang(ZipperTemplateLanguageDriver.class)
+    @SelectProvider(type = ZipperTableSqlProvider.class, method = "buildStreamKeys")
+    @Options(fetchSize = 1000)
+    Cursor<Map<String,Object>> streamKeys(@Param("zipperKeySelectSql")String zipperKeySelectSql, @Param("params") Map<String, Object> params);
+
     /**
      * 更新拉链表历史记录
      * @param zipperUpdateSql 更新SQL
      * @param params 业务键参数（如{job_code: "DEV001"}）
      */
+    @Lang(ZipperTemplateLanguageDriver.class)
     @UpdateProvider(type = ZipperTableSqlProvider.class, method = "buildUpdateHistory")
     void updateHistory(@Param("zipperUpdateSql")String zipperUpdateSql, @Param("params") Map<String, Object> params);
 
@@ -35,7 +146,9 @@ public interface ZipperTableDao {
      * @param zipperTableInsertSql 拉链表插入sql
      * @param newRecord 业务记录信息
      */
+    @Lang(ZipperTemplateLanguageDriver.class)
     @InsertProvider(type = ZipperTableSqlProvider.class, method = "buildInsertNewRecord")
+    @Options(useGeneratedKeys = true, keyProperty = "params." + GENERATED_KEY)
     void insertNewRecord(@Param("zipperTableInsertSql")String zipperTableInsertSql, @Param("params")Map<String, Object> newRecord);
 
     /**
@@ -44,10 +157,12 @@ public interface ZipperTableDao {
      * @param newRecord 业务记录信息
      * @return
      */
+    @Lang(ZipperTemplateLanguageDriver.class)
     @SelectProvider(type = ZipperTableSqlProvider.class, method = "buildQueryLatestRecord")
     Map<String, Object> queryLatestRecord(@Param("zipperTableSelectLatestSql") String zipperTableSelectLatestSql,@Param("params") Map<String, Object> newRecord);
 
 
+    @Lang(ZipperTemplateLanguageDriver.class)
     @DeleteProvider(type = ZipperTableSqlProvider.class, method = "buildDeleteRecord")
     void deleteRecord(@Param("zipperTableDeleteSql") String zipperTableDeleteSql, @Param("params") Map<String, Object> params);
 
@@ -1,17 +1,59 @@
 package org.wnn.portal.pub.dao;
 
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author NanNan Wang
  */
 public class ZipperTableSqlProvider {
 
+    private static final String SCRIPT_END = "</script>";
+    private static final int MAX_CACHED_TEMPLATES = 1024; // 缓存的加锁读模板数量上限
+
+    /**
+     * 查询模板 -> 追加 FOR UPDATE 后的模板，避免每次执行都拼接字符串（拼接出的新字符串还要在语言驱动的缓存中重新计算哈希）
+     */
+    private static final Map<String, String> FOR_UPDATE_TEMPLATES = new ConcurrentHashMap<>();
+
     public String buildQueryHistory(Map<String, Object> paramMap) {
         final String zipperSelectSql = (String) paramMap.get("zipperSelectSql");
         return zipperSelectSql;
     }
 
+    public String buildQueryHistoryForUpdate(Map<String, Object> paramMap) {
+        return forUpdate((String) paramMap.get("zipperSelectSql"));
+    }
+
+    public String buildQueryHistoryBatch(Map<String, Object> paramMap) {
+        final String zipperBatchSelectSql = (String) paramMap.get("zipperBatchSelectSql");
+        return zipperBatchSelectSql;
+    }
+
+    public String buildQueryHistoryBatchForUpdate(Map<String, Object> paramMap) {
+        return forUpdate((String) paramMap.get("zipperBatchSelectSql"));
+    }
+
+    public String buildQueryAsOf(Map<String, Object> paramMap) {
+        final String zipperAsOfSelectSql = (String) paramMap.get("zipperAsOfSelectSql");
+        return zipperAsOfSelectSql;
+    }
+
+    public String buildQueryRollover(Map<String, Object> paramMap) {
+        final String zipperRolloverSelectSql = (String) paramMap.get("zipperRolloverSelectSql");
+        return zipperRolloverSelectSql;
+    }
+
+    public String buildStreamAll(Map<String, Object> paramMap) {
+        final String zipperStreamSelectSql = (String) paramMap.get("zipperStreamSelectSql");
+        return zipperStreamSelectSql;
+    }
+
+    public String buildStreamKeys(Map<String, Object> paramMap) {
+        final String zipperKeySelectSql = (String) paramMap.get("zipperKeySelectSql");
+        return zipperKeySelectSql;
+    }
+
 
     public String buildUpdateHistory(Map<String, Object> paramMap) {
         final String zipperUpdateSql = (String) paramMap.get("zipperUpdateSql");
@@ -46,4 +88,31 @@ public class ZipperTableSqlProvider {
         final String zipperTableDeleteSql = (String) paramMap.get("zipperTableDeleteSql");
         return zipperTableDeleteSql;
     }
+
+    /**
+     * 把查询模板改为加锁读：在末尾追加 FOR UPDATE，{@code <script>} 模板追加在 {@code </script>} 之前
+     */
+    static String forUpdate(String selectSql) {
+        if (selectSql == null) {
+            return null;
+        }
+        String template = FOR_UPDATE_TEMPLATES.get(selectSql);
+        if (template != null) {
+            return template;
+        }
+        String sql = selectSql.trim();
+        if (sql.endsWith(";")) {
+            sql = sql.substring(0, sql.length() - 1).trim();
+        }
+        if (sql.endsWith(SCRIPT_END)) {
+            template = sql.substring(0, sql.length() - SCRIPT_END.length()) + " FOR UPDATE" + SCRIPT_END;
+        } else {
+            template = sql + " FOR UPDATE";
+        }
+        if (FOR_UPDATE_TEMPLATES.size() >= MAX_CACHED_TEMPLATES) {
+            FOR_UPDATE_TEMPLATES.clear();
+        }
+        FOR_UPDATE_TEMPLATES.put(selectSql, template);
+        return template;
+    }
 }
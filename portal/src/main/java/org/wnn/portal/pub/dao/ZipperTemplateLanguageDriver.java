@@ -0,0 +1,85 @@
+package org.wnn.portal.pub.dao;
+
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 拉链表SQL模板的语言驱动，缓存模板编译后的{@link SqlSource}
+ * <p>
+ * 拉链表DAO通过 SqlProvider 直接返回元信息中配置的SQL模板，MyBatis 的 ProviderSqlSource 每次调用都会交给语言驱动重新解析
+ * {@code #{params.x}} 占位符（{@code <script>} 模板还要重新解析XML）。而模板只随元信息变化，这里按"参数类型 + 模板内容"缓存解析结果，
+ * 相同模板再次执行时直接复用，只剩下 BoundSql 的构建。
+ * </p>
+ * <p>
+ * 用法：在 Mapper 方法上声明 {@code @Lang(ZipperTemplateLanguageDriver.class)}。
+ * 元信息修改后旧模板不会再被命中，缓存条数超过上限时整体清空，避免频繁修改元信息导致缓存无限增长。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class ZipperTemplateLanguageDriver extends XMLLanguageDriver {
+
+    private static final int MAX_CACHED_TEMPLATES = 1024; // 缓存的模板数量上限
+
+    private final Map<TemplateKey, SqlSource> sqlSourceCache = new ConcurrentHashMap<>();
+
+    @Override
+    public SqlSource createSqlSource(Configuration configuration, String script, Class<?> parameterType) {
+        if (script == null) {
+            return super.createSqlSource(configuration, script, parameterType);
+        }
+        TemplateKey key = new TemplateKey(script, parameterType);
+        SqlSource sqlSource = sqlSourceCache.get(key);
+        if (sqlSource != null) {
+            return sqlSource;
+        }
+        if (sqlSourceCache.size() >= MAX_CACHED_TEMPLATES) {
+            sqlSourceCache.clear();
+        }
+        // 编译结果与线程无关，并发下重复编译同一模板也只是多做一次解析
+        sqlSource = super.createSqlSource(configuration, script, parameterType);
+        sqlSourceCache.put(key, sqlSource);
+        return sqlSource;
+    }
+
+    /**
+     * 当前缓存的模板数量
+     */
+    public int cachedTemplateCount() {
+        return sqlSourceCache.size();
+    }
+
+    private static final class TemplateKey {
+        private final String script;
+        private final Class<?> parameterType;
+        private final int hash;
+
+        private TemplateKey(String script, Class<?> parameterType) {
+            this.script = script;
+            this.parameterType = parameterType;
+            this.hash = 31 * script.hashCode() + Objects.hashCode(parameterType);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TemplateKey)) {
+                return false;
+            }
+            TemplateKey that = (TemplateKey) o;
+            return hash == that.hash && parameterType == that.parameterType && script.equals(that.script);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.wnn.portal.pub.lock;
+
+import com.google.common.util.concurrent.Striped;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * 基于分段锁（{@link Striped}）的本地业务键锁，适用于单节点部署
+ * <p>
+ * 锁键按哈希映射到固定数量的分段，不同业务键只有落在同一分段时才会互相等待，分段数越大冲突越少。
+ * 多个锁键通过{@link Striped#bulkGet(Iterable)}按分段下标顺序加锁，不同线程的加锁顺序一致，不会死锁。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class LocalStripedZipperKeyLock implements ZipperKeyLock {
+
+    private final Striped<Lock> stripes;
+
+    public LocalStripedZipperKeyLock(int stripeCount) {
+        this.stripes = Striped.lock(stripeCount);
+    }
+
+    @Override
+    public Lease tryLock(Collection<String> lockKeys, long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        final List<Lock> acquired = new ArrayList<>(lockKeys.size());
+        try {
+            for (Lock lock : stripes.bulkGet(lockKeys)) {
+                if (!lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    unlockAll(acquired);
+                    return null;
+                }
+                acquired.add(lock);
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            unlockAll(acquired);
+            throw e;
+        }
+        return () -> unlockAll(acquired);
+    }
+
+    @Override
+    public String type() {
+        return "local";
+    }
+
+    private static void unlockAll(List<Lock> acquired) {
+        for (int i = acquired.size() - 1; i >= 0; i--) {
+            acquired.get(i).unlock();
+        }
+        acquired.clear();
+    }
+}
@@ -0,0 +1,185 @@
+package org.wnn.portal.pub.lock;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Redis租约的业务键锁，适用于集群部署
+ * <p>
+ * 一次加锁的全部锁键由一个Lua脚本原子地获取：任一锁键已被占用时一个都不设置，整体按退避间隔重试，
+ * 因此一块业务键只需一次网络往返，也不存在交叉加锁的死锁；租约到期自动释放，防止实例宕机后锁永久残留。
+ * 释放时同样用一个Lua脚本校验token后再删除，避免误删其他实例在租约过期后获取的锁。
+ * </p>
+ * <p>
+ * 持有期间由后台线程每隔三分之一租约时间续期一次，事务耗时超过租约时间也不会丢锁；
+ * 续期时发现锁键已不属于本凭证（如Redis故障转移丢失了数据）或续期一直失败直到租约到期，
+ * 凭证即失效，{@link Lease#checkHeld()} 在事务提交前抛出异常使事务回滚。
+ * 多键脚本要求锁键位于同一slot，锁键需带相同的hash tag（见 {@link ZipperKeyLockManager}）。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@Slf4j
+public class RedisLeaseZipperKeyLock implements ZipperKeyLock, DisposableBean {
+
+    /**
+     * 全部锁键都未被占用时一次性设置并返回0，否则不设置任何锁键，返回第一个被占用的锁键序号
+     */
+    private static final String ACQUIRE_SCRIPT =
+            "for i = 1, #KEYS do " +
+            "    if redis.call('exists', KEYS[i]) == 1 then " +
+            "        return i " +
+            "    end " +
+            "end " +
+            "for i = 1, #KEYS do " +
+            "    redis.call('set', KEYS[i], ARGV[1], 'PX', ARGV[2]) " +
+            "end " +
+            "return 0";
+
+    /**
+     * 续期仍由本凭证持有的锁键，返回续期成功的数量
+     */
+    private static final String RENEW_SCRIPT =
+            "local renewed = 0 " +
+            "for i = 1, #KEYS do " +
+            "    if redis.call('get', KEYS[i]) == ARGV[1] then " +
+            "        redis.call('pexpire', KEYS[i], ARGV[2]) " +
+            "        renewed = renewed + 1 " +
+            "    end " +
+            "end " +
+            "return renewed";
+
+    /**
+     * 删除仍由本凭证持有的锁键
+     */
+    private static final String RELEASE_SCRIPT =
+            "local released = 0 " +
+            "for i = 1, #KEYS do " +
+            "    if redis.call('get', KEYS[i]) == ARGV[1] then " +
+            "        released = released + redis.call('del', KEYS[i]) " +
+            "    end " +
+            "end " +
+            "return released";
+
+    private static final long MIN_RETRY_INTERVAL_MILLIS = 5; // 锁被占用时的初始重试间隔
+    private static final long MAX_RETRY_INTERVAL_MILLIS = 100; // 锁被占用时的最大重试间隔
+
+    private final StringRedisTemplate redisTemplate;
+    private final long leaseMillis;
+    private final DefaultRedisScript<Long> acquireScript = new DefaultRedisScript<>(ACQUIRE_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> renewScript = new DefaultRedisScript<>(RENEW_SCRIPT, Long.class);
+    private final DefaultRedisScript<Long> releaseScript = new DefaultRedisScript<>(RELEASE_SCRIPT, Long.class);
+    private final Set<RedisLease> activeLeases = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService renewalScheduler;
+
+    public RedisLeaseZipperKeyLock(StringRedisTemplate redisTemplate, long leaseMillis) {
+        this.redisTemplate = redisTemplate;
+        this.leaseMillis = leaseMillis;
+        this.renewalScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "zipper-lock-renewal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long renewalInterval = Math.max(1, leaseMillis / 3);
+        renewalScheduler.scheduleWithFixedDelay(this::renewAll, renewalInterval, renewalInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Lease tryLock(Collection<String> lockKeys, long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        final List<String> keys = new ArrayList<>(lockKeys);
+        final String token = UUID.randomUUID().toString();
+        final String lease = String.valueOf(leaseMillis);
+        long retryInterval = MIN_RETRY_INTERVAL_MILLIS;
+        while (true) {
+            long attemptStart = System.nanoTime();
+            Long blocked = redisTemplate.execute(acquireScript, keys, token, lease);
+            if (blocked != null && blocked == 0) {
+                // 租约从发起加锁时开始计算，本地判断的到期时间不晚于Redis中的实际到期时间
+                RedisLease redisLease = new RedisLease(keys, token, attemptStart);
+                activeLeases.add(redisLease);
+                return redisLease;
+            }
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis <= 0) {
+                return null;
+            }
+            Thread.sleep(Math.min(retryInterval, remainingMillis));
+            retryInterval = Math.min(retryInterval * 2, MAX_RETRY_INTERVAL_MILLIS);
+        }
+    }
+
+    @Override
+    public String type() {
+        return "redis";
+    }
+
+    @Override
+    public void destroy() {
+        renewalScheduler.shutdownNow();
+    }
+
+    /**
+     * 续期所有持有中的锁，每个凭证一次脚本调用
+     */
+    private void renewAll() {
+        for (RedisLease lease : activeLeases) {
+            try {
+                long renewStart = System.nanoTime();
+                Long renewed = redisTemplate.execute(renewScript, lease.keys, lease.token, String.valueOf(leaseMillis));
+                if (renewed != null && renewed == lease.keys.size()) {
+                    lease.expiresAtNanos = renewStart + TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+                } else {
+                    lease.lost = true;
+                    activeLeases.remove(lease);
+                    log.warn("拉链表业务键锁已丢失，锁键数量:{}，仍持有:{}", lease.keys.size(), renewed);
+                }
+            } catch (RuntimeException e) {
+                // 续期失败时保留原到期时间，下次继续尝试；一直失败直到到期时凭证失效
+                log.warn("拉链表业务键锁续期失败，锁键数量:{}", lease.keys.size(), e);
+            }
+        }
+    }
+
+    /**
+     * 一次加锁获得的凭证
+     */
+    private final class RedisLease implements Lease {
+
+        private final List<String> keys;
+        private final String token;
+        private volatile long expiresAtNanos;
+        private volatile boolean lost;
+
+        RedisLease(List<String> keys, String token, long acquiredAtNanos) {
+            this.keys = keys;
+            this.token = token;
+            this.expiresAtNanos = acquiredAtNanos + TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+        }
+
+        @Override
+        public void checkHeld() {
+            if (lost || System.nanoTime() - expiresAtNanos >= 0) {
+                throw new ZipperLockTimeoutException("拉链表业务键锁租约已失效，本次修改已回滚，请稍后重试");
+            }
+        }
+
+        @Override
+        public void release() {
+            activeLeases.remove(this);
+            redisTemplate.execute(releaseScript, keys, token);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.wnn.portal.pub.lock;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 拉链表业务键锁
+ * <p>
+ * 同一业务键的"读取历史 - 内存重算 - 写回"必须串行，否则并发请求会基于同一份历史调整前后节点，造成区间重叠或断裂；
+ * 不同业务键之间互不影响，可以完全并行。锁键由{@link ZipperKeyLockManager}按"表名 + 业务键"生成。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public interface ZipperKeyLock {
+
+    /**
+     * 在等待时间内获取全部锁键，要么全部获取成功，要么一个都不持有
+     * 实现需保证不同线程以一致的顺序加锁，避免多个业务键交叉加锁时死锁
+     * @param lockKeys 锁键（已去重）
+     * @param timeout 最长等待时间
+     * @param unit 时间单位
+     * @return 锁凭证，超时返回null
+     * @throws InterruptedException 等待过程中线程被中断
+     */
+    Lease tryLock(Collection<String> lockKeys, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * 锁实现类型，用于监控指标标签
+     */
+    String type();
+
+    /**
+     * 锁凭证，释放时需在加锁的线程中调用（本地锁基于ReentrantLock）
+     */
+    interface Lease {
+
+        /**
+         * 校验锁仍然持有，在事务提交前调用；有租约的实现在租约已失效时抛出 {@link ZipperLockTimeoutException}
+         */
+        default void checkHeld() {
+        }
+
+        /**
+         * 释放本次获取的全部锁
+         */
+        void release();
+    }
+}
@@ -0,0 +1,13 @@
+package org.wnn.portal.pub.lock;
+
+/**
+ * 获取拉链表业务键锁超时，说明同一业务键正在被其他请求修改
+ *
+ * @author NanNan Wang
+ */
+public class ZipperLockTimeoutException extends RuntimeException {
+
+    public ZipperLockTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,151 @@
+package org.wnn.portal.pub.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.wnn.portal.config.ZipperProperties;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 拉链表时点查询的本地结果缓存
+ * <p>
+ * 按"表名 + 业务键 + 查询日期"缓存该日期生效的版本（不存在时保存空值），条目总数受 cacheMaximumSize 限制，
+ * 同一业务键按不同日期反复查询也不会无限增长。
+ * </p>
+ * <p>
+ * 失效不逐条删除，而是递增业务键所在分段的版本号（generation）：读取时条目的版本号与当前不一致即视为未命中；
+ * 回填时使用查库前取得的版本号，查库期间发生过失效的结果不会再放入缓存，旧版本不会在失效后被重新写回。
+ * 分段由业务键哈希决定，同一分段的其他业务键会一起失效，只影响命中率。
+ * </p>
+ * <p>
+ * 本实例写入某个业务键后会失效该业务键的缓存；其他实例的写入无法感知，只能等待过期，
+ * 因此默认关闭，仅适合能接受短时间不一致的报表类查询。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@Component
+public class ZipperAsOfCache {
+
+    private static final int GENERATION_STRIPES = 4096; // 版本号分段数量（2的幂）
+
+    private final boolean enabled;
+    private final Cache<CacheKey, Entry> cache;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public ZipperAsOfCache(ZipperProperties zipperProperties) {
+        ZipperProperties.AsOf asOfProperties = zipperProperties.getAsOf();
+        this.enabled = asOfProperties.isCacheEnabled();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(asOfProperties.getCacheMaximumSize())
+                .expireAfterWrite(asOfProperties.getCacheExpireSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 业务键当前的缓存版本号，查库前取得，回填时传给 {@link #put}
+     */
+    long generation(String tableName, ZipperBusinessKey businessKey) {
+        return generations.get(stripe(tableName, businessKey));
+    }
+
+    /**
+     * 查询缓存
+     * @return 未缓存（或已失效）时返回null；已缓存但该日期无生效版本时返回Optional.empty()
+     */
+    Optional<Map<String, Object>> get(String tableName, ZipperBusinessKey businessKey, LocalDate asOfDate) {
+        Entry entry = cache.getIfPresent(new CacheKey(tableName, businessKey, asOfDate));
+        if (entry == null || entry.generation != generation(tableName, businessKey)) {
+            return null;
+        }
+        return entry.version;
+    }
+
+    /**
+     * 回填缓存，查库期间业务键被失效过（版本号已变化）时放弃回填
+     * @param generation 查库前通过 {@link #generation} 取得的版本号
+     */
+    void put(String tableName, ZipperBusinessKey businessKey, LocalDate asOfDate, Optional<Map<String, Object>> version,
+             long generation) {
+        // 检查之后、写入之前发生的失效同样会使该条目在读取时因版本号不一致而不被命中
+        if (generation == generation(tableName, businessKey)) {
+            cache.put(new CacheKey(tableName, businessKey, asOfDate), new Entry(version, generation));
+        }
+    }
+
+    /**
+     * 失效业务键的缓存：立即失效一次，事务结束后再失效一次，
+     * 防止事务提交前其他线程读到旧版本并放入缓存
+     */
+    void invalidateAfterTransaction(String tableName, ZipperBusinessKey businessKey) {
+        if (!enabled) {
+            return;
+        }
+        int stripe = stripe(tableName, businessKey);
+        generations.incrementAndGet(stripe);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    generations.incrementAndGet(stripe);
+                }
+            });
+        }
+    }
+
+    private static int stripe(String tableName, ZipperBusinessKey businessKey) {
+        int hash = 31 * tableName.hashCode() + businessKey.hashCode();
+        return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+
+    private static final class Entry {
+        private final Optional<Map<String, Object>> version;
+        private final long generation;
+
+        private Entry(Optional<Map<String, Object>> version, long generation) {
+            this.version = version;
+            this.generation = generation;
+        }
+    }
+
+    private static final class CacheKey {
+        private final String tableName;
+        private final ZipperBusinessKey businessKey;
+        private final LocalDate asOfDate;
+
+        private CacheKey(String tableName, ZipperBusinessKey businessKey, LocalDate asOfDate) {
+            this.tableName = tableName;
+            this.businessKey = businessKey;
+            this.asOfDate = asOfDate;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey that = (CacheKey) o;
+            return tableName.equals(that.tableName) && businessKey.equals(that.businessKey) && asOfDate.equals(that.asOfDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tableName, businessKey, asOfDate);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.wnn.portal.pub.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 拉链表批量变更的处理结果
+ * 校验失败的业务键整体跳过（该业务键的所有变更均不落库），其余业务键正常提交；
+ * 某一块写库失败时整块回滚，块内所有业务键记为失败
+ *
+ * @author NanNan Wang
+ */
+@Data
+public class ZipperBatchResult {
+
+    private int totalChanges; // 请求中的变更条数
+    private int totalKeys; // 涉及的业务键数量
+    private int succeededKeys; // 成功落库的业务键数量
+    private int insertedVersions; // 新增的拉链版本数
+    private int updatedVersions; // 更新的拉链版本数
+    private int deletedVersions; // 删除的拉链版本数
+    private List<Failure> failures = new ArrayList<>(); // 失败的业务键及原因
+
+    /**
+     * 合并一个已提交块的处理结果
+     */
+    void merge(ZipperBatchResult chunk) {
+        succeededKeys += chunk.succeededKeys;
+        insertedVersions += chunk.insertedVersions;
+        updatedVersions += chunk.updatedVersions;
+        deletedVersions += chunk.deletedVersions;
+        failures.addAll(chunk.failures);
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Failure {
+        private String businessKey; // 业务键（如 jobCode=DEV001），无法解析业务键时为变更在请求中的序号
+        private String message; // 失败原因
+    }
+}
@@ -0,0 +1,114 @@
+package org.wnn.portal.pub.service;
+
+import org.springframework.util.StringUtils;
+import org.wnn.portal.zipper.dao.entity.ZipperTableMeta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 拉链表业务键（如 jobCode=DEV001）
+ * <p>
+ * 由元信息中配置的业务键字段从记录中提取。比较时各字段值统一转为字符串，
+ * 避免请求参数与数据库返回值类型不一致（如 Integer/Long）导致同一业务键被分到不同组。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public final class ZipperBusinessKey {
+
+    private final List<String> columns;
+    private final Object[] values;
+    private final String[] normalizedValues;
+    private final int hash;
+
+    private ZipperBusinessKey(List<String> columns, Object[] values) {
+        this.columns = columns;
+        this.values = values;
+        this.normalizedValues = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            normalizedValues[i] = String.valueOf(values[i]);
+        }
+        this.hash = Arrays.hashCode(normalizedValues);
+    }
+
+    /**
+     * 解析元信息中配置的业务键字段
+     * @param meta 拉链表元信息
+     * @return 业务键字段名称列表
+     */
+    public static List<String> columnsOf(ZipperTableMeta meta) {
+        if (!StringUtils.hasText(meta.getZipperTableBusinessKey())) {
+            throw new IllegalArgumentException("拉链表[" + meta.getZipperTableName() + "]未配置业务键字段(zipper_table_business_key)");
+        }
+        List<String> columns = new ArrayList<>();
+        for (String column : meta.getZipperTableBusinessKey().split(",")) {
+            if (StringUtils.hasText(column)) {
+                columns.add(column.trim());
+            }
+        }
+        return Collections.unmodifiableList(columns);
+    }
+
+    /**
+     * 从记录中提取业务键
+     * @param columns 业务键字段名称列表
+     * @param record 业务记录或拉链表历史记录
+     * @return 业务键
+     */
+    public static ZipperBusinessKey of(List<String> columns, Map<String, Object> record) {
+        Object[] values = new Object[columns.size()];
+        for (int i = 0; i < values.length; i++) {
+            Object value = record.get(columns.get(i));
+            if (value == null) {
+                throw new IllegalArgumentException("业务键字段[" + columns.get(i) + "]不能为空");
+            }
+            values[i] = value;
+        }
+        return new ZipperBusinessKey(columns, values);
+    }
+
+    /**
+     * 转换为SQL模板参数（字段名 -> 原始值），用于按业务键查询/删除
+     */
+    public Map<String, Object> toParams() {
+        Map<String, Object> params = new LinkedHashMap<>(values.length * 2);
+        for (int i = 0; i < values.length; i++) {
+            params.put(columns.get(i), values[i]);
+        }
+        return params;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ZipperBusinessKey)) {
+            return false;
+        }
+        ZipperBusinessKey that = (ZipperBusinessKey) o;
+        return hash == that.hash && Arrays.equals(normalizedValues, that.normalizedValues);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < normalizedValues.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(columns.get(i)).append('=').append(normalizedValues[i]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,384 @@
+package org.wnn.portal.pub.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.wnn.portal.config.ZipperProperties;
+import org.wnn.portal.pub.dao.ZipperBusinessTableDao;
+import org.wnn.portal.pub.dao.ZipperTableDao;
+import org.wnn.portal.pub.lock.ZipperKeyLockManager;
+import org.wnn.portal.zipper.dao.entity.ZipperTableMeta;
+import org.wnn.portal.zipper.service.ZipperTableMetaService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.wnn.portal.pub.service.ZipperTableService.*;
+
+/**
+ * 拉链表时间线完整性检查
+ * <p>
+ * 拉链表的删除、更新依赖“前序终止时间 = 后序生效时间”的区间约束，历史数据被人工修改后可能出现间隙、重叠、
+ * 重复生效时间或多个未终止的版本，导致删除时补齐到错误的相邻节点。这里按业务键区间分区（见 {@link ZipperStreamReader#keyRanges}），
+ * 用全量流式查询SQL逐行单遍扫描，每个业务键只保留前一个版本的区间做相邻比较，多张表、多个分区在同一个 ForkJoinPool 中并行执行，最后汇总为检查报告。
+ * </p>
+ * <p>
+ * 开启自动修复时，扫描期间只暂存有问题的业务键（每张表不超过 {@link ZipperProperties.Integrity#getMaxRepairKeys()} 个，超出部分只计数），
+ * 在分区扫描结束、游标关闭后，逐个加锁重新查询这些业务键，按元信息的断裂修复策略补齐间隙、截断重叠，
+ * 并同步业务表；存在重复生效时间的业务键无法判断保留哪个版本，只报告不修复。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ZipperIntegrityChecker {
+
+    private final ZipperTableMetaService zipperTableMetaService;
+    private final ZipperStreamReader zipperStreamReader;
+    private final ZipperTableDao zipperTableDao;
+    private final ZipperBusinessTableDao zipperBusinessTableDao;
+    private final ZipperKeyLockManager zipperKeyLockManager;
+    private final ZipperAsOfCache zipperAsOfCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ZipperProperties zipperProperties;
+
+    /**
+     * 检查拉链表时间线
+     * @param tableName 拉链表名，为空时检查所有配置了全量流式查询SQL和业务键流式查询SQL的启用拉链表
+     * @param repair 是否自动修复
+     * @return 检查报告
+     */
+    public ZipperIntegrityReport check(String tableName, boolean repair) {
+        List<ZipperTableMeta> metas = new ArrayList<>();
+        if (StringUtils.hasText(tableName)) {
+            ZipperTableMeta meta = zipperTableMetaService.getByTableName(tableName);
+            if (meta == null) {
+                throw new IllegalArgumentException("拉链表[" + tableName + "]不存在");
+            }
+            ZipperStreamReader.checkStreamable(meta);
+            metas.add(meta);
+        } else {
+            for (ZipperTableMeta meta : zipperTableMetaService.getEnabled()) {
+                if (StringUtils.hasText(meta.getZipperTableStreamSelectSql()) && StringUtils.hasText(meta.getZipperTableKeySelectSql())) {
+                    metas.add(meta);
+                }
+            }
+        }
+
+        final ZipperProperties.Integrity properties = zipperProperties.getIntegrity();
+        final long start = System.currentTimeMillis();
+        final List<TableCheck> checks = new ArrayList<>();
+        final List<ZipperPartitionTask> tasks = new ArrayList<>();
+        for (ZipperTableMeta meta : metas) {
+            TableCheck check = new TableCheck(meta, ZipperBusinessKey.columnsOf(meta), properties.getMaxReportedIssues(),
+                    properties.getMaxRepairKeys());
+            checks.add(check);
+            try {
+                check.ranges = zipperStreamReader.keyRanges(meta, check.businessKeyColumns, properties.getRangeSize());
+            } catch (RuntimeException e) {
+                log.error("拉链表[{}]完整性检查-划分业务键区间失败", meta.getZipperTableName(), e);
+                check.addError("划分业务键区间失败：" + e.getMessage());
+                continue;
+            }
+            tasks.add(new ZipperPartitionTask(0, check.ranges.size(), partition -> checkPartition(check, partition, repair)));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, properties.getParallelism()));
+        try {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+
+        ZipperIntegrityReport report = new ZipperIntegrityReport();
+        report.setRepair(repair);
+        for (TableCheck check : checks) {
+            ZipperIntegrityTableReport tableReport = check.toReport();
+            log.info("拉链表[{}]完整性检查完成，业务键:{}，问题业务键:{}，已修复:{}，问题统计:{}", tableReport.getZipperTableName(),
+                    tableReport.getKeys(), tableReport.getBrokenKeys(), tableReport.getRepairedKeys(), tableReport.getIssueCounts());
+            report.getTables().add(tableReport);
+        }
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        return report;
+    }
+
+    /**
+     * 扫描一个分区，游标关闭后再修复有问题的业务键，避免修复时长时间占用游标连接
+     */
+    private void checkPartition(TableCheck check, int partition, boolean repair) {
+        final ZipperTableMeta meta = check.meta;
+        final ZipperKeyRange range = check.ranges.get(partition);
+        final int partitions = check.ranges.size();
+        final List<ZipperBusinessKey> brokenKeys = new ArrayList<>();
+        final KeyInspector[] current = new KeyInspector[1];
+        try {
+            long versions = zipperStreamReader.forEachVersion(meta, check.businessKeyColumns, range, (businessKey, version) -> {
+                if (current[0] == null || !current[0].businessKey.equals(businessKey)) {
+                    finishKey(check, current[0], repair ? brokenKeys : null);
+                    current[0] = new KeyInspector(businessKey, meta.getZipperTablePrimaryKey());
+                }
+                current[0].add(version);
+            });
+            finishKey(check, current[0], repair ? brokenKeys : null);
+            check.versions.add(versions);
+        } catch (RuntimeException e) {
+            log.error("拉链表[{}]完整性检查-分区{}/{}{}失败", meta.getZipperTableName(), partition + 1, partitions, range, e);
+            check.addError("分区" + (partition + 1) + "/" + partitions + range + "检查失败：" + e.getMessage());
+            return;
+        }
+
+        for (ZipperBusinessKey businessKey : brokenKeys) {
+            try {
+                if (repairKey(meta, businessKey)) {
+                    check.repairedKeys.increment();
+                } else {
+                    check.addError("业务键[" + businessKey + "]存在重复生效时间，未自动修复");
+                }
+            } catch (RuntimeException e) {
+                log.error("拉链表[{}]完整性修复-业务键[{}]失败", meta.getZipperTableName(), businessKey, e);
+                check.addError("业务键[" + businessKey + "]修复失败：" + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 一个业务键的版本读取完毕后汇总问题，需要修复时在单次修复上限内暂存业务键
+     * @param brokenKeys 待修复的业务键，不修复时为null
+     */
+    private static void finishKey(TableCheck check, KeyInspector inspector, List<ZipperBusinessKey> brokenKeys) {
+        if (inspector == null) {
+            return;
+        }
+        check.keys.increment();
+        List<ZipperIntegrityIssue> issues = inspector.finish();
+        if (issues.isEmpty()) {
+            return;
+        }
+        check.addIssues(issues);
+        if (brokenKeys != null) {
+            if (check.reserveRepair()) {
+                brokenKeys.add(inspector.businessKey);
+            } else {
+                check.skippedRepairKeys.increment();
+            }
+        }
+    }
+
+    /**
+     * 加锁重新查询业务键的历史并修复区间，修复后同步业务表
+     * @return 是否已修复（存在重复生效时间时返回false）
+     */
+    private boolean repairKey(ZipperTableMeta meta, ZipperBusinessKey businessKey) {
+        Boolean repaired = transactionTemplate.execute(status -> {
+            zipperKeyLockManager.lockUntilTransactionEnd(meta.getZipperTableName(), Collections.singletonList(businessKey));
+            ZipperTimeline timeline = new ZipperTimeline(zipperTableDao.queryHistoryForUpdate(meta.getZipperTableSelectSql(), businessKey.toParams()));
+            if (!timeline.repairIntervals(meta.getBreakStrategy())) {
+                return false;
+            }
+            if (timeline.getUpdated().isEmpty()) {
+                // 扫描后已被其他请求修正
+                return true;
+            }
+            for (Map<String, Object> record : timeline.getUpdated()) {
+                log.info("拉链表[{}]完整性修复-调整记录:{}", meta.getZipperTableName(), record);
+                zipperTableDao.updateHistory(meta.getZipperTableUpdateSql(), record);
+            }
+            zipperAsOfCache.invalidateAfterTransaction(meta.getZipperTableName(), businessKey);
+            Map<String, Object> snapshot = timeline.businessSnapshotOrExpired(LocalDate.now());
+            if (snapshot != null) {
+                zipperBusinessTableDao.insertBusinessNewRecord(meta.getBusinessTableInsertSql(), snapshot);
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(repaired);
+    }
+
+    /**
+     * 单遍检查一个业务键按生效时间升序排列的全部版本
+     * @param businessKey 业务键
+     * @param primaryKeyName 主键字段名称
+     * @param history 该业务键的全部版本（按生效时间升序）
+     * @return 发现的问题，无问题时返回空列表
+     */
+    static List<ZipperIntegrityIssue> inspect(ZipperBusinessKey businessKey, String primaryKeyName, List<Map<String, Object>> history) {
+        KeyInspector inspector = new KeyInspector(businessKey, primaryKeyName);
+        for (Map<String, Object> version : history) {
+            inspector.add(version);
+        }
+        return inspector.finish();
+    }
+
+    /**
+     * 逐个接收一个业务键按生效时间升序排列的版本，只保留前一个版本的区间与相邻比较，不缓存该业务键的历史
+     */
+    static final class KeyInspector {
+        private final ZipperBusinessKey businessKey;
+        private final String primaryKeyName;
+        private LocalDate prevEffectiveDate;
+        private LocalDate prevEndDate;
+        private int openEndedCount;
+        private List<ZipperIntegrityIssue> issues = Collections.emptyList();
+
+        KeyInspector(ZipperBusinessKey businessKey, String primaryKeyName) {
+            this.businessKey = businessKey;
+            this.primaryKeyName = primaryKeyName;
+        }
+
+        /**
+         * 与前一个版本比较区间
+         */
+        void add(Map<String, Object> version) {
+            LocalDate effectiveDate = convertToLocalDate(version.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
+            LocalDate endDate = convertToLocalDate(version.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN));
+            if (MAX_END_DATE.equals(endDate)) {
+                openEndedCount++;
+            }
+            if (effectiveDate != null && prevEffectiveDate != null) {
+                ZipperIntegrityIssue.Type type = null;
+                String detail = null;
+                if (effectiveDate.equals(prevEffectiveDate)) {
+                    type = ZipperIntegrityIssue.Type.DUPLICATE_EFFECTIVE_DATE;
+                    detail = "与前序版本的生效时间相同";
+                } else if (prevEndDate != null && prevEndDate.isBefore(effectiveDate)) {
+                    type = ZipperIntegrityIssue.Type.GAP;
+                    detail = "前序版本终止于" + prevEndDate + "，区间断裂";
+                } else if (prevEndDate != null && prevEndDate.isAfter(effectiveDate)) {
+                    type = ZipperIntegrityIssue.Type.OVERLAP;
+                    detail = "前序版本终止于" + prevEndDate + "，区间重叠";
+                }
+                if (type != null) {
+                    addIssue(issueOf(type, businessKey.toString(), version.get(primaryKeyName), effectiveDate, endDate, detail));
+                }
+            }
+            prevEffectiveDate = effectiveDate;
+            prevEndDate = endDate;
+        }
+
+        /**
+         * 全部版本接收完毕后检查未终止的版本数
+         * @return 发现的问题，无问题时返回空列表
+         */
+        List<ZipperIntegrityIssue> finish() {
+            if (openEndedCount > 1) {
+                addIssue(issueOf(ZipperIntegrityIssue.Type.MULTIPLE_OPEN_ENDED, businessKey.toString(), null, null, MAX_END_DATE,
+                        "存在" + openEndedCount + "个未终止的版本"));
+            }
+            return issues;
+        }
+
+        private void addIssue(ZipperIntegrityIssue issue) {
+            if (issues.isEmpty()) {
+                issues = new ArrayList<>();
+            }
+            issues.add(issue);
+        }
+    }
+
+    private static ZipperIntegrityIssue issueOf(ZipperIntegrityIssue.Type type, String businessKey, Object primaryKey,
+                                                LocalDate effectiveDate, LocalDate effectiveEndDate, String detail) {
+        ZipperIntegrityIssue issue = new ZipperIntegrityIssue();
+        issue.setType(type);
+        issue.setBusinessKey(businessKey);
+        issue.setPrimaryKey(primaryKey);
+        issue.setEffectiveDate(effectiveDate);
+        issue.setEffectiveEndDate(effectiveEndDate);
+        issue.setDetail(detail);
+        return issue;
+    }
+
+    /**
+     * 单张表的检查进度，由多个分区线程并发累加
+     */
+    private static final class TableCheck {
+        private final ZipperTableMeta meta;
+        private final List<String> businessKeyColumns;
+        private final int maxReportedIssues;
+        private final AtomicInteger repairPermits; // 剩余可暂存的待修复业务键数，多个分区共用
+        private List<ZipperKeyRange> ranges = Collections.emptyList(); // 划分出的业务键区间，在提交分区任务前确定
+        private final LongAdder versions = new LongAdder();
+        private final LongAdder keys = new LongAdder();
+        private final LongAdder brokenKeys = new LongAdder();
+        private final LongAdder repairedKeys = new LongAdder();
+        private final LongAdder skippedRepairKeys = new LongAdder();
+        private final ConcurrentMap<ZipperIntegrityIssue.Type, LongAdder> issueCounts = new ConcurrentHashMap<>();
+        private final List<ZipperIntegrityIssue> issues = new ArrayList<>();
+        private final List<String> errors = new ArrayList<>();
+
+        private TableCheck(ZipperTableMeta meta, List<String> businessKeyColumns, int maxReportedIssues, int maxRepairKeys) {
+            this.meta = meta;
+            this.businessKeyColumns = businessKeyColumns;
+            this.maxReportedIssues = maxReportedIssues;
+            this.repairPermits = new AtomicInteger(Math.max(0, maxRepairKeys));
+        }
+
+        /**
+         * 占用一个待修复名额，超出单次修复上限时返回false
+         */
+        private boolean reserveRepair() {
+            return repairPermits.getAndUpdate(permits -> permits > 0 ? permits - 1 : 0) > 0;
+        }
+
+        private void addIssues(List<ZipperIntegrityIssue> keyIssues) {
+            brokenKeys.increment();
+            for (ZipperIntegrityIssue issue : keyIssues) {
+                issueCounts.computeIfAbsent(issue.getType(), type -> new LongAdder()).increment();
+            }
+            synchronized (issues) {
+                for (ZipperIntegrityIssue issue : keyIssues) {
+                    if (issues.size() >= maxReportedIssues) {
+                        break;
+                    }
+                    issues.add(issue);
+                }
+            }
+        }
+
+        private void addError(String error) {
+            synchronized (errors) {
+                if (errors.size() < maxReportedIssues) {
+                    errors.add(error);
+                }
+            }
+        }
+
+        private ZipperIntegrityTableReport toReport() {
+            ZipperIntegrityTableReport report = new ZipperIntegrityTableReport();
+            report.setZipperTableName(meta.getZipperTableName());
+            report.setPartitions(ranges.size());
+            report.setVersions(versions.sum());
+            report.setKeys(keys.sum());
+            report.setBrokenKeys(brokenKeys.sum());
+            report.setRepairedKeys(repairedKeys.sum());
+            report.setSkippedRepairKeys(skippedRepairKeys.sum());
+            issueCounts.forEach((type, count) -> report.getIssueCounts().put(type, count.sum()));
+            synchronized (issues) {
+                report.getIssues().addAll(issues);
+            }
+            synchronized (errors) {
+                report.getErrors().addAll(errors);
+            }
+            if (report.getSkippedRepairKeys() > 0) {
+                report.getErrors().add(report.getSkippedRepairKeys() + "个问题业务键超出单次修复上限，未自动修复，可再次执行检查修复");
+            }
+            return report;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package org.wnn.portal.pub.service;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * 拉链表时间线完整性问题
+ *
+ * @author NanNan Wang
+ */
+@Data
+public class ZipperIntegrityIssue {
+
+    private Type type; // 问题类型
+    private String businessKey; // 业务键（如 jobCode=DEV001）
+    private Object primaryKey; // 出问题的版本主键，多个未终止版本时为空
+    private LocalDate effectiveDate; // 出问题版本的生效时间
+    private LocalDate effectiveEndDate; // 出问题版本的终止时间
+    private String detail; // 问题描述
+
+    public enum Type {
+        GAP, // 前序版本的终止时间早于本版本的生效时间（区间断裂）
+        OVERLAP, // 前序版本的终止时间晚于本版本的生效时间（区间重叠）
+        DUPLICATE_EFFECTIVE_DATE, // 与前序版本的生效时间相同
+        MULTIPLE_OPEN_ENDED // 同一业务键存在多个终止时间为 9999-12-31 的版本
+    }
+}
@@ -0,0 +1,19 @@
+package org.wnn.portal.pub.service;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 拉链表完整性检查报告
+ *
+ * @author NanNan Wang
+ */
+@Data
+public class ZipperIntegrityReport {
+
+    private boolean repair; // 是否执行了自动修复
+    private long elapsedMillis; // 耗时（毫秒）
+    private List<ZipperIntegrityTableReport> tables = new ArrayList<>(); // 各拉链表的检查结果
+}
@@ -0,0 +1,28 @@
+package org.wnn.portal.pub.service;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单张拉链表的完整性检查结果
+ *
+ * @author NanNan Wang
+ */
+@Data
+public class ZipperIntegrityTableReport {
+
+    private String zipperTableName; // 拉链表名
+    private int partitions; // 分区数（业务键区间数）
+    private long versions; // 检查的版本数
+    private long keys; // 检查的业务键数
+    private long brokenKeys; // 存在问题的业务键数
+    private long repairedKeys; // 已修复的业务键数
+    private long skippedRepairKeys; // 超出单次修复上限、未尝试修复的问题业务键数
+    private Map<ZipperIntegrityIssue.Type, Long> issueCounts = new EnumMap<>(ZipperIntegrityIssue.Type.class); // 各类问题的数量
+    private List<ZipperIntegrityIssue> issues = new ArrayList<>(); // 问题明细，超过上限的部分只计数不记录
+    private List<String> errors = new ArrayList<>(); // 检查或修复失败的分区、业务键及原因
+}
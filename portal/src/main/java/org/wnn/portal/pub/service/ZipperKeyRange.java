@@ -0,0 +1,40 @@
+package org.wnn.portal.pub.service;
+
+import org.wnn.portal.pub.dao.ZipperTableDao;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 拉链表业务键区间（下界不含，上界含），下界或上界为null时表示不限
+ * <p>
+ * 由 {@link ZipperStreamReader#keyRanges} 按业务键顺序划分，相邻区间首尾相接，全部区间覆盖整个业务键空间。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+final class ZipperKeyRange {
+
+    private final ZipperBusinessKey fromKey;
+    private final ZipperBusinessKey toKey;
+
+    ZipperKeyRange(ZipperBusinessKey fromKey, ZipperBusinessKey toKey) {
+        this.fromKey = fromKey;
+        this.toKey = toKey;
+    }
+
+    /**
+     * 转换为SQL模板参数（params.fromKey、params.toKey）
+     */
+    Map<String, Object> toParams() {
+        Map<String, Object> params = new HashMap<>();
+        params.put(ZipperTableDao.FROM_KEY, fromKey == null ? null : fromKey.toParams());
+        params.put(ZipperTableDao.TO_KEY, toKey == null ? null : toKey.toParams());
+        return params;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + (fromKey == null ? "-∞" : fromKey) + ", " + (toKey == null ? "+∞" : toKey) + "]";
+    }
+}
@@ -0,0 +1,40 @@
+package org.wnn.portal.pub.service;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 拉链表分区区间任务
+ * <p>
+ * 分区号是 {@link ZipperStreamReader#keyRanges} 划分出的业务键区间的下标。
+ * 区间大于一个分区时一分为二，交给 ForkJoinPool 并行执行；只剩一个分区时执行分区动作。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+final class ZipperPartitionTask extends RecursiveAction {
+
+    private final int from;
+    private final int to;
+    private final PartitionAction action;
+
+    ZipperPartitionTask(int from, int to, PartitionAction action) {
+        this.from = from;
+        this.to = to;
+        this.action = action;
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from == 1) {
+            action.run(from);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        invokeAll(new ZipperPartitionTask(from, middle, action), new ZipperPartitionTask(middle, to, action));
+    }
+
+    @FunctionalInterface
+    interface PartitionAction {
+        void run(int partition);
+    }
+}
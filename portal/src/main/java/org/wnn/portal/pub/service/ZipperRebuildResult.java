@@ -0,0 +1,19 @@
+package org.wnn.portal.pub.service;
+
+import lombok.Data;
+
+/**
+ * 业务表重建结果
+ *
+ * @author NanNan Wang
+ */
+@Data
+public class ZipperRebuildResult {
+
+    private String zipperTableName; // 拉链表名
+    private int partitions; // 分区数（业务键区间数）
+    private long orphanKeys; // 删除的业务表孤儿记录数
+    private long versions; // 读取的拉链版本数
+    private long keys; // 写回业务表的业务键数
+    private long elapsedMillis; // 耗时（毫秒）
+}
@@ -0,0 +1,183 @@
+package org.wnn.portal.pub.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.wnn.portal.config.ZipperProperties;
+import org.wnn.portal.pub.dao.ZipperBatchDaoSupport;
+import org.wnn.portal.pub.dao.ZipperTableDao;
+import org.wnn.portal.pub.lock.ZipperKeyLockManager;
+import org.wnn.portal.zipper.dao.entity.ZipperTableMeta;
+import org.wnn.portal.zipper.service.ZipperTableMetaService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 根据拉链表重建业务表
+ * <p>
+ * 业务表与拉链表不一致时（如人工修数后）使用。先按业务键顺序把拉链表划分为若干业务键区间（分区），
+ * 分区区间在 ForkJoinPool 中递归拆分并行处理。每个分区用游标流式读取区间内的业务键，攒够一批后在一个事务中
+ * 加业务键锁、加锁批量查询这批业务键的历史（zipper_table_batch_select_sql 追加 FOR UPDATE），计算业务表镜像并批量写回，
+ * 与实时写入互斥，不会用重建开始时读到的旧历史覆盖并发写入的结果；加锁查询时已没有历史的业务键删除业务表记录。
+ * 内存占用只与并行度和批量大小有关，与表的数据量无关（MySQL 需开启 useCursorFetch=true，见 {@link ZipperStreamReader}）。
+ * </p>
+ * <p>
+ * 每个分区写回后，若配置了 business_table_orphan_select_sql，再流式读取该区间内拉链表中已不存在的业务表记录的业务键
+ * （第一个和最后一个分区不限下界、上界，覆盖拉链表业务键范围之外的记录），同样按批在事务中加业务键锁、加锁查询历史，
+ * 确认仍没有历史后才删除，不会删掉读取之后由实时写入新建的业务键。
+ * </p>
+ * <p>
+ * 本地分段锁下一批业务键会占用同样数量的分段，批量过大时几乎占满全部分段，重建期间实时写入基本串行，
+ * 因此批量（zipper.rebuild.batch-size）应远小于分段数。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ZipperRebuildService {
+
+    private final ZipperTableMetaService zipperTableMetaService;
+    private final ZipperStreamReader zipperStreamReader;
+    private final ZipperBatchDaoSupport zipperBatchDaoSupport;
+    private final ZipperKeyLockManager zipperKeyLockManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ZipperProperties zipperProperties;
+
+    /**
+     * 重建指定拉链表对应的业务表
+     * @param tableName 拉链表名
+     * @return 重建结果
+     */
+    public ZipperRebuildResult rebuild(String tableName) {
+        final ZipperTableMeta meta = zipperTableMetaService.getByTableName(tableName);
+        if (meta == null) {
+            throw new IllegalArgumentException("拉链表[" + tableName + "]不存在");
+        }
+        ZipperStreamReader.checkKeySelectable(meta);
+        if (!StringUtils.hasText(meta.getZipperTableBatchSelectSql())) {
+            throw new IllegalArgumentException("拉链表[" + tableName + "]未配置批量查询SQL(zipper_table_batch_select_sql)");
+        }
+        final List<String> businessKeyColumns = ZipperBusinessKey.columnsOf(meta);
+        final ZipperProperties.Rebuild properties = zipperProperties.getRebuild();
+
+        final long start = System.currentTimeMillis();
+        final List<ZipperKeyRange> ranges = zipperStreamReader.keyRanges(meta, businessKeyColumns, properties.getRangeSize());
+        final int partitions = ranges.size();
+        final LongAdder versions = new LongAdder();
+        final LongAdder keys = new LongAdder();
+        final LongAdder orphanKeys = new LongAdder();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, properties.getParallelism()));
+        try {
+            pool.invoke(new ZipperPartitionTask(0, partitions, partition -> {
+                ZipperKeyRange range = ranges.get(partition);
+                SnapshotWriter writer = new SnapshotWriter(meta, businessKeyColumns, properties.getBatchSize());
+                zipperStreamReader.forEachBusinessKey(meta, businessKeyColumns, range, writer::add);
+                writer.flush();
+                versions.add(writer.versions);
+                keys.add(writer.written);
+                if (StringUtils.hasText(meta.getBusinessTableOrphanSelectSql())) {
+                    SnapshotWriter orphanWriter = new SnapshotWriter(meta, businessKeyColumns, properties.getBatchSize());
+                    zipperStreamReader.forEachOrphanKey(meta, businessKeyColumns, range, orphanWriter::add);
+                    orphanWriter.flush();
+                    orphanKeys.add(orphanWriter.deleted);
+                }
+                log.info("拉链表[{}]业务表重建-分区{}/{}{}完成，累计版本:{}，累计业务键:{}", tableName, partition + 1, partitions, range,
+                        versions.sum(), keys.sum());
+            }));
+        } finally {
+            pool.shutdown();
+        }
+
+        ZipperRebuildResult result = new ZipperRebuildResult();
+        result.setZipperTableName(tableName);
+        result.setPartitions(partitions);
+        result.setVersions(versions.sum());
+        result.setKeys(keys.sum());
+        result.setOrphanKeys(orphanKeys.sum());
+        result.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("拉链表业务表重建完成:{}", result);
+        return result;
+    }
+
+    /**
+     * 业务表镜像批量写入，攒够一批业务键后在一个事务中加锁读取历史并写回，没有历史的业务键删除业务表记录
+     */
+    private final class SnapshotWriter {
+        private final ZipperTableMeta meta;
+        private final List<String> businessKeyColumns;
+        private final int batchSize;
+        private final List<ZipperBusinessKey> buffer;
+        private long versions;
+        private long written;
+        private long deleted;
+
+        private SnapshotWriter(ZipperTableMeta meta, List<String> businessKeyColumns, int batchSize) {
+            this.meta = meta;
+            this.businessKeyColumns = businessKeyColumns;
+            this.batchSize = Math.max(1, batchSize);
+            this.buffer = new ArrayList<>(this.batchSize);
+        }
+
+        private void add(ZipperBusinessKey businessKey) {
+            buffer.add(businessKey);
+            if (buffer.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            final long[] deletedCount = new long[1];
+            Integer versionCount = transactionTemplate.execute(status -> {
+                deletedCount[0] = 0;
+                zipperKeyLockManager.lockUntilTransactionEnd(meta.getZipperTableName(), buffer);
+
+                List<Map<String, Object>> keyParams = new ArrayList<>(buffer.size());
+                for (ZipperBusinessKey businessKey : buffer) {
+                    keyParams.add(businessKey.toParams());
+                }
+                Map<String, Object> params = new HashMap<>();
+                params.put(ZipperTableDao.BUSINESS_KEYS, keyParams);
+                List<Map<String, Object>> records = zipperBatchDaoSupport.getZipperTableDao()
+                        .queryHistoryBatchForUpdate(meta.getZipperTableBatchSelectSql(), params);
+                Map<ZipperBusinessKey, List<Map<String, Object>>> historyByKey = new HashMap<>();
+                for (Map<String, Object> record : records) {
+                    historyByKey.computeIfAbsent(ZipperBusinessKey.of(businessKeyColumns, record), k -> new ArrayList<>()).add(record);
+                }
+
+                LocalDate now = LocalDate.now();
+                for (ZipperBusinessKey businessKey : buffer) {
+                    List<Map<String, Object>> history = historyByKey.get(businessKey);
+                    if (history == null) {
+                        // 读取业务键之后已被删除，或是业务表孤儿记录
+                        if (StringUtils.hasText(meta.getBusinessTableDeleteSql())) {
+                            zipperBatchDaoSupport.getZipperBusinessTableDao().deleteBusinessRecord(meta.getBusinessTableDeleteSql(), businessKey.toParams());
+                            deletedCount[0]++;
+                        }
+                    } else {
+                        zipperBatchDaoSupport.getZipperBusinessTableDao().insertBusinessNewRecord(meta.getBusinessTableInsertSql(),
+                                new ZipperTimeline(history).businessSnapshotOrExpired(now));
+                    }
+                }
+                zipperBatchDaoSupport.flushStatements();
+                return records.size();
+            });
+            versions += versionCount == null ? 0 : versionCount;
+            written += buffer.size();
+            deleted += deletedCount[0];
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.wnn.portal.pub.service;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * 生效状态跨日切换的执行结果
+ *
+ * @author NanNan Wang
+ */
+@Data
+public class ZipperRolloverResult {
+
+    private String zipperTableName; // 拉链表名
+    private LocalDate rolloverDate; // 切换日期
+    private boolean skipped; // 是否因其他实例正在执行而跳过
+    private Long resumedFrom; // 从哪个主键之后继续（断点续跑），为空表示从头开始
+    private long scannedVersions; // 扫描到的版本数
+    private long processedKeys; // 成功刷新业务表的业务键数
+    private long failedChunks; // 处理失败的块数，失败后断点不再前移，下次执行从失败处重跑
+    private Long checkpoint; // 本次执行结束后保存的断点主键
+}
@@ -0,0 +1,316 @@
+package org.wnn.portal.pub.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.wnn.portal.config.ZipperProperties;
+import org.wnn.portal.pub.dao.ZipperBatchDaoSupport;
+import org.wnn.portal.pub.dao.ZipperTableDao;
+import org.wnn.portal.pub.lock.ZipperKeyLockManager;
+import org.wnn.portal.zipper.dao.entity.ZipperTableMeta;
+import org.wnn.portal.zipper.service.ZipperTableMetaService;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 业务表生效状态跨日切换
+ * <p>
+ * 业务表中的生效状态（0-未生效，1-生效中，2-已失效）只在写入时按当天计算，未来生效的版本到期后不会自动变为生效中。
+ * 该任务每天零点扫描生效开始或结束于当天的版本，只对这些业务键重新计算业务表镜像并批量写回，不做全表重建。
+ * </p>
+ * <p>
+ * 扫描按主键分页顺序进行，每页的业务键作为一块交给有界线程池处理，每块一个事务。
+ * 已连续完成的最后一页主键作为断点保存在Redis中，任务中断或某块失败后再次执行会从断点继续；
+ * 重算业务表镜像是幂等的，断点之后已处理过的块重跑也不会产生错误数据。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ZipperRolloverService {
+
+    private static final String CHECKPOINT_KEY_PREFIX = "zipper:rollover:checkpoint:";
+    private static final String RUN_LOCK_KEY_PREFIX = "zipper:rollover:running:";
+    private static final long WORKER_TERMINATION_TIMEOUT_SECONDS = 60; // 释放互斥锁前等待工作线程结束的最长时间
+
+    /**
+     * 只有锁的值仍是本次执行的令牌时才删除，执行超过租约时间后不会误删其他实例重新获取的锁
+     */
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+            "    return redis.call('del', KEYS[1]) " +
+            "end " +
+            "return 0";
+    private static final DefaultRedisScript<Long> RELEASE_REDIS_SCRIPT = new DefaultRedisScript<>(RELEASE_SCRIPT, Long.class);
+
+    private final ZipperTableMetaService zipperTableMetaService;
+    private final ZipperTableDao zipperTableDao;
+    private final ZipperBatchDaoSupport zipperBatchDaoSupport;
+    private final ZipperKeyLockManager zipperKeyLockManager;
+    private final TransactionTemplate transactionTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ZipperProperties zipperProperties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 定时执行：对所有配置了跨日切换SQL的启用拉链表执行当天的切换
+     */
+    @Scheduled(cron = "${zipper.rollover.cron:0 0 0 * * ?}")
+    public void scheduledRollover() {
+        if (!zipperProperties.getRollover().isEnabled()) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        for (ZipperTableMeta meta : zipperTableMetaService.getEnabled()) {
+            if (!StringUtils.hasText(meta.getZipperTableRolloverSelectSql())) {
+                continue;
+            }
+            try {
+                ZipperRolloverResult result = rollover(meta, today);
+                log.info("拉链表跨日切换完成:{}", result);
+            } catch (Exception e) {
+                log.error("拉链表[{}]跨日切换失败", meta.getZipperTableName(), e);
+            }
+        }
+    }
+
+    /**
+     * 执行指定拉链表在指定日期的跨日切换（可用于补跑）
+     * @param tableName 拉链表名
+     * @param rolloverDate 切换日期
+     * @return 执行结果
+     */
+    public ZipperRolloverResult rollover(String tableName, LocalDate rolloverDate) {
+        ZipperTableMeta meta = zipperTableMetaService.getByTableName(tableName);
+        if (meta == null) {
+            throw new IllegalArgumentException("拉链表[" + tableName + "]不存在");
+        }
+        if (!StringUtils.hasText(meta.getZipperTableRolloverSelectSql())) {
+            throw new IllegalArgumentException("拉链表[" + tableName + "]未配置跨日切换查询SQL(zipper_table_rollover_select_sql)");
+        }
+        return rollover(meta, rolloverDate);
+    }
+
+    private ZipperRolloverResult rollover(ZipperTableMeta meta, LocalDate rolloverDate) {
+        final String tableName = meta.getZipperTableName();
+        final ZipperProperties.Rollover properties = zipperProperties.getRollover();
+        final List<String> businessKeyColumns = ZipperBusinessKey.columnsOf(meta);
+        if (!StringUtils.hasText(meta.getZipperTableBatchSelectSql())) {
+            throw new IllegalArgumentException("拉链表[" + tableName + "]未配置批量查询SQL(zipper_table_batch_select_sql)");
+        }
+
+        ZipperRolloverResult result = new ZipperRolloverResult();
+        result.setZipperTableName(tableName);
+        result.setRolloverDate(rolloverDate);
+
+        // 1. 集群互斥：同一张表同一时间只允许一个实例执行
+        final String runLockKey = RUN_LOCK_KEY_PREFIX + tableName;
+        final String runLockToken = rolloverDate + ":" + UUID.randomUUID();
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(runLockKey, runLockToken,
+                properties.getRunLockMinutes(), TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(locked)) {
+            log.info("拉链表[{}]跨日切换正在其他实例执行，本次跳过", tableName);
+            result.setSkipped(true);
+            return result;
+        }
+
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        final ThreadPoolExecutor workers = newWorkerPool(tableName, properties.getWorkers());
+        try {
+            // 2. 读取断点
+            final String checkpointKey = CHECKPOINT_KEY_PREFIX + tableName + ":" + rolloverDate;
+            String savedCheckpoint = stringRedisTemplate.opsForValue().get(checkpointKey);
+            Long lastPrimaryKey = savedCheckpoint != null ? Long.valueOf(savedCheckpoint) : null;
+            result.setResumedFrom(lastPrimaryKey);
+            result.setCheckpoint(lastPrimaryKey);
+
+            // 3. 按主键分页扫描，每页提交一个处理块；按提交顺序检查完成情况，推进断点
+            Deque<ChunkTask> pending = new ArrayDeque<>();
+            boolean checkpointBlocked = false;
+            while (true) {
+                List<Map<String, Object>> page = queryRolloverPage(meta, rolloverDate, lastPrimaryKey, properties.getChunkSize());
+                if (page.isEmpty()) {
+                    break;
+                }
+                lastPrimaryKey = primaryKeyOf(meta, page.get(page.size() - 1));
+                result.setScannedVersions(result.getScannedVersions() + page.size());
+
+                Set<ZipperBusinessKey> businessKeys = new LinkedHashSet<>();
+                for (Map<String, Object> version : page) {
+                    businessKeys.add(ZipperBusinessKey.of(businessKeyColumns, version));
+                }
+                List<ZipperBusinessKey> chunk = new ArrayList<>(businessKeys);
+                pending.addLast(new ChunkTask(lastPrimaryKey, chunk.size(),
+                        workers.submit(() -> rolloverChunk(meta, businessKeyColumns, chunk))));
+
+                checkpointBlocked = drainCompleted(pending, result, checkpointKey, checkpointBlocked, false);
+                if (page.size() < properties.getChunkSize()) {
+                    break;
+                }
+            }
+            drainCompleted(pending, result, checkpointKey, checkpointBlocked, true);
+            return result;
+        } finally {
+            boolean terminated = shutdownWorkers(tableName, workers);
+            sample.stop(Timer.builder("zipper.rollover.duration")
+                    .description("拉链表跨日切换耗时")
+                    .tag("table", tableName)
+                    .register(meterRegistry));
+            if (terminated) {
+                stringRedisTemplate.execute(RELEASE_REDIS_SCRIPT, Collections.singletonList(runLockKey), runLockToken);
+            } else {
+                // 仍有块的事务在执行，保留互斥锁直到租约到期，避免其他实例与之并发
+                log.warn("拉链表[{}]跨日切换的工作线程未在{}秒内结束，互斥锁保留到租约到期", tableName, WORKER_TERMINATION_TIMEOUT_SECONDS);
+            }
+        }
+    }
+
+    /**
+     * 停止工作线程并等待正在执行的块结束（中断无法终止执行中的JDBC调用，事务仍可能在进行）
+     * @return 工作线程是否已全部结束
+     */
+    private static boolean shutdownWorkers(String tableName, ThreadPoolExecutor workers) {
+        workers.shutdownNow();
+        try {
+            return workers.awaitTermination(WORKER_TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("拉链表[{}]跨日切换等待工作线程结束时被中断", tableName);
+            return false;
+        }
+    }
+
+    /**
+     * 按提交顺序检查已完成的块，只有此前所有块都成功时才推进断点
+     * @param waitAll 是否等待所有块完成
+     * @return 断点是否已因失败块停止推进
+     */
+    private boolean drainCompleted(Deque<ChunkTask> pending, ZipperRolloverResult result,
+                                   String checkpointKey, boolean checkpointBlocked, boolean waitAll) {
+        final String tableName = result.getZipperTableName();
+        while (!pending.isEmpty() && (waitAll || pending.peekFirst().future.isDone())) {
+            ChunkTask task = pending.pollFirst();
+            try {
+                task.future.get();
+                result.setProcessedKeys(result.getProcessedKeys() + task.keyCount);
+                meterRegistry.counter("zipper.rollover.keys", "table", tableName, "outcome", "success").increment(task.keyCount);
+                if (!checkpointBlocked) {
+                    result.setCheckpoint(task.lastPrimaryKey);
+                    stringRedisTemplate.opsForValue().set(checkpointKey, String.valueOf(task.lastPrimaryKey),
+                            zipperProperties.getRollover().getCheckpointTtlHours(), TimeUnit.HOURS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("拉链表[" + tableName + "]跨日切换被中断", e);
+            } catch (ExecutionException e) {
+                checkpointBlocked = true;
+                result.setFailedChunks(result.getFailedChunks() + 1);
+                meterRegistry.counter("zipper.rollover.keys", "table", tableName, "outcome", "failed").increment(task.keyCount);
+                log.error("拉链表[{}]跨日切换块处理失败，主键截止:{}", tableName, task.lastPrimaryKey, e.getCause());
+            }
+        }
+        log.debug("拉链表[{}]跨日切换进度：扫描版本:{}，已处理业务键:{}，失败块:{}，断点:{}", tableName,
+                result.getScannedVersions(), result.getProcessedKeys(), result.getFailedChunks(), result.getCheckpoint());
+        return checkpointBlocked;
+    }
+
+    /**
+     * 在一个事务中重新计算一块业务键的业务表镜像，并批量写回业务表
+     */
+    private void rolloverChunk(ZipperTableMeta meta, List<String> businessKeyColumns, List<ZipperBusinessKey> chunk) {
+        transactionTemplate.executeWithoutResult(status -> {
+            zipperKeyLockManager.lockUntilTransactionEnd(meta.getZipperTableName(), chunk);
+
+            List<Map<String, Object>> keys = new ArrayList<>(chunk.size());
+            for (ZipperBusinessKey businessKey : chunk) {
+                keys.add(businessKey.toParams());
+            }
+            Map<String, Object> params = new HashMap<>();
+            params.put(ZipperTableDao.BUSINESS_KEYS, keys);
+            // 与写入路径一样加锁读：读到最新提交的版本，且业务键锁租约意外失效时，并发写入也要等本事务提交后才能修改这些历史
+            List<Map<String, Object>> records = zipperBatchDaoSupport.getZipperTableDao()
+                    .queryHistoryBatchForUpdate(meta.getZipperTableBatchSelectSql(), params);
+            Map<ZipperBusinessKey, List<Map<String, Object>>> historyByKey = new HashMap<>();
+            for (Map<String, Object> record : records) {
+                historyByKey.computeIfAbsent(ZipperBusinessKey.of(businessKeyColumns, record), k -> new ArrayList<>()).add(record);
+            }
+
+            // 业务表镜像按执行当天计算，补跑历史日期时同样得到当前正确的状态
+            LocalDate now = LocalDate.now();
+            for (List<Map<String, Object>> history : historyByKey.values()) {
+                Map<String, Object> snapshot = new ZipperTimeline(history).businessSnapshotOrExpired(now);
+                zipperBatchDaoSupport.getZipperBusinessTableDao().insertBusinessNewRecord(meta.getBusinessTableInsertSql(), snapshot);
+            }
+            zipperBatchDaoSupport.flushStatements();
+        });
+    }
+
+    private List<Map<String, Object>> queryRolloverPage(ZipperTableMeta meta, LocalDate rolloverDate, Long lastPrimaryKey, int limit) {
+        Map<String, Object> params = new HashMap<>();
+        params.put(ZipperTableDao.EFFECTIVE_DATE, rolloverDate);
+        params.put(ZipperTableDao.LAST_PRIMARY_KEY, lastPrimaryKey == null ? 0L : lastPrimaryKey);
+        params.put(ZipperTableDao.LIMIT, limit);
+        return zipperTableDao.queryRollover(meta.getZipperTableRolloverSelectSql(), params);
+    }
+
+    private static Long primaryKeyOf(ZipperTableMeta meta, Map<String, Object> version) {
+        Object primaryKey = version.get(meta.getZipperTablePrimaryKey());
+        if (!(primaryKey instanceof Number)) {
+            throw new IllegalArgumentException("拉链表[" + meta.getZipperTableName() + "]跨日切换要求主键[" + meta.getZipperTablePrimaryKey() + "]为数值类型");
+        }
+        return ((Number) primaryKey).longValue();
+    }
+
+    /**
+     * 有界线程池：队列满时由扫描线程自己执行，扫描速度自动受处理速度限制
+     */
+    private static ThreadPoolExecutor newWorkerPool(String tableName, int workerCount) {
+        int threads = Math.max(1, workerCount);
+        AtomicInteger threadIndex = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * 2),
+                r -> {
+                    Thread thread = new Thread(r, "zipper-rollover-" + tableName + "-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private static final class ChunkTask {
+        private final Long lastPrimaryKey;
+        private final int keyCount;
+        private final Future<?> future;
+
+        private ChunkTask(Long lastPrimaryKey, int keyCount, Future<?> future) {
+            this.lastPrimaryKey = lastPrimaryKey;
+            this.keyCount = keyCount;
+            this.future = future;
+        }
+    }
+}
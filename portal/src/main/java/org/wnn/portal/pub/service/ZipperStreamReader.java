@@ -0,0 +1,183 @@
+package org.wnn.portal.pub.service;
+
+import lombok.RequiredArgsConstructor;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.wnn.portal.pub.dao.ZipperTableDao;
+import org.wnn.portal.zipper.dao.entity.ZipperTableMeta;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 拉链表全量流式读取
+ * <p>
+ * 通过 MyBatis {@link Cursor} 逐行读取一个业务键区间的全部版本（按业务键、生效时间排序）并逐行回调，
+ * 同一业务键的版本相邻，调用方只需保留所需的相邻版本，内存占用与单个业务键的版本数无关。
+ * 每个区间独立打开一个SqlSession（占用一个数据库连接），不参与Spring事务，可在多个线程中并行读取不同区间。
+ * </p>
+ * <p>
+ * 区间由业务键流式查询按业务键顺序每隔固定数量取一个边界划分，各区间的查询是业务键索引上互不重叠的范围扫描，
+ * 并行读取时不会重复扫描全表。
+ * </p>
+ * <p>
+ * 游标只有在驱动真正按批读取时内存占用才与数据量无关：MySQL 需在连接串中开启 useCursorFetch=true，
+ * 否则驱动会在执行查询时一次性读入全部结果，因此读取前检查连接串，未开启时直接失败。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@Component
+@RequiredArgsConstructor
+public class ZipperStreamReader {
+
+    private static final String MYSQL_URL_PREFIX = "jdbc:mysql:";
+    private static final String CURSOR_FETCH_OPTION = "usecursorfetch=true";
+
+    private final SqlSessionFactory sqlSessionFactory;
+    private volatile boolean cursorFetchChecked;
+
+    /**
+     * 校验元信息是否支持按区间全量读取版本
+     */
+    static void checkStreamable(ZipperTableMeta meta) {
+        if (!StringUtils.hasText(meta.getZipperTableStreamSelectSql())) {
+            throw new IllegalArgumentException("拉链表[" + meta.getZipperTableName() + "]未配置全量流式查询SQL(zipper_table_stream_select_sql)");
+        }
+        checkKeySelectable(meta);
+    }
+
+    /**
+     * 校验元信息是否支持按区间读取业务键
+     */
+    static void checkKeySelectable(ZipperTableMeta meta) {
+        if (!StringUtils.hasText(meta.getZipperTableKeySelectSql())) {
+            throw new IllegalArgumentException("拉链表[" + meta.getZipperTableName() + "]未配置业务键流式查询SQL(zipper_table_key_select_sql)");
+        }
+    }
+
+    /**
+     * 按业务键顺序划分区间，每个区间约含 rangeSize 个业务键
+     * <p>
+     * 只流式读取一遍业务键，内存中只保存区间边界；最后一个区间上界不限，划分后新增的业务键也会落在某个区间内。
+     * </p>
+     * @param meta 拉链表元信息
+     * @param businessKeyColumns 业务键字段
+     * @param rangeSize 每个区间的业务键数量
+     * @return 首尾相接、覆盖全部业务键的区间，至少一个
+     */
+    List<ZipperKeyRange> keyRanges(ZipperTableMeta meta, List<String> businessKeyColumns, int rangeSize) {
+        final int size = Math.max(1, rangeSize);
+        final List<ZipperKeyRange> ranges = new ArrayList<>();
+        final ZipperBusinessKey[] lower = new ZipperBusinessKey[1];
+        final long[] count = new long[1];
+        forEachBusinessKey(meta, businessKeyColumns, new ZipperKeyRange(null, null), businessKey -> {
+            if (++count[0] % size == 0) {
+                ranges.add(new ZipperKeyRange(lower[0], businessKey));
+                lower[0] = businessKey;
+            }
+        });
+        ranges.add(new ZipperKeyRange(lower[0], null));
+        return ranges;
+    }
+
+    /**
+     * 逐行读取一个区间的全部版本
+     * @param meta 拉链表元信息
+     * @param businessKeyColumns 业务键字段
+     * @param range 业务键区间
+     * @param consumer 每个版本的回调（业务键，版本），同一业务键的版本相邻且按生效时间升序
+     * @return 读取的版本数
+     */
+    long forEachVersion(ZipperTableMeta meta, List<String> businessKeyColumns, ZipperKeyRange range,
+                        BiConsumer<ZipperBusinessKey, Map<String, Object>> consumer) {
+        long versionCount = 0;
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            checkCursorFetch(sqlSession);
+            try (Cursor<Map<String, Object>> cursor = sqlSession.getMapper(ZipperTableDao.class)
+                    .streamAll(meta.getZipperTableStreamSelectSql(), range.toParams())) {
+                for (Map<String, Object> version : cursor) {
+                    versionCount++;
+                    consumer.accept(ZipperBusinessKey.of(businessKeyColumns, version), version);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("关闭拉链表[" + meta.getZipperTableName() + "]游标失败", e);
+        }
+        return versionCount;
+    }
+
+    /**
+     * 按业务键顺序读取一个区间内的业务键
+     * @param meta 拉链表元信息
+     * @param businessKeyColumns 业务键字段
+     * @param range 业务键区间
+     * @param consumer 每个业务键的回调
+     * @return 读取的业务键数
+     */
+    long forEachBusinessKey(ZipperTableMeta meta, List<String> businessKeyColumns, ZipperKeyRange range,
+                            Consumer<ZipperBusinessKey> consumer) {
+        return forEachKey(meta, meta.getZipperTableKeySelectSql(), businessKeyColumns, range, consumer);
+    }
+
+    /**
+     * 按业务键顺序读取一个区间内拉链表中已不存在的业务表记录的业务键（business_table_orphan_select_sql）
+     * @param meta 拉链表元信息
+     * @param businessKeyColumns 业务键字段
+     * @param range 业务键区间
+     * @param consumer 每个业务键的回调
+     * @return 读取的业务键数
+     */
+    long forEachOrphanKey(ZipperTableMeta meta, List<String> businessKeyColumns, ZipperKeyRange range,
+                          Consumer<ZipperBusinessKey> consumer) {
+        return forEachKey(meta, meta.getBusinessTableOrphanSelectSql(), businessKeyColumns, range, consumer);
+    }
+
+    private long forEachKey(ZipperTableMeta meta, String keySelectSql, List<String> businessKeyColumns, ZipperKeyRange range,
+                            Consumer<ZipperBusinessKey> consumer) {
+        long keyCount = 0;
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            checkCursorFetch(sqlSession);
+            try (Cursor<Map<String, Object>> cursor = sqlSession.getMapper(ZipperTableDao.class)
+                    .streamKeys(keySelectSql, range.toParams())) {
+                for (Map<String, Object> record : cursor) {
+                    keyCount++;
+                    consumer.accept(ZipperBusinessKey.of(businessKeyColumns, record));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("关闭拉链表[" + meta.getZipperTableName() + "]游标失败", e);
+        }
+        return keyCount;
+    }
+
+    /**
+     * MySQL 连接串未开启 useCursorFetch=true 时拒绝流式读取，检查通过后不再重复检查
+     */
+    private void checkCursorFetch(SqlSession sqlSession) {
+        if (cursorFetchChecked) {
+            return;
+        }
+        String url;
+        try {
+            url = sqlSession.getConnection().getMetaData().getURL();
+        } catch (SQLException e) {
+            throw new IllegalStateException("读取数据库连接串失败", e);
+        }
+        if (url != null && url.toLowerCase(Locale.ROOT).startsWith(MYSQL_URL_PREFIX)
+                && !url.toLowerCase(Locale.ROOT).contains(CURSOR_FETCH_OPTION)) {
+            throw new IllegalStateException("拉链表流式读取要求MySQL连接串开启 useCursorFetch=true，否则驱动会一次性读入全部结果");
+        }
+        cursorFetchChecked = true;
+    }
+}
@@ -1,21 +1,36 @@
 package org.wnn.portal.pub.service;
 
+import com.google.common.collect.Lists;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.wnn.portal.config.ZipperProperties;
+import org.wnn.portal.pub.controller.req.ZipperTableBatchDTO;
+import org.wnn.portal.pub.controller.req.ZipperTableChangeDTO;
 import org.wnn.portal.pub.controller.req.ZipperTableDTO;
+import org.wnn.portal.pub.dao.ZipperBatchDaoSupport;
 import org.wnn.portal.pub.dao.ZipperBusinessTableDao;
 import org.wnn.portal.pub.dao.ZipperTableDao;
+import org.wnn.portal.pub.lock.ZipperKeyLockManager;
 import org.wnn.portal.zipper.dao.entity.ZipperTableMeta;
 import org.wnn.portal.zipper.service.ZipperTableMetaService;
 
 import java.sql.Date;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * @author NanNan Wang
@@ -28,19 +43,24 @@ public class ZipperTableService {
     private final ZipperTableMetaService zipperTableMetaService;
     private final ZipperTableDao zipperTableDao;
     private final ZipperBusinessTableDao zipperBusinessTableDao;
+    private final ZipperBatchDaoSupport zipperBatchDaoSupport;
+    private final ZipperProperties zipperProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final ZipperKeyLockManager zipperKeyLockManager;
+    private final ZipperAsOfCache zipperAsOfCache;
 
-    private final static String DEFAULT_EFFECTIVE_DATE_COLUMN = "effectiveDate"; // 拉链配置表中的生效时间字段名称
-    private final static String DEFAULT_EFFECTIVE_DATE_END_COLUMN = "effectiveEndDate"; // 生效结束时间字段名称
+    final static String DEFAULT_EFFECTIVE_DATE_COLUMN = "effectiveDate"; // 拉链配置表中的生效时间字段名称
+    final static String DEFAULT_EFFECTIVE_DATE_END_COLUMN = "effectiveEndDate"; // 生效结束时间字段名称
 
-    private final static String DEFAULT_EFFECTIVE_STATUS_COLUMN = "effectiveStatus"; // 最新生效数据表（业务表）中的数据状态字段名，防止有未来生效/已经失效的数据被使用。生效状态：0-未生效（未来），1-生效中，2-已失效
-    private final static int DEFAULT_EFFECTIVE_STATUS_FUTURE = 0; // 业务表中的状态字段值：0-未生效（未来
-    private final static int DEFAULT_EFFECTIVE_STATUS_CURRENT = 1; // 业务表中的状态字段值：1-生效中
-    private final static int DEFAULT_EFFECTIVE_STATUS_EXPIRED = 2; // 业务表中的状态字段值：2-已失效
+    final static String DEFAULT_EFFECTIVE_STATUS_COLUMN = "effectiveStatus"; // 最新生效数据表（业务表）中的数据状态字段名，防止有未来生效/已经失效的数据被使用。生效状态：0-未生效（未来），1-生效中，2-已失效
+    final static int DEFAULT_EFFECTIVE_STATUS_FUTURE = 0; // 业务表中的状态字段值：0-未生效（未来
+    final static int DEFAULT_EFFECTIVE_STATUS_CURRENT = 1; // 业务表中的状态字段值：1-生效中
+    final static int DEFAULT_EFFECTIVE_STATUS_EXPIRED = 2; // 业务表中的状态字段值：2-已失效
 
-    private final static Integer DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT = 0; // 拉链配置表的断裂修复策略：0-删除节点后，前序节点失效时间=删除节点的失效时间
-    private final static Integer DEFAULT_ZIPPER_BREAK_STRATEGY_RIGHT = 1; // 拉链配置表的断裂修复策略：1-删除节点后，后序节点生效时间=删除节点的生效时间
+    final static Integer DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT = 0; // 拉链配置表的断裂修复策略：0-删除节点后，前序节点失效时间=删除节点的失效时间
+    final static Integer DEFAULT_ZIPPER_BREAK_STRATEGY_RIGHT = 1; // 拉链配置表的断裂修复策略：1-删除节点后，后序节点生效时间=删除节点的生效时间
 
-    private final static LocalDate MAX_END_DATE = LocalDate.of(9999, 12, 31); // 拉链表生效结束时间最大值
+    final static LocalDate MAX_END_DATE = LocalDate.of(9999, 12, 31); // 拉链表生效结束时间最大值
 
 
     @Transactional
@@ -52,68 +72,26 @@ public class ZipperTableService {
         }
         log.info("拉链表公共服务-插入数据-查询拉链表配置信息:{}",meta.toString());
 
-        // 2. 查询历史版本（带锁）
-        final List<Map<String,Object>> historyMap = zipperTableDao.queryHistory(meta.getZipperTableSelectSql(),request.getBusinessKeyValues());
+        // 2. 锁定业务键，加锁读查询历史版本（读取最新提交的数据，不受本事务中此前查询建立的读视图影响）
+        zipperKeyLockManager.lockUntilTransactionEnd(meta, request.getBusinessKeyValues());
+        final List<Map<String,Object>> historyMap = zipperTableDao.queryHistoryForUpdate(meta.getZipperTableSelectSql(),request.getBusinessKeyValues());
         log.info("拉链表公共服务-插入数据-查询历史信息:{}",historyMap.toString());
 
-        // 3. 定位prev和next
-        LocalDate newEffectiveDate = request.getEffectiveDate();
+        // 3. 在内存时间线中插入新版本：截断前序节点的终止时间，新版本终止于后序节点的生效时间
+        final ZipperTimeline timeline = new ZipperTimeline(historyMap);
+        timeline.insert(request.getBusinessKeyValues(), request.getEffectiveDate());
 
-        // 先校验是否存在相同的生效时间
-        if (hasDuplicateEffectiveDate(historyMap, newEffectiveDate)) {
-            throw new IllegalArgumentException("新增失败：已存在生效时间为" + newEffectiveDate + "的版本，禁止重复插入");
-        }
-
-        // 查找上一条和下一条记录
-        final NodePair nodePair = findPrevAndNextByDate(historyMap, newEffectiveDate);
-        Map<String, Object> prev = nodePair.getPrevRecord();
-        Map<String, Object> next = nodePair.getNextRecord();
-
-        // 4. 校验时间合法性（示例：若prev存在，newEffectiveDate必须小于prev的终止时间）
-        if (prev != null && newEffectiveDate.compareTo(convertToLocalDate(prev.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN))) >= 0) {
-            throw new IllegalArgumentException("新生效时间与历史区间不重叠，无需插入");
-        }
-
-        // 5. 计算新记录的终止时间
-        LocalDate newEffectiveDateEnd = next != null ? convertToLocalDate(next.get(DEFAULT_EFFECTIVE_DATE_COLUMN)) : MAX_END_DATE;
-
-        // 6. 调整上一条记录的终止时间
-        if (prev != null) {
-            log.info("拉链表公共服务-插入数据-调整上条记录:{}",prev.toString());
-            prev.put(DEFAULT_EFFECTIVE_DATE_END_COLUMN, newEffectiveDate);
-            zipperTableDao.updateHistory(meta.getZipperTableUpdateSql(),prev);
-        }
-
-        // 7. 调整下一条记录的开始时间
-        if (next != null) {
-            log.info("拉链表公共服务-插入数据-调整下条记录:{}",next.toString());
-            next.put(DEFAULT_EFFECTIVE_DATE_COLUMN, newEffectiveDate);
-            zipperTableDao.updateHistory(meta.getZipperTableUpdateSql(),next);
-        }
-
-        // 8. 插入新记录
-        Map<String, Object> newRecord = new HashMap<>(request.getBusinessKeyValues());
-        newRecord.putAll(request.getBusinessKeyValues()); // 携带业务键
-        newRecord.put(DEFAULT_EFFECTIVE_DATE_COLUMN, newEffectiveDate);
-        newRecord.put(DEFAULT_EFFECTIVE_DATE_END_COLUMN, newEffectiveDateEnd);
-        zipperTableDao.insertNewRecord(meta.getZipperTableInsertSql(), newRecord);
+        // 4. 落库拉链表变更
+        writeTimeline(meta, timeline);
+        invalidateAsOfCache(meta, request.getBusinessKeyValues());
 
-
-        // 9. 重新查询全量历史，并同步业务表
-        final List<Map<String, Object>> historyAfter = zipperTableDao.queryHistory(
-                meta.getZipperTableSelectSql(), request.getBusinessKeyValues());
+        // 5. 根据内存时间线同步业务表
         LocalDate now = LocalDate.now();
-        Map<String, Object> snapshot = pickBusinessSnapshot(historyAfter, now);
-
+        Map<String, Object> snapshot = timeline.businessSnapshot(now);
         if (snapshot != null) {
             // 拉链表存在当前生效的数据 或者 未来生效的数据
-            LocalDate eff = convertToLocalDate(snapshot.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
-            boolean isFuture = eff != null && eff.isAfter(now);
-            snapshot.put(DEFAULT_EFFECTIVE_STATUS_COLUMN,
-                    isFuture ? DEFAULT_EFFECTIVE_STATUS_FUTURE : DEFAULT_EFFECTIVE_STATUS_CURRENT);
-            // 生效业务数据表保存数据
             zipperBusinessTableDao.insertBusinessNewRecord(meta.getBusinessTableInsertSql(), snapshot);
-            log.info("插入后同步业务表：生效时间={}, 状态={}", eff, isFuture ? "未来生效" : "当前生效");
+            log.info("插入后同步业务表：生效时间={}, 状态={}", snapshot.get(DEFAULT_EFFECTIVE_DATE_COLUMN), snapshot.get(DEFAULT_EFFECTIVE_STATUS_COLUMN));
         } else {
             // 没有任何记录，删除业务表数据 这种情况应该不存在了
             zipperBusinessTableDao.deleteBusinessRecord(meta.getBusinessTableDeleteSql(), request.getBusinessKeyValues());
@@ -131,86 +109,30 @@ public class ZipperTableService {
         }
         log.info("拉链表公共服务-删除数据-查询拉链表配置信息:{}", meta.toString());
 
-        // 2. 查询该业务键的所有历史版本（带锁，防止并发修改）
-        List<Map<String, Object>> historyList = zipperTableDao.queryHistory(meta.getZipperTableSelectSql(), request.getBusinessKeyValues());
-        if (historyList.isEmpty()) {
-            throw new IllegalArgumentException("未查询到该业务键的历史记录，无法删除");
-        }
-
-        // 3. 定位要删除的目标版本 根据主键信息
-        String primaryKeyValue = String.valueOf(request.getBusinessKeyValues().get(meta.getZipperTablePrimaryKey()));
-        Map<String, Object> targetRecord  = findTargetRecordByPrimaryKey(historyList, meta.getZipperTablePrimaryKey(),primaryKeyValue);
-        if (targetRecord == null) {
-            throw new IllegalArgumentException("未找到主键[" + primaryKeyValue  + "]的版本，无法删除");
-        }
-
-        // 4. 查找目标版本的前序节点（prev）和后序节点（next）
-        final NodePair nodePair = findTargetRecordPrevAndNextNodes(historyList, targetRecord);
-        Map<String, Object> prevRecord = nodePair.getPrevRecord();
-        Map<String, Object> nextRecord = nodePair.getNextRecord();
+        // 2. 锁定业务键（防止并发修改），加锁读查询该业务键的所有历史版本
+        zipperKeyLockManager.lockUntilTransactionEnd(meta, request.getBusinessKeyValues());
+        List<Map<String, Object>> historyList = zipperTableDao.queryHistoryForUpdate(meta.getZipperTableSelectSql(), request.getBusinessKeyValues());
 
-        // 5. 根据断裂修复策略处理时间区间（防止删除后出现时间间隙）
-        if (prevRecord != null && nextRecord != null) {
-            // 场景1：删除中间节点（前后均有节点），可能产生间隙，需修复
-            final Integer breakStrategy = meta.getBreakStrategy();
-            log.info("检测到时间间隙，执行修复策略:{}", breakStrategy);
+        // 3. 在内存时间线中删除目标版本，并按断裂修复策略修复前后节点的区间
+        final ZipperTimeline timeline = new ZipperTimeline(historyList);
+        timeline.delete(meta.getZipperTablePrimaryKey(), request.getBusinessKeyValues(), meta.getBreakStrategy());
 
-            if (Objects.equals(breakStrategy, DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT)) {
-                 // 策略0：前序节点的终止时间 = 删除节点的终止时间（延伸前序节点）
-                final LocalDate targetRecordEffectiveEndDate = convertToLocalDate(targetRecord.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN));
-                prevRecord.put(DEFAULT_EFFECTIVE_DATE_END_COLUMN, targetRecordEffectiveEndDate);
-                zipperTableDao.updateHistory(meta.getZipperTableUpdateSql(), prevRecord);
-                log.info("前序节点修复完成-新终止时间:{}", targetRecordEffectiveEndDate);
-            } else {
-                 // 策略1：后序节点的生效时间 = 删除节点的终止时间（后序节点前移）
-                final LocalDate targetRecordEffectiveEndDate = convertToLocalDate(targetRecord.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN));
-                nextRecord.put(DEFAULT_EFFECTIVE_DATE_COLUMN, targetRecordEffectiveEndDate);
-                zipperTableDao.updateHistory(meta.getZipperTableUpdateSql(), nextRecord);
-                log.info("后序节点修复完成-新生效时间:{}", targetRecordEffectiveEndDate);
-            }
-        } else if (prevRecord != null && nextRecord == null) {
-            // 场景2：删除最后一个节点（只有前序节点，无后序节点）
-            // 检查前序节点是否需要更新为最新版本（终止时间设为MAX_END_DATE）
-            LocalDate prevEndDate = convertToLocalDate(prevRecord.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN));
-            if (!prevEndDate.equals(MAX_END_DATE)) {
-                prevRecord.put(DEFAULT_EFFECTIVE_DATE_END_COLUMN, MAX_END_DATE);
-                zipperTableDao.updateHistory(meta.getZipperTableUpdateSql(), prevRecord);
-                log.info("最后节点删除后，前序节点升级为最新版本，新终止时间[{}]", MAX_END_DATE);
-            } else {
-                log.info("删除的是最后一个节点，前序节点已为最新版本，无需额外处理");
-            }
-        } else if (prevRecord == null && nextRecord != null) {
-            // 场景3：删除第一个节点（只有后序节点，无前序节点）
-            log.info("删除的是第一个节点，后序节点自动成为首个节点，生效时间[{}]",
-                    convertToLocalDate(nextRecord.get(DEFAULT_EFFECTIVE_DATE_COLUMN)));
-        } else {
-            // 场景4：删除唯一节点（前后均无节点）
-            log.info("删除的是唯一节点，该业务键在拉链表中已无记录");
-        }
-
-        // 6. 执行删除操作（删除目标版本）
-        zipperTableDao.deleteRecord(meta.getZipperTableDeleteSql(), targetRecord);
+        // 4. 落库拉链表变更
+        writeTimeline(meta, timeline);
+        invalidateAsOfCache(meta, request.getBusinessKeyValues());
         log.info("删除目标版本完成");
 
-
-        // 7. 查找最新生效的数据，更新到业务表
-        final List<Map<String, Object>> historyAfter = zipperTableDao.queryHistory(
-                meta.getZipperTableSelectSql(), request.getBusinessKeyValues());
+        // 5. 根据内存时间线同步业务表
         LocalDate now = LocalDate.now();
-        Map<String, Object> snapshot = pickBusinessSnapshot(historyAfter, now);
+        Map<String, Object> snapshot = timeline.businessSnapshot(now);
         if (snapshot != null) {
             // 拉链表存在当前生效的数据 或者 未来生效的数据
-            LocalDate eff = convertToLocalDate(snapshot.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
-            boolean isFuture = eff != null && eff.isAfter(now);
-            snapshot.put(DEFAULT_EFFECTIVE_STATUS_COLUMN,
-                    isFuture ? DEFAULT_EFFECTIVE_STATUS_FUTURE : DEFAULT_EFFECTIVE_STATUS_CURRENT);
-            // 生效业务数据表保存数据
             zipperBusinessTableDao.updateBusinessNewRecord(meta.getBusinessTableUpdateSql(), snapshot);
-            log.info("插入后同步业务表：生效时间={}, 状态={}", eff, isFuture ? "未来生效" : "当前生效");
+            log.info("删除后同步业务表：生效时间={}, 状态={}", snapshot.get(DEFAULT_EFFECTIVE_DATE_COLUMN), snapshot.get(DEFAULT_EFFECTIVE_STATUS_COLUMN));
         } else {
-            // 没有任何记录，删除业务表数据 这种情况应该不存在了
+            // 该业务键在拉链表中已无记录，删除业务表数据
             zipperBusinessTableDao.deleteBusinessRecord(meta.getBusinessTableDeleteSql(), request.getBusinessKeyValues());
-            log.info("插入后未找到任何记录，已清理业务表数据");
+            log.info("删除后未找到任何记录，已清理业务表数据");
         }
     }
 
@@ -223,139 +145,25 @@ public class ZipperTableService {
         }
         log.info("拉链表公共服务-更新数据-查询拉链表配置信息:{}", meta.toString());
 
-        // 2. 查询该业务键的所有历史版本（带锁，防止并发修改）
-        final List<Map<String, Object>> historyList = zipperTableDao.queryHistory(meta.getZipperTableSelectSql(), request.getBusinessKeyValues());
-        if (historyList.isEmpty()) {
-            throw new IllegalArgumentException("更新失败：该业务键无历史版本");
-        }
+        // 2. 锁定业务键（防止并发修改），加锁读查询该业务键的所有历史版本
+        zipperKeyLockManager.lockUntilTransactionEnd(meta, request.getBusinessKeyValues());
+        final List<Map<String, Object>> historyList = zipperTableDao.queryHistoryForUpdate(meta.getZipperTableSelectSql(), request.getBusinessKeyValues());
         log.info("拉链表公共服务-更新数据-查询历史信息:{}", historyList.toString());
 
-        // 3. 定位目标版本
-        String primaryKeyValue = String.valueOf(request.getBusinessKeyValues().get(meta.getZipperTablePrimaryKey()));
-        Map<String, Object> targetRecord  = findTargetRecordByPrimaryKey(historyList, meta.getZipperTablePrimaryKey(),primaryKeyValue);
-        if (targetRecord == null) {
-            throw new IllegalArgumentException("未找到主键" + primaryKeyValue == null ? "null" : primaryKeyValue.toString()  + "的版本，无法删除");
-        }
+        // 3. 在内存时间线中更新目标版本：生效时间不变只更新业务字段，否则相当于先删除再插入
+        final ZipperTimeline timeline = new ZipperTimeline(historyList);
+        timeline.update(meta.getZipperTablePrimaryKey(), request.getBusinessKeyValues(), request.getEffectiveDate(), meta.getBreakStrategy());
 
-        // 4. 根据情况更新拉链表
-        LocalDate newEffectiveDate = request.getEffectiveDate() == null ? convertToLocalDate(request.getBusinessKeyValues().get(DEFAULT_EFFECTIVE_DATE_COLUMN)) : request.getEffectiveDate();
-        LocalDate originalEffectiveDate = convertToLocalDate(targetRecord.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
-        boolean isEffectiveChanged = !newEffectiveDate.equals(originalEffectiveDate);
-        if (!isEffectiveChanged) {
-            // 情况 A：生效时间没变，只更新业务字段
-            log.info("拉链表公共服务-更新数据-生效时间不变，直接更新业务字段");
-            targetRecord.putAll(request.getBusinessKeyValues());
-            zipperTableDao.updateHistory(meta.getZipperTableUpdateSql(), targetRecord);
-
-        } else {
-            // 情况 B：生效时间改变，相当于先删除，再插入
-            log.info("拉链表公共服务-更新数据-生效时间改变，从 {} -> {}", originalEffectiveDate, newEffectiveDate);
-
-            // 先判断新的生效时间是否有冲突
-            if (hasDuplicateEffectiveDate(historyList, newEffectiveDate)) {
-                throw new IllegalArgumentException("更新失败：已存在生效时间为" + newEffectiveDate + "的版本");
-            }
-
-            //  4.1 查找目标版本的前序节点（prev）和后序节点（next）更新时间，删除当前的信息
-            final NodePair nodePair = findTargetRecordPrevAndNextNodes(historyList, targetRecord);
-            Map<String, Object> prevRecord = nodePair.getPrevRecord();
-            Map<String, Object> nextRecord = nodePair.getNextRecord();
-
-            if (prevRecord != null && nextRecord != null) {
-                // 场景1：删除中间节点（前后均有节点），可能产生间隙，需修复
-                final Integer breakStrategy = meta.getBreakStrategy();
-                log.info("检测到时间间隙，执行修复策略:{}", breakStrategy);
-
-                if (Objects.equals(breakStrategy, DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT)) {
-                    // 策略0：前序节点的终止时间 = 删除节点的终止时间（延伸前序节点）
-                    final LocalDate targetRecordEffectiveEndDate = convertToLocalDate(targetRecord.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN));
-                    prevRecord.put(DEFAULT_EFFECTIVE_DATE_END_COLUMN, targetRecordEffectiveEndDate);
-                    zipperTableDao.updateHistory(meta.getZipperTableUpdateSql(), prevRecord);
-                    log.info("前序节点修复完成-新终止时间:{}", targetRecordEffectiveEndDate);
-                } else {
-                    // 策略1：后序节点的生效时间 = 删除节点的终止时间（后序节点前移）
-                    final LocalDate targetRecordEffectiveEndDate = convertToLocalDate(targetRecord.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN));
-                    nextRecord.put(DEFAULT_EFFECTIVE_DATE_COLUMN, targetRecordEffectiveEndDate);
-                    zipperTableDao.updateHistory(meta.getZipperTableUpdateSql(), nextRecord);
-                    log.info("后序节点修复完成-新生效时间:{}", targetRecordEffectiveEndDate);
-                }
-            } else if (prevRecord != null && nextRecord == null) {
-                // 场景2：删除最后一个节点（只有前序节点，无后序节点）
-                // 检查前序节点是否需要更新为最新版本（终止时间设为MAX_END_DATE）
-                LocalDate prevEndDate = convertToLocalDate(prevRecord.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN));
-                if (!prevEndDate.equals(MAX_END_DATE)) {
-                    prevRecord.put(DEFAULT_EFFECTIVE_DATE_END_COLUMN, MAX_END_DATE);
-                    zipperTableDao.updateHistory(meta.getZipperTableUpdateSql(), prevRecord);
-                    log.info("最后节点删除后，前序节点升级为最新版本，新终止时间[{}]", MAX_END_DATE);
-                } else {
-                    log.info("删除的是最后一个节点，前序节点已为最新版本，无需额外处理");
-                }
-            } else if (prevRecord == null && nextRecord != null) {
-                // 场景3：删除第一个节点（只有后序节点，无前序节点）
-                log.info("删除的是第一个节点，后序节点自动成为首个节点，生效时间[{}]",
-                        convertToLocalDate(nextRecord.get(DEFAULT_EFFECTIVE_DATE_COLUMN)));
-            } else {
-                // 场景4：删除唯一节点（前后均无节点）
-                log.info("删除的是唯一节点，该业务键在拉链表中已无记录");
-            }
+        // 4. 落库拉链表变更
+        writeTimeline(meta, timeline);
+        invalidateAsOfCache(meta, request.getBusinessKeyValues());
 
-            // 删除当前的版本
-            zipperTableDao.deleteRecord(meta.getZipperTableDeleteSql(), targetRecord);
-            log.info("删除目标版本完成");
-
-
-            //  4.2 插入新的版本信息
-            final List<Map<String,Object>> afterDeleteHistoryMap = zipperTableDao.queryHistory(meta.getZipperTableSelectSql(),request.getBusinessKeyValues());
-            Map<String, Object> prev = null;
-            Map<String, Object> next = null;
-            for (Map<String, Object> record : afterDeleteHistoryMap) {
-                LocalDate effectiveDate = convertToLocalDate(record.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
-                LocalDate effectiveEndDate = convertToLocalDate(record.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN));
-                if (effectiveDate.compareTo(newEffectiveDate) <= 0 && effectiveEndDate.compareTo(newEffectiveDate) > 0) {
-                    prev = record; // 找到上一条
-                }
-                if (effectiveDate.compareTo(newEffectiveDate) >= 0) {
-                    next = record; // 找到下一条
-                    break;
-                }
-            }
-
-            // 计算新记录的终止时间
-            LocalDate newEffectiveDateEnd = next != null ? convertToLocalDate(next.get(DEFAULT_EFFECTIVE_DATE_COLUMN)) : MAX_END_DATE;
-
-            // 调整上一条记录的终止时间
-            if (prev != null) {
-                log.info("拉链表公共服务-插入数据-调整上条记录:{}",prev.toString());
-                prev.put(DEFAULT_EFFECTIVE_DATE_END_COLUMN, newEffectiveDate);
-                zipperTableDao.updateHistory(meta.getZipperTableUpdateSql(),prev);
-            }
-
-            // 调整下一条记录的开始时间
-            if (next != null) {
-                log.info("拉链表公共服务-插入数据-调整下条记录:{}",next.toString());
-                next.put(DEFAULT_EFFECTIVE_DATE_COLUMN, newEffectiveDate);
-                zipperTableDao.updateHistory(meta.getZipperTableUpdateSql(),next);
-            }
-
-            // 插入新记录
-            Map<String, Object> newRecord = new HashMap<>(request.getBusinessKeyValues());
-            newRecord.putAll(request.getBusinessKeyValues()); // 携带业务键
-            newRecord.put(DEFAULT_EFFECTIVE_DATE_COLUMN, newEffectiveDate);
-            newRecord.put(DEFAULT_EFFECTIVE_DATE_END_COLUMN, newEffectiveDateEnd);
-            zipperTableDao.insertNewRecord(meta.getZipperTableInsertSql(), newRecord);
-
-            final List<Map<String, Object>> historyAfter = zipperTableDao.queryHistory(
-                    meta.getZipperTableSelectSql(), request.getBusinessKeyValues());
+        // 5. 生效时间改变时，根据内存时间线同步业务表
+        if (!timeline.getInserted().isEmpty()) {
             LocalDate now = LocalDate.now();
-            Map<String, Object> snapshot = pickBusinessSnapshot(historyAfter, now);
-
+            Map<String, Object> snapshot = timeline.businessSnapshot(now);
             if (snapshot != null) {
                 // 拉链表存在当前生效的数据 或者 未来生效的数据
-                LocalDate eff = convertToLocalDate(snapshot.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
-                boolean isFuture = eff != null && eff.isAfter(now);
-                snapshot.put(DEFAULT_EFFECTIVE_STATUS_COLUMN,
-                        isFuture ? DEFAULT_EFFECTIVE_STATUS_FUTURE : DEFAULT_EFFECTIVE_STATUS_CURRENT);
-                // 生效业务数据表保存数据
                 zipperBusinessTableDao.insertBusinessNewRecord(meta.getBusinessTableInsertSql(), snapshot);
             } else {
                 // 没有任何记录，删除业务表数据 这种情况应该不存在了
@@ -366,234 +174,311 @@ public class ZipperTableService {
     }
 
     /**
-     * 将数据库返回的日期对象（java.sql.Date）转换为LocalDate
-     * 处理null和类型不匹配的情况
+     * 时点查询：批量查询多个业务键在指定日期生效的版本
+     * <p>
+     * 业务键按块拼成一条区间条件的SQL（effective_date &lt;= 查询日期 &lt; effective_end_date），
+     * 返回的流是惰性的，消费到哪一块才查询哪一块，调用方无需一次性持有全部结果。
+     * 指定日期没有生效版本的业务键不出现在结果中。
+     * </p>
+     * @param tableName 拉链表名
+     * @param businessKeyValues 业务键列表（如[{jobCode: "DEV001"}, {jobCode: "DEV002"}]），重复的业务键只查询一次
+     * @param asOfDate 查询日期
+     * @return 各业务键在查询日期生效的版本
      */
-    private static LocalDate convertToLocalDate(Object dateObj) {
-        if (dateObj == null) {
-            return null;
+    public Stream<Map<String, Object>> queryAsOf(String tableName, List<Map<String, Object>> businessKeyValues, LocalDate asOfDate) {
+        final ZipperTableMeta meta = zipperTableMetaService.getByTableName(tableName);
+        if (meta == null) {
+            throw new IllegalArgumentException("拉链表[" + tableName + "]不存在");
         }
-        if (dateObj instanceof Date) {
-            // 数据库返回的java.sql.Date转换为LocalDate
-            return ((Date) dateObj).toLocalDate();
-        } else if (dateObj instanceof LocalDate) {
-            // 已转换过的LocalDate直接返回
-            return (LocalDate) dateObj;
-        } else {
-            // 其他类型抛出异常（避免隐性错误）
-            throw new IllegalArgumentException("不支持的日期类型：" + dateObj.getClass().getName() + "，无法转换为LocalDate");
+        if (!StringUtils.hasText(meta.getZipperTableAsOfSelectSql())) {
+            throw new IllegalArgumentException("拉链表[" + tableName + "]未配置时点查询SQL(zipper_table_as_of_select_sql)");
         }
-    }
-
-    /**
-     * 私有静态方法：校验历史记录中是否存在相同的生效时间
-     * @param historyMap 历史版本列表
-     * @param newEffectiveDate 待校验的新生效时间
-     * @return 是否存在重复（true=存在重复，false=不存在）
-     */
-    private static boolean hasDuplicateEffectiveDate(List<Map<String, Object>> historyMap, LocalDate newEffectiveDate) {
-        if (newEffectiveDate == null) {
-            throw new IllegalArgumentException("待校验的生效时间不能为空");
+        if (asOfDate == null) {
+            throw new IllegalArgumentException("查询日期不能为空");
         }
-        if (historyMap == null || historyMap.isEmpty()) {
-            return false; // 无历史记录，自然不存在重复
+        final ZipperProperties.AsOf asOfProperties = zipperProperties.getAsOf();
+        if (businessKeyValues.size() > asOfProperties.getMaxKeys()) {
+            throw new IllegalArgumentException("单次时点查询的业务键不能超过" + asOfProperties.getMaxKeys() + "个");
         }
 
-        for (Map<String, Object> record : historyMap) {
-            LocalDate existingEffectiveDate = convertToLocalDate(record.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
-            // 若历史记录中存在与新生效时间相同的记录，返回true
-            if (newEffectiveDate.equals(existingEffectiveDate)) {
-                return true;
-            }
+        final List<String> businessKeyColumns = ZipperBusinessKey.columnsOf(meta);
+        Set<ZipperBusinessKey> businessKeys = new LinkedHashSet<>();
+        for (Map<String, Object> values : businessKeyValues) {
+            businessKeys.add(ZipperBusinessKey.of(businessKeyColumns, values));
         }
-        return false;
+        return Lists.partition(new ArrayList<>(businessKeys), Math.max(1, asOfProperties.getChunkSize())).stream()
+                .flatMap(chunk -> queryAsOfChunk(meta, businessKeyColumns, chunk, asOfDate).stream());
     }
 
+    private List<Map<String, Object>> queryAsOfChunk(ZipperTableMeta meta, List<String> businessKeyColumns,
+                                                     List<ZipperBusinessKey> chunk, LocalDate asOfDate) {
+        final String tableName = meta.getZipperTableName();
+        List<Map<String, Object>> versions = new ArrayList<>(chunk.size());
+
+        // 1. 先从缓存中取，未命中的业务键再查库；查库前记下缓存版本号，查库期间被失效的结果不回填
+        List<ZipperBusinessKey> missedKeys = chunk;
+        long[] generations = null;
+        if (zipperAsOfCache.isEnabled()) {
+            missedKeys = new ArrayList<>();
+            generations = new long[chunk.size()];
+            for (ZipperBusinessKey businessKey : chunk) {
+                long generation = zipperAsOfCache.generation(tableName, businessKey);
+                Optional<Map<String, Object>> cached = zipperAsOfCache.get(tableName, businessKey, asOfDate);
+                if (cached == null) {
+                    generations[missedKeys.size()] = generation;
+                    missedKeys.add(businessKey);
+                } else {
+                    cached.ifPresent(versions::add);
+                }
+            }
+            if (missedKeys.isEmpty()) {
+                return versions;
+            }
+        }
+
+        // 2. 一条SQL查询所有未命中业务键在查询日期生效的版本
+        List<Map<String, Object>> keys = new ArrayList<>(missedKeys.size());
+        for (ZipperBusinessKey businessKey : missedKeys) {
+            keys.add(businessKey.toParams());
+        }
+        Map<String, Object> params = new HashMap<>();
+        params.put(ZipperTableDao.BUSINESS_KEYS, keys);
+        params.put(ZipperTableDao.AS_OF_DATE, asOfDate);
+        List<Map<String, Object>> found = zipperTableDao.queryAsOf(meta.getZipperTableAsOfSelectSql(), params);
+        if (!zipperAsOfCache.isEnabled()) {
+            versions.addAll(found);
+            return versions;
+        }
 
+        // 3. 回填缓存（缓存的版本不可修改，调用方拿到的也是同一份），没有生效版本的业务键同样缓存
+        Map<ZipperBusinessKey, Map<String, Object>> foundByKey = new HashMap<>();
+        for (Map<String, Object> version : found) {
+            Map<String, Object> readOnlyVersion = Collections.unmodifiableMap(version);
+            foundByKey.put(ZipperBusinessKey.of(businessKeyColumns, version), readOnlyVersion);
+            versions.add(readOnlyVersion);
+        }
+        for (int i = 0; i < missedKeys.size(); i++) {
+            ZipperBusinessKey businessKey = missedKeys.get(i);
+            zipperAsOfCache.put(tableName, businessKey, asOfDate, Optional.ofNullable(foundByKey.get(businessKey)), generations[i]);
+        }
+        return versions;
+    }
 
     /**
-     * 根据主键名称和值，在历史记录列表中查找匹配的记录
-     * @param historyList 历史记录列表
-     * @param primaryKeyName 主键名称
-     * @param primaryKeyValue 主键值
-     * @return 匹配的记录，如果没有匹配的记录，返回null
+     * 写入后失效该业务键的时点查询缓存
      */
-    private static Map<String, Object> findTargetRecordByPrimaryKey(List<Map<String, Object>> historyList,String primaryKeyName, String primaryKeyValue){
-        Map<String, Object> targetRecord = null;
-        for (Map<String, Object> record : historyList) {
-            // 获取当前记录的主键值
-            Object recordPrimaryValue = record.get(primaryKeyName);
-            // 跳过主键值为null的记录（无效数据）
-            if (recordPrimaryValue == null) {
-                continue;
-            }
-            // 转换记录值为字符串，与目标值比较
-            String recordValueStr = String.valueOf(recordPrimaryValue);
-            if (recordValueStr.equals(primaryKeyValue)) {
-                targetRecord = record;
-                break;
-            }
+    private void invalidateAsOfCache(ZipperTableMeta meta, Map<String, Object> businessValues) {
+        if (zipperAsOfCache.isEnabled() && StringUtils.hasText(meta.getZipperTableBusinessKey())) {
+            zipperAsOfCache.invalidateAfterTransaction(meta.getZipperTableName(),
+                    ZipperBusinessKey.of(ZipperBusinessKey.columnsOf(meta), businessValues));
         }
-        return targetRecord;
     }
 
     /**
-     * 根据生效时间，在历史记录列表中查找前后节点
-     * @param historyMap 历史记录列表（有序）
-     * @param newEffectiveDate 新生效时间
-     * @return
+     * 将单个业务键时间线中记录的变更写入拉链表，写入后回填新增版本的自增主键
+     * @param meta 拉链表元信息
+     * @param timeline 已应用变更的时间线
      */
-    private static NodePair findPrevAndNextByDate(
-            List<Map<String, Object>> historyMap,
-            LocalDate newEffectiveDate) {
-        // 校验输入参数
-        if (newEffectiveDate == null) {
-            throw new IllegalArgumentException("生效时间不能为空");
-        }
-        if (historyMap == null || historyMap.isEmpty()) {
-            return new NodePair(null, null); // 无历史记录，前后节点均为null
-        }
-        Map<String, Object> prev = null;
-        Map<String, Object> next = null;
-        for (Map<String, Object> record : historyMap) {
-            LocalDate effectiveDate = convertToLocalDate(record.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
-            LocalDate effectiveEndDate = convertToLocalDate(record.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN));
-
-            // 过滤无效记录（日期为空或区间无效）
-            if (effectiveDate == null || effectiveEndDate == null ||
-                    effectiveDate.isAfter(effectiveEndDate)) {
-                continue;
-            }
-
-            // 查找前序节点：生效时间 <= 新生效时间 且 终止时间 > 新生效时间
-            if (effectiveDate.compareTo(newEffectiveDate) <= 0 &&
-                    effectiveEndDate.compareTo(newEffectiveDate) > 0) {
-                prev = record;
-            }
-
-            // 查找后序节点：生效时间 >= 新生效时间（找到第一个即跳出）
-            if (effectiveDate.compareTo(newEffectiveDate) >= 0) {
-                next = record;
-                break;
-            }
+    private void writeTimeline(ZipperTableMeta meta, ZipperTimeline timeline) {
+        for (Map<String, Object> record : timeline.getDeleted()) {
+            zipperTableDao.deleteRecord(meta.getZipperTableDeleteSql(), record);
         }
-
-        return new NodePair(prev, next);
-
+        for (Map<String, Object> record : timeline.getUpdated()) {
+            log.info("拉链表公共服务-调整记录:{}", record);
+            zipperTableDao.updateHistory(meta.getZipperTableUpdateSql(), record);
+        }
+        for (Map<String, Object> record : timeline.getInserted()) {
+            zipperTableDao.insertNewRecord(meta.getZipperTableInsertSql(), record);
+        }
+        timeline.applyGeneratedKeys(meta.getZipperTablePrimaryKey());
     }
 
-
     /**
-     * 封装：查找目标节点的前序和后序节点
-     * @param historyList 所有历史记录
-     * @param targetRecord 目标节点
-     * @return 包含前序和后序节点的对象
+     * 批量变更拉链表
+     * <p>
+     * 按业务键分组后分块处理，每块一个事务：一条SQL批量查询本块所有业务键的历史，
+     * 在内存中按请求顺序依次应用变更、重算区间，最后把新增/更新/删除以及业务表同步分别按JDBC批处理刷入数据库。
+     * 某个业务键的变更校验失败时，只跳过该业务键并记录原因，不影响同一块中的其他业务键。
+     * </p>
+     * @param request 批量变更请求
+     * @return 处理结果
      */
-    private static NodePair findTargetRecordPrevAndNextNodes(
-            List<Map<String, Object>> historyList,
-            Map<String, Object> targetRecord) {
-
-        // 获取目标节点的时间区间
-        LocalDate originEffectiveDate = convertToLocalDate(targetRecord.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
-        LocalDate originEffectiveEndDate = convertToLocalDate(targetRecord.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN));
-
-        // 校验目标节点日期有效性
-        if (originEffectiveDate == null || originEffectiveEndDate == null) {
-            throw new IllegalArgumentException("目标节点的生效时间或终止时间不能为空");
+    public ZipperBatchResult applyBatch(ZipperTableBatchDTO request) {
+        // 1. 获取表元信息（在事务外查询，批量事务中只能使用BATCH执行器）
+        final ZipperTableMeta meta = zipperTableMetaService.getByTableName(request.getZipperTableName());
+        if (meta == null) {
+            throw new IllegalArgumentException("拉链表[" + request.getZipperTableName() + "]不存在");
+        }
+        if (!StringUtils.hasText(meta.getZipperTableBatchSelectSql())) {
+            throw new IllegalArgumentException("拉链表[" + meta.getZipperTableName() + "]未配置批量查询SQL(zipper_table_batch_select_sql)");
+        }
+        final List<String> businessKeyColumns = ZipperBusinessKey.columnsOf(meta);
+        final ZipperProperties.Batch batchProperties = zipperProperties.getBatch();
+        final List<ZipperTableChangeDTO> changes = request.getChanges();
+        if (changes.size() > batchProperties.getMaxChanges()) {
+            throw new IllegalArgumentException("单次批量变更不能超过" + batchProperties.getMaxChanges() + "条");
         }
 
-        Map<String, Object> prevRecord = null;
-        Map<String, Object> nextRecord = null;
-
-        for (Map<String, Object> record : historyList) {
-            // 跳过目标节点自身
-            if (record == targetRecord) {
-                continue;
+        ZipperBatchResult result = new ZipperBatchResult();
+        result.setTotalChanges(changes.size());
+
+        // 2. 按业务键分组，保持请求中的先后顺序
+        Map<ZipperBusinessKey, List<ZipperTableChangeDTO>> changesByKey = new LinkedHashMap<>();
+        for (int i = 0; i < changes.size(); i++) {
+            ZipperTableChangeDTO change = changes.get(i);
+            try {
+                ZipperBusinessKey key = ZipperBusinessKey.of(businessKeyColumns, change.getBusinessKeyValues());
+                changesByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(change);
+            } catch (IllegalArgumentException e) {
+                result.getFailures().add(new ZipperBatchResult.Failure("#" + i, e.getMessage()));
             }
+        }
+        result.setTotalKeys(changesByKey.size());
+        log.info("拉链表公共服务-批量变更-表:{}，变更:{}条，业务键:{}个", meta.getZipperTableName(), changes.size(), changesByKey.size());
+
+        // 3. 分块处理，每块一个事务；某一块写库失败（加锁超时、约束冲突等）时整块回滚，该块业务键记为失败，继续处理后续块
+        final int chunkSize = Math.max(1, batchProperties.getChunkSize());
+        List<Map.Entry<ZipperBusinessKey, List<ZipperTableChangeDTO>>> entries = new ArrayList<>(changesByKey.entrySet());
+        for (int from = 0; from < entries.size(); from += chunkSize) {
+            List<Map.Entry<ZipperBusinessKey, List<ZipperTableChangeDTO>>> chunk =
+                    entries.subList(from, Math.min(from + chunkSize, entries.size()));
+            // 块内结果在事务提交后才合并，回滚的块不会留下已计入的版本数
+            ZipperBatchResult chunkResult = new ZipperBatchResult();
+            try {
+                transactionTemplate.executeWithoutResult(status -> applyChunk(meta, businessKeyColumns, chunk, chunkResult));
+                result.merge(chunkResult);
+            } catch (RuntimeException e) {
+                log.error("拉链表公共服务-批量变更-表:{}，第{}~{}个业务键写入失败，已回滚", meta.getZipperTableName(),
+                        from + 1, from + chunk.size(), e);
+                // 校验阶段已失败的业务键保留原因，其余业务键记为写入失败
+                result.getFailures().addAll(chunkResult.getFailures());
+                Set<String> failedKeys = new HashSet<>();
+                for (ZipperBatchResult.Failure failure : chunkResult.getFailures()) {
+                    failedKeys.add(failure.getBusinessKey());
+                }
+                for (Map.Entry<ZipperBusinessKey, List<ZipperTableChangeDTO>> entry : chunk) {
+                    String businessKey = entry.getKey().toString();
+                    if (!failedKeys.contains(businessKey)) {
+                        result.getFailures().add(new ZipperBatchResult.Failure(businessKey, "写入失败：" + e.getMessage()));
+                    }
+                }
+            }
+        }
+        log.info("拉链表公共服务-批量变更-完成，成功业务键:{}个，新增:{}，更新:{}，删除:{}，失败:{}",
+                result.getSucceededKeys(), result.getInsertedVersions(), result.getUpdatedVersions(),
+                result.getDeletedVersions(), result.getFailures().size());
+        return result;
+    }
 
-            // 获取当前记录的时间区间
-            LocalDate effectiveDate = convertToLocalDate(record.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
-            LocalDate effectiveEndDate = convertToLocalDate(record.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN));
+    private void applyChunk(ZipperTableMeta meta, List<String> businessKeyColumns,
+                            List<Map.Entry<ZipperBusinessKey, List<ZipperTableChangeDTO>>> chunk,
+                            ZipperBatchResult result) {
+        final ZipperTableDao batchZipperTableDao = zipperBatchDaoSupport.getZipperTableDao();
+        final ZipperBusinessTableDao batchBusinessTableDao = zipperBatchDaoSupport.getZipperBusinessTableDao();
+
+        // 1. 锁定本块所有业务键，一次加锁读查询它们的历史版本，并按业务键归组
+        List<ZipperBusinessKey> businessKeys = new ArrayList<>(chunk.size());
+        List<Map<String, Object>> keys = new ArrayList<>(chunk.size());
+        for (Map.Entry<ZipperBusinessKey, List<ZipperTableChangeDTO>> entry : chunk) {
+            businessKeys.add(entry.getKey());
+            keys.add(entry.getKey().toParams());
+        }
+        zipperKeyLockManager.lockUntilTransactionEnd(meta.getZipperTableName(), businessKeys);
+        Map<String, Object> params = new HashMap<>();
+        params.put(ZipperTableDao.BUSINESS_KEYS, keys);
+        Map<ZipperBusinessKey, List<Map<String, Object>>> historyByKey = new HashMap<>();
+        for (Map<String, Object> record : batchZipperTableDao.queryHistoryBatchForUpdate(meta.getZipperTableBatchSelectSql(), params)) {
+            historyByKey.computeIfAbsent(ZipperBusinessKey.of(businessKeyColumns, record), k -> new ArrayList<>()).add(record);
+        }
 
-            // 过滤无效记录
-            if (effectiveDate == null || effectiveEndDate == null) {
-                continue;
+        // 2. 在内存中依次应用变更，失败的业务键（包括历史数据本身有问题的）整体跳过，不影响同一块中的其他业务键
+        Map<ZipperBusinessKey, ZipperTimeline> timelines = new LinkedHashMap<>();
+        for (Map.Entry<ZipperBusinessKey, List<ZipperTableChangeDTO>> entry : chunk) {
+            try {
+                ZipperTimeline timeline = new ZipperTimeline(historyByKey.getOrDefault(entry.getKey(), Collections.emptyList()));
+                for (ZipperTableChangeDTO change : entry.getValue()) {
+                    applyChange(meta, timeline, change);
+                }
+                timelines.put(entry.getKey(), timeline);
+            } catch (IllegalArgumentException e) {
+                result.getFailures().add(new ZipperBatchResult.Failure(entry.getKey().toString(), e.getMessage()));
             }
+        }
 
-            // 匹配前序节点（前序终止时间 = 目标生效时间）
-            if (effectiveEndDate.equals(originEffectiveDate)) {
-                prevRecord = record;
+        // 3. 拉链表变更按 删除 -> 更新 -> 新增 的顺序批量刷库，避免区间调整过程中的唯一约束冲突
+        for (ZipperTimeline timeline : timelines.values()) {
+            for (Map<String, Object> record : timeline.getDeleted()) {
+                batchZipperTableDao.deleteRecord(meta.getZipperTableDeleteSql(), record);
             }
-
-            // 匹配后序节点（后序生效时间 = 目标终止时间）
-            if (effectiveDate.equals(originEffectiveEndDate)) {
-                nextRecord = record;
+        }
+        for (ZipperTimeline timeline : timelines.values()) {
+            for (Map<String, Object> record : timeline.getUpdated()) {
+                batchZipperTableDao.updateHistory(meta.getZipperTableUpdateSql(), record);
             }
-
-            // 找到所有需要的节点后提前退出
-            if (prevRecord != null && nextRecord != null) {
-                break;
+        }
+        for (ZipperTimeline timeline : timelines.values()) {
+            for (Map<String, Object> record : timeline.getInserted()) {
+                batchZipperTableDao.insertNewRecord(meta.getZipperTableInsertSql(), record);
             }
         }
+        zipperBatchDaoSupport.flushStatements();
 
-        return new NodePair(prevRecord, nextRecord);
-    }
-
-
-    /**
-     * 辅助类：用于封装前序和后序节点的结果
-     */
-    private static class NodePair {
-        private final Map<String, Object> prevRecord;
-        private final Map<String, Object> nextRecord;
-
-        public NodePair(Map<String, Object> prevRecord, Map<String, Object> nextRecord) {
-            this.prevRecord = prevRecord;
-            this.nextRecord = nextRecord;
+        // 4. 根据内存中的时间线同步业务表，无需重新查询历史
+        LocalDate now = LocalDate.now();
+        for (Map.Entry<ZipperBusinessKey, ZipperTimeline> entry : timelines.entrySet()) {
+            ZipperTimeline timeline = entry.getValue();
+            timeline.applyGeneratedKeys(meta.getZipperTablePrimaryKey());
+            Map<String, Object> snapshot = timeline.businessSnapshot(now);
+            if (snapshot != null) {
+                batchBusinessTableDao.insertBusinessNewRecord(meta.getBusinessTableInsertSql(), snapshot);
+            } else {
+                batchBusinessTableDao.deleteBusinessRecord(meta.getBusinessTableDeleteSql(), entry.getKey().toParams());
+            }
+            result.setInsertedVersions(result.getInsertedVersions() + timeline.getInserted().size());
+            result.setUpdatedVersions(result.getUpdatedVersions() + timeline.getUpdated().size());
+            result.setDeletedVersions(result.getDeletedVersions() + timeline.getDeleted().size());
         }
-
-        public Map<String, Object> getPrevRecord() {
-            return prevRecord;
+        zipperBatchDaoSupport.flushStatements();
+        for (ZipperBusinessKey businessKey : timelines.keySet()) {
+            zipperAsOfCache.invalidateAfterTransaction(meta.getZipperTableName(), businessKey);
         }
+        result.setSucceededKeys(result.getSucceededKeys() + timelines.size());
+    }
 
-        public Map<String, Object> getNextRecord() {
-            return nextRecord;
+    private static void applyChange(ZipperTableMeta meta, ZipperTimeline timeline, ZipperTableChangeDTO change) {
+        switch (change.getOperation()) {
+            case ADD:
+                timeline.insert(change.getBusinessKeyValues(), change.getEffectiveDate());
+                break;
+            case UPDATE:
+                timeline.update(meta.getZipperTablePrimaryKey(), change.getBusinessKeyValues(), change.getEffectiveDate(), meta.getBreakStrategy());
+                break;
+            case DELETE:
+                timeline.delete(meta.getZipperTablePrimaryKey(), change.getBusinessKeyValues(), meta.getBreakStrategy());
+                break;
+            default:
+                throw new IllegalArgumentException("不支持的变更类型：" + change.getOperation());
         }
     }
 
-
     /**
-     * 选择一条用于业务表镜像的记录：
-     * 1) 优先：当前生效（eff <= now < end）且 eff 最大；
-     * 2) 否则：未来版本（eff > now）且 eff 最小；
-     * 3) 否则：返回 null。
+     * 将数据库返回的日期对象（java.sql.Date）转换为LocalDate
+     * 处理null和类型不匹配的情况
      */
-    private Map<String, Object> pickBusinessSnapshot(List<Map<String, Object>> historyList, LocalDate now) {
-        Map<String, Object> bestCurrent = null;
-        Map<String, Object> bestFuture = null;
-        for (Map<String, Object> rec : historyList) {
-            LocalDate eff = convertToLocalDate(rec.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
-            LocalDate end = convertToLocalDate(rec.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN));
-            if (eff == null || end == null) continue;
-
-            boolean isCurrent = eff.compareTo(now) <= 0 && end.compareTo(now) > 0;
-            if (isCurrent) {
-                if (bestCurrent == null) {
-                    bestCurrent = rec;
-                } else {
-                    LocalDate curEff = convertToLocalDate(bestCurrent.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
-                    if (eff.isAfter(curEff)) bestCurrent = rec;
-                }
-            } else if (eff.isAfter(now)) {
-                if (bestFuture == null) {
-                    bestFuture = rec;
-                } else {
-                    LocalDate curEff = convertToLocalDate(bestFuture.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
-                    if (eff.isBefore(curEff)) bestFuture = rec;
-                }
-            }
+    static LocalDate convertToLocalDate(Object dateObj) {
+        if (dateObj == null) {
+            return null;
+        }
+        if (dateObj instanceof Date) {
+            // 数据库返回的java.sql.Date转换为LocalDate
+            return ((Date) dateObj).toLocalDate();
+        } else if (dateObj instanceof LocalDate) {
+            // 已转换过的LocalDate直接返回
+            return (LocalDate) dateObj;
+        } else {
+            // 其他类型抛出异常（避免隐性错误）
+            throw new IllegalArgumentException("不支持的日期类型：" + dateObj.getClass().getName() + "，无法转换为LocalDate");
         }
-        return bestCurrent != null ? bestCurrent : bestFuture;
     }
 
 
@@ -0,0 +1,316 @@
+package org.wnn.portal.pub.service;
+
+import org.wnn.portal.pub.dao.ZipperTableDao;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.wnn.portal.pub.service.ZipperTableService.*;
+
+/**
+ * 单个业务键的拉链时间线（内存模型）
+ * <p>
+ * 按生效时间升序持有该业务键的全部版本，新增/更新/删除只在内存中重算前后节点的区间，
+ * 同时记录需要落库的变更（新增、更新、删除的版本），由调用方统一刷入数据库。
+ * 同一版本在一次处理中先新增后修改只会产生一次插入，先新增后删除则不会产生任何SQL。
+ * </p>
+ * <p>
+ * 前后节点按排序后的位置确定，而不是依赖“前序终止时间 = 目标生效时间”的相等匹配，
+ * 历史数据存在间隙时也能找到正确的相邻节点。版本的日期以 epoch day 保存（见 {@link ZipperVersion}），
+ * 按生效时间定位插入位置、校验重复、选取业务表镜像都是二分查找。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+class ZipperTimeline {
+
+    private static final Comparator<ZipperVersion> BY_EFFECTIVE_DAY = Comparator.comparingLong(ZipperVersion::effectiveDay);
+
+    private final List<ZipperVersion> versions;
+    private final Set<ZipperVersion> inserted = new LinkedHashSet<>();
+    private final Set<ZipperVersion> updated = new LinkedHashSet<>();
+    private final List<ZipperVersion> deleted = new ArrayList<>();
+
+    ZipperTimeline(List<Map<String, Object>> history) {
+        this.versions = new ArrayList<>(history.size() + 1);
+        for (Map<String, Object> record : history) {
+            this.versions.add(ZipperVersion.of(record));
+        }
+        this.versions.sort(BY_EFFECTIVE_DAY);
+    }
+
+    /**
+     * 新增一个版本：前序节点的终止时间截断为新生效时间，新版本的终止时间为后序节点的生效时间
+     * @param businessValues 业务信息
+     * @param newEffectiveDate 新版本的生效时间
+     */
+    void insert(Map<String, Object> businessValues, LocalDate newEffectiveDate) {
+        if (newEffectiveDate == null) {
+            throw new IllegalArgumentException("生效时间不能为空");
+        }
+        long newEffectiveDay = newEffectiveDate.toEpochDay();
+        int index = search(newEffectiveDay);
+        if (index >= 0) {
+            throw new IllegalArgumentException("新增失败：已存在生效时间为" + newEffectiveDate + "的版本，禁止重复插入");
+        }
+        // 第一个生效时间晚于新生效时间的位置，即新版本的插入位置
+        index = -index - 1;
+
+        ZipperVersion prev = index > 0 ? versions.get(index - 1) : null;
+        ZipperVersion next = index < versions.size() ? versions.get(index) : null;
+
+        // 前序节点覆盖新生效时间时，截断其终止时间
+        if (prev != null && prev.effectiveEndDay() > newEffectiveDay) {
+            prev.setEffectiveEndDay(newEffectiveDay);
+            markUpdated(prev);
+        }
+
+        ZipperVersion newVersion = ZipperVersion.create(businessValues, newEffectiveDay,
+                next != null ? next.effectiveDay() : ZipperVersion.MAX_END_DAY);
+        versions.add(index, newVersion);
+        inserted.add(newVersion);
+    }
+
+    /**
+     * 更新一个版本：生效时间不变时只更新业务字段，否则相当于先删除再插入
+     * @param primaryKeyName 主键字段名称
+     * @param businessValues 业务信息（需包含主键）
+     * @param newEffectiveDate 新生效时间，为空时取业务信息中的生效时间
+     * @param breakStrategy 断裂修复策略
+     */
+    void update(String primaryKeyName, Map<String, Object> businessValues, LocalDate newEffectiveDate, Integer breakStrategy) {
+        if (versions.isEmpty()) {
+            throw new IllegalArgumentException("更新失败：该业务键无历史版本");
+        }
+        String primaryKeyValue = String.valueOf(businessValues.get(primaryKeyName));
+        int targetIndex = indexOfPrimaryKey(primaryKeyName, primaryKeyValue);
+        if (targetIndex < 0) {
+            throw new IllegalArgumentException("未找到主键[" + primaryKeyValue + "]的版本，无法更新");
+        }
+        ZipperVersion target = versions.get(targetIndex);
+
+        LocalDate effectiveDate = newEffectiveDate != null ? newEffectiveDate
+                : convertToLocalDate(businessValues.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
+        if (effectiveDate == null) {
+            throw new IllegalArgumentException("生效时间不能为空");
+        }
+
+        if (effectiveDate.toEpochDay() == target.effectiveDay()) {
+            // 情况 A：生效时间没变，只更新业务字段，区间保持不变
+            target.putAll(businessValues);
+            markUpdated(target);
+            return;
+        }
+
+        // 情况 B：生效时间改变，相当于先删除，再插入
+        if (search(effectiveDate.toEpochDay()) >= 0) {
+            throw new IllegalArgumentException("更新失败：已存在生效时间为" + effectiveDate + "的版本");
+        }
+        remove(targetIndex, breakStrategy);
+        insert(businessValues, effectiveDate);
+    }
+
+    /**
+     * 删除一个版本，并按断裂修复策略修复前后节点的区间
+     * @param primaryKeyName 主键字段名称
+     * @param businessValues 业务信息（需包含主键）
+     * @param breakStrategy 断裂修复策略
+     */
+    void delete(String primaryKeyName, Map<String, Object> businessValues, Integer breakStrategy) {
+        if (versions.isEmpty()) {
+            throw new IllegalArgumentException("未查询到该业务键的历史记录，无法删除");
+        }
+        String primaryKeyValue = String.valueOf(businessValues.get(primaryKeyName));
+        int targetIndex = indexOfPrimaryKey(primaryKeyName, primaryKeyValue);
+        if (targetIndex < 0) {
+            throw new IllegalArgumentException("未找到主键[" + primaryKeyValue + "]的版本，无法删除");
+        }
+        remove(targetIndex, breakStrategy);
+    }
+
+    private void remove(int index, Integer breakStrategy) {
+        ZipperVersion target = versions.get(index);
+        ZipperVersion prev = index > 0 ? versions.get(index - 1) : null;
+        ZipperVersion next = index < versions.size() - 1 ? versions.get(index + 1) : null;
+
+        if (prev != null && next != null) {
+            // 场景1：删除中间节点，按断裂修复策略补齐区间
+            if (Objects.equals(breakStrategy, DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT)) {
+                // 策略0：前序节点的终止时间 = 删除节点的终止时间（延伸前序节点）
+                prev.setEffectiveEndDay(target.effectiveEndDay());
+                markUpdated(prev);
+            } else {
+                // 策略1：后序节点的生效时间 = 删除节点的生效时间（后序节点前移）
+                next.setEffectiveDay(target.effectiveDay());
+                markUpdated(next);
+            }
+        } else if (prev != null) {
+            // 场景2：删除最后一个节点，前序节点升级为最新版本
+            if (prev.effectiveEndDay() != ZipperVersion.MAX_END_DAY) {
+                prev.setEffectiveEndDay(ZipperVersion.MAX_END_DAY);
+                markUpdated(prev);
+            }
+        }
+        // 场景3/4：删除第一个节点或唯一节点，无需调整其他节点
+
+        versions.remove(index);
+        updated.remove(target);
+        if (!inserted.remove(target)) {
+            deleted.add(target);
+        }
+    }
+
+    /**
+     * 修复相邻版本之间的区间：间隙按断裂修复策略补齐，重叠时截断前序节点的终止时间（后生效的版本优先，与新增版本一致）
+     * <p>
+     * 存在重复生效时间的版本时无法判断应保留哪个，不做任何修改。
+     * </p>
+     * @param breakStrategy 断裂修复策略
+     * @return 是否已修复（存在重复生效时间时返回false）
+     */
+    boolean repairIntervals(Integer breakStrategy) {
+        for (int i = 1; i < versions.size(); i++) {
+            if (versions.get(i).effectiveDay() == versions.get(i - 1).effectiveDay()) {
+                return false;
+            }
+        }
+        for (int i = 1; i < versions.size(); i++) {
+            ZipperVersion prev = versions.get(i - 1);
+            ZipperVersion next = versions.get(i);
+            if (prev.effectiveEndDay() == next.effectiveDay()) {
+                continue;
+            }
+            boolean isGap = prev.effectiveEndDay() < next.effectiveDay();
+            if (isGap && Objects.equals(breakStrategy, DEFAULT_ZIPPER_BREAK_STRATEGY_RIGHT)
+                    && prev.effectiveEndDay() > prev.effectiveDay()) {
+                // 策略1：后序节点的生效时间前移到前序节点的终止时间
+                next.setEffectiveDay(prev.effectiveEndDay());
+                markUpdated(next);
+            } else {
+                // 策略0或区间重叠：前序节点的终止时间 = 后序节点的生效时间
+                prev.setEffectiveEndDay(next.effectiveDay());
+                markUpdated(prev);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 计算业务表镜像：当前生效的版本优先，否则取最早的未来版本，并标记生效状态
+     * <p>
+     * 区间连续时，当前生效的只可能是最后一个生效时间不晚于今天的版本，最早的未来版本紧随其后，二分定位即可。
+     * </p>
+     * @param now 当前日期
+     * @return 业务表镜像（新的Map，不影响时间线中的版本），无可用版本时返回null
+     */
+    Map<String, Object> businessSnapshot(LocalDate now) {
+        long today = now.toEpochDay();
+        // 第一个生效时间晚于今天的位置
+        int index = search(today + 1);
+        index = index >= 0 ? index : -index - 1;
+        if (index > 0 && versions.get(index - 1).covers(today)) {
+            return snapshotOf(versions.get(index - 1), DEFAULT_EFFECTIVE_STATUS_CURRENT);
+        }
+        if (index < versions.size()) {
+            return snapshotOf(versions.get(index), DEFAULT_EFFECTIVE_STATUS_FUTURE);
+        }
+        return null;
+    }
+
+    /**
+     * 计算业务表镜像，没有当前或未来版本时取最后一个版本并标记为已失效
+     * @param now 当前日期
+     * @return 业务表镜像，时间线为空时返回null
+     */
+    Map<String, Object> businessSnapshotOrExpired(LocalDate now) {
+        Map<String, Object> snapshot = businessSnapshot(now);
+        if (snapshot != null || versions.isEmpty()) {
+            return snapshot;
+        }
+        return snapshotOf(versions.get(versions.size() - 1), DEFAULT_EFFECTIVE_STATUS_EXPIRED);
+    }
+
+    /**
+     * 插入语句刷库后，把数据库回填的自增主键转存到元信息配置的主键字段上
+     * @param primaryKeyName 主键字段名称
+     */
+    void applyGeneratedKeys(String primaryKeyName) {
+        for (ZipperVersion version : inserted) {
+            Map<String, Object> record = version.record();
+            Object generatedKey = record.remove(ZipperTableDao.GENERATED_KEY);
+            if (generatedKey != null) {
+                record.put(primaryKeyName, generatedKey);
+            }
+        }
+    }
+
+    Collection<Map<String, Object>> getInserted() {
+        return recordsOf(inserted);
+    }
+
+    Collection<Map<String, Object>> getUpdated() {
+        return recordsOf(updated);
+    }
+
+    Collection<Map<String, Object>> getDeleted() {
+        return recordsOf(deleted);
+    }
+
+    private void markUpdated(ZipperVersion version) {
+        if (!inserted.contains(version)) {
+            updated.add(version);
+        }
+    }
+
+    /**
+     * 按生效时间二分查找
+     * @return 生效时间相同的版本下标；不存在时返回 -(插入位置) - 1，插入位置为第一个生效时间更晚的版本
+     */
+    private int search(long effectiveDay) {
+        int low = 0;
+        int high = versions.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleDay = versions.get(middle).effectiveDay();
+            if (middleDay < effectiveDay) {
+                low = middle + 1;
+            } else if (middleDay > effectiveDay) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private int indexOfPrimaryKey(String primaryKeyName, String primaryKeyValue) {
+        for (int i = 0; i < versions.size(); i++) {
+            if (versions.get(i).hasPrimaryKey(primaryKeyName, primaryKeyValue)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Map<String, Object> snapshotOf(ZipperVersion version, int effectiveStatus) {
+        Map<String, Object> snapshot = new HashMap<>(version.record());
+        snapshot.put(DEFAULT_EFFECTIVE_STATUS_COLUMN, effectiveStatus);
+        return snapshot;
+    }
+
+    private static List<Map<String, Object>> recordsOf(Collection<ZipperVersion> versions) {
+        List<Map<String, Object>> records = new ArrayList<>(versions.size());
+        for (ZipperVersion version : versions) {
+            records.add(version.record());
+        }
+        return records;
+    }
+}
@@ -0,0 +1,115 @@
+package org.wnn.portal.pub.service;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.wnn.portal.pub.service.ZipperTableService.*;
+
+/**
+ * 拉链表的一个版本
+ * <p>
+ * 生效/终止时间在构造时只转换一次，以 epoch day（自 1970-01-01 起的天数）保存，时间线中的排序、查找、区间比较都是 long 比较。
+ * 业务字段仍保存在数据库返回的原始Map中，区间调整时只修改 epoch day 并标记，
+ * 需要落库或生成业务表镜像时（{@link #record()}）才把日期写回Map，因此同一个版本的多次调整只写回一次。
+ * </p>
+ * <p>
+ * 不重写 equals/hashCode，按对象身份区分版本（同一业务键下可能存在字段完全相同的版本）。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+final class ZipperVersion {
+
+    static final long MAX_END_DAY = MAX_END_DATE.toEpochDay();
+
+    private final Map<String, Object> payload;
+    private long effectiveDay;
+    private long effectiveEndDay;
+    private boolean datesDirty;
+
+    private ZipperVersion(Map<String, Object> payload, long effectiveDay, long effectiveEndDay, boolean datesDirty) {
+        this.payload = payload;
+        this.effectiveDay = effectiveDay;
+        this.effectiveEndDay = effectiveEndDay;
+        this.datesDirty = datesDirty;
+    }
+
+    /**
+     * 包装数据库返回的历史记录，直接持有该Map
+     * @param record 历史记录（需包含生效时间和终止时间）
+     */
+    static ZipperVersion of(Map<String, Object> record) {
+        LocalDate effectiveDate = convertToLocalDate(record.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
+        LocalDate effectiveEndDate = convertToLocalDate(record.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN));
+        if (effectiveDate == null || effectiveEndDate == null) {
+            throw new IllegalArgumentException("拉链表历史记录缺少生效时间或终止时间：" + record);
+        }
+        return new ZipperVersion(record, effectiveDate.toEpochDay(), effectiveEndDate.toEpochDay(), false);
+    }
+
+    /**
+     * 根据业务信息创建一个新版本（复制业务信息，不影响调用方的Map）
+     */
+    static ZipperVersion create(Map<String, Object> businessValues, long effectiveDay, long effectiveEndDay) {
+        return new ZipperVersion(new HashMap<>(businessValues), effectiveDay, effectiveEndDay, true);
+    }
+
+    long effectiveDay() {
+        return effectiveDay;
+    }
+
+    long effectiveEndDay() {
+        return effectiveEndDay;
+    }
+
+    void setEffectiveDay(long effectiveDay) {
+        this.effectiveDay = effectiveDay;
+        this.datesDirty = true;
+    }
+
+    void setEffectiveEndDay(long effectiveEndDay) {
+        this.effectiveEndDay = effectiveEndDay;
+        this.datesDirty = true;
+    }
+
+    /**
+     * 指定日期是否落在该版本的生效区间内（左闭右开）
+     */
+    boolean covers(long day) {
+        return effectiveDay <= day && day < effectiveEndDay;
+    }
+
+    /**
+     * 主键是否与给定值相同（统一按字符串比较）
+     */
+    boolean hasPrimaryKey(String primaryKeyName, String primaryKeyValue) {
+        Object value = payload.get(primaryKeyName);
+        return value != null && String.valueOf(value).equals(primaryKeyValue);
+    }
+
+    /**
+     * 覆盖业务字段，生效/终止时间保持不变（写回时以本对象中的日期为准）
+     */
+    void putAll(Map<String, Object> businessValues) {
+        payload.putAll(businessValues);
+        datesDirty = true;
+    }
+
+    /**
+     * 写回调整过的日期并返回底层Map，落库时MyBatis回填的自增主键也写在这个Map上
+     */
+    Map<String, Object> record() {
+        if (datesDirty) {
+            payload.put(DEFAULT_EFFECTIVE_DATE_COLUMN, LocalDate.ofEpochDay(effectiveDay));
+            payload.put(DEFAULT_EFFECTIVE_DATE_END_COLUMN, LocalDate.ofEpochDay(effectiveEndDay));
+            datesDirty = false;
+        }
+        return payload;
+    }
+
+    @Override
+    public String toString() {
+        return record().toString();
+    }
+}
@@ -0,0 +1,64 @@
+package org.wnn.portal.zipper.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.wnn.core.global.response.annotation.ResponseAutoWrap;
+import org.wnn.portal.pub.service.ZipperIntegrityChecker;
+import org.wnn.portal.pub.service.ZipperIntegrityReport;
+import org.wnn.portal.pub.service.ZipperRebuildResult;
+import org.wnn.portal.pub.service.ZipperRebuildService;
+import org.wnn.portal.pub.service.ZipperRolloverResult;
+import org.wnn.portal.pub.service.ZipperRolloverService;
+
+import java.time.LocalDate;
+
+/**
+ * 拉链表运维接口（补跑定时任务等）
+ *
+ * @author NanNan Wang
+ */
+@RestController
+@RequestMapping("/zipper-maintenance")
+@RequiredArgsConstructor
+@ResponseAutoWrap
+public class ZipperMaintenanceController {
+
+    private final ZipperRolloverService zipperRolloverService;
+    private final ZipperRebuildService zipperRebuildService;
+    private final ZipperIntegrityChecker zipperIntegrityChecker;
+
+    /**
+     * 手动执行跨日切换，未完成的切换会从断点继续
+     * @param tableName 拉链表名
+     * @param date 切换日期，默认当天
+     */
+    @PostMapping("/rollover")
+    public ZipperRolloverResult rollover(@RequestParam String tableName,
+                                         @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate date) {
+        return zipperRolloverService.rollover(tableName, date != null ? date : LocalDate.now());
+    }
+
+    /**
+     * 根据拉链表重建业务表
+     * @param tableName 拉链表名
+     */
+    @PostMapping("/rebuild")
+    public ZipperRebuildResult rebuild(@RequestParam String tableName) {
+        return zipperRebuildService.rebuild(tableName);
+    }
+
+    /**
+     * 检查拉链表时间线的间隙、重叠、重复生效时间和多个未终止版本
+     * @param tableName 拉链表名，为空时检查所有配置了全量流式查询SQL的启用拉链表
+     * @param repair 是否按断裂修复策略自动修复
+     */
+    @PostMapping("/integrity-check")
+    public ZipperIntegrityReport integrityCheck(@RequestParam(required = false) String tableName,
+                                                @RequestParam(defaultValue = "false") boolean repair) {
+        return zipperIntegrityChecker.check(tableName, repair);
+    }
+}
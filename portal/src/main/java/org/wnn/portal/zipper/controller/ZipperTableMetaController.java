@@ -1,6 +1,7 @@
 package org.wnn.portal.zipper.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -26,6 +27,20 @@ public class ZipperTableMetaController {
 
     private final ZipperTableMetaService zipperTableMetaService;
 
+    /**
+     * 重新加载元信息缓存，并通知其他实例失效
+     * @param tableName 拉链表名，为空时重新加载全部
+     */
+    @PostMapping("/cache/reload")
+    public void reloadCache(@RequestParam(required = false) String tableName) {
+        if (StringUtils.hasText(tableName)) {
+            zipperTableMetaService.invalidate(tableName);
+        } else {
+            zipperTableMetaService.reload();
+        }
+        zipperTableMetaService.publishInvalidation(tableName);
+    }
+
 //    /**
 //     * 新增元信息配置（通过系统内部接口获取操作人）
 //     */
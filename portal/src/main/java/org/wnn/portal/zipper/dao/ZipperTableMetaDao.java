@@ -15,6 +15,11 @@ public interface ZipperTableMetaDao {
 
     ZipperTableMeta selectByTableName(@Param("zipperTableName") String zipperTableName);
 
+    /**
+     * 查询启用的元信息
+     */
+    List<ZipperTableMeta> selectEnabled();
+
 
 
 //    /**
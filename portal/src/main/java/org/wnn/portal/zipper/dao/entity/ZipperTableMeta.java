@@ -29,6 +29,13 @@ public class ZipperTableMeta {
      */
     private String zipperTablePrimaryKey;
 
+    /**
+     * 拉链表业务键字段名称，多个字段以逗号分隔（如 jobCode）
+     * 批量写入时据此对变更和历史记录进行分组
+     * 对应数据库字段：zipper_table_business_key
+     */
+    private String zipperTableBusinessKey;
+
     /**
      * 拉链表查询SQL模板
      * 对应数据库字段：zipper_table_select_sql
@@ -40,6 +47,48 @@ public class ZipperTableMeta {
      */
     private String zipperTableSelectLatestSql;
 
+    /**
+     * 拉链表批量查询历史SQL模板，参数 params.businessKeys 为业务键列表
+     * 示例：{@code <script>SELECT * FROM job_info_zipper WHERE job_code IN
+     * <foreach collection="params.businessKeys" item="key" open="(" separator="," close=")">#{key.jobCode}</foreach></script>}
+     * 对应数据库字段：zipper_table_batch_select_sql
+     */
+    private String zipperTableBatchSelectSql;
+
+    /**
+     * 拉链表时点查询SQL模板，查询多个业务键在指定日期生效的版本
+     * 参数 params.businessKeys 为业务键列表，params.asOfDate 为查询日期，需使用区间条件 effective_date &lt;= 查询日期 &lt; effective_end_date
+     * 对应数据库字段：zipper_table_as_of_select_sql
+     */
+    private String zipperTableAsOfSelectSql;
+
+    /**
+     * 拉链表跨日切换查询SQL模板，查询生效开始或结束于指定日期的版本（需返回主键和业务键字段），按主键分页
+     * 参数 params.effectiveDate 为切换日期，params.lastPrimaryKey 为上一页最后的主键，params.limit 为每页条数
+     * 示例：{@code SELECT id, job_code AS jobCode FROM job_info_zipper WHERE (effective_date = #{params.effectiveDate} OR effective_end_date = #{params.effectiveDate})
+     * AND id > #{params.lastPrimaryKey} ORDER BY id LIMIT #{params.limit}}
+     * 对应数据库字段：zipper_table_rollover_select_sql
+     */
+    private String zipperTableRolloverSelectSql;
+
+    /**
+     * 拉链表全量流式查询SQL模板，按业务键、生效时间排序，用于校验时间线
+     * 参数 params.fromKey、params.toKey 为业务键区间的下界（不含）和上界（含），为null时不限，模板只返回区间内的数据，
+     * 区间条件需能走业务键开头的索引（按索引顺序读取，无需额外排序）
+     * 示例：{@code <script>SELECT ... FROM job_info_zipper WHERE 1 = 1 <if test="params.fromKey != null">AND job_code &gt; #{params.fromKey.jobCode}</if>
+     * <if test="params.toKey != null">AND job_code &lt;= #{params.toKey.jobCode}</if> ORDER BY job_code, effective_date</script>}
+     * 对应数据库字段：zipper_table_stream_select_sql
+     */
+    private String zipperTableStreamSelectSql;
+
+    /**
+     * 拉链表业务键流式查询SQL模板，返回去重后的业务键字段并按业务键排序，用于划分业务键区间和重建业务表
+     * 区间参数与全量流式查询SQL相同，排序需与区间条件的比较规则一致
+     * 示例：{@code <script>SELECT DISTINCT job_code AS jobCode FROM job_info_zipper WHERE 1 = 1 <if test="params.fromKey != null">...</if> ORDER BY job_code</script>}
+     * 对应数据库字段：zipper_table_key_select_sql
+     */
+    private String zipperTableKeySelectSql;
+
     /**
      * 拉链表插入SQL模板
      * 对应数据库字段：zipper_table_insert_sql
@@ -89,6 +138,13 @@ public class ZipperTableMeta {
      */
     private String businessTableDeleteSql;
 
+    /**
+     * 业务表孤儿记录查询SQL模板，查询业务键区间内在拉链表中已不存在的业务表记录的业务键，重建业务表时逐个加锁确认后删除
+     * 区间参数与全量流式查询SQL相同，未配置时重建不清理孤儿记录
+     * 对应数据库字段：business_table_orphan_select_sql
+     */
+    private String businessTableOrphanSelectSql;
+
     /**
      * 断裂修复策略：0-删除节点后，前序节点失效时间=删除节点的失效时间；1-删除节点后，后序节点生效时间=删除节点的生效时间
      */
@@ -1,20 +1,72 @@
 package org.wnn.portal.zipper.service;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+import org.wnn.portal.config.ZipperProperties;
 import org.wnn.portal.zipper.dao.ZipperTableMetaDao;
 import org.wnn.portal.zipper.dao.entity.ZipperTableMeta;
 
+import javax.annotation.PostConstruct;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * 拉链表元信息服务
+ * <p>
+ * 元信息在每次拉链表写入时都要读取，且包含多个TEXT类型的SQL模板字段，因此在本地缓存（按过期时间和数量限制），
+ * 启动完成后预热所有启用的元信息。元信息变更时通过Redis频道通知所有实例失效本地缓存。
+ * </p>
+ *
  * @author NanNan Wang
  */
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class ZipperTableMetaService {
+
+    public static final String INVALIDATE_ALL = "*"; // 失效通知中表示全部元信息的消息内容
+
     private final ZipperTableMetaDao zipperTableMetaDao;
+    private final ZipperProperties zipperProperties;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private LoadingCache<String, Optional<ZipperTableMeta>> metaCache;
+
+    @PostConstruct
+    public void initCache() {
+        ZipperProperties.MetaCache cacheProperties = zipperProperties.getMetaCache();
+        // 不存在的表名同样缓存（Optional.empty），避免错误表名的请求反复穿透到数据库
+        this.metaCache = CacheBuilder.newBuilder()
+                .maximumSize(cacheProperties.getMaximumSize())
+                .expireAfterWrite(cacheProperties.getExpireSeconds(), TimeUnit.SECONDS)
+                .build(CacheLoader.from(tableName -> Optional.ofNullable(zipperTableMetaDao.selectByTableName(tableName))));
+    }
+
+    /**
+     * 启动完成后预热缓存，预热失败不影响启动，首次访问时再按需加载
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            log.info("拉链表元信息缓存预热完成，共{}张表", reload());
+        } catch (Exception e) {
+            log.warn("拉链表元信息缓存预热失败", e);
+        }
+    }
 
 //    @Transactional
 //    public Long add(ZipperTableMeta meta, String operator) {
@@ -69,16 +121,73 @@ public class ZipperTableMetaService {
 //        return zipperTableMetaDao.selectById(id);
 //    }
 
+    /**
+     * 从本地缓存获取拉链表元信息，未命中时从数据库加载
+     * <p>
+     * 加载失败时抛出加载过程中的原始异常（如数据库访问异常），而不是缓存包装后的异常，调用方和全局异常处理按原类型处理。
+     * </p>
+     * @param tableName 拉链表名
+     * @return 元信息，不存在时返回null
+     */
     public ZipperTableMeta getByTableName(String tableName) {
-        return zipperTableMetaDao.selectByTableName(tableName);
+        try {
+            return metaCache.get(tableName).orElse(null);
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwable cause = e.getCause();
+            Throwables.throwIfUnchecked(cause);
+            throw new IllegalStateException("加载拉链表[" + tableName + "]元信息失败", cause);
+        }
+    }
+
+    /**
+     * 清空本地缓存并重新加载所有启用的元信息
+     * @return 加载的元信息数量
+     */
+    public int reload() {
+        List<ZipperTableMeta> enabledMetas = zipperTableMetaDao.selectEnabled();
+        metaCache.invalidateAll();
+        for (ZipperTableMeta meta : enabledMetas) {
+            metaCache.put(meta.getZipperTableName(), Optional.of(meta));
+        }
+        return enabledMetas.size();
+    }
+
+    /**
+     * 失效本地缓存中指定拉链表的元信息
+     * @param tableName 拉链表名
+     */
+    public void invalidate(String tableName) {
+        metaCache.invalidate(tableName);
+    }
+
+    /**
+     * 通知所有实例（包括当前实例）失效元信息缓存，元信息修改后调用
+     * @param tableName 拉链表名，为空时表示全部
+     */
+    public void publishInvalidation(String tableName) {
+        String message = StringUtils.hasText(tableName) ? tableName : INVALIDATE_ALL;
+        stringRedisTemplate.convertAndSend(zipperProperties.getMetaCache().getInvalidateChannel(), message);
+    }
+
+    /**
+     * 处理Redis频道收到的失效通知
+     * @param message 拉链表名，"*"表示全部
+     */
+    public void onInvalidation(String message) {
+        log.info("收到拉链表元信息失效通知:{}", message);
+        if (INVALIDATE_ALL.equals(message)) {
+            reload();
+        } else {
+            invalidate(message);
+        }
     }
 
 //    public List<ZipperTableMeta> getAll() {
 //        return zipperTableMetaDao.selectAll();
 //    }
 
-//    public List<ZipperTableMeta> getEnabled() {
-//        return zipperTableMetaDao.selectEnabled();
-//    }
+    public List<ZipperTableMeta> getEnabled() {
+        return zipperTableMetaDao.selectEnabled();
+    }
 
 }
@@ -0,0 +1,10 @@
+# 已按旧版 db.sql 建表的环境升级到当前版本：补充批量变更、时点查询、生效状态切换、完整性检查和重建业务表所需的元信息字段。
+# 新增字段均可为空，未配置时对应功能不启用；新建环境直接执行 db.sql，无需执行本脚本。
+ALTER TABLE zipper_table_meta
+    ADD COLUMN zipper_table_business_key VARCHAR(200) COMMENT '拉链表业务键字段名，多个字段以逗号分隔（如jobCode），与查询SQL模板返回的字段名一致，批量变更时必填' AFTER zipper_table_primary_key,
+    ADD COLUMN zipper_table_as_of_select_sql TEXT COMMENT '按多个业务键查询指定日期生效版本的SQL模板（<script>动态SQL，业务键列表参数为params.businessKeys，日期参数为params.asOfDate），时点查询时必填' AFTER zipper_table_business_key,
+    ADD COLUMN zipper_table_rollover_select_sql TEXT COMMENT '查询生效开始或结束于指定日期的版本的SQL模板，需返回主键和业务键字段并按主键分页（参数params.effectiveDate、params.lastPrimaryKey、params.limit），配置后参与每日生效状态切换' AFTER zipper_table_as_of_select_sql,
+    ADD COLUMN zipper_table_stream_select_sql TEXT COMMENT '按业务键区间全量查询历史记录的SQL模板（参数params.fromKey为区间下界（不含）、params.toKey为区间上界（含），为null时不限），按业务键、生效时间升序排序，完整性检查时必填' AFTER zipper_table_rollover_select_sql,
+    ADD COLUMN zipper_table_key_select_sql TEXT COMMENT '按业务键区间查询去重业务键的SQL模板（参数params.fromKey为区间下界（不含）、params.toKey为区间上界（含），为null时不限），按业务键升序排序，用于划分区间和重建业务表，重建业务表、完整性检查时必填' AFTER zipper_table_stream_select_sql,
+    ADD COLUMN zipper_table_batch_select_sql TEXT COMMENT '按多个业务键批量查询历史记录的SQL模板（<script>动态SQL，业务键列表参数为params.businessKeys），批量变更时必填，执行时自动追加 FOR UPDATE' AFTER zipper_table_select_latest_sql,
+    ADD COLUMN business_table_orphan_select_sql TEXT COMMENT '查询业务键区间内拉链表中已不存在的业务表记录业务键的SQL模板（参数params.fromKey为区间下界（不含）、params.toKey为区间上界（含），为null时不限），按业务键升序排序，重建业务表时逐个加锁确认后删除，未配置时不清理' AFTER business_table_delete_sql;
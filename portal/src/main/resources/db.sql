@@ -1,11 +1,17 @@
-
+# 新建环境执行本脚本；已按旧版本脚本建表的环境执行 db-upgrade.sql 补充新增的元信息字段
 DROP TABLE IF EXISTS zipper_table_meta;
 CREATE TABLE zipper_table_meta (
    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
    zipper_table_name VARCHAR(100) NOT NULL COMMENT '拉链表表名（如job_info_zipper）',
    zipper_table_primary_key VARCHAR(100) NOT NULL COMMENT '拉链表主键字段名（如id）',
-   zipper_table_select_sql TEXT NOT NULL COMMENT '查询历史记录的SQL模板，强制使用生效时间字段升序排序（ASC), 字段取值推荐使用驼峰',
+   zipper_table_business_key VARCHAR(200) COMMENT '拉链表业务键字段名，多个字段以逗号分隔（如jobCode），与查询SQL模板返回的字段名一致，批量变更时必填',
+   zipper_table_as_of_select_sql TEXT COMMENT '按多个业务键查询指定日期生效版本的SQL模板（<script>动态SQL，业务键列表参数为params.businessKeys，日期参数为params.asOfDate），时点查询时必填',
+   zipper_table_rollover_select_sql TEXT COMMENT '查询生效开始或结束于指定日期的版本的SQL模板，需返回主键和业务键字段并按主键分页（参数params.effectiveDate、params.lastPrimaryKey、params.limit），配置后参与每日生效状态切换',
+   zipper_table_stream_select_sql TEXT COMMENT '按业务键区间全量查询历史记录的SQL模板（参数params.fromKey为区间下界（不含）、params.toKey为区间上界（含），为null时不限），按业务键、生效时间升序排序，完整性检查时必填',
+   zipper_table_key_select_sql TEXT COMMENT '按业务键区间查询去重业务键的SQL模板（区间参数同上），按业务键升序排序，用于划分区间和重建业务表，重建业务表、完整性检查时必填',
+   zipper_table_select_sql TEXT NOT NULL COMMENT '查询历史记录的SQL模板，强制使用生效时间字段升序排序（ASC), 字段取值推荐使用驼峰；修改历史时自动追加 FOR UPDATE 作为加锁读，模板末尾不要再带锁定子句',
    zipper_table_select_latest_sql TEXT NOT NULL COMMENT '查询拉链表最新版本的SQL模板',
+   zipper_table_batch_select_sql TEXT COMMENT '按多个业务键批量查询历史记录的SQL模板（<script>动态SQL，业务键列表参数为params.businessKeys），批量变更时必填，执行时自动追加 FOR UPDATE',
    zipper_table_insert_sql TEXT NOT NULL COMMENT '插入历史记录的SQL模板,强制使用 INSERT INTO *** ON DUPLICATE KEY UPDATE ** 语法',
    zipper_table_update_sql TEXT NOT NULL COMMENT '更新历史记录的SQL模板',
    zipper_table_delete_sql TEXT NOT NULL COMMENT '删除历史记录的SQL模板，推荐使用物理删除 DELETE',
@@ -14,6 +20,7 @@ CREATE TABLE zipper_table_meta (
    business_table_insert_sql TEXT COMMENT '插入拉链表生效数据的SQL模板，,强制使用 INSERT INTO *** ON DUPLICATE KEY UPDATE ** 语法',
    business_table_update_sql TEXT COMMENT '更新拉链表生效数据的SQL模板',
    business_table_delete_sql TEXT COMMENT '删除拉链表生效数据的SQL模板',
+   business_table_orphan_select_sql TEXT COMMENT '查询业务键区间内拉链表中已不存在的业务表记录业务键的SQL模板（区间参数同上），按业务键升序排序，重建业务表时逐个加锁确认后删除，未配置时不清理',
    description VARCHAR(500) COMMENT '表描述信息',
    break_strategy TINYINT NOT NULL DEFAULT 0 COMMENT '断裂修复策略：0-删除节点后，前序节点失效时间=删除节点的失效时间；1-删除节点后，后序节点生效时间=删除节点的生效时间',
    status TINYINT DEFAULT 1 COMMENT '状态：1-启用，0-禁用',
@@ -31,8 +38,14 @@ CREATE TABLE zipper_table_meta (
 INSERT INTO zipper_table_meta (
     zipper_table_name,
     zipper_table_primary_key,
+    zipper_table_business_key,
     zipper_table_select_sql,
     zipper_table_select_latest_sql,
+    zipper_table_batch_select_sql,
+    zipper_table_as_of_select_sql,
+    zipper_table_rollover_select_sql,
+    zipper_table_stream_select_sql,
+    zipper_table_key_select_sql,
     zipper_table_insert_sql,
     zipper_table_update_sql,
     zipper_table_delete_sql,
@@ -41,6 +54,7 @@ INSERT INTO zipper_table_meta (
     business_table_insert_sql,
     business_table_update_sql,
     business_table_delete_sql,
+    business_table_orphan_select_sql,
     description,
     status,
     created_by
@@ -48,6 +62,8 @@ INSERT INTO zipper_table_meta (
              -- 拉链表名（必须与实际拉链表名一致）
              'job_info_zipper',
              'id' ,
+             -- 业务键字段
+             'jobCode',
              -- 拉链表查询模板：按业务键查询历史版本，按生效时间排序
              'SELECT id, job_code as jobCode, job_name as jobName, org_unit as orgUnit, job_grade as jobGrade, job_status as jobStatus, effective_date as effectiveDate,effective_end_date as effectiveEndDate
               FROM job_info_zipper
@@ -60,6 +76,53 @@ INSERT INTO zipper_table_meta (
                  WHERE job_code = #{params.jobCode} AND job_status = 1 AND effective_date <= CURDATE() AND CURDATE() < effective_end_date
              ',
 
+             -- 拉链表批量查询模板：按多个业务键查询历史版本
+             '<script>
+              SELECT id, job_code as jobCode, job_name as jobName, org_unit as orgUnit, job_grade as jobGrade, job_status as jobStatus, effective_date as effectiveDate,effective_end_date as effectiveEndDate
+              FROM job_info_zipper
+              WHERE job_status = 1 AND job_code IN
+              <foreach collection="params.businessKeys" item="key" open="(" separator="," close=")">#{key.jobCode}</foreach>
+              ORDER BY job_code ASC, effective_date ASC
+              </script>',
+
+             -- 拉链表时点查询模板：按多个业务键查询指定日期生效的版本
+             '<script>
+              SELECT id, job_code as jobCode, job_name as jobName, org_unit as orgUnit, job_grade as jobGrade, job_status as jobStatus, effective_date as effectiveDate,effective_end_date as effectiveEndDate
+              FROM job_info_zipper
+              WHERE job_status = 1 AND job_code IN
+              <foreach collection="params.businessKeys" item="key" open="(" separator="," close=")">#{key.jobCode}</foreach>
+              AND effective_date &lt;= #{params.asOfDate} AND #{params.asOfDate} &lt; effective_end_date
+              </script>',
+
+             -- 拉链表跨日切换查询模板：按主键分页查询当天开始或结束生效的版本
+             'SELECT id, job_code as jobCode
+              FROM job_info_zipper
+              WHERE job_status = 1 AND (effective_date = #{params.effectiveDate} OR effective_end_date = #{params.effectiveDate})
+                AND id > #{params.lastPrimaryKey}
+              ORDER BY id ASC
+              LIMIT #{params.limit}',
+
+             -- 拉链表全量流式查询模板：读取业务键区间内的全部版本，按 idx_job_code_effdt 的顺序返回，无需排序
+             '<script>
+              SELECT id, job_code as jobCode, job_name as jobName, org_unit as orgUnit, job_grade as jobGrade, job_status as jobStatus, effective_date as effectiveDate,effective_end_date as effectiveEndDate
+              FROM job_info_zipper
+              WHERE job_status = 1
+              <if test="params.fromKey != null">AND job_code &gt; #{params.fromKey.jobCode}</if>
+              <if test="params.toKey != null">AND job_code &lt;= #{params.toKey.jobCode}</if>
+              ORDER BY job_code ASC, effective_date ASC
+              </script>',
+
+             -- 拉链表业务键流式查询模板：读取业务键区间内去重后的业务键，按业务键排序
+             '<script>
+              SELECT job_code as jobCode
+              FROM job_info_zipper
+              WHERE job_status = 1
+              <if test="params.fromKey != null">AND job_code &gt; #{params.fromKey.jobCode}</if>
+              <if test="params.toKey != null">AND job_code &lt;= #{params.toKey.jobCode}</if>
+              GROUP BY job_code
+              ORDER BY job_code ASC
+              </script>',
+
              -- 拉链表插入模板：新增历史版本（含生效/终止时间）
              'INSERT INTO job_info_zipper (
                  job_code, job_name, org_unit, job_grade, job_status,
@@ -112,6 +175,16 @@ INSERT INTO zipper_table_meta (
              'DELETE FROM job_info
               WHERE job_code = #{params.jobCode}',
 
+             -- 业务表孤儿记录查询模板：查询业务键区间内拉链表中已没有有效版本的业务表记录的业务键
+             '<script>
+              SELECT b.job_code as jobCode
+              FROM job_info b
+              WHERE NOT EXISTS (SELECT 1 FROM job_info_zipper z WHERE z.job_code = b.job_code AND z.job_status = 1)
+              <if test="params.fromKey != null">AND b.job_code &gt; #{params.fromKey.jobCode}</if>
+              <if test="params.toKey != null">AND b.job_code &lt;= #{params.toKey.jobCode}</if>
+              ORDER BY b.job_code ASC
+              </script>',
+
              -- 描述信息
              '职位信息拉链表配置：关联业务表job_info，存储职位所有历史版本，支持按时间追溯',
 
@@ -151,7 +224,9 @@ CREATE TABLE job_info_zipper (
                                  job_status TINYINT DEFAULT 1 COMMENT '该版本的职位状态（1-有效，0-失效）',
                                  effective_date DATE NOT NULL COMMENT '生效开始日期（左闭，该版本从这一天开始有效）',
                                  effective_end_date DATE NOT NULL DEFAULT '9999-12-31' COMMENT '生效终止日期（右开，该版本在这一天及之后失效，默认9999-12-31表示当前有效）',
-                                 INDEX idx_job_code_effdt (job_code, effective_date) COMMENT '优化按职位+时间查询历史版本的效率'
+                                 INDEX idx_job_code_effdt (job_code, effective_date) COMMENT '优化按职位+时间查询历史版本的效率',
+                                 INDEX idx_effdt (effective_date) COMMENT '优化每日生效状态切换按生效开始日期扫描',
+                                 INDEX idx_effdt_end (effective_end_date) COMMENT '优化每日生效状态切换按生效结束日期扫描'
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='职位信息拉链表，存储所有历史版本，支持时间区间追溯';
 
 INSERT INTO job_info_zipper (
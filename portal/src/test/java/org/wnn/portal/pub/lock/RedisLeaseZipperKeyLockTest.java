@@ -0,0 +1,138 @@
+package org.wnn.portal.pub.lock;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Redis租约锁：一次脚本调用获取一块锁键、续期与租约失效
+ *
+ * @author NanNan Wang
+ */
+class RedisLeaseZipperKeyLockTest {
+
+    private static final List<String> KEYS = Arrays.asList("zipper:lock:{t}:k=1", "zipper:lock:{t}:k=2", "zipper:lock:{t}:k=3");
+
+    private final AtomicInteger acquireCalls = new AtomicInteger();
+    private final AtomicInteger renewCalls = new AtomicInteger();
+    private final AtomicInteger releaseCalls = new AtomicInteger();
+    private final AtomicInteger blockedAttempts = new AtomicInteger();
+    private final AtomicLong renewResult = new AtomicLong(KEYS.size());
+    private RedisLeaseZipperKeyLock lock;
+
+    @AfterEach
+    void tearDown() {
+        if (lock != null) {
+            lock.destroy();
+        }
+    }
+
+    @Test
+    void acquiresAllKeysOfAChunkInOneScriptCall() throws InterruptedException {
+        lock = newLock(30000);
+
+        ZipperKeyLock.Lease lease = lock.tryLock(KEYS, 1, TimeUnit.SECONDS);
+
+        assertNotNull(lease);
+        assertEquals(1, acquireCalls.get());
+        lease.release();
+        assertEquals(1, releaseCalls.get());
+    }
+
+    @Test
+    void retriesWholeChunkWhileAnyKeyIsHeld() throws InterruptedException {
+        lock = newLock(30000);
+        blockedAttempts.set(2);
+
+        ZipperKeyLock.Lease lease = lock.tryLock(KEYS, 5, TimeUnit.SECONDS);
+
+        assertNotNull(lease);
+        assertEquals(3, acquireCalls.get());
+        assertEquals(0, releaseCalls.get(), "被占用时一个锁键都不设置，无需释放");
+    }
+
+    @Test
+    void returnsNullWhenKeysStayHeldUntilTimeout() throws InterruptedException {
+        lock = newLock(30000);
+        blockedAttempts.set(Integer.MAX_VALUE);
+
+        assertNull(lock.tryLock(KEYS, 50, TimeUnit.MILLISECONDS));
+        assertEquals(0, releaseCalls.get());
+    }
+
+    @Test
+    void renewalKeepsLeaseValidPastItsOriginalExpiry() throws InterruptedException {
+        lock = newLock(60);
+        ZipperKeyLock.Lease lease = lock.tryLock(KEYS, 1, TimeUnit.SECONDS);
+
+        Thread.sleep(200);
+
+        assertTrue(renewCalls.get() >= 2);
+        assertDoesNotThrow(lease::checkHeld);
+        lease.release();
+    }
+
+    @Test
+    void leaseLostDuringRenewalFailsCheckBeforeCommit() throws InterruptedException {
+        lock = newLock(60);
+        ZipperKeyLock.Lease lease = lock.tryLock(KEYS, 1, TimeUnit.SECONDS);
+        // 故障转移后只剩部分锁键
+        renewResult.set(1);
+
+        Thread.sleep(100);
+
+        assertThrows(ZipperLockTimeoutException.class, lease::checkHeld);
+    }
+
+    @Test
+    void leaseOverrunWithoutSuccessfulRenewalFailsCheckBeforeCommit() throws InterruptedException {
+        lock = newLock(60);
+        ZipperKeyLock.Lease lease = lock.tryLock(KEYS, 1, TimeUnit.SECONDS);
+        renewResult.set(-1);
+
+        Thread.sleep(100);
+
+        assertThrows(ZipperLockTimeoutException.class, lease::checkHeld);
+    }
+
+    private RedisLeaseZipperKeyLock newLock(long leaseMillis) {
+        // 只有脚本调用：按脚本内容区分加锁、续期、释放
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class, invocation -> {
+            if (!"execute".equals(invocation.getMethod().getName())
+                    || !(invocation.getArgument(0) instanceof RedisScript)) {
+                return null;
+            }
+            String script = invocation.<RedisScript<?>>getArgument(0).getScriptAsString();
+            if (script.contains("'set'")) {
+                acquireCalls.incrementAndGet();
+                // 被占用时返回第一个被占用的锁键序号
+                return blockedAttempts.getAndDecrement() > 0 ? 2L : 0L;
+            }
+            if (script.contains("'pexpire'")) {
+                renewCalls.incrementAndGet();
+                if (renewResult.get() < 0) {
+                    throw new IllegalStateException("Redis不可用");
+                }
+                return renewResult.get();
+            }
+            releaseCalls.incrementAndGet();
+            return (long) KEYS.size();
+        });
+        return new RedisLeaseZipperKeyLock(redisTemplate, leaseMillis);
+    }
+}
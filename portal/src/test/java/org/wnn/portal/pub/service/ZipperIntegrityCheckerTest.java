@@ -0,0 +1,89 @@
+package org.wnn.portal.pub.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.wnn.portal.pub.service.ZipperTableService.MAX_END_DATE;
+import static org.wnn.portal.pub.service.ZipperTimelineTest.history;
+import static org.wnn.portal.pub.service.ZipperTimelineTest.version;
+
+/**
+ * 拉链表时间线完整性检查的相邻版本比较
+ *
+ * @author NanNan Wang
+ */
+class ZipperIntegrityCheckerTest {
+
+    private static final String PK = "id";
+    private static final ZipperBusinessKey KEY = ZipperBusinessKey.of(Collections.singletonList("jobCode"),
+            Collections.singletonMap("jobCode", "DEV001"));
+    private static final LocalDate JAN = LocalDate.of(2024, 1, 1);
+    private static final LocalDate FEB = LocalDate.of(2024, 2, 1);
+    private static final LocalDate MAR = LocalDate.of(2024, 3, 1);
+    private static final LocalDate APR = LocalDate.of(2024, 4, 1);
+
+    @Test
+    void continuousTimelineHasNoIssues() {
+        List<ZipperIntegrityIssue> issues = ZipperIntegrityChecker.inspect(KEY, PK, history(
+                version(1, JAN, FEB), version(2, FEB, MAR), version(3, MAR, MAX_END_DATE)));
+
+        assertTrue(issues.isEmpty(), () -> "不应发现问题：" + issues);
+    }
+
+    @Test
+    void gapIsReportedOnTheLaterVersion() {
+        List<ZipperIntegrityIssue> issues = ZipperIntegrityChecker.inspect(KEY, PK, history(
+                version(1, JAN, FEB), version(2, MAR, MAX_END_DATE)));
+
+        assertEquals(1, issues.size(), () -> issues.toString());
+        ZipperIntegrityIssue issue = issues.get(0);
+        assertEquals(ZipperIntegrityIssue.Type.GAP, issue.getType());
+        assertEquals(2, issue.getPrimaryKey());
+        assertEquals(MAR, issue.getEffectiveDate());
+        assertEquals(KEY.toString(), issue.getBusinessKey());
+    }
+
+    @Test
+    void overlapAndDuplicateEffectiveDateAreComparedWithThePreviousVersionOnly() {
+        List<ZipperIntegrityIssue> issues = ZipperIntegrityChecker.inspect(KEY, PK, history(
+                version(1, JAN, MAR), version(2, FEB, APR), version(3, FEB, MAX_END_DATE)));
+
+        assertEquals(2, issues.size(), () -> issues.toString());
+        assertEquals(ZipperIntegrityIssue.Type.OVERLAP, issues.get(0).getType());
+        assertEquals(2, issues.get(0).getPrimaryKey());
+        assertEquals(ZipperIntegrityIssue.Type.DUPLICATE_EFFECTIVE_DATE, issues.get(1).getType());
+        assertEquals(3, issues.get(1).getPrimaryKey());
+    }
+
+    @Test
+    void multipleOpenEndedVersionsAreReportedOnceAfterTheLastVersion() {
+        List<ZipperIntegrityIssue> issues = ZipperIntegrityChecker.inspect(KEY, PK, history(
+                version(1, JAN, MAX_END_DATE), version(2, MAR, MAX_END_DATE)));
+
+        assertEquals(2, issues.size(), () -> issues.toString());
+        assertEquals(ZipperIntegrityIssue.Type.OVERLAP, issues.get(0).getType());
+        ZipperIntegrityIssue openEnded = issues.get(1);
+        assertEquals(ZipperIntegrityIssue.Type.MULTIPLE_OPEN_ENDED, openEnded.getType());
+        assertNull(openEnded.getPrimaryKey());
+        assertEquals(MAX_END_DATE, openEnded.getEffectiveEndDate());
+    }
+
+    @Test
+    void inspectorFedOneVersionAtATimeMatchesWholeHistoryInspection() {
+        ZipperIntegrityChecker.KeyInspector inspector = new ZipperIntegrityChecker.KeyInspector(KEY, PK);
+        inspector.add(version(1, JAN, FEB));
+        inspector.add(version(2, MAR, APR));
+        inspector.add(version(3, APR, MAX_END_DATE));
+
+        List<ZipperIntegrityIssue> issues = inspector.finish();
+        assertEquals(1, issues.size(), () -> issues.toString());
+        assertEquals(ZipperIntegrityIssue.Type.GAP, issues.get(0).getType());
+        assertEquals(2, issues.get(0).getPrimaryKey());
+    }
+}
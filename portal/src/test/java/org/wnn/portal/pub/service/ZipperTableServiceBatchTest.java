@@ -0,0 +1,157 @@
+package org.wnn.portal.pub.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.wnn.portal.config.ZipperProperties;
+import org.wnn.portal.pub.controller.req.ZipperOperation;
+import org.wnn.portal.pub.controller.req.ZipperTableBatchDTO;
+import org.wnn.portal.pub.controller.req.ZipperTableChangeDTO;
+import org.wnn.portal.pub.dao.ZipperBatchDaoSupport;
+import org.wnn.portal.pub.dao.ZipperBusinessTableDao;
+import org.wnn.portal.pub.dao.ZipperTableDao;
+import org.wnn.portal.pub.lock.ZipperKeyLockManager;
+import org.wnn.portal.zipper.dao.entity.ZipperTableMeta;
+import org.wnn.portal.zipper.service.ZipperTableMetaService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 拉链表批量变更：分块事务失败时的处理
+ *
+ * @author NanNan Wang
+ */
+class ZipperTableServiceBatchTest {
+
+    private static final String TABLE_NAME = "job_info_zipper";
+
+    private final ZipperTableDao batchZipperTableDao = mock(ZipperTableDao.class);
+    private final ZipperBusinessTableDao batchBusinessTableDao = mock(ZipperBusinessTableDao.class);
+    private final ZipperBatchDaoSupport zipperBatchDaoSupport = mock(ZipperBatchDaoSupport.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private ZipperTableService zipperTableService;
+
+    @BeforeEach
+    void setUp() {
+        ZipperTableMeta meta = new ZipperTableMeta();
+        meta.setZipperTableName(TABLE_NAME);
+        meta.setZipperTablePrimaryKey("id");
+        meta.setZipperTableBusinessKey("jobCode");
+        meta.setZipperTableBatchSelectSql("batch-select");
+        meta.setZipperTableInsertSql("insert");
+        meta.setZipperTableUpdateSql("update");
+        meta.setZipperTableDeleteSql("delete");
+        meta.setBusinessTableInsertSql("business-insert");
+        meta.setBusinessTableDeleteSql("business-delete");
+        meta.setBreakStrategy(0);
+        ZipperTableMetaService zipperTableMetaService = mock(ZipperTableMetaService.class);
+        when(zipperTableMetaService.getByTableName(TABLE_NAME)).thenReturn(meta);
+
+        when(zipperBatchDaoSupport.getZipperTableDao()).thenReturn(batchZipperTableDao);
+        when(zipperBatchDaoSupport.getZipperBusinessTableDao()).thenReturn(batchBusinessTableDao);
+        when(batchZipperTableDao.queryHistoryBatchForUpdate(anyString(), anyMap())).thenReturn(Collections.emptyList());
+
+        ZipperProperties zipperProperties = new ZipperProperties();
+        zipperProperties.getBatch().setChunkSize(2);
+
+        zipperTableService = new ZipperTableService(zipperTableMetaService, mock(ZipperTableDao.class),
+                mock(ZipperBusinessTableDao.class), zipperBatchDaoSupport, zipperProperties,
+                new TransactionTemplate(transactionManager), mock(ZipperKeyLockManager.class), mock(ZipperAsOfCache.class));
+    }
+
+    @Test
+    void failedMiddleChunkIsReportedAndLaterChunksStillApplied() {
+        // 每块刷库两次（拉链表、业务表），第2块的第2次刷库失败：此时该块已在内存中计入新增版本
+        when(zipperBatchDaoSupport.flushStatements())
+                .thenReturn(Collections.emptyList(), Collections.emptyList(), Collections.emptyList())
+                .thenThrow(new CannotAcquireLockException("Lock wait timeout exceeded"))
+                .thenReturn(Collections.emptyList());
+
+        ZipperBatchResult result = zipperTableService.applyBatch(batchOf("J1", "J2", "J3", "J4", "J5", "J6"));
+
+        assertEquals(6, result.getTotalKeys());
+        assertEquals(4, result.getSucceededKeys());
+        assertEquals(4, result.getInsertedVersions(), "回滚的块不计入新增版本数");
+        assertEquals(2, result.getFailures().size());
+        assertEquals(keysOf("J3", "J4"), result.getFailures().stream()
+                .map(ZipperBatchResult.Failure::getBusinessKey).collect(Collectors.toList()));
+        assertTrue(result.getFailures().get(0).getMessage().contains("Lock wait timeout exceeded"));
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(2)).commit(any());
+        verify(batchZipperTableDao, times(6)).insertNewRecord(eq("insert"), anyMap());
+    }
+
+    @Test
+    void validationFailuresInFailedChunkKeepTheirOwnMessage() {
+        when(zipperBatchDaoSupport.flushStatements())
+                .thenThrow(new CannotAcquireLockException("Lock wait timeout exceeded"));
+        ZipperTableBatchDTO request = batchOf("J1");
+        // J2更新一个不存在的版本，校验失败
+        request.getChanges().add(change(ZipperOperation.UPDATE, "J2"));
+
+        ZipperBatchResult result = zipperTableService.applyBatch(request);
+
+        assertEquals(0, result.getSucceededKeys());
+        assertEquals(2, result.getFailures().size());
+        Map<String, String> messages = result.getFailures().stream().collect(
+                Collectors.toMap(ZipperBatchResult.Failure::getBusinessKey, ZipperBatchResult.Failure::getMessage));
+        assertTrue(messages.get(keyOf("J1")).contains("Lock wait timeout exceeded"));
+        assertTrue(messages.get(keyOf("J2")).contains("无历史版本"));
+        verify(batchBusinessTableDao, never()).insertBusinessNewRecord(anyString(), anyMap());
+    }
+
+    private static ZipperTableBatchDTO batchOf(String... jobCodes) {
+        List<ZipperTableChangeDTO> changes = new ArrayList<>();
+        for (String jobCode : jobCodes) {
+            changes.add(change(ZipperOperation.ADD, jobCode));
+        }
+        ZipperTableBatchDTO request = new ZipperTableBatchDTO();
+        request.setZipperTableName(TABLE_NAME);
+        request.setChanges(changes);
+        return request;
+    }
+
+    private static ZipperTableChangeDTO change(ZipperOperation operation, String jobCode) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("jobCode", jobCode);
+        values.put("id", 1);
+        ZipperTableChangeDTO change = new ZipperTableChangeDTO();
+        change.setOperation(operation);
+        change.setBusinessKeyValues(values);
+        change.setEffectiveDate(LocalDate.of(2024, 1, 1));
+        return change;
+    }
+
+    private static String keyOf(String jobCode) {
+        return ZipperBusinessKey.of(Collections.singletonList("jobCode"), Collections.singletonMap("jobCode", jobCode)).toString();
+    }
+
+    private static List<String> keysOf(String... jobCodes) {
+        List<String> keys = new ArrayList<>();
+        for (String jobCode : jobCodes) {
+            keys.add(keyOf(jobCode));
+        }
+        return keys;
+    }
+}
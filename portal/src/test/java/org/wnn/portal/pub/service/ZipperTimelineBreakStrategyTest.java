@@ -0,0 +1,194 @@
+package org.wnn.portal.pub.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.wnn.portal.pub.service.ZipperTableService.DEFAULT_EFFECTIVE_STATUS_COLUMN;
+import static org.wnn.portal.pub.service.ZipperTableService.DEFAULT_EFFECTIVE_STATUS_CURRENT;
+import static org.wnn.portal.pub.service.ZipperTableService.DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT;
+import static org.wnn.portal.pub.service.ZipperTableService.DEFAULT_ZIPPER_BREAK_STRATEGY_RIGHT;
+import static org.wnn.portal.pub.service.ZipperTableService.MAX_END_DATE;
+import static org.wnn.portal.pub.service.ZipperTimelineTest.assertInterval;
+import static org.wnn.portal.pub.service.ZipperTimelineTest.history;
+import static org.wnn.portal.pub.service.ZipperTimelineTest.pk;
+import static org.wnn.portal.pub.service.ZipperTimelineTest.single;
+import static org.wnn.portal.pub.service.ZipperTimelineTest.values;
+import static org.wnn.portal.pub.service.ZipperTimelineTest.version;
+
+/**
+ * 拉链时间线在不同断裂修复策略下的区间调整：历史存在间隙、相邻版本业务字段相同
+ *
+ * @author NanNan Wang
+ */
+class ZipperTimelineBreakStrategyTest {
+
+    private static final String PK = "id";
+    private static final LocalDate JAN = LocalDate.of(2024, 1, 1);
+    private static final LocalDate FEB = LocalDate.of(2024, 2, 1);
+    private static final LocalDate MAR = LocalDate.of(2024, 3, 1);
+    private static final LocalDate APR = LocalDate.of(2024, 4, 1);
+    private static final LocalDate JUN = LocalDate.of(2024, 6, 1);
+
+    @Test
+    void insertIntoGapUsesNeighboursByPositionAndKeepsGap() {
+        // [JAN, FEB) 与 [APR, MAX) 之间有间隙，前序节点的终止时间不等于新生效时间
+        Map<String, Object> jan = version(1, JAN, FEB);
+        Map<String, Object> apr = version(2, APR, MAX_END_DATE);
+        ZipperTimeline timeline = new ZipperTimeline(history(jan, apr));
+
+        timeline.insert(values("gap"), MAR);
+
+        assertInterval(single(timeline.getInserted()), MAR, APR);
+        assertTrue(timeline.getUpdated().isEmpty(), "不覆盖新生效时间的前序节点不截断");
+        assertInterval(jan, JAN, FEB);
+    }
+
+    @Test
+    void gapFollowedByInsertIsRepairedByExtendingPreviousWithLeftStrategy() {
+        Map<String, Object> jan = version(1, JAN, FEB);
+        ZipperTimeline timeline = new ZipperTimeline(history(jan, version(2, APR, MAX_END_DATE)));
+        timeline.insert(values("gap"), MAR);
+
+        assertTrue(timeline.repairIntervals(DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT));
+
+        assertSame(jan, single(timeline.getUpdated()));
+        assertInterval(jan, JAN, MAR);
+        assertInterval(single(timeline.getInserted()), MAR, APR);
+    }
+
+    @Test
+    void gapFollowedByInsertIsRepairedByMovingNextBackWithRightStrategy() {
+        Map<String, Object> jan = version(1, JAN, FEB);
+        ZipperTimeline timeline = new ZipperTimeline(history(jan, version(2, APR, MAX_END_DATE)));
+        timeline.insert(values("gap"), MAR);
+
+        assertTrue(timeline.repairIntervals(DEFAULT_ZIPPER_BREAK_STRATEGY_RIGHT));
+
+        // 新增的版本前移只合并进插入语句，不产生更新
+        assertTrue(timeline.getUpdated().isEmpty());
+        assertInterval(single(timeline.getInserted()), FEB, APR);
+        assertInterval(jan, JAN, FEB);
+    }
+
+    @Test
+    void deleteAfterGapWithLeftStrategyExtendsPreviousOverGap() {
+        Map<String, Object> jan = version(1, JAN, FEB);
+        Map<String, Object> mar = version(2, MAR, APR);
+        Map<String, Object> apr = version(3, APR, MAX_END_DATE);
+        ZipperTimeline timeline = new ZipperTimeline(history(jan, mar, apr));
+
+        timeline.delete(PK, pk(2), DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT);
+
+        assertSame(mar, single(timeline.getDeleted()));
+        assertSame(jan, single(timeline.getUpdated()));
+        assertInterval(jan, JAN, APR);
+        assertInterval(apr, APR, MAX_END_DATE);
+    }
+
+    @Test
+    void deleteAfterGapWithRightStrategyKeepsGapBeforeNext() {
+        Map<String, Object> jan = version(1, JAN, FEB);
+        Map<String, Object> mar = version(2, MAR, APR);
+        Map<String, Object> apr = version(3, APR, MAX_END_DATE);
+        ZipperTimeline timeline = new ZipperTimeline(history(jan, mar, apr));
+
+        timeline.delete(PK, pk(2), DEFAULT_ZIPPER_BREAK_STRATEGY_RIGHT);
+
+        assertSame(mar, single(timeline.getDeleted()));
+        assertSame(apr, single(timeline.getUpdated()));
+        assertInterval(jan, JAN, FEB);
+        assertInterval(apr, MAR, MAX_END_DATE);
+    }
+
+    @Test
+    void overlapIsRepairedByTruncatingPreviousForEitherStrategy() {
+        for (Integer strategy : new Integer[]{DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT, DEFAULT_ZIPPER_BREAK_STRATEGY_RIGHT}) {
+            Map<String, Object> jan = version(1, JAN, APR);
+            Map<String, Object> mar = version(2, MAR, MAX_END_DATE);
+            ZipperTimeline timeline = new ZipperTimeline(history(jan, mar));
+
+            assertTrue(timeline.repairIntervals(strategy));
+
+            assertSame(jan, single(timeline.getUpdated()), "策略" + strategy);
+            assertInterval(jan, JAN, MAR);
+            assertInterval(mar, MAR, MAX_END_DATE);
+        }
+    }
+
+    @Test
+    void duplicateEffectiveDatesAreNotRepaired() {
+        Map<String, Object> first = version(1, JAN, MAR);
+        Map<String, Object> second = version(2, JAN, MAX_END_DATE);
+        ZipperTimeline timeline = new ZipperTimeline(history(first, second));
+
+        assertFalse(timeline.repairIntervals(DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT));
+
+        assertTrue(timeline.getUpdated().isEmpty());
+        assertInterval(first, JAN, MAR);
+        assertInterval(second, JAN, MAX_END_DATE);
+    }
+
+    @Test
+    void adjacentVersionsWithEqualPayloadsAreTrackedSeparately() {
+        ZipperTimeline timeline = new ZipperTimeline(new ArrayList<>());
+
+        // 业务字段完全相同的两个版本按对象区分，不会在待插入集合中合并
+        timeline.insert(values("same"), JAN);
+        timeline.insert(values("same"), MAR);
+
+        List<Map<String, Object>> inserted = new ArrayList<>(timeline.getInserted());
+        assertEquals(2, inserted.size());
+        assertNotSame(inserted.get(0), inserted.get(1));
+        assertInterval(inserted.get(0), JAN, MAR);
+        assertInterval(inserted.get(1), MAR, MAX_END_DATE);
+        assertTrue(timeline.getUpdated().isEmpty(), "新增后截断的版本只插入一次");
+    }
+
+    @Test
+    void deletingOneOfAdjacentEqualPayloadVersionsRemovesOnlyThatVersion() {
+        for (Integer strategy : new Integer[]{DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT, DEFAULT_ZIPPER_BREAK_STRATEGY_RIGHT}) {
+            // 三个版本除主键外业务字段相同
+            Map<String, Object> jan = version(1, JAN, MAR);
+            Map<String, Object> mar = version(2, MAR, JUN);
+            Map<String, Object> jun = version(3, JUN, MAX_END_DATE);
+            for (Map<String, Object> record : history(jan, mar, jun)) {
+                record.put("jobName", "same");
+            }
+            ZipperTimeline timeline = new ZipperTimeline(history(jan, mar, jun));
+
+            timeline.delete(PK, pk(2), strategy);
+
+            assertSame(mar, single(timeline.getDeleted()), "策略" + strategy);
+            Map<String, Object> adjusted = single(timeline.getUpdated());
+            if (strategy.equals(DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT)) {
+                assertSame(jan, adjusted);
+                assertInterval(jan, JAN, JUN);
+            } else {
+                assertSame(jun, adjusted);
+                assertInterval(jun, MAR, MAX_END_DATE);
+            }
+        }
+    }
+
+    @Test
+    void businessSnapshotPicksCurrentVersionAcrossGap() {
+        Map<String, Object> jan = version(1, JAN, FEB);
+        Map<String, Object> apr = version(2, APR, MAX_END_DATE);
+        ZipperTimeline timeline = new ZipperTimeline(history(jan, apr));
+
+        // 间隙中的日期没有当前版本，取最早的未来版本
+        assertEquals(2, timeline.businessSnapshot(MAR).get(PK));
+        Map<String, Object> current = timeline.businessSnapshot(JUN);
+        assertEquals(2, current.get(PK));
+        assertEquals(DEFAULT_EFFECTIVE_STATUS_CURRENT, current.get(DEFAULT_EFFECTIVE_STATUS_COLUMN));
+    }
+}
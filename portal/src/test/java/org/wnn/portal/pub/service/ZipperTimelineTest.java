@@ -0,0 +1,285 @@
+package org.wnn.portal.pub.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.wnn.portal.pub.service.ZipperTableService.DEFAULT_EFFECTIVE_DATE_COLUMN;
+import static org.wnn.portal.pub.service.ZipperTableService.DEFAULT_EFFECTIVE_DATE_END_COLUMN;
+import static org.wnn.portal.pub.service.ZipperTableService.DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT;
+import static org.wnn.portal.pub.service.ZipperTableService.DEFAULT_ZIPPER_BREAK_STRATEGY_RIGHT;
+import static org.wnn.portal.pub.service.ZipperTableService.MAX_END_DATE;
+
+/**
+ * 拉链时间线的新增、更新、删除与日期写回
+ *
+ * @author NanNan Wang
+ */
+class ZipperTimelineTest {
+
+    private static final String PK = "id";
+    private static final LocalDate JAN = LocalDate.of(2024, 1, 1);
+    private static final LocalDate FEB = LocalDate.of(2024, 2, 1);
+    private static final LocalDate MAR = LocalDate.of(2024, 3, 1);
+    private static final LocalDate APR = LocalDate.of(2024, 4, 1);
+    private static final LocalDate JUN = LocalDate.of(2024, 6, 1);
+
+    @Test
+    void insertBeforeFirstVersionEndsAtItsEffectiveDate() {
+        Map<String, Object> mar = version(1, MAR, MAX_END_DATE);
+        ZipperTimeline timeline = new ZipperTimeline(history(mar));
+
+        timeline.insert(values("v0"), JAN);
+
+        Map<String, Object> inserted = single(timeline.getInserted());
+        assertInterval(inserted, JAN, MAR);
+        assertTrue(timeline.getUpdated().isEmpty());
+        assertInterval(mar, MAR, MAX_END_DATE);
+    }
+
+    @Test
+    void insertAfterLastVersionTruncatesIt() {
+        Map<String, Object> jan = version(1, JAN, MAX_END_DATE);
+        ZipperTimeline timeline = new ZipperTimeline(history(jan));
+
+        timeline.insert(values("v2"), JUN);
+
+        assertInterval(single(timeline.getInserted()), JUN, MAX_END_DATE);
+        assertSame(jan, single(timeline.getUpdated()));
+        assertInterval(jan, JAN, JUN);
+    }
+
+    @Test
+    void insertInsideVersionSplitsIt() {
+        Map<String, Object> jan = version(1, JAN, MAR);
+        Map<String, Object> mar = version(2, MAR, MAX_END_DATE);
+        ZipperTimeline timeline = new ZipperTimeline(history(mar, jan));
+
+        timeline.insert(values("v1.5"), FEB);
+
+        assertInterval(single(timeline.getInserted()), FEB, MAR);
+        assertSame(jan, single(timeline.getUpdated()));
+        assertInterval(jan, JAN, FEB);
+        assertInterval(mar, MAR, MAX_END_DATE);
+    }
+
+    @Test
+    void insertOnExistingEffectiveDateIsRejected() {
+        ZipperTimeline timeline = new ZipperTimeline(history(version(1, JAN, MAX_END_DATE)));
+
+        assertThrows(IllegalArgumentException.class, () -> timeline.insert(values("dup"), JAN));
+        assertTrue(timeline.getInserted().isEmpty());
+    }
+
+    @Test
+    void updateKeepingBoundaryDayOnlyChangesFields() {
+        Map<String, Object> jan = version(1, JAN, MAR);
+        Map<String, Object> mar = version(2, MAR, MAX_END_DATE);
+        ZipperTimeline timeline = new ZipperTimeline(history(jan, mar));
+
+        Map<String, Object> change = values("renamed");
+        change.put(PK, 2);
+        timeline.update(PK, change, MAR, DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT);
+
+        assertSame(mar, single(timeline.getUpdated()));
+        assertEquals("renamed", mar.get("jobName"));
+        assertInterval(mar, MAR, MAX_END_DATE);
+        assertInterval(jan, JAN, MAR);
+        assertTrue(timeline.getInserted().isEmpty());
+        assertTrue(timeline.getDeleted().isEmpty());
+    }
+
+    @Test
+    void updateOntoNeighbourBoundaryDayIsRejected() {
+        Map<String, Object> jan = version(1, JAN, MAR);
+        ZipperTimeline timeline = new ZipperTimeline(history(jan, version(2, MAR, MAX_END_DATE)));
+
+        Map<String, Object> change = values("moved");
+        change.put(PK, 1);
+        assertThrows(IllegalArgumentException.class,
+                () -> timeline.update(PK, change, MAR, DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT));
+        assertInterval(jan, JAN, MAR);
+    }
+
+    @Test
+    void updateMovingEffectiveDateIsDeleteThenInsert() {
+        Map<String, Object> jan = version(1, JAN, MAR);
+        Map<String, Object> mar = version(2, MAR, MAX_END_DATE);
+        ZipperTimeline timeline = new ZipperTimeline(history(jan, mar));
+
+        // 最后一个版本提前到前一版本区间内的一天
+        Map<String, Object> change = values("moved");
+        change.put(PK, 2);
+        timeline.update(PK, change, FEB, DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT);
+
+        assertSame(mar, single(timeline.getDeleted()));
+        assertInterval(single(timeline.getInserted()), FEB, MAX_END_DATE);
+        assertSame(jan, single(timeline.getUpdated()));
+        assertInterval(jan, JAN, FEB);
+    }
+
+    @Test
+    void deleteFirstVersionLeavesOthersUntouched() {
+        Map<String, Object> jan = version(1, JAN, MAR);
+        Map<String, Object> mar = version(2, MAR, JUN);
+        Map<String, Object> jun = version(3, JUN, MAX_END_DATE);
+        ZipperTimeline timeline = new ZipperTimeline(history(jan, mar, jun));
+
+        timeline.delete(PK, pk(1), DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT);
+
+        assertSame(jan, single(timeline.getDeleted()));
+        assertTrue(timeline.getUpdated().isEmpty());
+        assertInterval(mar, MAR, JUN);
+    }
+
+    @Test
+    void deleteMiddleVersionWithLeftStrategyExtendsPrevious() {
+        Map<String, Object> jan = version(1, JAN, MAR);
+        Map<String, Object> mar = version(2, MAR, JUN);
+        Map<String, Object> jun = version(3, JUN, MAX_END_DATE);
+        ZipperTimeline timeline = new ZipperTimeline(history(jan, mar, jun));
+
+        timeline.delete(PK, pk(2), DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT);
+
+        assertSame(mar, single(timeline.getDeleted()));
+        assertSame(jan, single(timeline.getUpdated()));
+        assertInterval(jan, JAN, JUN);
+        assertInterval(jun, JUN, MAX_END_DATE);
+    }
+
+    @Test
+    void deleteMiddleVersionWithRightStrategyMovesNextBack() {
+        Map<String, Object> jan = version(1, JAN, MAR);
+        Map<String, Object> mar = version(2, MAR, JUN);
+        Map<String, Object> jun = version(3, JUN, MAX_END_DATE);
+        ZipperTimeline timeline = new ZipperTimeline(history(jan, mar, jun));
+
+        timeline.delete(PK, pk(2), DEFAULT_ZIPPER_BREAK_STRATEGY_RIGHT);
+
+        assertSame(mar, single(timeline.getDeleted()));
+        assertSame(jun, single(timeline.getUpdated()));
+        assertInterval(jan, JAN, MAR);
+        assertInterval(jun, MAR, MAX_END_DATE);
+    }
+
+    @Test
+    void deleteLastVersionMakesPreviousLatest() {
+        Map<String, Object> jan = version(1, JAN, MAR);
+        Map<String, Object> mar = version(2, MAR, MAX_END_DATE);
+        ZipperTimeline timeline = new ZipperTimeline(history(jan, mar));
+
+        timeline.delete(PK, pk(2), DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT);
+
+        assertSame(mar, single(timeline.getDeleted()));
+        assertSame(jan, single(timeline.getUpdated()));
+        assertInterval(jan, JAN, MAX_END_DATE);
+    }
+
+    @Test
+    void insertThenDeleteInSameBatchProducesNoStatements() {
+        Map<String, Object> jan = version(1, JAN, MAX_END_DATE);
+        ZipperTimeline timeline = new ZipperTimeline(history(jan));
+
+        Map<String, Object> added = values("temp");
+        added.put(PK, 99);
+        timeline.insert(added, MAR);
+        timeline.delete(PK, pk(99), DEFAULT_ZIPPER_BREAK_STRATEGY_LEFT);
+
+        assertTrue(timeline.getInserted().isEmpty());
+        assertTrue(timeline.getDeleted().isEmpty());
+        // 截断后又恢复的前序版本仍需写回
+        assertSame(jan, single(timeline.getUpdated()));
+        assertInterval(jan, JAN, MAX_END_DATE);
+    }
+
+    @Test
+    void recordWritesBackOnlyFinalDatesAfterMultipleEdits() {
+        Map<String, Object> record = version(1, JAN, MAX_END_DATE);
+        Object originalEffectiveDate = record.get(DEFAULT_EFFECTIVE_DATE_COLUMN);
+        ZipperVersion version = ZipperVersion.of(record);
+
+        // 未调整时不改写数据库返回的日期对象
+        assertSame(originalEffectiveDate, version.record().get(DEFAULT_EFFECTIVE_DATE_COLUMN));
+
+        version.setEffectiveEndDay(JUN.toEpochDay());
+        version.setEffectiveEndDay(APR.toEpochDay());
+        version.setEffectiveDay(FEB.toEpochDay());
+        // 写回前Map中仍是原值
+        assertSame(originalEffectiveDate, record.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
+
+        Map<String, Object> written = version.record();
+        assertSame(record, written);
+        assertEquals(FEB, written.get(DEFAULT_EFFECTIVE_DATE_COLUMN));
+        assertEquals(APR, written.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN));
+
+        // 写回后再次调用不重复写入
+        written.put(DEFAULT_EFFECTIVE_DATE_COLUMN, "sentinel");
+        assertEquals("sentinel", version.record().get(DEFAULT_EFFECTIVE_DATE_COLUMN));
+    }
+
+    @Test
+    void createdVersionDoesNotShareCallerMap() {
+        Map<String, Object> values = values("new");
+        ZipperVersion version = ZipperVersion.create(values, JAN.toEpochDay(), MAR.toEpochDay());
+
+        version.record().put("jobName", "changed");
+
+        assertEquals("new", values.get("jobName"));
+        assertInterval(version.record(), JAN, MAR);
+        assertTrue(version.covers(JAN.toEpochDay()));
+        assertFalse(version.covers(MAR.toEpochDay()));
+    }
+
+    static Map<String, Object> version(int id, LocalDate effectiveDate, LocalDate effectiveEndDate) {
+        Map<String, Object> record = new HashMap<>();
+        record.put(PK, id);
+        record.put("jobCode", "DEV001");
+        record.put("jobName", "v" + id);
+        record.put(DEFAULT_EFFECTIVE_DATE_COLUMN, Date.valueOf(effectiveDate));
+        record.put(DEFAULT_EFFECTIVE_DATE_END_COLUMN, Date.valueOf(effectiveEndDate));
+        return record;
+    }
+
+    @SafeVarargs
+    static List<Map<String, Object>> history(Map<String, Object>... records) {
+        List<Map<String, Object>> history = new ArrayList<>();
+        Collections.addAll(history, records);
+        return history;
+    }
+
+    static Map<String, Object> values(String jobName) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("jobCode", "DEV001");
+        values.put("jobName", jobName);
+        return values;
+    }
+
+    static Map<String, Object> pk(int id) {
+        return Collections.singletonMap(PK, id);
+    }
+
+    static Map<String, Object> single(Collection<Map<String, Object>> records) {
+        assertEquals(1, records.size(), () -> "期望只有一条记录：" + records);
+        return records.iterator().next();
+    }
+
+    /**
+     * 校验记录的区间，数据库返回的java.sql.Date与写回的LocalDate统一转换后比较
+     */
+    static void assertInterval(Map<String, Object> record, LocalDate effectiveDate, LocalDate effectiveEndDate) {
+        assertEquals(effectiveDate, ZipperTableService.convertToLocalDate(record.get(DEFAULT_EFFECTIVE_DATE_COLUMN)), "生效时间");
+        assertEquals(effectiveEndDate, ZipperTableService.convertToLocalDate(record.get(DEFAULT_EFFECTIVE_DATE_END_COLUMN)), "终止时间");
+    }
+}
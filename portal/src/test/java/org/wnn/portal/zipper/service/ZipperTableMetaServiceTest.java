@@ -0,0 +1,66 @@
+package org.wnn.portal.zipper.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.wnn.portal.config.ZipperProperties;
+import org.wnn.portal.zipper.dao.ZipperTableMetaDao;
+import org.wnn.portal.zipper.dao.entity.ZipperTableMeta;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 拉链表元信息本地缓存的加载与异常
+ *
+ * @author NanNan Wang
+ */
+class ZipperTableMetaServiceTest {
+
+    private static final String TABLE_NAME = "job_info_zipper";
+
+    private final ZipperTableMetaDao zipperTableMetaDao = mock(ZipperTableMetaDao.class);
+
+    private ZipperTableMetaService zipperTableMetaService;
+
+    @BeforeEach
+    void setUp() {
+        zipperTableMetaService = new ZipperTableMetaService(zipperTableMetaDao, new ZipperProperties(), mock(StringRedisTemplate.class));
+        zipperTableMetaService.initCache();
+    }
+
+    @Test
+    void loadedMetaIsCached() {
+        ZipperTableMeta meta = new ZipperTableMeta();
+        meta.setZipperTableName(TABLE_NAME);
+        when(zipperTableMetaDao.selectByTableName(TABLE_NAME)).thenReturn(meta);
+
+        assertSame(meta, zipperTableMetaService.getByTableName(TABLE_NAME));
+        assertSame(meta, zipperTableMetaService.getByTableName(TABLE_NAME));
+        verify(zipperTableMetaDao, times(1)).selectByTableName(TABLE_NAME);
+    }
+
+    @Test
+    void missingTableIsCachedAsNull() {
+        assertNull(zipperTableMetaService.getByTableName("missing"));
+        assertNull(zipperTableMetaService.getByTableName("missing"));
+        verify(zipperTableMetaDao, times(1)).selectByTableName("missing");
+    }
+
+    @Test
+    void loadFailureRethrowsTheOriginalExceptionAndIsNotCached() {
+        DataAccessResourceFailureException failure = new DataAccessResourceFailureException("数据库不可用");
+        when(zipperTableMetaDao.selectByTableName(TABLE_NAME)).thenThrow(failure).thenReturn(null);
+
+        assertSame(failure, assertThrows(DataAccessResourceFailureException.class,
+                () -> zipperTableMetaService.getByTableName(TABLE_NAME)));
+        assertNull(zipperTableMetaService.getByTableName(TABLE_NAME));
+        verify(zipperTableMetaDao, times(2)).selectByTableName(TABLE_NAME);
+    }
+}
@@ -0,0 +1,154 @@
+package org.wnn.core.log;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 耗时直方图（HDR风格的对数-线性分桶）
+ * <p>
+ * 以微秒为单位记录，0 ~ 31 微秒每个值一个桶；之后每个2的幂区间再均分为16个子桶，相对误差不超过 1/16，
+ * 上限 2^36 微秒（约19小时），超过的按上限记录。共 {@value #BUCKET_COUNT} 个桶，
+ * 记录只是一次 {@link AtomicLongArray#incrementAndGet}，无锁、不分配对象，可在每个请求、每条SQL的执行路径上调用。
+ * </p>
+ * <p>
+ * 百分位在 {@link Snapshot} 上计算，返回所在桶的上界（与HdrHistogram的 highestEquivalentValue 一致）。
+ * 快照之间可以相减，得到两次快照之间的分布，用于周期输出。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public final class LatencyHistogram {
+
+    private static final int LINEAR_BITS = 5;
+    private static final int LINEAR_COUNT = 1 << LINEAR_BITS; // 线性区的桶数（0 ~ 31）
+    private static final int SUB_BUCKET_COUNT = LINEAR_COUNT >> 1; // 每个2的幂区间的子桶数
+    private static final int MAX_BITS = 36;
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+    static final int BUCKET_COUNT = LINEAR_COUNT + (MAX_BITS - LINEAR_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * 记录一次耗时
+     *
+     * @param micros 耗时（微秒），负数按0记录
+     */
+    public void record(long micros) {
+        counts.incrementAndGet(bucketOf(micros));
+    }
+
+    /**
+     * 复制当前各桶的计数（与并发记录之间不保证原子，误差为复制期间新增的记录）
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(copy);
+    }
+
+    /**
+     * 清空计数
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    static int bucketOf(long value) {
+        if (value < LINEAR_COUNT) {
+            return value < 0 ? 0 : (int) value;
+        }
+        long v = Math.min(value, MAX_VALUE);
+        int shift = 63 - Long.numberOfLeadingZeros(v) - (LINEAR_BITS - 1); // 使 v >> shift 落在 [16, 32)
+        return LINEAR_COUNT + (shift - 1) * SUB_BUCKET_COUNT + (int) (v >> shift) - SUB_BUCKET_COUNT;
+    }
+
+    /**
+     * 桶内可记录的最大值
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < LINEAR_COUNT) {
+            return bucket;
+        }
+        int offset = bucket - LINEAR_COUNT;
+        int shift = offset / SUB_BUCKET_COUNT + 1;
+        long sub = offset % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * 直方图快照（不可变）
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long totalCount;
+
+        private Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for (long count : counts) {
+                total += count;
+            }
+            this.totalCount = total;
+        }
+
+        /**
+         * 记录的总次数
+         */
+        public long getTotalCount() {
+            return totalCount;
+        }
+
+        /**
+         * 百分位耗时（微秒）
+         *
+         * @param percentile 百分位，如 99 表示p99
+         * @return 不小于该百分位的最小桶上界，没有记录时返回0
+         */
+        public long percentile(double percentile) {
+            if (totalCount == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestValueOf(i);
+                }
+            }
+            return highestValueOf(counts.length - 1);
+        }
+
+        /**
+         * 最大耗时所在桶的上界（微秒），没有记录时返回0
+         */
+        public long max() {
+            for (int i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] > 0) {
+                    return highestValueOf(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * 与更早的快照相减，得到两次快照之间的分布
+         *
+         * @param earlier 更早的快照，为null时返回自身
+         */
+        public Snapshot minus(Snapshot earlier) {
+            if (earlier == null) {
+                return this;
+            }
+            long[] delta = new long[counts.length];
+            for (int i = 0; i < counts.length; i++) {
+                delta[i] = Math.max(0, counts[i] - earlier.counts[i]);
+            }
+            return new Snapshot(delta);
+        }
+    }
+}
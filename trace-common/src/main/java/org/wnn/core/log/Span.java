@@ -0,0 +1,81 @@
+package org.wnn.core.log;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * 链路中的一段调用（span）
+ * <p>
+ * traceId 为整条链路的标识，spanId 为本段调用的标识（16位小写十六进制），parentSpanId 为发起本段调用的上一段，
+ * 与W3C trace-context中的 trace-id、parent-id 对应。开始时间记录墙上时钟（微秒），耗时用 {@link System#nanoTime()} 计算，
+ * 调用 {@link TraceContext#finish(Span)} 结束后交给 {@link SpanCollector}。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@Getter
+public final class Span {
+
+    /**
+     * 调用类型
+     */
+    public enum Kind {
+        /**
+         * 进入本服务的HTTP请求
+         */
+        SERVER,
+        /**
+         * 调用其他服务（Feign）
+         */
+        CLIENT,
+        /**
+         * 数据库语句（MyBatis）
+         */
+        DB,
+        /**
+         * 异步任务
+         */
+        ASYNC
+    }
+
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;  // 根span为null
+    private final String name;
+    private final Kind kind;
+    private final long startEpochMicros; // 开始时间（微秒时间戳）
+    @Getter(AccessLevel.PACKAGE)
+    private final long startNanos;     // 开始时的 System.nanoTime()，只用于计算耗时
+    private volatile long durationMicros = -1; // 耗时（微秒），未结束时为-1
+    private volatile boolean error;
+
+    Span(String traceId, String spanId, String parentSpanId, String name, Kind kind, long startEpochMicros, long startNanos) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.kind = kind;
+        this.startEpochMicros = startEpochMicros;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * 标记本段调用失败
+     */
+    public void markError() {
+        this.error = true;
+    }
+
+    /**
+     * 结束计时，只有第一次调用生效
+     *
+     * @return 本次是否结束了计时
+     */
+    synchronized boolean end(long durationMicros) {
+        if (this.durationMicros >= 0) {
+            return false;
+        }
+        this.durationMicros = Math.max(0, durationMicros);
+        return true;
+    }
+}
@@ -0,0 +1,18 @@
+package org.wnn.core.log;
+
+/**
+ * span收集器：接收已结束的span
+ * <p>
+ * 由 {@link TraceContext#setSpanCollector(SpanCollector)} 注册，web-common中的实现为进程内环形缓冲区 SpanBuffer。
+ * 在请求线程上调用，实现不应加锁或阻塞。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public interface SpanCollector {
+
+    /**
+     * 写入一个已结束的span
+     */
+    void add(Span span);
+}
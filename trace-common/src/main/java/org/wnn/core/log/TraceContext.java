@@ -0,0 +1,314 @@
+package org.wnn.core.log;
+
+import com.alibaba.ttl.TransmittableThreadLocal;
+import com.alibaba.ttl.TtlRunnable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 链路上下文：traceId 与当前span
+ * <p>
+ * traceId和当前span都保存在 {@link TransmittableThreadLocal} 中，经过TTL包装的线程池也能透传；
+ * 同时同步到MDC（traceId、spanId），日志可以直接输出，Feign拦截器、MyBatis拦截器等不依赖本模块的组件也从MDC读取。
+ * 调用 {@link #setSpanCollector(SpanCollector)} 后，结束的span写入收集器，未设置时只透传ID、不记录span。
+ * 入口span开始和结束时回调注册的 {@link TraceListener}。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class TraceContext {
+
+    private static final Logger log = LoggerFactory.getLogger(TraceContext.class);
+
+    // 1. 存储traceId（使用TransmittableThreadLocal，支持线程池/异步线程透传）
+    private static final TransmittableThreadLocal<String> TRACE_ID_THREAD_LOCAL = new TransmittableThreadLocal<>();
+    // 当前span，子span以它为父
+    private static final TransmittableThreadLocal<Span> SPAN_THREAD_LOCAL = new TransmittableThreadLocal<>();
+    static final String TRACE_ID_KEY = "traceId";
+    static final String SPAN_ID_KEY = "spanId";
+    private static final String TRACE_ID_HEADER = "X-Trace-Id";
+
+    private static volatile SpanCollector spanCollector;
+    private static final List<TraceListener> TRACE_LISTENERS = new CopyOnWriteArrayList<>();
+
+    // 2. 设置traceId到上下文
+    public static void setTraceId(String traceId) {
+        TRACE_ID_THREAD_LOCAL.set(traceId);
+        // 同时同步到MDC，保证日志打印正常
+        MDC.put(TRACE_ID_KEY, traceId);
+    }
+
+    // 3. 从上下文获取traceId
+    public static String getTraceId() {
+        return TRACE_ID_THREAD_LOCAL.get();
+    }
+
+    // 4. 清除上下文（避免内存泄漏）
+    public static void clear() {
+        TRACE_ID_THREAD_LOCAL.remove();
+        SPAN_THREAD_LOCAL.remove();
+        MDC.remove(TRACE_ID_KEY);
+        MDC.remove(SPAN_ID_KEY);
+    }
+
+    /**
+     * 设置span收集器，为null时不记录span
+     */
+    public static void setSpanCollector(SpanCollector collector) {
+        spanCollector = collector;
+    }
+
+    /**
+     * 注册链路开始/结束回调
+     */
+    public static void addTraceListener(TraceListener listener) {
+        TRACE_LISTENERS.add(listener);
+    }
+
+    /**
+     * 移除链路开始/结束回调
+     */
+    public static void removeTraceListener(TraceListener listener) {
+        TRACE_LISTENERS.remove(listener);
+    }
+
+    /**
+     * 当前span，没有时为null
+     */
+    public static Span currentSpan() {
+        return SPAN_THREAD_LOCAL.get();
+    }
+
+    /**
+     * 开始链路在本服务的入口span并设为当前span，同时设置traceId
+     *
+     * @param traceId 链路ID
+     * @param parentSpanId 上游的spanId（来自traceparent），没有时为null
+     * @param name span名称
+     * @return 入口span，需在请求结束时调用 {@link #finish(Span)}
+     */
+    public static Span startTrace(String traceId, String parentSpanId, String name) {
+        setTraceId(traceId);
+        Span span = new Span(traceId, newSpanId(), parentSpanId, name, Span.Kind.SERVER,
+                currentEpochMicros(), System.nanoTime());
+        setCurrentSpan(span);
+        for (TraceListener listener : TRACE_LISTENERS) {
+            try {
+                listener.onTraceStart(span);
+            } catch (RuntimeException e) {
+                log.warn("链路开始回调失败：{}", listener, e);
+            }
+        }
+        return span;
+    }
+
+    /**
+     * 结束span并写入收集器，入口span结束时回调 {@link TraceListener#onTraceFinish(Span)}
+     */
+    public static void finish(Span span) {
+        if (span != null && span.end(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - span.getStartNanos()))) {
+            SpanCollector collector = spanCollector;
+            if (collector != null) {
+                collector.add(span);
+            }
+            if (span.getKind() == Span.Kind.SERVER) {
+                for (TraceListener listener : TRACE_LISTENERS) {
+                    try {
+                        listener.onTraceFinish(span);
+                    } catch (RuntimeException e) {
+                        log.warn("链路结束回调失败：{}", listener, e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 当前线程是否在记录span（已设置span收集器且处在链路中），调用方可据此跳过构造span名称等准备工作
+     */
+    public static boolean isRecording() {
+        return spanCollector != null && getTraceId() != null;
+    }
+
+    /**
+     * 记录一段已完成、由调用方自行计时的子调用（如SQL、Feign调用），父span为当前span；不在链路中时忽略
+     *
+     * @param spanId 子调用的spanId，为null时生成（Feign调用传入traceparent中发出的ID，便于与下游对应）
+     * @param name span名称
+     * @param kind 调用类型
+     * @param startEpochMicros 开始时间（微秒时间戳）
+     * @param durationNanos 耗时（纳秒）
+     * @param error 是否失败
+     */
+    public static void recordSpan(String spanId, String name, Span.Kind kind, long startEpochMicros, long durationNanos,
+                                  boolean error) {
+        SpanCollector collector = spanCollector;
+        String traceId = getTraceId();
+        if (collector == null || traceId == null) {
+            return;
+        }
+        Span parent = currentSpan();
+        Span span = new Span(traceId, spanId != null ? spanId : newSpanId(), parent != null ? parent.getSpanId() : null,
+                name, kind, startEpochMicros, 0);
+        if (error) {
+            span.markError();
+        }
+        span.end(TimeUnit.NANOSECONDS.toMicros(durationNanos));
+        collector.add(span);
+    }
+
+    /**
+     * 生成spanId：64位随机数（不为0），16位小写十六进制
+     */
+    public static String newSpanId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        String hex = Long.toHexString(id);
+        return hex.length() == 16 ? hex : "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    /**
+     * 当前时间（微秒时间戳）
+     */
+    public static long currentEpochMicros() {
+        return TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    }
+
+    // 5. 包装Runnable，支持异步线程透传traceId和当前span（不记录span，需要记录时用 asyncSpan）
+    public static Runnable wrap(Runnable runnable) {
+        return TtlRunnable.get(runnable);
+    }
+
+    // 6. 包装Supplier，支持异步线程透传traceId和当前span（不记录span，需要记录时用 asyncSpan）
+    // 可选: Supplier 封装（如果你需要 supplyAsync）
+    public static <T> Supplier<T> wrap(Supplier<T> supplier) {
+        String traceId = getTraceId();
+        if (traceId == null) {
+            return supplier;
+        }
+        Span span = currentSpan();
+        return () -> {
+            String previousTraceId = getTraceId();
+            Span previousSpan = currentSpan();
+            String previousMdcTraceId = MDC.get(TRACE_ID_KEY);
+            String previousMdcSpanId = MDC.get(SPAN_ID_KEY);
+            attach(traceId, span);
+            try {
+                return supplier.get();
+            } finally {
+                detach(previousTraceId, previousSpan, previousMdcTraceId, previousMdcSpanId);
+            }
+        };
+    }
+
+    /**
+     * 包装为异步任务span：提交时记下当前span，执行时以它为父开始新的span并设为执行线程的当前span，结束后恢复执行线程原有的上下文
+     *
+     * @param runnable 异步任务
+     * @param name span名称
+     */
+    public static Runnable asyncSpan(Runnable runnable, String name) {
+        String traceId = getTraceId();
+        if (traceId == null) {
+            return runnable;
+        }
+        Span parent = currentSpan();
+        return () -> runInAsyncSpan(traceId, parent, name, () -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * 包装为异步任务span，同 {@link #asyncSpan(Runnable, String)}
+     *
+     * @param supplier 异步任务
+     * @param name span名称
+     */
+    public static <T> Supplier<T> asyncSpan(Supplier<T> supplier, String name) {
+        String traceId = getTraceId();
+        if (traceId == null) {
+            return supplier;
+        }
+        Span parent = currentSpan();
+        return () -> runInAsyncSpan(traceId, parent, name, supplier);
+    }
+
+    private static <T> T runInAsyncSpan(String traceId, Span parent, String name, Supplier<T> task) {
+        String previousTraceId = getTraceId();
+        Span previousSpan = currentSpan();
+        String previousMdcTraceId = MDC.get(TRACE_ID_KEY);
+        String previousMdcSpanId = MDC.get(SPAN_ID_KEY);
+        setTraceId(traceId);
+        Span span = startAsyncSpan(traceId, parent, name);
+        try {
+            return task.get();
+        } catch (RuntimeException | Error e) {
+            span.markError();
+            throw e;
+        } finally {
+            finish(span);
+            detach(previousTraceId, previousSpan, previousMdcTraceId, previousMdcSpanId);
+        }
+    }
+
+    /**
+     * 把提交线程的链路上下文设置到执行线程，span为null时清除当前span
+     */
+    static void attach(String traceId, Span span) {
+        setTraceId(traceId);
+        setCurrentSpan(span);
+    }
+
+    /**
+     * 恢复执行线程原有的链路上下文，参数为 {@link #attach} 之前读取的值
+     */
+    static void detach(String previousTraceId, Span previousSpan, String previousMdcTraceId, String previousMdcSpanId) {
+        restore(TRACE_ID_THREAD_LOCAL, previousTraceId);
+        restore(SPAN_THREAD_LOCAL, previousSpan);
+        restoreMdc(TRACE_ID_KEY, previousMdcTraceId);
+        restoreMdc(SPAN_ID_KEY, previousMdcSpanId);
+    }
+
+    private static <T> void restore(TransmittableThreadLocal<T> threadLocal, T value) {
+        if (value == null) {
+            threadLocal.remove();
+        } else {
+            threadLocal.set(value);
+        }
+    }
+
+    static void restoreMdc(String key, String value) {
+        if (value == null) {
+            MDC.remove(key);
+        } else {
+            MDC.put(key, value);
+        }
+    }
+
+    static Span startAsyncSpan(String traceId, Span parent, String name) {
+        Span span = new Span(traceId, newSpanId(), parent != null ? parent.getSpanId() : null, name, Span.Kind.ASYNC,
+                currentEpochMicros(), System.nanoTime());
+        setCurrentSpan(span);
+        return span;
+    }
+
+    private static void setCurrentSpan(Span span) {
+        if (span == null) {
+            SPAN_THREAD_LOCAL.remove();
+            MDC.remove(SPAN_ID_KEY);
+        } else {
+            SPAN_THREAD_LOCAL.set(span);
+            MDC.put(SPAN_ID_KEY, span.getSpanId());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.wnn.core.log;
+
+/**
+ * 链路在本服务的开始与结束回调
+ * <p>
+ * 由 {@link TraceContext#addTraceListener(TraceListener)} 注册，在 {@link TraceContext#startTrace} 开始入口span
+ * 和 {@link TraceContext#finish(Span)} 结束入口span（{@link Span.Kind#SERVER}）时在请求线程上调用，
+ * 适合需要按请求汇总、在请求结束时判定的组件（如请求级SQL往返检测）。实现应尽量轻量，抛出的异常只记录日志、不影响请求。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public interface TraceListener {
+
+    /**
+     * 入口span已开始
+     */
+    void onTraceStart(Span span);
+
+    /**
+     * 入口span已结束
+     */
+    void onTraceFinish(Span span);
+}
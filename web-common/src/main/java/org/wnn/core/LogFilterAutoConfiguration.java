@@ -1,19 +1,47 @@
 package org.wnn.core;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.wnn.core.log.HttpRouteMetrics;
+import org.wnn.core.log.HttpRouteStatsEndpoint;
+import org.wnn.core.log.HttpRouteStatsRegistry;
+import org.wnn.core.log.RequestLogMetrics;
+import org.wnn.core.log.RandomTraceIdGenerator;
+import org.wnn.core.log.RequestLogWriter;
+import org.wnn.core.log.SpanBuffer;
+import org.wnn.core.log.SpanEndpoint;
+import org.wnn.core.log.SpanExporter;
+import org.wnn.core.log.TraceContext;
+import org.wnn.core.log.TimeBasedTraceIdGenerator;
+import org.wnn.core.log.TraceIdGenerator;
+import org.wnn.core.log.TraceProperties;
 import org.wnn.core.log.WebHttpRequestLoggingFilter;
 import org.wnn.core.log.TraceIdFilter;
 
+import java.lang.management.ManagementFactory;
+import java.util.stream.Collectors;
+
 /**
  * 请求日志过滤器与TraceId过滤器的自动配置类
  *
  * <p>该类基于Spring Boot自动配置机制，负责将{@link TraceIdFilter}和{@link WebHttpRequestLoggingFilter}
  * 注册到Spring容器中，并配置其执行顺序和拦截的URL模式。同时启用{@link WebHttpRequestLoggingFilter.LoggingProperties}
- * 配置属性绑定，支持通过外部配置自定义请求日志行为。
+ * 配置属性绑定，支持通过外部配置自定义请求日志行为。请求日志由{@link RequestLogWriter}在后台线程输出，
+ * 存在micrometer时注册其队列深度与丢弃数量指标。
+ * 过滤器同时把每个请求按接口记入{@link HttpRouteStatsRegistry}（logging.request.metrics.enabled，默认开启），
+ * 存在actuator时注册监控端点，存在micrometer时注册各接口的请求数与耗时百分位指标。
+ * traceId由{@link TraceIdGenerator}生成（logging.trace.id-format），业务注册自己的实现Bean时使用业务的实现。
+ * HTTP入口、Feign调用、SQL、异步任务记录为span写入{@link SpanBuffer}（logging.trace.spans.enabled，默认开启），
+ * 注册了{@link SpanExporter}时按批导出，存在actuator时注册span监控端点。
  *
  * @author NanNan Wang
  * @see WebHttpRequestLoggingFilter
@@ -21,9 +49,15 @@ import org.wnn.core.log.TraceIdFilter;
  * @see WebHttpRequestLoggingFilter.LoggingProperties
  */
 @Configuration
-@EnableConfigurationProperties(WebHttpRequestLoggingFilter.LoggingProperties.class)
+@EnableConfigurationProperties({WebHttpRequestLoggingFilter.LoggingProperties.class, TraceProperties.class})
 public class LogFilterAutoConfiguration {
 
+    /**
+     * 接口请求统计的启用条件：请求日志过滤器已启用，且未关闭 logging.request.metrics.enabled
+     */
+    static final String ROUTE_METRICS_ENABLED =
+            "${logging.request.enabled:false} and ${logging.request.metrics.enabled:true}";
+
     private final WebHttpRequestLoggingFilter.LoggingProperties props;
 
     public LogFilterAutoConfiguration(WebHttpRequestLoggingFilter.LoggingProperties props) {
@@ -38,12 +72,13 @@ public class LogFilterAutoConfiguration {
      * 确保在请求处理链路的早期生成并注入TraceId，以便后续日志能关联同一请求的追踪ID。
      * 拦截所有URL路径("/*")。
      *
+     * @param traceIdGenerator traceId生成器
      * @return 配置好的TraceIdFilter注册Bean
      */
     @Bean
-    public FilterRegistrationBean<TraceIdFilter> traceIdFilter() {
+    public FilterRegistrationBean<TraceIdFilter> traceIdFilter(TraceIdGenerator traceIdGenerator) {
         FilterRegistrationBean<TraceIdFilter> registration = new FilterRegistrationBean<>();
-        registration.setFilter(new TraceIdFilter());
+        registration.setFilter(new TraceIdFilter(traceIdGenerator));
         registration.setOrder(1);  // 确保在 TraceIdFilter 之后
         registration.addUrlPatterns("/*");
         return registration;
@@ -56,15 +91,120 @@ public class LogFilterAutoConfiguration {
      * 确保日志中能包含已生成的TraceId。通过注入的{@link WebHttpRequestLoggingFilter.LoggingProperties}
      * 配置过滤器行为，拦截所有URL路径("/*")。
      *
+     * @param requestLogWriter 请求日志输出
+     * @param routeStatsRegistry 接口请求统计，未启用时为空
+     * @param traceIdGenerator traceId生成器
      * @return 配置好的RequestLoggingFilter注册Bean
      */
     @Bean
     @ConditionalOnProperty(prefix = "logging.request", name = "enabled", havingValue = "true")
-    public FilterRegistrationBean<WebHttpRequestLoggingFilter> requestLoggingFilter() {
+    public FilterRegistrationBean<WebHttpRequestLoggingFilter> requestLoggingFilter(RequestLogWriter requestLogWriter,
+            ObjectProvider<HttpRouteStatsRegistry> routeStatsRegistry, TraceIdGenerator traceIdGenerator) {
         FilterRegistrationBean<WebHttpRequestLoggingFilter> registration = new FilterRegistrationBean<>();
-        registration.setFilter(new WebHttpRequestLoggingFilter(props));
+        registration.setFilter(new WebHttpRequestLoggingFilter(props, requestLogWriter, routeStatsRegistry.getIfAvailable(),
+                traceIdGenerator));
         registration.setOrder(2);  // 确保在 TraceIdFilter 之后
         registration.addUrlPatterns("/*");
         return registration;
     }
+
+    /**
+     * 注册traceId生成器Bean，按 logging.trace.id-format 选择格式，业务已注册时不创建
+     *
+     * @param traceProperties traceId配置
+     * @return traceId生成器
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public TraceIdGenerator traceIdGenerator(TraceProperties traceProperties) {
+        switch (traceProperties.getIdFormat()) {
+            case TIME_BASED:
+                Long nodeId = traceProperties.getNodeId();
+                // 未配置时由 pid@主机名 计算，同一主机上的多个进程也能区分
+                return new TimeBasedTraceIdGenerator(nodeId != null ? nodeId
+                        : ManagementFactory.getRuntimeMXBean().getName().hashCode());
+            case W3C:
+                return new RandomTraceIdGenerator(false);
+            default:
+                return new RandomTraceIdGenerator();
+        }
+    }
+
+    /**
+     * 注册span缓冲区Bean，并设置到{@link TraceContext}，之后结束的span写入该缓冲区
+     *
+     * @param traceProperties traceId配置
+     * @param exporters 业务注册的span导出
+     * @return span缓冲区
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "logging.trace.spans", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public SpanBuffer spanBuffer(TraceProperties traceProperties, ObjectProvider<SpanExporter> exporters) {
+        SpanBuffer spanBuffer = new SpanBuffer(traceProperties.getSpans(), exporters.orderedStream().collect(Collectors.toList()));
+        TraceContext.setSpanCollector(spanBuffer);
+        return spanBuffer;
+    }
+
+    /**
+     * 注册请求日志输出Bean，请求日志快照放入有界队列后由后台线程解码、掩码、序列化并写日志
+     *
+     * @return 请求日志输出
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "logging.request", name = "enabled", havingValue = "true")
+    public RequestLogWriter requestLogWriter() {
+        return new RequestLogWriter(props);
+    }
+
+    /**
+     * 注册接口请求统计Bean，由请求日志过滤器按接口记录每个请求的耗时分布和状态码类别
+     *
+     * @return 接口请求统计
+     */
+    @Bean
+    @ConditionalOnExpression(ROUTE_METRICS_ENABLED)
+    public HttpRouteStatsRegistry httpRouteStatsRegistry() {
+        return new HttpRouteStatsRegistry(props.getMetrics());
+    }
+
+    /**
+     * 存在micrometer时注册请求日志输出与接口请求统计的监控指标
+     */
+    @Configuration
+    @ConditionalOnClass(MeterRegistry.class)
+    static class RequestLogMetricsConfiguration {
+
+        @Bean
+        @ConditionalOnProperty(prefix = "logging.request", name = "enabled", havingValue = "true")
+        public RequestLogMetrics requestLogMetrics(RequestLogWriter requestLogWriter) {
+            return new RequestLogMetrics(requestLogWriter);
+        }
+
+        @Bean
+        @ConditionalOnExpression(ROUTE_METRICS_ENABLED)
+        public HttpRouteMetrics httpRouteMetrics(HttpRouteStatsRegistry routeStatsRegistry,
+                                                 WebHttpRequestLoggingFilter.LoggingProperties props) {
+            return new HttpRouteMetrics(routeStatsRegistry, props.getMetrics().getLatencyWindowSeconds());
+        }
+    }
+
+    /**
+     * 存在actuator时注册接口请求统计与span的监控端点
+     */
+    @Configuration
+    @ConditionalOnClass(Endpoint.class)
+    static class LogEndpointConfiguration {
+
+        @Bean
+        @ConditionalOnProperty(prefix = "logging.trace.spans", name = "enabled", havingValue = "true", matchIfMissing = true)
+        public SpanEndpoint spanEndpoint(SpanBuffer spanBuffer) {
+            return new SpanEndpoint(spanBuffer);
+        }
+
+        @Bean
+        @ConditionalOnExpression(ROUTE_METRICS_ENABLED)
+        public HttpRouteStatsEndpoint httpRouteStatsEndpoint(HttpRouteStatsRegistry routeStatsRegistry) {
+            return new HttpRouteStatsEndpoint(routeStatsRegistry);
+        }
+    }
 }
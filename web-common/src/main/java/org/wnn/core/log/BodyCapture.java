@@ -0,0 +1,100 @@
+package org.wnn.core.log;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 请求/响应体的有界捕获
+ * <p>
+ * 请求体、响应体照常直接读写原始流，同时只把前 limit 个字节复制到缓冲区，超出部分只计数不保存。
+ * 缓冲区在第一次有数据时才从 {@link Pool} 借出，没有请求体/响应体的请求不占用缓冲区；
+ * 日志只需要前 limit 个字节，不再把完整的报文缓存在内存中。
+ * </p>
+ * <p>
+ * 非线程安全，一个请求一个实例；请求结束后必须调用 {@link #release()} 归还缓冲区，归还后不能再使用。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class BodyCapture {
+
+    private final Pool pool;
+    private byte[] buffer;
+    private int captured;
+    private long total;
+
+    public BodyCapture(Pool pool) {
+        this.pool = pool;
+    }
+
+    public void write(int b) {
+        if (captured < pool.bufferSize) {
+            ensureBuffer()[captured++] = (byte) b;
+        }
+        total++;
+    }
+
+    public void write(byte[] bytes, int offset, int length) {
+        int copy = Math.min(length, pool.bufferSize - captured);
+        if (copy > 0) {
+            System.arraycopy(bytes, offset, ensureBuffer(), captured, copy);
+            captured += copy;
+        }
+        total += length;
+    }
+
+    /**
+     * 已捕获字节的副本（至多 limit 个字节）
+     */
+    public byte[] toByteArray() {
+        return buffer == null ? new byte[0] : Arrays.copyOf(buffer, captured);
+    }
+
+    /**
+     * 经过的总字节数（含未捕获的部分）
+     */
+    public long getTotalLength() {
+        return total;
+    }
+
+    /**
+     * 归还缓冲区
+     */
+    public void release() {
+        if (buffer != null) {
+            pool.release(buffer);
+            buffer = null;
+        }
+    }
+
+    private byte[] ensureBuffer() {
+        if (buffer == null) {
+            buffer = pool.borrow();
+        }
+        return buffer;
+    }
+
+    /**
+     * 固定大小的缓冲区池，池空时新建，池满时归还的缓冲区直接丢弃
+     */
+    public static class Pool {
+
+        private final int bufferSize;
+        private final BlockingQueue<byte[]> buffers;
+
+        public Pool(int bufferSize, int capacity) {
+            this.bufferSize = Math.max(0, bufferSize);
+            this.buffers = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        }
+
+        byte[] borrow() {
+            byte[] buffer = buffers.poll();
+            return buffer != null ? buffer : new byte[bufferSize];
+        }
+
+        void release(byte[] buffer) {
+            buffers.offer(buffer);
+        }
+    }
+}
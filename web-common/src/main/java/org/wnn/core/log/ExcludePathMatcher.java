@@ -0,0 +1,185 @@
+package org.wnn.core.log;
+
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 请求日志排除路径匹配器
+ * <p>
+ * 排除路径（Ant风格）在构造时编译一次：
+ * <ul>
+ *   <li>不含通配符的路径放入集合，一次哈希查找；与AntPathMatcher一样忽略空路径段，路径和URI中连续的 / 按一个处理</li>
+ *   <li>形如 {@code /swagger-resources/**} 的前缀路径（{@code /**} 之前不含通配符）放入按路径段组织的前缀树，沿URI的路径段走一遍</li>
+ *   <li>其余含通配符的路径（如 {@code /**}{@code /*.js}）仍交给 {@link AntPathMatcher}，与原有匹配语义一致</li>
+ * </ul>
+ * 匹配结果（包括不排除的结果）按URI缓存，同一URI再次请求只需一次查找；缓存数量达到上限后整体清空重建，
+ * 避免带路径参数的URI把内存撑满。实例不可变（缓存除外），可被多个线程共用。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class ExcludePathMatcher {
+
+    private static final String ANY_PATH = "**";
+
+    private final List<String> source;
+    private final Set<String> exactPaths = new HashSet<>();
+    private final Node prefixTree = new Node();
+    private final List<String> wildcardPatterns = new ArrayList<>();
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+    private final int maxCacheSize;
+
+    /**
+     * @param patterns 排除路径列表（Ant风格）
+     * @param maxCacheSize 最多缓存的URI数量，不大于0时不缓存
+     */
+    public ExcludePathMatcher(List<String> patterns, int maxCacheSize) {
+        this.source = patterns;
+        this.maxCacheSize = maxCacheSize;
+        for (String pattern : patterns == null ? Collections.<String>emptyList() : patterns) {
+            if (pattern != null && !pattern.isEmpty()) {
+                compile(pattern);
+            }
+        }
+    }
+
+    /**
+     * 是否由给定的排除路径列表编译而来（按引用比较，配置刷新后绑定的是新的列表）
+     */
+    public boolean isCompiledFrom(List<String> patterns) {
+        return source == patterns;
+    }
+
+    /**
+     * 判断URI是否在排除路径中
+     *
+     * @param uri 请求URI
+     * @return true表示排除
+     */
+    public boolean matches(String uri) {
+        if (maxCacheSize <= 0) {
+            return doMatch(uri);
+        }
+        Boolean decision = decisions.get(uri);
+        if (decision != null) {
+            return decision;
+        }
+        boolean matched = doMatch(uri);
+        if (decisions.size() >= maxCacheSize) {
+            decisions.clear();
+        }
+        decisions.put(uri, matched);
+        return matched;
+    }
+
+    private boolean doMatch(String uri) {
+        if (exactPaths.contains(uri) || matchesPrefix(uri)
+                || (uri.contains("//") && exactPaths.contains(collapseSlashes(uri)))) {
+            return true;
+        }
+        for (String pattern : wildcardPatterns) {
+            if (pathMatcher.match(pattern, uri)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void compile(String pattern) {
+        if (!hasWildcard(pattern)) {
+            exactPaths.add(collapseSlashes(pattern));
+            return;
+        }
+        // 只有以 /** 结尾、前面都是普通路径段的才放入前缀树，与AntPathMatcher一致，/a/** 同时匹配 /a
+        if (pattern.startsWith("/") && pattern.endsWith("/" + ANY_PATH)) {
+            String prefix = pattern.substring(0, pattern.length() - ANY_PATH.length() - 1);
+            if (!hasWildcard(prefix)) {
+                Node node = prefixTree;
+                for (String segment : segments(prefix)) {
+                    node = node.children.computeIfAbsent(segment, s -> new Node());
+                }
+                node.terminal = true;
+                return;
+            }
+        }
+        wildcardPatterns.add(pattern);
+    }
+
+    private boolean matchesPrefix(String uri) {
+        Node node = prefixTree;
+        if (!uri.startsWith("/")) {
+            return false;
+        }
+        if (node.terminal) {
+            return true;
+        }
+        int length = uri.length();
+        int start = 0;
+        while (start < length) {
+            int end = uri.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            // 与AntPathMatcher一样忽略空路径段（连续的 /）
+            if (end > start) {
+                node = node.children.get(uri.substring(start, end));
+                if (node == null) {
+                    return false;
+                }
+                if (node.terminal) {
+                    return true;
+                }
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * 连续的 / 合并为一个
+     */
+    private static String collapseSlashes(String path) {
+        if (!path.contains("//")) {
+            return path;
+        }
+        StringBuilder collapsed = new StringBuilder(path.length());
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c != '/' || collapsed.length() == 0 || collapsed.charAt(collapsed.length() - 1) != '/') {
+                collapsed.append(c);
+            }
+        }
+        return collapsed.toString();
+    }
+
+    private static boolean hasWildcard(String path) {
+        return path.indexOf('*') >= 0 || path.indexOf('?') >= 0 || path.indexOf('{') >= 0;
+    }
+
+    /**
+     * 前缀树节点，terminal表示到此为止的路径段构成一个 /** 前缀
+     */
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private boolean terminal;
+    }
+}
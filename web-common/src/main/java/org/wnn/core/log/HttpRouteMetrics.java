@@ -0,0 +1,56 @@
+package org.wnn.core.log;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 接口请求统计的监控指标，每个接口（请求方法 + 路由模板）一组：
+ * <ul>
+ *   <li>http.route.requests{method,route,status}：各状态码类别（1xx ~ 5xx）的请求数</li>
+ *   <li>http.route.latency{method,route,quantile}：p50、p95、p99耗时（毫秒），取自进程内直方图最近一个时间窗口的分布，
+ *   不会被启动以来的累计分布冲淡，能反映最近的耗时变化</li>
+ * </ul>
+ * 接口第一次被请求时注册其指标。
+ *
+ * @author NanNan Wang
+ */
+@RequiredArgsConstructor
+public class HttpRouteMetrics implements MeterBinder {
+
+    private static final double[] QUANTILES = {50, 95, 99};
+
+    private final HttpRouteStatsRegistry routeStatsRegistry;
+    private final long latencyWindowSeconds;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        routeStatsRegistry.forEachRoute(stats -> register(registry, stats));
+    }
+
+    private void register(MeterRegistry registry, HttpRouteStats stats) {
+        Tags tags = Tags.of("method", stats.getMethod(), "route", stats.getRoute());
+        for (int i = 0; i < HttpRouteStats.STATUS_CLASSES.length; i++) {
+            int statusClass = i;
+            FunctionCounter.builder("http.route.requests", stats, s -> s.getStatusCount(statusClass))
+                    .tags(tags)
+                    .tag("status", HttpRouteStats.STATUS_CLASSES[i])
+                    .description("各接口按状态码类别的请求数")
+                    .register(registry);
+        }
+        long windowNanos = TimeUnit.SECONDS.toNanos(Math.max(1, latencyWindowSeconds));
+        for (double quantile : QUANTILES) {
+            Gauge.builder("http.route.latency", stats, s -> s.recentHistogram(windowNanos).percentile(quantile) / 1000d)
+                    .tags(tags)
+                    .tag("quantile", String.valueOf(quantile / 100))
+                    .baseUnit("milliseconds")
+                    .description("各接口最近一个时间窗口的耗时百分位")
+                    .register(registry);
+        }
+    }
+}
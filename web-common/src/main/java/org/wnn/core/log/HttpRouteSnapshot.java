@@ -0,0 +1,24 @@
+package org.wnn.core.log;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 接口请求统计快照，由监控端点输出
+ *
+ * @author NanNan Wang
+ */
+@Data
+public class HttpRouteSnapshot {
+    private String method;       // HTTP请求方法
+    private String route;        // Spring MVC匹配的路由模板（如 /api/users/{id}），未匹配到处理器时为 <unmatched>
+    private long count;          // 请求数
+    private double totalMillis;  // 总耗时（毫秒）
+    private double avgMillis;    // 平均耗时（毫秒）
+    private double p50Millis;    // p50耗时（毫秒）
+    private double p95Millis;    // p95耗时（毫秒）
+    private double p99Millis;    // p99耗时（毫秒）
+    private double maxMillis;    // 最大耗时（毫秒）
+    private Map<String, Long> statuses; // 各状态码类别（2xx、4xx等）的请求数，只包含出现过的类别
+}
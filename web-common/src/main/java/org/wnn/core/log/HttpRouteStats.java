@@ -0,0 +1,139 @@
+package org.wnn.core.log;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个接口（请求方法 + Spring MVC匹配的路由模板）的请求统计
+ * <p>
+ * 计数、总耗时、各状态码类别的计数用 {@link LongAdder}，最大耗时用 {@link LongAccumulator}，
+ * 分布用 {@link LatencyHistogram}，多线程并发记录时都不加锁。
+ * </p>
+ * <p>
+ * 导出的耗时百分位取最近一个时间窗口的分布：读取时按窗口长度推进窗口基准（窗口开始时的累计快照），
+ * 用当前快照减去上一个窗口的基准，覆盖最近 1 ~ 2 个窗口的请求，不受启动以来累计分布的影响。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+final class HttpRouteStats {
+
+    /**
+     * 状态码类别：1xx ~ 5xx
+     */
+    static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private final String method;
+    private final String route;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAdder[] statusCounts = new LongAdder[STATUS_CLASSES.length];
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    private LatencyHistogram.Snapshot previousWindowBase; // 上一个窗口开始时的累计快照，为null表示从启动开始
+    private LatencyHistogram.Snapshot currentWindowBase; // 当前窗口开始时的累计快照
+    private long currentWindowStartNanos = System.nanoTime();
+
+    HttpRouteStats(String method, String route) {
+        this.method = method;
+        this.route = route;
+        for (int i = 0; i < statusCounts.length; i++) {
+            statusCounts[i] = new LongAdder();
+        }
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getRoute() {
+        return route;
+    }
+
+    /**
+     * 记录一次请求
+     *
+     * @param status HTTP状态码
+     * @param micros 处理耗时（微秒）
+     */
+    void record(int status, long micros) {
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+        histogram.record(micros);
+        int statusClass = status / 100 - 1;
+        if (statusClass >= 0 && statusClass < statusCounts.length) {
+            statusCounts[statusClass].increment();
+        }
+    }
+
+    /**
+     * 某一状态码类别的累计请求数
+     *
+     * @param statusClass 状态码类别在 {@link #STATUS_CLASSES} 中的下标
+     */
+    long getStatusCount(int statusClass) {
+        return statusCounts[statusClass].sum();
+    }
+
+    /**
+     * 最近一个时间窗口的耗时分布，只在指标采集时调用，加锁推进窗口基准不影响记录
+     *
+     * @param windowNanos 窗口长度（纳秒）
+     */
+    synchronized LatencyHistogram.Snapshot recentHistogram(long windowNanos) {
+        LatencyHistogram.Snapshot current = histogram.snapshot();
+        long now = System.nanoTime();
+        if (now - currentWindowStartNanos >= windowNanos) {
+            previousWindowBase = currentWindowBase;
+            currentWindowBase = current;
+            currentWindowStartNanos = now;
+        }
+        return current.minus(previousWindowBase);
+    }
+
+    /**
+     * 自启动（或上次重置）以来的累计统计
+     */
+    HttpRouteSnapshot snapshot() {
+        long total = count.sum();
+        long totalTime = totalMicros.sum();
+        LatencyHistogram.Snapshot distribution = histogram.snapshot();
+        Map<String, Long> statuses = new LinkedHashMap<>();
+        for (int i = 0; i < STATUS_CLASSES.length; i++) {
+            long statusCount = statusCounts[i].sum();
+            if (statusCount > 0) {
+                statuses.put(STATUS_CLASSES[i], statusCount);
+            }
+        }
+        HttpRouteSnapshot snapshot = new HttpRouteSnapshot();
+        snapshot.setMethod(method);
+        snapshot.setRoute(route);
+        snapshot.setCount(total);
+        snapshot.setTotalMillis(totalTime / 1000d);
+        snapshot.setAvgMillis(total == 0 ? 0 : totalTime / 1000d / total);
+        snapshot.setP50Millis(distribution.percentile(50) / 1000d);
+        snapshot.setP95Millis(distribution.percentile(95) / 1000d);
+        snapshot.setP99Millis(distribution.percentile(99) / 1000d);
+        snapshot.setMaxMillis(maxMicros.get() / 1000d);
+        snapshot.setStatuses(statuses);
+        return snapshot;
+    }
+
+    synchronized void reset() {
+        previousWindowBase = null;
+        currentWindowBase = null;
+        currentWindowStartNanos = System.nanoTime();
+        count.reset();
+        totalMicros.reset();
+        maxMicros.reset();
+        histogram.reset();
+        for (LongAdder statusCount : statusCounts) {
+            statusCount.reset();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.wnn.core.log;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * 接口请求统计监控端点
+ * <p>
+ * GET /actuator/httproutes?top=20 查看按总耗时倒序的各接口统计（次数、p50/p95/p99、各状态码类别的请求数），
+ * DELETE /actuator/httproutes 清空统计。需在 management.endpoints.web.exposure.include 中加入 httproutes 才能通过HTTP访问。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@Endpoint(id = "httproutes")
+public class HttpRouteStatsEndpoint {
+
+    private static final int DEFAULT_TOP = 50;
+
+    private final HttpRouteStatsRegistry registry;
+
+    public HttpRouteStatsEndpoint(HttpRouteStatsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * @param top 返回的条数，默认50，0表示全部
+     */
+    @ReadOperation
+    public List<HttpRouteSnapshot> routes(@Nullable Integer top) {
+        return registry.snapshots(top == null ? DEFAULT_TOP : top);
+    }
+
+    @DeleteOperation
+    public void reset() {
+        registry.reset();
+    }
+}
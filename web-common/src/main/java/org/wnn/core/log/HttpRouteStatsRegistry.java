@@ -0,0 +1,123 @@
+package org.wnn.core.log;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 接口请求统计注册表
+ * <p>
+ * 由 {@link WebHttpRequestLoggingFilter} 记录每个请求（不论是否输出请求日志），按“请求方法 + Spring MVC匹配的路由模板”聚合，
+ * 不使用原始URI，避免路径参数使统计项无限增长；未匹配到处理器的请求（404、静态资源等）都计入 {@value #UNMATCHED_ROUTE}。
+ * 统计项数量达到上限后，新的接口都计入 {@value #OVERFLOW_ROUTE}。
+ * </p>
+ * <p>
+ * 统计通过监控端点 {@link HttpRouteStatsEndpoint} 查看，存在micrometer时由 {@link HttpRouteMetrics} 注册为监控指标，
+ * 不需要把每个请求都写进日志就能得到各接口的p99。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class HttpRouteStatsRegistry {
+
+    /**
+     * 未匹配到处理器的请求
+     */
+    public static final String UNMATCHED_ROUTE = "<unmatched>";
+
+    /**
+     * 统计项数量超过上限后的统计项
+     */
+    public static final String OVERFLOW_ROUTE = "<other>";
+
+    private static final Comparator<HttpRouteSnapshot> BY_TOTAL_TIME =
+            Comparator.comparingDouble(HttpRouteSnapshot::getTotalMillis).reversed();
+
+    private final int maxRoutes;
+    private final Map<String, HttpRouteStats> statsByRoute = new ConcurrentHashMap<>();
+    private final HttpRouteStats overflow = new HttpRouteStats("*", OVERFLOW_ROUTE);
+
+    /**
+     * 新统计项的监听器，用于为其注册监控指标
+     */
+    private volatile Consumer<HttpRouteStats> routeListener;
+
+    public HttpRouteStatsRegistry(WebHttpRequestLoggingFilter.LoggingProperties.Metrics properties) {
+        this.maxRoutes = properties.getMaxRoutes();
+    }
+
+    /**
+     * 记录一次请求
+     *
+     * @param method HTTP请求方法
+     * @param route 匹配的路由模板，未匹配时为null
+     * @param status HTTP状态码
+     * @param micros 处理耗时（微秒）
+     */
+    public void record(String method, String route, int status, long micros) {
+        resolve(method, route == null ? UNMATCHED_ROUTE : route).record(status, micros);
+    }
+
+    private HttpRouteStats resolve(String method, String route) {
+        String key = method + ' ' + route;
+        HttpRouteStats stats = statsByRoute.get(key);
+        if (stats != null) {
+            return stats;
+        }
+        if (statsByRoute.size() >= maxRoutes) {
+            return overflow;
+        }
+        boolean[] created = new boolean[1];
+        stats = statsByRoute.computeIfAbsent(key, k -> {
+            created[0] = true;
+            return new HttpRouteStats(method, route);
+        });
+        Consumer<HttpRouteStats> listener = routeListener;
+        if (created[0] && listener != null) {
+            listener.accept(stats);
+        }
+        return stats;
+    }
+
+    /**
+     * 累计统计，按总耗时倒序
+     *
+     * @param top 返回的条数，不大于0时返回全部
+     */
+    public List<HttpRouteSnapshot> snapshots(int top) {
+        List<HttpRouteSnapshot> snapshots = new ArrayList<>(statsByRoute.size() + 1);
+        for (HttpRouteStats stats : statsByRoute.values()) {
+            snapshots.add(stats.snapshot());
+        }
+        HttpRouteSnapshot overflowSnapshot = overflow.snapshot();
+        if (overflowSnapshot.getCount() > 0) {
+            snapshots.add(overflowSnapshot);
+        }
+        snapshots.sort(BY_TOTAL_TIME);
+        return top > 0 && snapshots.size() > top ? new ArrayList<>(snapshots.subList(0, top)) : snapshots;
+    }
+
+    /**
+     * 清空统计（保留统计项，已注册的监控指标继续有效）
+     */
+    public void reset() {
+        for (HttpRouteStats stats : statsByRoute.values()) {
+            stats.reset();
+        }
+        overflow.reset();
+    }
+
+    /**
+     * 遍历已有的统计项（包括超过上限后的合并项），并监听之后新建的统计项
+     */
+    void forEachRoute(Consumer<HttpRouteStats> listener) {
+        this.routeListener = listener;
+        for (HttpRouteStats stats : statsByRoute.values()) {
+            listener.accept(stats);
+        }
+        listener.accept(overflow);
+    }
+}
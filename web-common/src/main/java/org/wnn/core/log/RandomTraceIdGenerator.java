@@ -0,0 +1,44 @@
+package org.wnn.core.log;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 随机traceId生成器（默认）
+ * <p>
+ * 128位随机数取自 {@link ThreadLocalRandom}，各线程互不竞争；{@code UUID.randomUUID()} 使用全局共享的 SecureRandom，
+ * 多核高并发时会在其上竞争，且还要经过 toString、replace、toUpperCase 三次字符串分配。
+ * traceId只用于关联日志，不需要密码学强度的随机数。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class RandomTraceIdGenerator implements TraceIdGenerator {
+
+    private final boolean upperCase;
+
+    /**
+     * 32位大写十六进制，与原先的UUID格式一致
+     */
+    public RandomTraceIdGenerator() {
+        this(true);
+    }
+
+    /**
+     * @param upperCase 是否大写；小写时可直接用作W3C traceparent中的trace-id
+     */
+    public RandomTraceIdGenerator(boolean upperCase) {
+        this.upperCase = upperCase;
+    }
+
+    @Override
+    public String generate() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long high = random.nextLong();
+        long low = random.nextLong();
+        // W3C规定全0的trace-id无效
+        while (high == 0 && low == 0) {
+            low = random.nextLong();
+        }
+        return TraceIdEncoder.encode(high, low, upperCase);
+    }
+}
@@ -0,0 +1,32 @@
+package org.wnn.core.log;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * 请求日志异步输出的监控指标
+ * <ul>
+ *   <li>http.request.log.queue.depth：等待输出的日志数量</li>
+ *   <li>http.request.log.dropped：队列已满被丢弃的日志数量</li>
+ * </ul>
+ *
+ * @author NanNan Wang
+ */
+@RequiredArgsConstructor
+public class RequestLogMetrics implements MeterBinder {
+
+    private final RequestLogWriter requestLogWriter;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("http.request.log.queue.depth", requestLogWriter, RequestLogWriter::getQueueDepth)
+                .description("等待输出的请求日志数量")
+                .register(registry);
+        FunctionCounter.builder("http.request.log.dropped", requestLogWriter, RequestLogWriter::getDroppedCount)
+                .description("队列已满被丢弃的请求日志数量")
+                .register(registry);
+    }
+}
@@ -0,0 +1,34 @@
+package org.wnn.core.log;
+
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 请求日志快照
+ * <p>
+ * 在Servlet线程上只复制原始字节和元数据（请求对象在响应后会被容器回收复用，不能交给后台线程读取），
+ * 字节解码、截断、敏感数据掩码和JSON序列化都由 {@link RequestLogWriter} 的后台线程完成。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@Data
+public class RequestLogSnapshot {
+    private final long timestampMillis;     // 记录时间（毫秒时间戳）
+    private final String traceId;           // 分布式追踪ID
+    private final String method;            // HTTP请求方法
+    private final String uri;               // 请求URI路径
+    private final String queryString;       // URL查询参数
+    private final String remoteAddr;        // 客户端IP地址
+    private final long duration;            // 请求处理耗时（毫秒）
+    private final int responseCode;         // 响应状态码（业务编码或HTTP状态码）
+    private final Map<String, String[]> parameters; // 表单参数，未启用参数日志或已记录请求体时为null
+    private final byte[] requestBody;       // 请求体已捕获的前若干字节，未捕获时为null
+    private final long requestBodyLength;   // 请求体总字节数
+    private final String requestContentType; // 请求Content-Type
+    private final String requestEncoding;   // 请求字符集
+    private final byte[] responseBody;      // 响应体已捕获的前若干字节，未捕获时为null
+    private final long responseBodyLength;  // 响应体总字节数
+    private final String responseContentType; // 响应Content-Type
+}
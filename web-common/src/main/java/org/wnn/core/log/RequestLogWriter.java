@@ -0,0 +1,290 @@
+package org.wnn.core.log;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 请求日志输出
+ * <p>
+ * 过滤器在Servlet线程上只生成 {@link RequestLogSnapshot} 放入有界队列（数组实现的环形队列），
+ * 由单个后台线程按批取出，完成字节解码、截断、敏感数据掩码（{@link SensitiveDataMasker}）和JSON序列化后写日志，这些开销不再计入客户端的响应时间。
+ * 队列满时按配置丢弃，或在限定时间内等待空位（背压），等待超时仍然丢弃，请求线程不会无限期阻塞。
+ * 通过 {@link #getQueueDepth()}、{@link #getDroppedCount()} 查看队列深度和丢弃数量，存在micrometer时注册为监控指标。
+ * </p>
+ * <p>
+ * 未作为Spring Bean初始化（或 logging.request.async.enabled=false）时不启动后台线程，在调用线程同步输出。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class RequestLogWriter implements InitializingBean, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger("reqLog");
+    private static final Logger log = LoggerFactory.getLogger(RequestLogWriter.class);
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_INSTANT;
+    private static final long DROPPED_WARN_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * 队列满时的处理策略
+     */
+    public enum OverflowPolicy {
+        /**
+         * 直接丢弃新日志
+         */
+        DROP,
+        /**
+         * 在 offerTimeoutMillis 内等待空位，超时后丢弃
+         */
+        BLOCK
+    }
+
+    private final WebHttpRequestLoggingFilter.LoggingProperties props;
+    private final WebHttpRequestLoggingFilter.LoggingProperties.Async asyncProps;
+    private final ObjectMapper objectMapper;
+    private final SensitiveDataMasker masker;
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile BlockingQueue<RequestLogSnapshot> queue;
+    private volatile boolean running;
+    private Thread worker;
+
+    public RequestLogWriter(WebHttpRequestLoggingFilter.LoggingProperties props) {
+        this.props = props;
+        this.asyncProps = props.getAsync();
+        this.objectMapper = Jackson2ObjectMapperBuilder.json()
+                .modules(new JavaTimeModule())
+                .build();
+        this.masker = new SensitiveDataMasker(props.getMaskFields(), props.getMaskPaths(), props.getMaskReplacement());
+    }
+
+    /**
+     * 提交一条请求日志
+     *
+     * @param snapshot 请求日志快照
+     */
+    public void submit(RequestLogSnapshot snapshot) {
+        BlockingQueue<RequestLogSnapshot> queue = this.queue;
+        if (queue == null || !running) {
+            write(snapshot);
+            return;
+        }
+        if (queue.offer(snapshot)) {
+            return;
+        }
+        if (asyncProps.getOverflowPolicy() == OverflowPolicy.BLOCK) {
+            try {
+                if (queue.offer(snapshot, asyncProps.getOfferTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        dropped.increment();
+    }
+
+    /**
+     * 队列中等待输出的日志数量
+     */
+    public int getQueueDepth() {
+        BlockingQueue<RequestLogSnapshot> queue = this.queue;
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * 因队列已满被丢弃的日志数量（累计）
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (!asyncProps.isEnabled()) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(Math.max(1, asyncProps.getBufferSize()));
+        running = true;
+        worker = new Thread(this::drainLoop, "req-log");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (worker == null) {
+            return;
+        }
+        // 停止后新日志改为同步输出，后台线程写完队列中剩余的日志再退出
+        running = false;
+        worker.join(SHUTDOWN_TIMEOUT_MILLIS);
+    }
+
+    private void drainLoop() {
+        int batchSize = Math.max(1, asyncProps.getBatchSize());
+        List<RequestLogSnapshot> batch = new ArrayList<>(batchSize);
+        long reportedDropped = 0;
+        long lastDroppedWarn = System.nanoTime();
+        while (true) {
+            boolean stopping = !running;
+            try {
+                RequestLogSnapshot first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopping = true;
+            }
+            for (RequestLogSnapshot snapshot : batch) {
+                write(snapshot);
+            }
+            boolean drained = batch.isEmpty();
+            batch.clear();
+            if (System.nanoTime() - lastDroppedWarn >= DROPPED_WARN_INTERVAL_NANOS) {
+                long total = dropped.sum();
+                if (total > reportedDropped) {
+                    log.warn("请求日志队列已满，累计丢弃{}条（最近一分钟{}条），队列容量{}",
+                            total, total - reportedDropped, asyncProps.getBufferSize());
+                    reportedDropped = total;
+                }
+                lastDroppedWarn = System.nanoTime();
+            }
+            if (stopping && drained) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 解码、掩码并序列化一条请求日志后输出
+     */
+    private void write(RequestLogSnapshot snapshot) {
+        String previousTraceId = MDC.get("traceId");
+        try {
+            // 后台线程没有请求的MDC，输出时临时放入快照中的traceId
+            MDC.put("traceId", snapshot.getTraceId());
+            logger.info(objectMapper.writeValueAsString(toLogEntry(snapshot)));
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize request log", e);
+        } catch (RuntimeException e) {
+            logger.error("Failed to write request log", e);
+        } finally {
+            if (previousTraceId != null) {
+                MDC.put("traceId", previousTraceId);
+            } else {
+                MDC.remove("traceId");
+            }
+        }
+    }
+
+    private WebHttpRequestLoggingFilter.LogEntry toLogEntry(RequestLogSnapshot snapshot) {
+        WebHttpRequestLoggingFilter.LogEntry entry = new WebHttpRequestLoggingFilter.LogEntry();
+        entry.setTraceId(snapshot.getTraceId());
+        entry.setTimestamp(FORMATTER.format(LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(snapshot.getTimestampMillis()), ZoneId.systemDefault()).atZone(ZoneOffset.UTC)));
+        entry.setMethod(snapshot.getMethod());
+        entry.setUri(snapshot.getUri());
+        entry.setQueryString(snapshot.getQueryString());
+        entry.setRemoteAddr(snapshot.getRemoteAddr());
+        entry.setDuration(snapshot.getDuration());
+        entry.setResponseCode(snapshot.getResponseCode());
+
+        if (snapshot.getRequestBody() != null) {
+            entry.setPayload(decodeRequestBody(snapshot));
+        } else if (snapshot.getParameters() != null) {
+            entry.setArgs(truncate(masker.maskText(joinParameters(snapshot.getParameters())), props.getMaxRequestLength()));
+        }
+        if (snapshot.getResponseBody() != null) {
+            entry.setResponseBody(decodeResponseBody(snapshot));
+        }
+        return entry;
+    }
+
+    private String decodeRequestBody(RequestLogSnapshot snapshot) {
+        String contentType = lowerCase(snapshot.getRequestContentType());
+        if (!isTextContent(contentType) && !contentType.isEmpty()) {
+            return String.format("[binary content, length=%d bytes]", snapshot.getRequestBodyLength());
+        }
+        Charset charset;
+        try {
+            charset = Charset.forName(snapshot.getRequestEncoding() != null
+                    ? snapshot.getRequestEncoding() : StandardCharsets.ISO_8859_1.name());
+        } catch (IllegalArgumentException e) {
+            return "[unreadable payload]";
+        }
+        return mask(snapshot.getRequestBody(), snapshot.getRequestBodyLength(), contentType, charset,
+                props.getMaxRequestLength());
+    }
+
+    private String decodeResponseBody(RequestLogSnapshot snapshot) {
+        String contentType = lowerCase(snapshot.getResponseContentType());
+        if (!isTextContent(contentType)) {
+            // 非文本直接提示，不输出原内容
+            return String.format("[binary content, length=%d bytes]", snapshot.getResponseBodyLength());
+        }
+        // 按UTF-8安全解码
+        return mask(snapshot.getResponseBody(), snapshot.getResponseBodyLength(), contentType, StandardCharsets.UTF_8,
+                props.getMaxResponseLength());
+    }
+
+    /**
+     * JSON报文直接在字节上单遍掩码，其他文本按字段名扫描掩码，两者都在处理过程中截断
+     */
+    private String mask(byte[] content, long totalLength, String contentType, Charset charset, int maxLength) {
+        return contentType.contains("json")
+                ? masker.maskJson(content, totalLength, charset, maxLength)
+                : masker.maskText(content, totalLength, charset, maxLength);
+    }
+
+    private static String joinParameters(Map<String, String[]> parameters) {
+        StringBuilder args = new StringBuilder();
+        for (Map.Entry<String, String[]> entry : parameters.entrySet()) {
+            if (args.length() > 0) {
+                args.append('&');
+            }
+            args.append(entry.getKey()).append('=').append(String.join(",", entry.getValue()));
+        }
+        return args.toString();
+    }
+
+    private static boolean isTextContent(String contentType) {
+        return contentType.contains("json") || contentType.contains("xml")
+                || contentType.contains("html") || contentType.contains("text");
+    }
+
+    private static String lowerCase(String contentType) {
+        return contentType == null ? "" : contentType.toLowerCase();
+    }
+
+    private static String truncate(String text, int maxLen) {
+        if (text.length() > maxLen) {
+            return text.substring(0, maxLen) + String.format("...(truncated, totalLength=%d)", text.length());
+        }
+        return text;
+    }
+}
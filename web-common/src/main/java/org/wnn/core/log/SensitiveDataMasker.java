@@ -0,0 +1,448 @@
+package org.wnn.core.log;
+
+import com.fasterxml.jackson.core.io.JsonEOFException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 日志敏感数据掩码
+ * <p>
+ * JSON报文用 Jackson 的 {@link JsonParser}/{@link JsonGenerator} 直接在捕获的字节上单遍处理：
+ * 字段名命中配置的敏感字段（任意层级，不区分大小写）或JSON路径时，值（包括对象、数组）整体替换为掩码，
+ * 其余内容原样复制；输出写入有长度上限的缓冲区，达到上限即停止解析，不再为整个报文构造中间字符串。
+ * 捕获被截断的报文在末尾处停止，输出已处理的部分。
+ * </p>
+ * <p>
+ * 非JSON文本（或无法解析的JSON）使用预先构建的 Aho-Corasick 自动机单遍扫描字段名，
+ * 掩码 {@code "字段":"值"} 与 {@code 字段=值} 两种形式的值。
+ * </p>
+ * <p>
+ * JSON路径形如 {@code $.data.accessToken}、{@code $.items[*].idCard}，{@code [*]} 匹配任意数组下标，
+ * 也可写成具体下标如 {@code $.items[0].idCard}。实例不可变，可被多个线程共用。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class SensitiveDataMasker {
+
+    private static final String TRUNCATED = "...(truncated, totalLength=%d)";
+    private static final String ANY_INDEX = "[*]";
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final Set<String> fields;
+    private final List<String[]> paths;
+    private final String replacement;
+    private final Scanner scanner;
+
+    /**
+     * @param fields 敏感字段名（任意层级匹配，不区分大小写）
+     * @param paths 敏感字段的JSON路径
+     * @param replacement 掩码
+     */
+    public SensitiveDataMasker(Collection<String> fields, Collection<String> paths, String replacement) {
+        this.fields = new HashSet<>();
+        for (String field : fields) {
+            if (field != null && !field.isEmpty()) {
+                this.fields.add(field.toLowerCase(Locale.ROOT));
+            }
+        }
+        this.paths = new ArrayList<>();
+        for (String path : paths) {
+            if (path != null && !path.isEmpty()) {
+                this.paths.add(parsePath(path));
+            }
+        }
+        this.replacement = replacement;
+        this.scanner = new Scanner(this.fields);
+    }
+
+    /**
+     * 掩码JSON报文
+     *
+     * @param content 捕获的字节（可能只是报文的前一部分）
+     * @param totalLength 报文总字节数
+     * @param charset 字符集
+     * @param maxLength 输出的最大字符数
+     * @return 掩码后的文本，截断时带有总长度标注
+     */
+    public String maskJson(byte[] content, long totalLength, Charset charset, int maxLength) {
+        boolean captureTruncated = totalLength > content.length;
+        int length = captureTruncated ? completeLength(content, charset) : content.length;
+        LimitedWriter out = new LimitedWriter(maxLength);
+        try (JsonParser parser = createParser(content, length, charset);
+             JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            // 截断时不补全括号，输出与原文前缀一致
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            try {
+                copy(parser, generator, out);
+            } catch (JsonEOFException e) {
+                if (!captureTruncated) {
+                    return maskText(new String(content, 0, length, charset), false, totalLength, maxLength);
+                }
+            }
+            generator.flush();
+        } catch (JsonProcessingException e) {
+            // 不是合法的JSON，按普通文本处理
+            return maskText(new String(content, 0, length, charset), captureTruncated, totalLength, maxLength);
+        } catch (IOException e) {
+            return "[unreadable payload]";
+        }
+        return out.isTruncated() || captureTruncated
+                ? out.toString() + String.format(TRUNCATED, totalLength) : out.toString();
+    }
+
+    /**
+     * 掩码普通文本报文
+     *
+     * @param content 捕获的字节（可能只是报文的前一部分）
+     * @param totalLength 报文总字节数
+     * @param charset 字符集
+     * @param maxLength 输出的最大字符数
+     * @return 掩码后的文本，截断时带有总长度标注
+     */
+    public String maskText(byte[] content, long totalLength, Charset charset, int maxLength) {
+        boolean captureTruncated = totalLength > content.length;
+        int length = captureTruncated ? completeLength(content, charset) : content.length;
+        return maskText(new String(content, 0, length, charset), captureTruncated, totalLength, maxLength);
+    }
+
+    private String maskText(String text, boolean truncated, long totalLength, int maxLength) {
+        String masked = scanner.mask(text, replacement);
+        if (masked.length() > maxLength) {
+            return masked.substring(0, maxLength) + String.format(TRUNCATED, totalLength);
+        }
+        return truncated ? masked + String.format(TRUNCATED, totalLength) : masked;
+    }
+
+    /**
+     * 掩码普通文本，不截断
+     */
+    public String maskText(String text) {
+        return scanner.mask(text, replacement);
+    }
+
+    private JsonParser createParser(byte[] content, int length, Charset charset) throws IOException {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return jsonFactory.createParser(content, 0, length);
+        }
+        return jsonFactory.createParser(new InputStreamReader(new ByteArrayInputStream(content, 0, length), charset));
+    }
+
+    /**
+     * 截断的UTF-8字节去掉末尾不完整的多字节字符后的长度，其他字符集原样返回
+     */
+    private static int completeLength(byte[] content, Charset charset) {
+        int length = content.length;
+        if (!StandardCharsets.UTF_8.equals(charset)) {
+            return length;
+        }
+        // 从末尾往前找最后一个字符的起始字节（至多回退3个延续字节）
+        int start = length - 1;
+        while (start >= 0 && start >= length - 4 && (content[start] & 0xC0) == 0x80) {
+            start--;
+        }
+        if (start < 0) {
+            return length;
+        }
+        int lead = content[start] & 0xFF;
+        int expected = lead < 0x80 ? 1 : lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+        return length - start >= expected ? length : start;
+    }
+
+    private void copy(JsonParser parser, JsonGenerator generator, LimitedWriter out) throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            if (token == JsonToken.FIELD_NAME && isSensitive(parser)) {
+                generator.writeFieldName(parser.getCurrentName());
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                }
+                generator.writeString(replacement);
+            } else {
+                generator.copyCurrentEvent(parser);
+            }
+            if (out.isTruncated()) {
+                return;
+            }
+        }
+    }
+
+    private boolean isSensitive(JsonParser parser) throws IOException {
+        String name = parser.getCurrentName();
+        if (fields.contains(name.toLowerCase(Locale.ROOT))) {
+            return true;
+        }
+        if (paths.isEmpty()) {
+            return false;
+        }
+        // 当前字段的路径，从根开始：字段名或数组下标
+        Deque<String> segments = new ArrayDeque<>();
+        for (JsonStreamContext context = parser.getParsingContext(); context != null && !context.inRoot();
+             context = context.getParent()) {
+            segments.addFirst(context.inArray() ? "[" + context.getCurrentIndex() + "]" : context.getCurrentName());
+        }
+        for (String[] path : paths) {
+            if (matches(path, segments)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(String[] path, Deque<String> segments) {
+        if (path.length != segments.size()) {
+            return false;
+        }
+        int i = 0;
+        for (String segment : segments) {
+            String expected = path[i++];
+            if (!(ANY_INDEX.equals(expected) && segment.startsWith("[")) && !expected.equals(segment)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 把 {@code $.items[*].idCard} 拆成 {@code [items, [*], idCard]}
+     */
+    private static String[] parsePath(String path) {
+        String body = path.startsWith("$") ? path.substring(1) : path;
+        List<String> segments = new ArrayList<>();
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < body.length(); i++) {
+            char c = body.charAt(i);
+            if (c == '.' || c == '[') {
+                if (name.length() > 0) {
+                    segments.add(name.toString());
+                    name.setLength(0);
+                }
+                if (c == '[') {
+                    int end = body.indexOf(']', i);
+                    if (end < 0) {
+                        throw new IllegalArgumentException("JSON路径格式错误：" + path);
+                    }
+                    segments.add(body.substring(i, end + 1));
+                    i = end;
+                }
+            } else {
+                name.append(c);
+            }
+        }
+        if (name.length() > 0) {
+            segments.add(name.toString());
+        }
+        return segments.toArray(new String[0]);
+    }
+
+    /**
+     * 有长度上限的输出缓冲，超过上限后丢弃后续内容并标记截断
+     */
+    private static final class LimitedWriter extends Writer {
+
+        private final int limit;
+        private final StringBuilder buffer;
+        private boolean truncated;
+
+        LimitedWriter(int limit) {
+            this.limit = Math.max(0, limit);
+            this.buffer = new StringBuilder(Math.min(this.limit, 1024));
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            int copy = Math.min(length, limit - buffer.length());
+            if (copy > 0) {
+                buffer.append(chars, offset, copy);
+            }
+            if (copy < length) {
+                truncated = true;
+            }
+        }
+
+        @Override
+        public void write(String text, int offset, int length) {
+            int copy = Math.min(length, limit - buffer.length());
+            if (copy > 0) {
+                buffer.append(text, offset, offset + copy);
+            }
+            if (copy < length) {
+                truncated = true;
+            }
+        }
+
+        boolean isTruncated() {
+            return truncated;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return buffer.toString();
+        }
+    }
+
+    /**
+     * 基于 Aho-Corasick 自动机的字段名扫描，单遍找出文本中所有敏感字段名并掩码其值
+     */
+    private static final class Scanner {
+
+        /**
+         * 每个状态的转移表、失败指针和命中的字段名长度（0表示不是字段名结尾）
+         */
+        private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+        private final List<Integer> failures = new ArrayList<>();
+        private final List<Integer> matchLengths = new ArrayList<>();
+
+        Scanner(Set<String> fields) {
+            newState();
+            for (String field : fields) {
+                int state = 0;
+                for (int i = 0; i < field.length(); i++) {
+                    char c = field.charAt(i);
+                    Integer next = transitions.get(state).get(c);
+                    if (next == null) {
+                        next = newState();
+                        transitions.get(state).put(c, next);
+                    }
+                    state = next;
+                }
+                matchLengths.set(state, field.length());
+            }
+            // 按层次遍历计算失败指针
+            Deque<Integer> queue = new ArrayDeque<>();
+            for (int child : transitions.get(0).values()) {
+                failures.set(child, 0);
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (Map.Entry<Character, Integer> entry : transitions.get(state).entrySet()) {
+                    int child = entry.getValue();
+                    int failure = failures.get(state);
+                    while (failure != 0 && !transitions.get(failure).containsKey(entry.getKey())) {
+                        failure = failures.get(failure);
+                    }
+                    Integer target = transitions.get(failure).get(entry.getKey());
+                    failures.set(child, target != null && target != child ? target : 0);
+                    if (matchLengths.get(child) == 0) {
+                        matchLengths.set(child, matchLengths.get(failures.get(child)));
+                    }
+                    queue.add(child);
+                }
+            }
+        }
+
+        private int newState() {
+            transitions.add(new HashMap<>());
+            failures.add(0);
+            matchLengths.add(0);
+            return transitions.size() - 1;
+        }
+
+        String mask(String text, String replacement) {
+            if (transitions.get(0).isEmpty()) {
+                return text;
+            }
+            StringBuilder out = null;
+            int copied = 0;
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = Character.toLowerCase(text.charAt(i));
+                while (state != 0 && !transitions.get(state).containsKey(c)) {
+                    state = failures.get(state);
+                }
+                Integer next = transitions.get(state).get(c);
+                state = next == null ? 0 : next;
+                int length = matchLengths.get(state);
+                if (length == 0) {
+                    continue;
+                }
+                int start = i - length + 1;
+                int[] value = findValue(text, start, i + 1);
+                if (value == null) {
+                    continue;
+                }
+                if (out == null) {
+                    out = new StringBuilder(text.length());
+                }
+                out.append(text, copied, value[0]).append(replacement);
+                copied = value[1];
+                i = value[1] - 1;
+                state = 0;
+            }
+            if (out == null) {
+                return text;
+            }
+            return out.append(text, copied, text.length()).toString();
+        }
+
+        /**
+         * 字段名之后的值的范围 [起始, 结束)，不是 {@code "字段":"值"} 或 {@code 字段=值} 形式时返回null
+         */
+        private static int[] findValue(String text, int start, int end) {
+            boolean quoted = start > 0 && text.charAt(start - 1) == '"' && end < text.length() && text.charAt(end) == '"';
+            if (quoted) {
+                int i = skipWhitespace(text, end + 1);
+                if (i >= text.length() || text.charAt(i) != ':') {
+                    return null;
+                }
+                i = skipWhitespace(text, i + 1);
+                if (i >= text.length() || text.charAt(i) != '"') {
+                    return null;
+                }
+                int valueEnd = i + 1;
+                while (valueEnd < text.length() && text.charAt(valueEnd) != '"') {
+                    valueEnd += text.charAt(valueEnd) == '\\' ? 2 : 1;
+                }
+                // 值被截断时掩码到文本末尾
+                return new int[]{i + 1, Math.min(valueEnd, text.length())};
+            }
+            boolean standalone = start == 0 || !Character.isLetterOrDigit(text.charAt(start - 1));
+            if (standalone && end < text.length() && text.charAt(end) == '=') {
+                int valueEnd = end + 1;
+                while (valueEnd < text.length() && "&,; \r\n\t".indexOf(text.charAt(valueEnd)) < 0) {
+                    valueEnd++;
+                }
+                return new int[]{end + 1, valueEnd};
+            }
+            return null;
+        }
+
+        private static int skipWhitespace(String text, int i) {
+            while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+                i++;
+            }
+            return i;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.wnn.core.log;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内span环形缓冲区
+ * <p>
+ * 已结束的span按顺序号写入固定容量（2的幂）的环形数组，写入只是一次 {@link AtomicLong#getAndIncrement()} 和一次数组写，
+ * 不加锁、不阻塞请求线程；缓冲区满后覆盖最早的span。保留的span可按traceId查看一次请求在各段调用
+ * （HTTP入口、Feign调用、SQL、异步任务）上的耗时分布，见 {@link SpanEndpoint}。
+ * </p>
+ * <p>
+ * 注册了 {@link SpanExporter} 时由后台线程按间隔把新结束的span按批导出；导出跟不上、span在导出前被覆盖的计入 {@link #getDroppedCount()}。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class SpanBuffer implements SpanCollector, InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(SpanBuffer.class);
+    private static final Comparator<Span> BY_START = Comparator.comparingLong(Span::getStartEpochMicros);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 5000;
+
+    private final AtomicReferenceArray<Entry> ring;
+    private final int mask;
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final List<SpanExporter> exporters;
+    private final TraceProperties.Spans properties;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public SpanBuffer(TraceProperties.Spans properties, List<SpanExporter> exporters) {
+        this.properties = properties;
+        this.exporters = exporters == null ? Collections.emptyList() : exporters;
+        int capacity = Integer.highestOneBit(Math.max(2, properties.getBufferSize() - 1)) << 1;
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    @Override
+    public void add(Span span) {
+        long seq = sequence.getAndIncrement();
+        ring.set((int) (seq & mask), new Entry(seq, span));
+    }
+
+    /**
+     * 缓冲区中属于某个traceId的span，按开始时间排序
+     */
+    public List<Span> trace(String traceId) {
+        List<Span> spans = new ArrayList<>();
+        for (int i = 0; i < ring.length(); i++) {
+            Entry entry = ring.get(i);
+            if (entry != null && entry.span.getTraceId().equals(traceId)) {
+                spans.add(entry.span);
+            }
+        }
+        spans.sort(BY_START);
+        return spans;
+    }
+
+    /**
+     * 最近结束的span，最新的在前
+     *
+     * @param limit 最多返回的数量
+     */
+    public List<Span> recent(int limit) {
+        List<Span> spans = new ArrayList<>(Math.min(limit, ring.length()));
+        long last = sequence.get() - 1;
+        for (long seq = last; seq >= 0 && seq > last - ring.length() && spans.size() < limit; seq--) {
+            Entry entry = ring.get((int) (seq & mask));
+            if (entry != null && entry.seq == seq) {
+                spans.add(entry.span);
+            }
+        }
+        return spans;
+    }
+
+    /**
+     * 导出前被覆盖而没有导出的span数量（累计）
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (exporters.isEmpty()) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::exportLoop, "span-export");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (worker == null) {
+            return;
+        }
+        // 后台线程导出完已结束的span再退出
+        running = false;
+        worker.interrupt();
+        worker.join(SHUTDOWN_TIMEOUT_MILLIS);
+    }
+
+    private void exportLoop() {
+        int batchSize = Math.max(1, properties.getExportBatchSize());
+        List<Span> batch = new ArrayList<>(batchSize);
+        long next = 0;
+        while (true) {
+            boolean stopping = !running;
+            long end = sequence.get();
+            while (next < end) {
+                Entry entry = ring.get((int) (next & mask));
+                if (entry == null || entry.seq < next) {
+                    // 顺序号已分配但还没写入数组，下一轮再取
+                    break;
+                }
+                if (entry.seq > next) {
+                    // 已被覆盖，跳到环中仍保留的最早位置
+                    long oldest = Math.max(next + 1, sequence.get() - ring.length());
+                    dropped.add(oldest - next);
+                    next = oldest;
+                    continue;
+                }
+                batch.add(entry.span);
+                next++;
+                if (batch.size() >= batchSize) {
+                    export(batch);
+                }
+            }
+            export(batch);
+            if (stopping) {
+                return;
+            }
+            try {
+                Thread.sleep(Math.max(1, properties.getExportIntervalMillis()));
+            } catch (InterruptedException e) {
+                running = false;
+            }
+        }
+    }
+
+    private void export(List<Span> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Span> spans = Collections.unmodifiableList(new ArrayList<>(batch));
+        batch.clear();
+        for (SpanExporter exporter : exporters) {
+            try {
+                exporter.export(spans);
+            } catch (RuntimeException e) {
+                log.warn("span导出失败，exporter:{}", exporter.getClass().getName(), e);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final long seq;
+        private final Span span;
+
+        private Entry(long seq, Span span) {
+            this.seq = seq;
+            this.span = span;
+        }
+    }
+}
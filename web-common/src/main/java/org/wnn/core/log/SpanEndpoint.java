@@ -0,0 +1,41 @@
+package org.wnn.core.log;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * span监控端点
+ * <p>
+ * GET /actuator/spans?traceId=xxx 查看一次请求在本服务内各段调用（HTTP入口、Feign调用、SQL、异步任务）的span，按开始时间排序，
+ * 通过 parentSpanId 还原调用关系、找出耗时最长的路径；不带traceId时返回最近结束的span（limit，默认100）。
+ * 需在 management.endpoints.web.exposure.include 中加入 spans 才能通过HTTP访问。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+@Endpoint(id = "spans")
+public class SpanEndpoint {
+
+    private static final int DEFAULT_LIMIT = 100;
+
+    private final SpanBuffer spanBuffer;
+
+    public SpanEndpoint(SpanBuffer spanBuffer) {
+        this.spanBuffer = spanBuffer;
+    }
+
+    /**
+     * @param traceId 链路ID，为空时返回最近的span
+     * @param limit 不带traceId时返回的条数，默认100
+     */
+    @ReadOperation
+    public List<Span> spans(@Nullable String traceId, @Nullable Integer limit) {
+        if (traceId != null && !traceId.isEmpty()) {
+            return spanBuffer.trace(traceId);
+        }
+        return spanBuffer.recent(limit == null ? DEFAULT_LIMIT : limit);
+    }
+}
@@ -0,0 +1,22 @@
+package org.wnn.core.log;
+
+import java.util.List;
+
+/**
+ * span导出接口
+ * <p>
+ * 注册为Bean后由 {@link SpanBuffer} 的后台线程按批调用，可把span发送到日志、消息队列或APM系统；
+ * 在后台线程上执行，耗时不计入请求，但导出过慢时环形缓冲区中来不及导出的span会被覆盖。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public interface SpanExporter {
+
+    /**
+     * 导出一批已结束的span
+     *
+     * @param spans 已结束的span，按结束顺序排列
+     */
+    void export(List<Span> spans);
+}
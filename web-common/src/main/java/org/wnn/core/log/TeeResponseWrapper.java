@@ -0,0 +1,117 @@
+package org.wnn.core.log;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * 响应体旁路捕获包装器
+ * <p>
+ * 与 ContentCachingResponseWrapper 不同，响应体直接写入原始响应，同时只把前若干字节复制到 {@link BodyCapture}，
+ * 不缓存完整响应体，也不需要在请求结束时再整体拷贝到原始响应。
+ * getWriter() 返回的是包装器自己的 PrintWriter，容器不会在请求结束时替它写出缓冲，
+ * 因此请求结束后必须调用 {@link #flushWriter()}，否则缓冲中的字符不会发送给客户端，捕获也不完整。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class TeeResponseWrapper extends HttpServletResponseWrapper {
+
+    private final BodyCapture capture;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    public TeeResponseWrapper(HttpServletResponse response, BodyCapture capture) {
+        super(response);
+        this.capture = capture;
+    }
+
+    public BodyCapture getCapture() {
+        return capture;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called on this response.");
+        }
+        if (outputStream == null) {
+            outputStream = new TeeOutputStream(getResponse().getOutputStream());
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (outputStream != null) {
+            throw new IllegalStateException("getOutputStream() has already been called on this response.");
+        }
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(
+                    new TeeOutputStream(getResponse().getOutputStream()), getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        super.flushBuffer();
+    }
+
+    /**
+     * 把 getWriter() 缓冲中的字符写出到原始响应（同时进入捕获），与是否记录日志无关，请求结束后都要调用
+     */
+    public void flushWriter() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    private class TeeOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+
+        TeeOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            capture.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            capture.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.wnn.core.log;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 带时间戳和节点ID的traceId生成器
+ * <p>
+ * 类似Snowflake的布局，共128位：高48位为毫秒时间戳，随后16位为节点ID，低64位为 {@link ThreadLocalRandom} 随机数。
+ * 不使用Snowflake的全局序列号，各线程之间没有共享的可变状态；同一毫秒、同一节点内靠64位随机数区分。
+ * 按生成时间大致有序，排查问题时可从traceId读出生成时间和节点。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class TimeBasedTraceIdGenerator implements TraceIdGenerator {
+
+    private static final int NODE_BITS = 16;
+    private static final long NODE_MASK = (1L << NODE_BITS) - 1;
+
+    private final long nodeId;
+
+    /**
+     * @param nodeId 节点ID，取低16位
+     */
+    public TimeBasedTraceIdGenerator(long nodeId) {
+        this.nodeId = nodeId & NODE_MASK;
+    }
+
+    @Override
+    public String generate() {
+        long high = (System.currentTimeMillis() << NODE_BITS) | nodeId;
+        return TraceIdEncoder.encode(high, ThreadLocalRandom.current().nextLong(), true);
+    }
+}
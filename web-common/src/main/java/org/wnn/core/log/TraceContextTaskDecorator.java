@@ -0,0 +1,140 @@
+package org.wnn.core.log;
+
+import org.slf4j.MDC;
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * 线程池任务的链路上下文透传
+ * <p>
+ * 提交任务时一次性取出 {@link TraceContext} 的traceId、当前span，以及构造时指定的少量MDC键的值，保存在不可变的任务对象中；
+ * 执行时设置到执行线程，结束后恢复执行线程原有的值。与复制整个MDC再经TTL包装一次相比，提交和执行都不复制Map，
+ * 执行线程原本没有这些值时（线程池线程的常态）恢复过程不分配对象。
+ * </p>
+ * <p>
+ * 只透传上述内容，其他 {@link com.alibaba.ttl.TransmittableThreadLocal} 需要透传时，提交前用 {@link com.alibaba.ttl.TtlRunnable} 包装。
+ * 提交线程不在链路中且指定的MDC键都没有值时，任务原样返回。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public class TraceContextTaskDecorator implements TaskDecorator {
+
+    private static final String SPAN_NAME = "async";
+
+    private final String[] mdcKeys;
+    private final boolean recordSpans;
+
+    /**
+     * @param mdcKeys 除traceId、spanId以外需要透传的MDC键
+     */
+    public TraceContextTaskDecorator(String... mdcKeys) {
+        this(false, mdcKeys);
+    }
+
+    /**
+     * @param recordSpans 是否把每个任务记录为当前span的子span（{@link Span.Kind#ASYNC}），
+     *                    为false时任务沿用提交线程的当前span，任务中的SQL、Feign调用挂在它下面
+     * @param mdcKeys 除traceId、spanId以外需要透传的MDC键
+     */
+    public TraceContextTaskDecorator(boolean recordSpans, String... mdcKeys) {
+        this.recordSpans = recordSpans;
+        this.mdcKeys = mdcKeys == null ? new String[0] : mdcKeys.clone();
+    }
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        String traceId = TraceContext.getTraceId();
+        String[] mdcValues = null;
+        for (int i = 0; i < mdcKeys.length; i++) {
+            String value = MDC.get(mdcKeys[i]);
+            if (value != null) {
+                if (mdcValues == null) {
+                    mdcValues = new String[mdcKeys.length];
+                }
+                mdcValues[i] = value;
+            }
+        }
+        if (traceId == null && mdcValues == null) {
+            return runnable;
+        }
+        return new ContextTask(runnable, traceId, TraceContext.currentSpan(), mdcValues);
+    }
+
+    /**
+     * 携带提交线程上下文的任务，字段在提交时确定后不再修改，同一任务可以重复执行
+     */
+    private final class ContextTask implements Runnable {
+
+        private final Runnable delegate;
+        private final String traceId;
+        private final Span span;
+        private final String[] mdcValues;
+
+        private ContextTask(Runnable delegate, String traceId, Span span, String[] mdcValues) {
+            this.delegate = delegate;
+            this.traceId = traceId;
+            this.span = span;
+            this.mdcValues = mdcValues;
+        }
+
+        @Override
+        public void run() {
+            // 先读出执行线程原有的值再写入：Logback的MDC在读之后的第一次写会复制一次Map，读写交替会复制多次
+            String previousTraceId = TraceContext.getTraceId();
+            Span previousSpan = TraceContext.currentSpan();
+            String previousMdcTraceId = MDC.get(TraceContext.TRACE_ID_KEY);
+            String previousMdcSpanId = MDC.get(TraceContext.SPAN_ID_KEY);
+            String[] previousMdcValues = mdcValues == null ? null : previousMdcValues();
+
+            Span asyncSpan = null;
+            if (traceId != null) {
+                if (recordSpans) {
+                    TraceContext.setTraceId(traceId);
+                    asyncSpan = TraceContext.startAsyncSpan(traceId, span, SPAN_NAME);
+                } else {
+                    TraceContext.attach(traceId, span);
+                }
+            }
+            if (mdcValues != null) {
+                for (int i = 0; i < mdcKeys.length; i++) {
+                    TraceContext.restoreMdc(mdcKeys[i], mdcValues[i]);
+                }
+            }
+            try {
+                delegate.run();
+            } catch (RuntimeException | Error e) {
+                if (asyncSpan != null) {
+                    asyncSpan.markError();
+                }
+                throw e;
+            } finally {
+                TraceContext.finish(asyncSpan);
+                if (traceId != null) {
+                    TraceContext.detach(previousTraceId, previousSpan, previousMdcTraceId, previousMdcSpanId);
+                }
+                if (mdcValues != null) {
+                    for (int i = 0; i < mdcKeys.length; i++) {
+                        TraceContext.restoreMdc(mdcKeys[i], previousMdcValues == null ? null : previousMdcValues[i]);
+                    }
+                }
+            }
+        }
+
+        /**
+         * 执行线程原有的MDC值，都没有时返回null（不分配数组）
+         */
+        private String[] previousMdcValues() {
+            String[] previous = null;
+            for (int i = 0; i < mdcKeys.length; i++) {
+                String value = MDC.get(mdcKeys[i]);
+                if (value != null) {
+                    if (previous == null) {
+                        previous = new String[mdcKeys.length];
+                    }
+                    previous[i] = value;
+                }
+            }
+            return previous;
+        }
+    }
+}
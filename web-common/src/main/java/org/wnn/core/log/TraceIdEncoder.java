@@ -0,0 +1,39 @@
+package org.wnn.core.log;
+
+/**
+ * traceId十六进制编码，直接写入预先分配好长度的字符数组，不经过中间字符串
+ *
+ * @author NanNan Wang
+ */
+final class TraceIdEncoder {
+
+    static final int TRACE_ID_LENGTH = 32;
+
+    private static final char[] UPPER_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final char[] LOWER_DIGITS = "0123456789abcdef".toCharArray();
+
+    private TraceIdEncoder() {
+    }
+
+    /**
+     * 把两个long按高位在前编码为32位十六进制
+     *
+     * @param high 高64位
+     * @param low 低64位
+     * @param upperCase 是否大写
+     */
+    static String encode(long high, long low, boolean upperCase) {
+        char[] digits = upperCase ? UPPER_DIGITS : LOWER_DIGITS;
+        char[] chars = new char[TRACE_ID_LENGTH];
+        writeHex(high, chars, 0, digits);
+        writeHex(low, chars, 16, digits);
+        return new String(chars);
+    }
+
+    private static void writeHex(long value, char[] chars, int offset, char[] digits) {
+        for (int i = offset + 15; i >= offset; i--) {
+            chars[i] = digits[(int) value & 0xF];
+            value >>>= 4;
+        }
+    }
+}
@@ -8,16 +8,16 @@ import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.util.UUID;
 
 /**
  * 分布式追踪过滤器，用于生成、透传和管理请求链路的唯一标识（traceId），支持分布式系统的日志关联与问题排查。
  * <p>
  * 该过滤器通过以下方式实现追踪功能：
  * <ul>
- *   <li>优先从请求头{@value #TRACE_ID_HEADER}获取已有的traceId（适用于微服务间调用，实现链路透传）</li>
- *   <li>若请求头中无traceId，则自动生成一个UUID作为新的traceId（去除横杠并转为大写，确保格式统一）</li>
+ *   <li>优先从W3C请求头{@value #TRACEPARENT_HEADER}获取traceId和上游spanId，其次从请求头{@value #TRACE_ID_HEADER}获取已有的traceId（适用于微服务间调用，实现链路透传）；两者仅大小写不同时沿用{@value #TRACE_ID_HEADER}的原值，保证traceId跨服务不变</li>
+ *   <li>若请求头中无traceId，则由{@link TraceIdGenerator}生成新的traceId（默认32位大写十六进制随机数，与原UUID格式一致）</li>
  *   <li>将traceId存入MDC（Mapped Diagnostic Context），供日志框架在输出日志时自动包含该标识</li>
+ *   <li>整个请求记录为本服务的入口span（{@link Span.Kind#SERVER}），其spanId同样存入MDC，作为Feign调用、SQL等子span的父span</li>
  *   <li>将traceId设置到响应头{@value #TRACE_ID_HEADER}，便于客户端获取并用于后续问题追踪</li>
  *   <li>请求处理完成后清除MDC中的traceId，避免内存泄漏</li>
  * </ul>
@@ -40,6 +40,20 @@ public class TraceIdFilter implements Filter {
      */
     private static final String TRACE_ID_HEADER = "X-Trace-Id";
 
+    /**
+     * W3C trace-context请求头：00-{trace-id}-{parent-id}-{flags}
+     */
+    private static final String TRACEPARENT_HEADER = "traceparent";
+
+    private final TraceIdGenerator traceIdGenerator;
+
+    public TraceIdFilter() {
+        this(new RandomTraceIdGenerator());
+    }
+
+    public TraceIdFilter(TraceIdGenerator traceIdGenerator) {
+        this.traceIdGenerator = traceIdGenerator;
+    }
 
     /**
      * 拦截HTTP请求，处理traceId的生成、透传与清理逻辑
@@ -58,27 +72,77 @@ public class TraceIdFilter implements Filter {
         HttpServletRequest httpRequest = (HttpServletRequest) request;
         HttpServletResponse httpResponse = (HttpServletResponse) response;
 
-        // 1. 尝试从请求头获取已有traceId（微服务调用时透传上游服务的traceId）
-        String traceId = httpRequest.getHeader(TRACE_ID_HEADER);
+        // 1. 尝试从请求头获取已有traceId（微服务调用时透传上游服务的traceId），traceparent优先
+        String traceId;
+        String parentSpanId = null;
+        String traceparent = httpRequest.getHeader(TRACEPARENT_HEADER);
+        if (isValidTraceparent(traceparent)) {
+            traceId = traceparent.substring(3, 35);
+            parentSpanId = traceparent.substring(36, 52);
+            // traceparent要求小写，上游X-Trace-Id若只是大小写不同则沿用原值，避免跨服务后traceId大小写变化导致日志无法关联
+            String headerTraceId = httpRequest.getHeader(TRACE_ID_HEADER);
+            if (traceId.equalsIgnoreCase(headerTraceId)) {
+                traceId = headerTraceId;
+            }
+        } else {
+            traceId = httpRequest.getHeader(TRACE_ID_HEADER);
+        }
         if (traceId == null || traceId.trim().isEmpty()) {
-            // 2. 若不存在则生成新的traceId（UUID去除横杠并大写，减少长度且格式统一）
-            traceId = UUID.randomUUID().toString().replace("-", "").toUpperCase();
+            // 2. 若不存在则生成新的traceId
+            traceId = traceIdGenerator.generate();
         }
 
+        // 3. 将traceId和入口span存入上下文与MDC，供日志框架使用（如输出日志时自动带上该标识）
+        Span span = TraceContext.startTrace(traceId, parentSpanId,
+                httpRequest.getMethod() + " " + httpRequest.getRequestURI());
         try {
-            // 3. 将traceId存入MDC，供日志框架使用（如输出日志时自动带上该标识）
-//            MDC.put(TRACE_ID_KEY, traceId);
-            TraceContext.setTraceId(traceId);
-
             // 4. 将traceId设置到响应头，方便客户端获取并用于问题追踪
             httpResponse.setHeader(TRACE_ID_HEADER, traceId);
 
             // 5. 继续执行过滤器链，将请求传递给后续处理
             chain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException | Error e) {
+            span.markError();
+            throw e;
         } finally {
+            if (httpResponse.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR) {
+                span.markError();
+            }
+            TraceContext.finish(span);
             // 6. 无论请求处理是否成功，都清除MDC中的traceId，避免多线程环境下的上下文污染
 //            MDC.remove(TRACE_ID_KEY);
             TraceContext.clear();
         }
     }
+
+    /**
+     * 校验traceparent格式：版本00，trace-id为32位、parent-id为16位小写十六进制且不全为0
+     */
+    static boolean isValidTraceparent(String traceparent) {
+        if (traceparent == null || traceparent.length() != 55 || !traceparent.startsWith("00-")
+                || traceparent.charAt(35) != '-' || traceparent.charAt(52) != '-') {
+            return false;
+        }
+        return isLowerHex(traceparent, 3, 35) && isLowerHex(traceparent, 36, 52) && isLowerHex(traceparent, 53, 55)
+                && !isZeros(traceparent, 3, 35) && !isZeros(traceparent, 36, 52);
+    }
+
+    private static boolean isLowerHex(String value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isZeros(String value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (value.charAt(i) != '0') {
+                return false;
+            }
+        }
+        return true;
+    }
 }
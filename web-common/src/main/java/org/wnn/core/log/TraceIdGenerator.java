@@ -0,0 +1,39 @@
+package org.wnn.core.log;
+
+/**
+ * traceId生成器
+ * <p>
+ * {@link TraceIdFilter} 在请求头没有traceId时调用，每个请求一次，实现需线程安全且不应有共享的可变状态。
+ * 默认实现见 {@link RandomTraceIdGenerator}、{@link TimeBasedTraceIdGenerator}，
+ * 业务可注册自己的实现Bean替换默认生成器。
+ * </p>
+ *
+ * @author NanNan Wang
+ */
+public interface TraceIdGenerator {
+
+    /**
+     * 生成新的traceId
+     *
+     * @return traceId
+     */
+    String generate();
+
+    /**
+     * traceId格式，对应配置 logging.trace.id-format
+     */
+    enum Format {
+        /**
+         * 128位随机数，32位大写十六进制，与原先去掉横杠并转大写的UUID格式一致
+         */
+        RANDOM,
+        /**
+         * 毫秒时间戳 + 节点ID + 随机数，32位大写十六进制，按生成时间大致有序，可从中读出生成时间和节点
+         */
+        TIME_BASED,
+        /**
+         * 128位随机数，32位小写十六进制且不全为0，可直接用作W3C traceparent中的trace-id
+         */
+        W3C
+    }
+}
@@ -0,0 +1,28 @@
+package org.wnn.core.log;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * traceId配置属性类，与配置文件中"logging.trace"前缀的配置绑定
+ *
+ * @author NanNan Wang
+ */
+@ConfigurationProperties(prefix = "logging.trace")
+@Data
+public class TraceProperties {
+    private TraceIdGenerator.Format idFormat = TraceIdGenerator.Format.RANDOM; // 生成的traceId格式
+    private Long nodeId; // TIME_BASED格式的节点ID（取低16位），不配置时由进程名（pid@主机名）计算
+    private Spans spans = new Spans(); // span记录配置
+
+    /**
+     * span记录配置，与"logging.trace.spans"前缀的配置绑定
+     */
+    @Data
+    public static class Spans {
+        private boolean enabled = true; // 是否把HTTP入口、Feign调用、SQL、异步任务记录为span
+        private int bufferSize = 4096; // 环形缓冲区保留的span数量（向上取2的幂）
+        private long exportIntervalMillis = 1000; // 注册了SpanExporter时，后台线程导出的间隔（毫秒）
+        private int exportBatchSize = 512; // 每批导出的最大span数量
+    }
+}
@@ -1,37 +1,26 @@
 package org.wnn.core.log;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import lombok.Data;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
-import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
-import org.springframework.util.AntPathMatcher;
 import org.springframework.web.filter.OncePerRequestFilter;
-import org.springframework.web.util.ContentCachingRequestWrapper;
-import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.servlet.HandlerMapping;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
-import java.nio.charset.StandardCharsets;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 全局请求日志记录过滤器，用于捕获并记录HTTP请求与响应的详细信息，支持敏感数据掩码和路径过滤。
@@ -39,33 +28,67 @@ import java.util.stream.Collectors;
  * 该过滤器继承自{@link OncePerRequestFilter}，确保每个请求仅被处理一次。主要功能包括：
  * <ul>
  *   <li>记录请求方法、URI、查询参数、客户端地址等基本信息</li>
- *   <li>捕获请求体（针对JSON类型的POST/PUT/PATCH请求）和响应体（可配置开关）</li>
+ *   <li>捕获请求体（针对JSON类型的POST/PUT/PATCH请求）和响应体（可配置开关），只旁路复制前若干字节，可按比例采样</li>
  *   <li>生成或复用traceId用于分布式追踪，关联请求全链路</li>
- *   <li>对敏感数据（如password、token）进行掩码处理，避免日志泄露</li>
+ *   <li>对敏感数据（默认password、token，可配置字段名和JSON路径）进行掩码处理，避免日志泄露</li>
  *   <li>支持配置排除特定路径（如静态资源、Swagger文档）的日志记录</li>
  *   <li>记录请求处理耗时，便于性能分析</li>
+ *   <li>每个请求都按接口（Spring MVC匹配的路由模板）记入{@link HttpRouteStatsRegistry}，统计耗时分布和状态码类别</li>
  * </ul>
  * 日志输出格式为JSON，便于日志收集与分析系统解析。
  * </p>
+ * <p>
+ * 过滤器只在请求线程上复制需要的原始数据，解码、掩码和序列化交给{@link RequestLogWriter}的后台线程，
+ * 不再增加客户端的响应时间。
+ * </p>
  *
  * @author NanNan Wang
  * @see OncePerRequestFilter 确保过滤器对每个请求仅执行一次
- * @see ContentCachingRequestWrapper 用于缓存请求体，便于后续读取
- * @see ContentCachingResponseWrapper 用于缓存响应体，便于日志记录
+ * @see TeeRequestWrapper 读取请求体时旁路捕获前若干字节
+ * @see TeeResponseWrapper 写出响应体时旁路捕获前若干字节
  */
 public class WebHttpRequestLoggingFilter extends OncePerRequestFilter {
 
-    private static final Logger logger = LoggerFactory.getLogger("reqLog");
-    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_INSTANT;
-    private final ObjectMapper objectMapper;
     private final LoggingProperties props;
-    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    private final RequestLogWriter requestLogWriter;
+    private final HttpRouteStatsRegistry routeStatsRegistry;
+    private final TraceIdGenerator traceIdGenerator;
+    private volatile ExcludePathMatcher excludePathMatcher;
+    private final BodyCapture.Pool requestBufferPool;
+    private final BodyCapture.Pool responseBufferPool;
 
     public WebHttpRequestLoggingFilter(LoggingProperties props) {
+        this(props, new RequestLogWriter(props));
+    }
+
+    public WebHttpRequestLoggingFilter(LoggingProperties props, RequestLogWriter requestLogWriter) {
+        this(props, requestLogWriter, null);
+    }
+
+    /**
+     * @param props 请求日志配置
+     * @param requestLogWriter 请求日志输出
+     * @param routeStatsRegistry 接口请求统计，为null时不统计
+     */
+    public WebHttpRequestLoggingFilter(LoggingProperties props, RequestLogWriter requestLogWriter,
+                                       HttpRouteStatsRegistry routeStatsRegistry) {
+        this(props, requestLogWriter, routeStatsRegistry, new RandomTraceIdGenerator());
+    }
+
+    /**
+     * @param props 请求日志配置
+     * @param requestLogWriter 请求日志输出
+     * @param routeStatsRegistry 接口请求统计，为null时不统计
+     * @param traceIdGenerator 未经过{@link TraceIdFilter}的请求生成traceId
+     */
+    public WebHttpRequestLoggingFilter(LoggingProperties props, RequestLogWriter requestLogWriter,
+                                       HttpRouteStatsRegistry routeStatsRegistry, TraceIdGenerator traceIdGenerator) {
         this.props = props;
-        this.objectMapper = Jackson2ObjectMapperBuilder.json()
-                .modules(new JavaTimeModule())
-                .build();
+        this.requestLogWriter = requestLogWriter;
+        this.routeStatsRegistry = routeStatsRegistry;
+        this.traceIdGenerator = traceIdGenerator;
+        this.requestBufferPool = new BodyCapture.Pool(props.getMaxRequestLength(), props.getCaptureBufferPoolSize());
+        this.responseBufferPool = new BodyCapture.Pool(props.getMaxResponseLength(), props.getCaptureBufferPoolSize());
     }
 
     /**
@@ -79,176 +102,157 @@ public class WebHttpRequestLoggingFilter extends OncePerRequestFilter {
      */
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
 
-        // 检查请求是否需要跳过日志记录
+        // 检查请求是否需要跳过日志记录（接口统计仍然记录）
         if (shouldSkipLogging(request)) {
-            filterChain.doFilter(request, response);
-            MDC.remove("bizCode");  // 清理MDC中的业务编码，防止内存泄漏
+            boolean failed = true;
+            try {
+                filterChain.doFilter(request, response);
+                failed = false;
+            } finally {
+                recordRoute(request, response, System.nanoTime() - start, failed);
+                MDC.remove("bizCode");  // 清理MDC中的业务编码，防止内存泄漏
+            }
             return;
         }
 
-        // 包装请求（针对JSON类型的写操作请求）和响应（用于缓存响应体）
-        HttpServletRequest wrappedRequest = wrapRequest(request);
-        ContentCachingResponseWrapper wrappedResponse = new ContentCachingResponseWrapper(response);
+        // 按采样比例决定是否捕获请求体/响应体，未采样的请求仍按条件记录日志，只是不含报文
+        boolean sampled = isSampled();
+        // 包装请求（针对JSON类型的写操作请求）和响应，只旁路捕获前若干字节
+        HttpServletRequest wrappedRequest = sampled && props.isLogRequestBody() ? wrapRequest(request) : request;
+        HttpServletResponse wrappedResponse = sampled && props.isLogResponseBody()
+                ? new TeeResponseWrapper(response, new BodyCapture(responseBufferPool)) : response;
 
+        boolean failed = true;
         try {
             filterChain.doFilter(wrappedRequest, wrappedResponse);
+            failed = false;
         } finally {
-            // 计算请求耗时并记录日志
-            long duration = System.currentTimeMillis() - start;
-            logRequest(wrappedRequest, wrappedResponse, duration);
-            // 将缓存的响应体写回原始响应，避免客户端无法获取响应
-            wrappedResponse.copyBodyToResponse();
-            MDC.remove("bizCode");  // 清理MDC中的业务编码，防止内存泄漏
+            // 计算请求耗时，写出响应包装器的字符缓冲后再记入接口统计并记录日志
+            long nanos = System.nanoTime() - start;
+            if (wrappedResponse instanceof TeeResponseWrapper) {
+                ((TeeResponseWrapper) wrappedResponse).flushWriter();
+            }
+            try {
+                recordRoute(request, response, nanos, failed);
+                logRequest(wrappedRequest, wrappedResponse, TimeUnit.NANOSECONDS.toMillis(nanos));
+            } finally {
+                releaseCapture(wrappedRequest, wrappedResponse);
+                MDC.remove("bizCode");  // 清理MDC中的业务编码，防止内存泄漏
+            }
         }
     }
 
     /**
-     * 包装请求对象，对JSON类型的写操作请求使用内容缓存包装器
+     * 记入接口统计：按处理器匹配的路由模板聚合，未匹配到处理器时为null；
+     * 请求处理抛出异常时容器随后会返回500，此时响应状态码尚未设置，按500统计
+     *
+     * @param nanos 处理耗时（纳秒）
+     * @param failed 过滤器链是否抛出了异常
+     */
+    private void recordRoute(HttpServletRequest request, HttpServletResponse response, long nanos, boolean failed) {
+        if (routeStatsRegistry == null) {
+            return;
+        }
+        Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        int status = failed && !response.isCommitted() ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+        routeStatsRegistry.record(request.getMethod(), route instanceof String ? (String) route : null, status,
+                TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    private boolean isSampled() {
+        double rate = props.getCaptureSampleRate();
+        return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    private static void releaseCapture(HttpServletRequest request, HttpServletResponse response) {
+        if (request instanceof TeeRequestWrapper) {
+            ((TeeRequestWrapper) request).getCapture().release();
+        }
+        if (response instanceof TeeResponseWrapper) {
+            ((TeeResponseWrapper) response).getCapture().release();
+        }
+    }
+
+    /**
+     * 包装请求对象，对JSON类型的写操作请求使用旁路捕获包装器
      *
      * @param request 原始HTTP请求
-     * @return 包装后的请求对象：对于POST/PUT/PATCH且Content-Type为JSON的请求，返回{@link ContentCachingRequestWrapper}；否则返回原始请求
+     * @return 包装后的请求对象：对于POST/PUT/PATCH且Content-Type为JSON的请求，返回{@link TeeRequestWrapper}；否则返回原始请求
      */
     private HttpServletRequest wrapRequest(HttpServletRequest request) {
         String method = request.getMethod();
         String contentType = request.getContentType();
         if ((HttpMethod.POST.matches(method) || HttpMethod.PUT.matches(method) || HttpMethod.PATCH.matches(method)) &&
                 MediaType.APPLICATION_JSON_VALUE.equalsIgnoreCase(contentType)) {
-            return new ContentCachingRequestWrapper(request);
+            return new TeeRequestWrapper(request, new BodyCapture(requestBufferPool));
         }
         return request;
     }
 
 
     /**
-     * 记录请求与响应的详细信息到日志
+     * 生成请求日志快照并提交给{@link RequestLogWriter}
+     * <p>
+     * 只有响应码不是200或耗时超过阈值的请求才输出日志，先判定再复制请求/响应体；
+     * Servlet线程上只复制原始字节和元数据，解码、掩码、序列化都在日志线程完成。
+     * </p>
      *
      * @param request 可能被包装的请求对象
-     * @param response 缓存响应体的响应包装器
+     * @param response 可能被包装的响应对象
      * @param duration 请求处理耗时（毫秒）
      */
-    private void logRequest(HttpServletRequest request, ContentCachingResponseWrapper response, long duration) {
-        LogEntry log = new LogEntry();
-
+    private void logRequest(HttpServletRequest request, HttpServletResponse response, long duration) {
         // 获取或生成traceId，用于分布式追踪
         String traceId = MDC.get("traceId");
         if (traceId == null) {
-            traceId = UUID.randomUUID().toString();
+            traceId = traceIdGenerator.generate();
             MDC.put("traceId", traceId);
         }
 
-        // 填充日志基本信息
-        log.setTraceId(traceId);
-        log.setTimestamp(FORMATTER.format(LocalDateTime.now().atZone(ZoneOffset.UTC)));
-        log.setMethod(request.getMethod());
-        log.setUri(request.getRequestURI());
-        log.setQueryString(request.getQueryString());
-        log.setRemoteAddr(request.getRemoteAddr());
-        log.setDuration(duration);
-
         // 记录响应状态码（优先使用业务自定义编码）
+        int responseCode = response.getStatus();
         String bizCode = MDC.get("bizCode");
         if (bizCode != null) {
             try {
-                log.setResponseCode(Integer.parseInt(bizCode));
+                responseCode = Integer.parseInt(bizCode);
             } catch (NumberFormatException e) {
-                log.setResponseCode(response.getStatus());
+                responseCode = response.getStatus();
             }
-        } else {
-            log.setResponseCode(response.getStatus());
+        }
+        if (responseCode == 200 && duration <= props.getMaxResponseTimeMillis()) {
+            return;
         }
 
         // 记录请求参数或请求体
-        if (request instanceof ContentCachingRequestWrapper && props.isLogRequestBody()) {
-            ContentCachingRequestWrapper wrapper = (ContentCachingRequestWrapper) request;
-            byte[] content = wrapper.getContentAsByteArray();
-
-            String payload;
-            try {
-                String contentType = Optional.ofNullable(wrapper.getContentType()).orElse("").toLowerCase();
-                boolean isTextContent = contentType.contains("json") || contentType.contains("xml")
-                        || contentType.contains("html") || contentType.contains("text") || contentType.isEmpty();
-
-                if (isTextContent) {
-                    payload = new String(content, wrapper.getCharacterEncoding());
-
-                    int maxLen = props.getMaxRequestLength(); // 你可以新增一个配置项
-                    if (payload.length() > maxLen) {
-                        payload = payload.substring(0, maxLen) +
-                                String.format("...(truncated, totalLength=%d)", payload.length());
-                    }
-                } else {
-                    payload = String.format("[binary content, length=%d bytes]", content.length);
-                }
-            } catch (UnsupportedEncodingException e) {
-                payload = "[unreadable payload]";
-            }
-
-            log.setPayload(maskSensitiveData(payload));
-
-        } else if(props.isLogRequestParams()) {
+        byte[] requestBody = null;
+        long requestBodyLength = 0;
+        String requestEncoding = null;
+        Map<String, String[]> parameters = null;
+        if (request instanceof TeeRequestWrapper) {
+            BodyCapture capture = ((TeeRequestWrapper) request).getCapture();
+            requestBody = capture.toByteArray();
+            requestBodyLength = capture.getTotalLength();
+            requestEncoding = request.getCharacterEncoding();
+        } else if (props.isLogRequestParams()) {
             // 对于非JSON请求，记录表单参数
-            String args = request.getParameterMap().entrySet().stream()
-                    .map(entry -> entry.getKey() + "=" + String.join(",", entry.getValue()))
-                    .collect(Collectors.joining("&"));
-
-            int maxLen = props.getMaxRequestLength();
-            if (args.length() > maxLen) {
-                args = args.substring(0, maxLen) +
-                        String.format("...(truncated, totalLength=%d)", args.length());
-            }
-            log.setArgs(args);
+            parameters = new LinkedHashMap<>(request.getParameterMap());
         }
 
-        // 若启用响应体日志，记录响应内容（截断超长内容）
-        if (props.isLogResponseBody()) {
-            byte[] body = response.getContentAsByteArray();
-
-            String contentType = Optional.ofNullable(response.getContentType()).orElse("").toLowerCase();
-            String responseBody;
-
-            // 判断是否是文本内容
-            boolean isTextContent = contentType.contains("json") || contentType.contains("xml")
-                    || contentType.contains("html") || contentType.contains("text");
-
-            if (isTextContent) {
-                // 按UTF-8安全解码
-                responseBody = new String(body, StandardCharsets.UTF_8);
-
-                // 截断逻辑
-                int maxLen = props.getMaxResponseLength();
-                if (responseBody.length() > maxLen) {
-                    responseBody = responseBody.substring(0, maxLen) +
-                            String.format("...(truncated, totalLength=%d)", responseBody.length());
-                }
-            } else {
-                // 非文本直接提示，不输出原内容
-                responseBody = String.format("[binary content, length=%d bytes]", body.length);
-            }
-
-            log.setResponseBody(maskSensitiveData(responseBody));
+        // 若启用响应体日志，记录响应内容
+        byte[] responseBody = null;
+        long responseBodyLength = 0;
+        if (response instanceof TeeResponseWrapper) {
+            TeeResponseWrapper wrapper = (TeeResponseWrapper) response;
+            responseBody = wrapper.getCapture().toByteArray();
+            responseBodyLength = wrapper.getCapture().getTotalLength();
         }
-        try {
-            if(log.getResponseCode() != 200 || duration > props.getMaxResponseTimeMillis()) {
-                logger.info(objectMapper.writeValueAsString(log));
-            }
-        } catch (JsonProcessingException e) {
-            logger.error("Failed to serialize request log", e);
-        }
-    }
-
 
-    /**
-     * 对日志中的敏感数据进行掩码处理
-     *
-     * @param text 原始文本（请求体或响应体JSON字符串）
-     * @return 处理后的文本，其中password和token字段的值被替换为"****"
-     */
-    private String maskSensitiveData(String text) {
-        return text
-                .replaceAll("\"password\"\\s*:\\s*\".*?\"", "\"password\":\"****\"")
-                .replaceAll("\"token\"\\s*:\\s*\".*?\"", "\"token\":\"****\"");
+        requestLogWriter.submit(new RequestLogSnapshot(System.currentTimeMillis(), traceId, request.getMethod(),
+                request.getRequestURI(), request.getQueryString(), request.getRemoteAddr(), duration, responseCode,
+                parameters, requestBody, requestBodyLength, request.getContentType(), requestEncoding,
+                responseBody, responseBodyLength, response.getContentType()));
     }
 
 
@@ -268,13 +272,20 @@ public class WebHttpRequestLoggingFilter extends OncePerRequestFilter {
         }
 
         // 为了排除一些静态资源请求、swagger等非业务请求
-        for (String pattern : props.getExcludePaths()) {
-            if (pathMatcher.match(pattern, uri)) {
-                return true;
-            }
-        }
+        return excludePathMatcher().matches(uri);
+    }
 
-        return false;
+    /**
+     * 排除路径在第一次使用时编译，配置刷新（重新绑定了排除路径列表）后重新编译
+     */
+    private ExcludePathMatcher excludePathMatcher() {
+        ExcludePathMatcher matcher = excludePathMatcher;
+        List<String> excludePaths = props.getExcludePaths();
+        if (matcher == null || !matcher.isCompiledFrom(excludePaths)) {
+            matcher = new ExcludePathMatcher(excludePaths, props.getExcludeCacheSize());
+            excludePathMatcher = matcher;
+        }
+        return matcher;
     }
 
     /**
@@ -306,9 +317,39 @@ public class WebHttpRequestLoggingFilter extends OncePerRequestFilter {
         private boolean logResponseBody = false; // 是否启用响应体日志记录
         private boolean logRequestBody = false; // 是否启用请求体日志记录
         private boolean logRequestParams = false; // 是否启用请求参数日志记录
-        private int maxResponseLength = 2000;  // 响应体日志的最大长度（超出部分截断）
-        private int maxRequestLength = 2000; // 请求体日志的最大长度（超出部分截断，默认2000字符）
+        private int maxResponseLength = 2000;  // 响应体日志的最大字节数（只捕获前这么多字节，超出部分截断）
+        private int maxRequestLength = 2000; // 请求体日志的最大字节数（只捕获前这么多字节，超出部分截断，默认2000）
+        private double captureSampleRate = 1.0; // 捕获请求体/响应体的请求比例（0~1），未采样的请求日志不含报文
+        private int captureBufferPoolSize = 64; // 捕获缓冲区池中保留的缓冲区数量（请求体、响应体各一个池）
         private long maxResponseTimeMillis = 2000; // 最大响应时间（毫秒）：超过此时间的请求才记录日志
         private List<String> excludePaths = new ArrayList<>();  // 排除日志记录的路径列表（支持Ant风格表达式）
+        private int excludeCacheSize = 4096; // 排除路径匹配结果按URI缓存的最大数量，0表示不缓存
+        private List<String> maskFields = new ArrayList<>(Arrays.asList("password", "token")); // 需掩码的字段名（任意层级，不区分大小写）
+        private List<String> maskPaths = new ArrayList<>(); // 需掩码字段的JSON路径，如 $.data.accessToken、$.items[*].idCard
+        private String maskReplacement = "****"; // 掩码
+        private Async async = new Async(); // 异步输出配置
+        private Metrics metrics = new Metrics(); // 接口请求统计配置
+
+        /**
+         * 请求日志异步输出配置，与"logging.request.async"前缀的配置绑定
+         */
+        @Data
+        public static class Async {
+            private boolean enabled = true; // 是否在后台线程输出请求日志，关闭后在请求线程同步输出
+            private int bufferSize = 1024; // 等待输出的日志队列容量
+            private RequestLogWriter.OverflowPolicy overflowPolicy = RequestLogWriter.OverflowPolicy.DROP; // 队列满时的处理策略
+            private long offerTimeoutMillis = 10; // BLOCK策略下等待空位的最长时间（毫秒），超时后丢弃
+            private int batchSize = 128; // 后台线程每批最多输出的日志数量
+        }
+
+        /**
+         * 接口请求统计配置，与"logging.request.metrics"前缀的配置绑定（仍需 logging.request.enabled=true）
+         */
+        @Data
+        public static class Metrics {
+            private boolean enabled = true; // 是否按接口统计每个请求的耗时分布和状态码类别
+            private int maxRoutes = 500; // 最多统计的接口数量（请求方法 + 路由模板），超过后新的接口合并统计
+            private long latencyWindowSeconds = 60; // 导出的耗时百分位指标的统计窗口（秒），只反映最近 1 ~ 2 个窗口内的请求
+        }
     }
 }
@@ -0,0 +1,165 @@
+package org.wnn.core.log;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 请求日志排除路径匹配器：编译后的精确路径、前缀树与通配符匹配结果必须与 {@link AntPathMatcher} 一致
+ *
+ * @author NanNan Wang
+ */
+class ExcludePathMatcherTest {
+
+    private static final List<String> PATTERNS = Arrays.asList(
+            "/health",
+            "/health/",
+            "/api/v1/ping",
+            "/a//c",
+            "/**",
+            "/swagger-resources/**",
+            "/webjars/**",
+            "/api/**",
+            "/a/b/**",
+            "/static/*",
+            "/*.js",
+            "/**/*.css",
+            "/files/*/download",
+            "/users/{id}",
+            "/users/{id}/orders/**",
+            "/v?/status",
+            "/doc.html",
+            "/trailing/**/",
+            "/trailing/*/",
+            "relative/**");
+
+    private static final List<String> URIS = Arrays.asList(
+            "",
+            "/",
+            "//",
+            "/health",
+            "/health/",
+            "//health",
+            "/health//",
+            "/health/x",
+            "/Health",
+            "/api/v1/ping",
+            "/api/v1/ping/",
+            "/api/v1//ping",
+            "/a/c",
+            "/a//c",
+            "/a//c/",
+            "/api",
+            "/api/",
+            "/apix",
+            "/api/v1/users",
+            "//api//v1",
+            "/swagger-resources",
+            "/swagger-resources/",
+            "/swagger-resources/configuration/ui",
+            "/swagger-resources//configuration",
+            "/swagger-resourcesx",
+            "/webjars/js/app.js",
+            "/a",
+            "/a/b",
+            "/a/b/",
+            "/a/bc",
+            "/a/b/c/d",
+            "//a/b",
+            "/static",
+            "/static/",
+            "/static/app.js",
+            "/static/js/app.js",
+            "/app.js",
+            "/js/app.js",
+            "/site.css",
+            "/css/site.css",
+            "/files/1/download",
+            "/files/download",
+            "/files/1/2/download",
+            "/users/42",
+            "/users/42/",
+            "/users/",
+            "/users/42/orders",
+            "/users/42/orders/7",
+            "/v1/status",
+            "/v10/status",
+            "/doc.html",
+            "/docxhtml",
+            "/trailing/x",
+            "/trailing/x/",
+            "/trailing/x/y/",
+            "relative/x",
+            "relative",
+            "/relative/x",
+            "no-leading-slash");
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+    @Test
+    void eachPatternAloneAgreesWithAntPathMatcher() {
+        List<String> mismatches = new ArrayList<>();
+        for (String pattern : PATTERNS) {
+            ExcludePathMatcher uncached = new ExcludePathMatcher(Collections.singletonList(pattern), 0);
+            ExcludePathMatcher cached = new ExcludePathMatcher(Collections.singletonList(pattern), 1000);
+            for (String uri : URIS) {
+                boolean expected = antPathMatcher.match(pattern, uri);
+                // 缓存的匹配器连续判断两次，第二次命中缓存
+                if (uncached.matches(uri) != expected || cached.matches(uri) != expected || cached.matches(uri) != expected) {
+                    mismatches.add(pattern + " ~ " + uri + " 期望" + expected);
+                }
+            }
+        }
+        assertTrue(mismatches.isEmpty(), () -> "与AntPathMatcher不一致：" + mismatches);
+    }
+
+    @Test
+    void patternListMatchesWhenAnyAntPatternMatches() {
+        // 去掉 /** 后组合匹配，否则所有以 / 开头的URI都被排除
+        List<String> patterns = new ArrayList<>(PATTERNS);
+        patterns.remove("/**");
+        ExcludePathMatcher matcher = new ExcludePathMatcher(patterns, 1000);
+        List<String> mismatches = new ArrayList<>();
+        for (String uri : URIS) {
+            boolean expected = patterns.stream().anyMatch(pattern -> antPathMatcher.match(pattern, uri));
+            if (matcher.matches(uri) != expected) {
+                mismatches.add(uri + " 期望" + expected);
+            }
+        }
+        assertTrue(mismatches.isEmpty(), () -> "与AntPathMatcher不一致：" + mismatches);
+    }
+
+    @Test
+    void cacheIsClearedWhenFullAndKeepsAnswering() {
+        ExcludePathMatcher matcher = new ExcludePathMatcher(Arrays.asList("/users/{id}", "/static/**"), 2);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(matcher.matches("/users/" + i));
+            assertFalse(matcher.matches("/orders/" + i));
+        }
+        assertTrue(matcher.matches("/static/app.js"));
+    }
+
+    @Test
+    void emptyOrNullPatternsExcludeNothing() {
+        assertFalse(new ExcludePathMatcher(null, 10).matches("/health"));
+        assertFalse(new ExcludePathMatcher(Arrays.asList(null, ""), 10).matches(""));
+    }
+
+    @Test
+    void compiledFromComparesTheListReference() {
+        List<String> patterns = Collections.singletonList("/health");
+        ExcludePathMatcher matcher = new ExcludePathMatcher(patterns, 10);
+
+        assertTrue(matcher.isCompiledFrom(patterns));
+        assertFalse(matcher.isCompiledFrom(new ArrayList<>(patterns)));
+        assertTrue(matcher.matches("/health"));
+    }
+}
@@ -0,0 +1,179 @@
+package org.wnn.core.log;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 日志敏感数据掩码：JSON单遍掩码、普通文本扫描与截断报文
+ *
+ * @author NanNan Wang
+ */
+class SensitiveDataMaskerTest {
+
+    private static final String MASK = "******";
+    private static final int MAX_LENGTH = 4096;
+
+    private final SensitiveDataMasker masker = new SensitiveDataMasker(
+            Arrays.asList("password", "token", "accessToken", "idCard", "card", "pass", "secret", "secretKey"),
+            Arrays.asList("$.data.mobile", "$.items[*].bankNo", "$.rows[1].name"),
+            MASK);
+
+    @Test
+    void masksSensitiveFieldsAtAnyDepth() {
+        String json = "{\"user\":{\"name\":\"tom\",\"profile\":{\"PassWord\":\"p1\"}},\"list\":[{\"token\":\"t1\"},{\"token\":\"t2\"}]}";
+
+        assertEquals("{\"user\":{\"name\":\"tom\",\"profile\":{\"PassWord\":\"******\"}},\"list\":[{\"token\":\"******\"},{\"token\":\"******\"}]}",
+                maskJson(json));
+    }
+
+    @Test
+    void replacesSensitiveObjectAndArrayValuesAsAWhole() {
+        String json = "{\"password\":{\"old\":\"a\",\"new\":[\"b\",\"c\"]},\"token\":[1,{\"x\":2}],\"next\":true}";
+
+        assertEquals("{\"password\":\"******\",\"token\":\"******\",\"next\":true}", maskJson(json));
+    }
+
+    @Test
+    void masksJsonPathsWithWildcardAndConcreteIndexes() {
+        String json = "{\"data\":{\"mobile\":\"13800000000\",\"other\":{\"mobile\":\"keep\"}},"
+                + "\"items\":[{\"bankNo\":\"6222\"},{\"bankNo\":\"6223\"}],\"bankNo\":\"top\","
+                + "\"rows\":[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"}]}";
+
+        assertEquals("{\"data\":{\"mobile\":\"******\",\"other\":{\"mobile\":\"keep\"}},"
+                + "\"items\":[{\"bankNo\":\"******\"},{\"bankNo\":\"******\"}],\"bankNo\":\"top\","
+                + "\"rows\":[{\"name\":\"a\"},{\"name\":\"******\"},{\"name\":\"c\"}]}", maskJson(json));
+    }
+
+    @Test
+    void keepsEscapedStringsIntactAndOnlyMasksByFieldName() {
+        String json = "{\"note\":\"say \\\"password\\\":\\\"x\\\" and a\\\\b\\n\",\"password\":\"a\\\"b\"}";
+
+        assertEquals("{\"note\":\"say \\\"password\\\":\\\"x\\\" and a\\\\b\\n\",\"password\":\"******\"}", maskJson(json));
+    }
+
+    @Test
+    void masksEscapedQuotesInsideTextValues() {
+        String text = "invalid {\"password\":\"a\\\"b\\\"c\",\"name\":\"tom\"";
+
+        assertEquals("invalid {\"password\":\"******\",\"name\":\"tom\"", masker.maskText(text));
+    }
+
+    @Test
+    void fallsBackToTextMaskingForNonJsonBodies() {
+        String body = "user=tom&password=secret1&token=t1; mypassword=keep";
+
+        assertEquals("user=tom&password=******&token=******; mypassword=keep", maskJson(body));
+        assertEquals("user=tom&password=******&token=******; mypassword=keep", masker.maskText(body));
+    }
+
+    @Test
+    void truncatedJsonOutputsTheProcessedPrefixWithTotalLength() {
+        String json = "{\"a\":\"1\",\"password\":\"secret1\",\"b\":\"2222222222\"}";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        byte[] captured = Arrays.copyOf(bytes, json.indexOf("222"));
+
+        String masked = masker.maskJson(captured, bytes.length, StandardCharsets.UTF_8, MAX_LENGTH);
+
+        assertTrue(masked.startsWith("{\"a\":\"1\",\"password\":\"******\""), masked);
+        assertTrue(masked.endsWith("...(truncated, totalLength=" + bytes.length + ")"), masked);
+        assertFalse(masked.contains("secret1"), masked);
+    }
+
+    @Test
+    void truncationInsideSensitiveValueDoesNotLeakIt() {
+        String json = "{\"a\":\"1\",\"password\":\"secret1\"}";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        byte[] captured = Arrays.copyOf(bytes, json.indexOf("ret1"));
+
+        String masked = masker.maskJson(captured, bytes.length, StandardCharsets.UTF_8, MAX_LENGTH);
+
+        assertFalse(masked.contains("sec"), masked);
+        assertTrue(masked.endsWith("...(truncated, totalLength=" + bytes.length + ")"), masked);
+    }
+
+    @Test
+    void truncationInsideMultiByteCharacterDropsTheIncompleteCharacter() {
+        String json = "{\"name\":\"张三丰\"}";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        // 截在“三”的第二个字节之后
+        byte[] captured = Arrays.copyOf(bytes, "{\"name\":\"张".getBytes(StandardCharsets.UTF_8).length + 2);
+
+        String masked = masker.maskText(captured, bytes.length, StandardCharsets.UTF_8, MAX_LENGTH);
+
+        assertEquals("{\"name\":\"张...(truncated, totalLength=" + bytes.length + ")", masked);
+        assertFalse(maskJson(captured, bytes.length).contains("�"));
+    }
+
+    @Test
+    void truncatedTextMasksValueUpToTheEnd() {
+        String text = "user=tom&password=secr";
+
+        assertEquals("user=tom&password=******...(truncated, totalLength=100)",
+                masker.maskText(text.getBytes(StandardCharsets.UTF_8), 100, StandardCharsets.UTF_8, MAX_LENGTH));
+        assertEquals("{\"password\":\"******", masker.maskText("{\"password\":\"secr"));
+    }
+
+    @Test
+    void outputLongerThanMaxLengthIsCut() {
+        String json = "{\"password\":\"p\",\"name\":\"abcdefghijklmnopqrstuvwxyz\"}";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+
+        String masked = masker.maskJson(bytes, bytes.length, StandardCharsets.UTF_8, 30);
+
+        assertEquals("{\"password\":\"******\",\"name\":\"a...(truncated, totalLength=" + bytes.length + ")", masked);
+    }
+
+    @Test
+    void overlappingKeywordsMaskTheLongestMatchingField() {
+        assertEquals("accessToken=******&token=******", masker.maskText("accessToken=abc&token=t2"));
+        assertEquals("{\"idCard\":\"******\",\"card\":\"******\"}", masker.maskText("{\"idCard\":\"110\",\"card\":\"622\"}"));
+        assertEquals("secretKey=******,secret=******", masker.maskText("secretKey=k1,secret=s1"));
+    }
+
+    @Test
+    void keywordPrefixesAndSuffixesAloneAreNotMasked() {
+        assertEquals("passport=E123&password=******", masker.maskText("passport=E123&password=p1"));
+        assertEquals("{\"tokens\":\"keep\",\"xtoken\":\"keep\"}", masker.maskText("{\"tokens\":\"keep\",\"xtoken\":\"keep\"}"));
+    }
+
+    @Test
+    void repeatedAndAdjacentMatchesAreAllMasked() {
+        assertEquals("{\"token\":\"******\",\"token\":\"******\"}", masker.maskText("{\"token\":\"a\",\"token\":\"b\"}"));
+        assertEquals("pass=******;password=******", masker.maskText("pass=x;password=y"));
+    }
+
+    @Test
+    void textWithoutConfiguredFieldsIsReturnedAsIs() {
+        SensitiveDataMasker empty = new SensitiveDataMasker(Collections.emptyList(), Collections.emptyList(), MASK);
+        String text = "password=p1";
+
+        assertEquals(text, empty.maskText(text));
+        assertEquals("{\"password\":\"p1\"}", empty.maskJson("{\"password\":\"p1\"}".getBytes(StandardCharsets.UTF_8), 16,
+                StandardCharsets.UTF_8, MAX_LENGTH));
+    }
+
+    @Test
+    void nonUtf8CharsetIsDecodedBeforeMasking() {
+        Charset gbk = Charset.forName("GBK");
+        byte[] bytes = "{\"名字\":\"张三\",\"password\":\"p1\"}".getBytes(gbk);
+
+        assertEquals("{\"名字\":\"张三\",\"password\":\"******\"}", masker.maskJson(bytes, bytes.length, gbk, MAX_LENGTH));
+    }
+
+    private String maskJson(String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        return maskJson(bytes, bytes.length);
+    }
+
+    private String maskJson(byte[] content, long totalLength) {
+        return masker.maskJson(content, totalLength, StandardCharsets.UTF_8, MAX_LENGTH);
+    }
+}